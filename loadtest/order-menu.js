@@ -0,0 +1,76 @@
+// k6 壓力測試：比較平台執行緒與虛擬執行緒模式下的菜單查詢與下單端點。
+// 資料請先以 datagen profile 產生 (帳號 user%08d / password123，顧客地址 ID = 用戶 ID)。
+//
+//   k6 run -e BASE_URL=http://localhost:8084 -e VUS=400 loadtest/order-menu.js
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend, Rate } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8084';
+const CUSTOMERS = parseInt(__ENV.CUSTOMERS || '1000000');
+const RESTAURANTS = parseInt(__ENV.RESTAURANTS || '50000');
+const MENU_ITEMS_PER_RESTAURANT = parseInt(__ENV.MENU_ITEMS_PER_RESTAURANT || '30');
+const VUS = parseInt(__ENV.VUS || '200');
+const DURATION = __ENV.DURATION || '2m';
+
+const menuLatency = new Trend('menu_latency', true);
+const orderLatency = new Trend('order_latency', true);
+const rejected = new Rate('rejected_503');
+
+export const options = {
+    scenarios: {
+        menu: { executor: 'constant-vus', vus: Math.ceil(VUS * 0.8), duration: DURATION, exec: 'browseMenu' },
+        order: { executor: 'constant-vus', vus: Math.ceil(VUS * 0.2), duration: DURATION, exec: 'placeOrder' },
+    },
+};
+
+function pad(n) {
+    return String(n).padStart(8, '0');
+}
+
+function login(userId) {
+    const res = http.post(`${BASE_URL}/api/auth/login`,
+        JSON.stringify({ username: `user${pad(userId)}`, password: 'password123' }),
+        { headers: { 'Content-Type': 'application/json' } });
+    return res.status === 200 ? res.json('token') : null;
+}
+
+// 每個 VU 固定使用一位顧客，只登入一次
+const tokens = {};
+function session() {
+    const userId = 1 + ((__VU * 7919) % CUSTOMERS);
+    if (!tokens[__VU]) {
+        tokens[__VU] = login(userId);
+    }
+    return { userId, headers: { 'Content-Type': 'application/json', Authorization: `Bearer ${tokens[__VU]}` } };
+}
+
+// 熱門餐廳集中在前段 ID (與 datagen 的 Zipf 分佈一致)
+function randomRestaurant() {
+    return 1 + Math.floor(Math.pow(Math.random(), 3) * RESTAURANTS);
+}
+
+export function browseMenu() {
+    const { headers } = session();
+    const res = http.get(`${BASE_URL}/api/menu-items/restaurant/${randomRestaurant()}/available`, { headers });
+    menuLatency.add(res.timings.duration);
+    rejected.add(res.status === 503);
+    check(res, { 'menu 200': (r) => r.status === 200 });
+}
+
+export function placeOrder() {
+    const { userId, headers } = session();
+    const restaurantId = randomRestaurant();
+    const firstItem = (restaurantId - 1) * MENU_ITEMS_PER_RESTAURANT + 1;
+    const body = {
+        userId,
+        restaurantId,
+        deliveryAddressId: userId,
+        items: [{ menuItemId: firstItem + Math.floor(Math.random() * MENU_ITEMS_PER_RESTAURANT), quantity: 1 }],
+    };
+    const res = http.post(`${BASE_URL}/api/orderrs/create`, JSON.stringify(body), { headers });
+    orderLatency.add(res.timings.duration);
+    rejected.add(res.status === 503);
+    // 售完的菜單項目會回 400，屬於正常業務結果
+    check(res, { 'order 201/400': (r) => r.status === 201 || r.status === 400 });
+}
@@ -0,0 +1,12 @@
+package com.matsuzaka.foodtiger.config.cache;
+
+/**
+ * 一筆快取失效通知。
+ *
+ * @param sequence 在失效紀錄中的序號，越後寫入的越大 (但不保證依提交順序)
+ * @param region 快取區域，見 CacheInvalidationBus 的常數
+ * @param key 失效的項目，例如實體 ID；null 表示整個區域
+ * @param originNode 寫入的節點
+ */
+public record CacheInvalidation(long sequence, String region, Long key, String originNode) {
+}
@@ -0,0 +1,238 @@
+package com.matsuzaka.foodtiger.config.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 多節點部署時的快取失效匯流排。
+ *
+ * <p>寫入菜單、餐廳、用戶、地址時，在同一個交易中呼叫 publish 寫入失效通知；各節點定期以序號游標讀取其他節點的通知，
+ * 清除本機對應的快取 (Hibernate 二級快取、MenuCatalog 等)。本節點的異動已由原本的機制清除，收到時略過；
+ * 啟用讀庫時則不略過，因為提交時的本機清除之後可能又從尚未追上的讀庫載入舊資料，等讀庫看得到通知時再清除一次。</p>
+ *
+ * <p>自動遞增序號依取得順序而非提交順序，較小的序號可能在較大的序號之後才提交。讀取時序號若不連續，
+ * 缺少的序號會暫記下來，在 gap-timeout-ms 內持續補讀，超過則視為已回滾。</p>
+ *
+ * <p>失效延遲上限：正常時約為 poll-ms；若連續讀取失敗超過 max-lag-ms，每次輪詢都清空所有已註冊的快取，
+ * 直到恢復讀取，確保快取內容不會比資料庫舊超過 max-lag-ms 太多。</p>
+ */
+@Component
+public class CacheInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    public static final String USER = "user";
+    public static final String ADDRESS = "address";
+    public static final String RESTAURANT = "restaurant";
+    public static final String MENU = "menu";           // key 為餐廳 ID
+    public static final String MENU_ITEM = "menu-item"; // key 為菜單項目 ID
+
+    private static final int MAX_PENDING_GAPS = 10_000;
+
+    private record Handler(Consumer<Long> evictOne, Runnable evictAll) {
+    }
+
+    @Autowired
+    private CacheInvalidationTransport transport;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cache-invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache-invalidation.node-id:}")
+    private String nodeId;
+
+    @Value("${app.cache-invalidation.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.cache-invalidation.gap-timeout-ms:10000}")
+    private long gapTimeoutMs;
+
+    @Value("${app.cache-invalidation.max-lag-ms:5000}")
+    private long maxLagMs;
+
+    @Value("${app.cache-invalidation.retention-ms:3600000}")
+    private long retentionMs;
+
+    @Value("${app.datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final Map<Long, Long> pendingGaps = new LinkedHashMap<>(); // 序號 -> 發現缺漏的時間 (nanoTime)
+    private long cursor = -1; // 尚未取得起始位置時為 -1
+    private long lastSuccessNanos;
+    private Counter appliedCounter;
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            // 例如 12345@host-a-1f3c9e0a，重啟後視為新節點
+            nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        lastSuccessNanos = System.nanoTime();
+        if (meterRegistry != null) {
+            appliedCounter = Counter.builder("foodtiger.cache.invalidation.applied")
+                    .description("收到其他節點的快取失效通知數")
+                    .register(meterRegistry);
+        }
+        logger.info("快取失效匯流排節點 ID: {}", nodeId);
+    }
+
+    /**
+     * 註冊一個快取區域的清除方式。
+     *
+     * @param region 快取區域
+     * @param evictOne 清除單一項目
+     * @param evictAll 清除整個區域 (通知的 key 為 null，或失效延遲超過上限時)
+     */
+    public void register(String region, Consumer<Long> evictOne, Runnable evictAll) {
+        handlers.put(region, new Handler(evictOne, evictAll));
+    }
+
+    /**
+     * 寫入失效通知，在交易中時與交易一起提交。未啟用時不做任何事。
+     *
+     * @param key 失效的項目，null 表示整個區域
+     */
+    public void publish(String region, Long key) {
+        publishAll(region, Collections.singletonList(key));
+    }
+
+    public void publishAll(String region, Collection<Long> keys) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        transport.append(region, keys, nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 讀取並套用其他節點的失效通知。
+     */
+    @Scheduled(fixedDelayString = "${app.cache-invalidation.poll-ms:500}", initialDelayString = "${app.cache-invalidation.poll-ms:500}")
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (cursor < 0) {
+                cursor = transport.headSequence();
+                // 啟動到取得起始位置之間可能已載入並錯過通知，全部清除一次
+                evictAll();
+                logger.info("快取失效匯流排從序號 {} 開始讀取", cursor);
+            } else {
+                readPendingGaps();
+                List<CacheInvalidation> invalidations;
+                do {
+                    invalidations = transport.readAfter(cursor, batchSize);
+                    for (CacheInvalidation invalidation : invalidations) {
+                        trackGaps(invalidation.sequence());
+                        cursor = invalidation.sequence();
+                        apply(invalidation);
+                    }
+                } while (invalidations.size() == batchSize);
+            }
+            lastSuccessNanos = System.nanoTime();
+        } catch (DataAccessException e) {
+            long lagMs = (System.nanoTime() - lastSuccessNanos) / 1_000_000;
+            if (lagMs > maxLagMs) {
+                logger.error("已 {} 毫秒無法讀取快取失效通知，清除所有本機快取: {}", lagMs, e.getMessage());
+                evictAll();
+            } else {
+                logger.warn("讀取快取失效通知失敗，稍後重試: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 定期刪除過舊的通知。保留時間須遠大於 max-lag-ms；落後超過 max-lag-ms 的節點會清空快取，不依賴舊通知。
+     */
+    @Scheduled(fixedDelayString = "${app.cache-invalidation.purge-ms:600000}", initialDelayString = "${app.cache-invalidation.purge-ms:600000}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        int purged = transport.purgeBefore(Instant.now().minusMillis(retentionMs));
+        if (purged > 0) {
+            logger.info("已刪除 {} 筆過期的快取失效通知", purged);
+        }
+    }
+
+    private void readPendingGaps() {
+        if (pendingGaps.isEmpty()) {
+            return;
+        }
+        for (CacheInvalidation invalidation : transport.readSequences(new ArrayList<>(pendingGaps.keySet()))) {
+            pendingGaps.remove(invalidation.sequence());
+            apply(invalidation);
+        }
+        long now = System.nanoTime();
+        Iterator<Long> firstSeen = pendingGaps.values().iterator();
+        while (firstSeen.hasNext()) {
+            if ((now - firstSeen.next()) / 1_000_000 > gapTimeoutMs) {
+                firstSeen.remove(); // 逾時仍未出現，視為交易已回滾
+            }
+        }
+    }
+
+    private void trackGaps(long sequence) {
+        if (sequence - cursor - 1 > MAX_PENDING_GAPS || pendingGaps.size() > MAX_PENDING_GAPS) {
+            // 缺漏過多 (例如大量回滾)，無法逐一追蹤，改為清除全部快取
+            pendingGaps.clear();
+            evictAll();
+            return;
+        }
+        long now = System.nanoTime();
+        for (long missing = cursor + 1; missing < sequence; missing++) {
+            pendingGaps.put(missing, now);
+        }
+    }
+
+    private void apply(CacheInvalidation invalidation) {
+        if (!replicaEnabled && nodeId.equals(invalidation.originNode())) {
+            return;
+        }
+        Handler handler = handlers.get(invalidation.region());
+        if (handler == null) {
+            return;
+        }
+        if (invalidation.key() != null) {
+            handler.evictOne().accept(invalidation.key());
+        } else {
+            handler.evictAll().run();
+        }
+        if (appliedCounter != null) {
+            appliedCounter.increment();
+        }
+    }
+
+    private void evictAll() {
+        handlers.values().forEach(handler -> handler.evictAll().run());
+    }
+}
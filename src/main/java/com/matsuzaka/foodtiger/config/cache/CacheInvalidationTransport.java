@@ -0,0 +1,39 @@
+package com.matsuzaka.foodtiger.config.cache;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 快取失效通知的傳遞方式。預設實作 JdbcCacheInvalidationTransport 把通知寫入資料表，各節點以序號游標輪詢；
+ * 換成訊息佇列等其他方式時實作此介面即可，CacheInvalidationBus 不需修改。
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * 寫入失效通知。在交易中呼叫時必須與該交易一起提交或回滾。
+     */
+    void append(String region, Collection<Long> keys, String originNode);
+
+    /**
+     * @return 序號大於 cursor 的通知，依序號遞增排列，最多 limit 筆
+     */
+    List<CacheInvalidation> readAfter(long cursor, int limit);
+
+    /**
+     * @return 指定序號中目前已可讀到的通知 (用於補讀先前讀取時尚未提交的序號)
+     */
+    List<CacheInvalidation> readSequences(Collection<Long> sequences);
+
+    /**
+     * @return 目前最大的序號，沒有任何通知時為 0
+     */
+    long headSequence();
+
+    /**
+     * 刪除早於 cutoff 的通知。
+     *
+     * @return 刪除的筆數
+     */
+    int purgeBefore(Instant cutoff);
+}
@@ -0,0 +1,81 @@
+package com.matsuzaka.foodtiger.config.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 以 cache_invalidation_log 資料表傳遞快取失效通知。寫入沿用呼叫端交易的連線，與實體異動一起提交；
+ * 讀取以自動遞增的 id 作為序號游標。
+ *
+ * <p>讀取走讀庫 (readOnly 交易)，與快取重新載入讀同一個資料來源：通知與實體異動在同一交易複寫到讀庫，
+ * 在讀庫看得到通知時，重新載入一定讀得到新資料；若改從主庫讀取，讀庫尚未追上時清除後又會載入舊資料。</p>
+ */
+@Component
+public class JdbcCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    private static final RowMapper<CacheInvalidation> ROW_MAPPER = (rs, rowNum) -> new CacheInvalidation(
+            rs.getLong("id"), rs.getString("region"), rs.getObject("entity_key", Long.class), rs.getString("origin_node"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public void append(String region, Collection<Long> keys, String originNode) {
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            rows.add(new Object[]{region, key, originNode});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO cache_invalidation_log (region, entity_key, origin_node) VALUES (?, ?, ?)", rows);
+    }
+
+    @Override
+    public List<CacheInvalidation> readAfter(long cursor, int limit) {
+        return onReplica(() -> jdbcTemplate.query("SELECT id, region, entity_key, origin_node FROM cache_invalidation_log WHERE id > ? ORDER BY id LIMIT ?",
+                ROW_MAPPER, cursor, limit));
+    }
+
+    @Override
+    public List<CacheInvalidation> readSequences(Collection<Long> sequences) {
+        if (sequences.isEmpty()) {
+            return List.of();
+        }
+        return onReplica(() -> jdbcTemplate.query("SELECT id, region, entity_key, origin_node FROM cache_invalidation_log WHERE id IN (" +
+                        String.join(", ", Collections.nCopies(sequences.size(), "?")) + ") ORDER BY id",
+                ROW_MAPPER, sequences.toArray()));
+    }
+
+    @Override
+    public long headSequence() {
+        Long head = onReplica(() -> jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidation_log", Long.class));
+        return head != null ? head : 0;
+    }
+
+    @Override
+    public int purgeBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM cache_invalidation_log WHERE created_at < ?", Timestamp.from(cutoff));
+    }
+
+    private <T> T onReplica(Supplier<T> query) {
+        if (transactionManager == null) {
+            return query.get();
+        }
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> query.get());
+    }
+}
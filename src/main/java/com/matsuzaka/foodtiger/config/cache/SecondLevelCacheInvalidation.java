@@ -0,0 +1,31 @@
+package com.matsuzaka.foodtiger.config.cache;
+
+import com.matsuzaka.foodtiger.dao.entity.Address;
+import com.matsuzaka.foodtiger.dao.entity.Restaurant;
+import com.matsuzaka.foodtiger.dao.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 收到其他節點的失效通知時，清除本機 Hibernate 二級快取中對應的 User、Address、Restaurant。
+ */
+@Component
+public class SecondLevelCacheInvalidation {
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void register() {
+        Cache cache = entityManagerFactory.getCache();
+        cacheInvalidationBus.register(CacheInvalidationBus.USER, id -> cache.evict(User.class, id), () -> cache.evict(User.class));
+        cacheInvalidationBus.register(CacheInvalidationBus.ADDRESS, id -> cache.evict(Address.class, id), () -> cache.evict(Address.class));
+        cacheInvalidationBus.register(CacheInvalidationBus.RESTAURANT, id -> cache.evict(Restaurant.class, id), () -> cache.evict(Restaurant.class));
+    }
+}
@@ -0,0 +1,59 @@
+package com.matsuzaka.foodtiger.config.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 將 Hibernate 二級快取各區域的命中、未命中、寫入次數與命中率匯出為 Micrometer 指標，
+ * 可由 /actuator/metrics/foodtiger.l2cache.hit.ratio?tag=region:user 查詢。
+ * 需要 hibernate.generate_statistics=true。
+ */
+@Component
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    static final String[] REGIONS = {"user", "address", "restaurant"};
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        for (String region : REGIONS) {
+            FunctionCounter.builder("foodtiger.l2cache.hits", statistics, s -> regionStats(s, region).getHitCount())
+                    .tag("region", region)
+                    .register(registry);
+            FunctionCounter.builder("foodtiger.l2cache.misses", statistics, s -> regionStats(s, region).getMissCount())
+                    .tag("region", region)
+                    .register(registry);
+            FunctionCounter.builder("foodtiger.l2cache.puts", statistics, s -> regionStats(s, region).getPutCount())
+                    .tag("region", region)
+                    .register(registry);
+            Gauge.builder("foodtiger.l2cache.hit.ratio", statistics, s -> hitRatio(regionStats(s, region)))
+                    .tag("region", region)
+                    .description("二級快取區域的累計命中率")
+                    .register(registry);
+        }
+    }
+
+    private static CacheRegionStatistics regionStats(Statistics statistics, String region) {
+        return statistics.getDomainDataRegionStatistics(region);
+    }
+
+    private static double hitRatio(CacheRegionStatistics stats) {
+        long hits = stats.getHitCount();
+        long total = hits + stats.getMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,43 @@
+package com.matsuzaka.foodtiger.config.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 目前執行緒的資料來源路由提示。
+ * 強制走主庫時，即使是 readOnly 交易也會讀取主庫，用於剛寫入後需要立即讀到自己寫入結果 (read-your-writes) 的流程。
+ */
+public final class DataSourceRoutingContext {
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private DataSourceRoutingContext() {
+    }
+
+    public static boolean isForcePrimary() {
+        return Boolean.TRUE.equals(FORCE_PRIMARY.get());
+    }
+
+    public static void setForcePrimary(boolean forcePrimary) {
+        if (forcePrimary) {
+            FORCE_PRIMARY.set(Boolean.TRUE);
+        } else {
+            FORCE_PRIMARY.remove();
+        }
+    }
+
+    /**
+     * 在主庫上執行一段邏輯，結束後還原原本的設定。
+     *
+     * @param action 要執行的邏輯
+     * @return 邏輯的回傳值
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean previous = isForcePrimary();
+        setForcePrimary(true);
+        try {
+            return action.get();
+        } finally {
+            setForcePrimary(previous);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.matsuzaka.foodtiger.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 主從 (讀寫分離) 資料來源設定，app.datasource.replica.enabled=true 時啟用。
+ *
+ * <ul>
+ *     <li>主庫：沿用 spring.datasource.* 與 spring.datasource.hikari.*</li>
+ *     <li>讀庫：app.datasource.replica.hikari.* (jdbc-url、username、password、maximum-pool-size 等)</li>
+ * </ul>
+ * 未啟用時完全使用 Spring Boot 自動設定的單一資料來源。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+public class ReadWriteDataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteDataSourceConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource) {
+        logger.info("已啟用讀寫分離：主庫 {}，讀庫 {}", primaryDataSource.getJdbcUrl(), replicaDataSource.getJdbcUrl());
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource));
+    }
+
+    /**
+     * 預設 Hibernate 會在整個 Session 期間持有第一次取得的連線，搭配 open-in-view 時，
+     * 請求中第一個 readOnly 交易取得的讀庫連線會被之後的寫入交易沿用。
+     * 改為交易結束即釋放，讓每個交易都重新經過路由。
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionHandlingCustomizer() {
+        return properties -> properties.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+}
@@ -0,0 +1,39 @@
+package com.matsuzaka.foodtiger.config.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * 依交易屬性路由的資料來源：@Transactional(readOnly = true) 的工作走讀庫，其餘 (含非交易的存取) 走主庫。
+ *
+ * <p>必須包在 {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} 內使用，
+ * 讓實體連線延後到第一個 SQL 執行時才取得，此時交易的 readOnly 旗標已設定完成。</p>
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+
+    public static Route currentRoute() {
+        if (DataSourceRoutingContext.isForcePrimary()) {
+            return Route.PRIMARY;
+        }
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
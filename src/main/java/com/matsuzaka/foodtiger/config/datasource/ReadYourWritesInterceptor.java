@@ -0,0 +1,36 @@
+package com.matsuzaka.foodtiger.config.datasource;
+
+import com.matsuzaka.foodtiger.config.security.CustomUserDetails;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 若目前登入的用戶剛寫入過資料，整個請求 (含 @PreAuthorize 中的查詢) 改讀主庫。
+ * 攔截器在 Spring Security 過濾器之後、Controller 方法安全檢查之前執行。
+ */
+@Component
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private RecentWriteTracker recentWriteTracker;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails currentUser
+                && recentWriteTracker.hasRecentWrite(currentUser.getId())) {
+            DataSourceRoutingContext.setForcePrimary(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        DataSourceRoutingContext.setForcePrimary(false);
+    }
+}
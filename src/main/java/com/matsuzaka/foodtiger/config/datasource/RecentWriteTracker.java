@@ -0,0 +1,57 @@
+package com.matsuzaka.foodtiger.config.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 記錄最近有寫入的用戶。在讀庫複寫延遲的時間窗內，這些用戶的請求改讀主庫，
+ * 例如剛下單後立刻查詢訂單或付款時，才不會因讀庫尚未同步而查無資料或授權失敗。
+ */
+@Component
+public class RecentWriteTracker {
+
+    // 超過此數量時清除已過期的紀錄，避免無限制成長
+    private static final int CLEANUP_THRESHOLD = 100_000;
+
+    @Value("${app.read-your-writes.window-ms:5000}")
+    private long windowMs;
+
+    private final ConcurrentHashMap<Long, Long> expiryByUserId = new ConcurrentHashMap<>();
+
+    /**
+     * 標記用戶剛完成一次寫入 (應在交易內呼叫，交易提交後時間窗開始生效)。
+     *
+     * @param userId 用戶 ID
+     */
+    public void markWrite(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        expiryByUserId.put(userId, System.currentTimeMillis() + windowMs);
+        if (expiryByUserId.size() > CLEANUP_THRESHOLD) {
+            long now = System.currentTimeMillis();
+            expiryByUserId.values().removeIf(expiry -> expiry < now);
+        }
+    }
+
+    /**
+     * @param userId 用戶 ID
+     * @return 該用戶是否仍在寫入後的時間窗內
+     */
+    public boolean hasRecentWrite(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        Long expiry = expiryByUserId.get(userId);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry < System.currentTimeMillis()) {
+            expiryByUserId.remove(userId, expiry);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,13 @@
+package com.matsuzaka.foodtiger.config.execution;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * 啟用 @Async。執行器由 Spring Boot 自動設定：平台執行緒模式為 ThreadPoolTaskExecutor，
+ * 虛擬執行緒模式為每個工作一個虛擬執行緒 (並由 {@link VirtualThreadConfig} 加上准入控制)。
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
@@ -0,0 +1,85 @@
+package com.matsuzaka.foodtiger.config.execution;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 依資料庫連線池大小限制同時進行中的工作數量 (准入控制)。
+ *
+ * <p>虛擬執行緒沒有數量上限，尖峰時大量請求會同時卡在 Hikari 取得連線的等待佇列，
+ * 最終一起逾時。以與連線池同級的 Semaphore 在入口處排隊，超過等待時間的請求直接以 503 拒絕，
+ * 讓已進入的請求能順利取得連線。</p>
+ */
+public class DbAdmissionController {
+
+    private final Semaphore semaphore;
+    private final int permits;
+    private final long acquireTimeoutMs;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+
+    public DbAdmissionController(int permits, long acquireTimeoutMs, MeterRegistry meterRegistry) {
+        this.permits = permits;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.semaphore = new Semaphore(permits, true); // 公平模式，先到先進
+        this.rejected = Counter.builder("foodtiger.admission.rejected")
+                .description("因等待逾時而被拒絕的工作數")
+                .register(meterRegistry);
+        Gauge.builder("foodtiger.admission.active", this, c -> c.permits - c.semaphore.availablePermits())
+                .description("已取得許可、正在執行的工作數")
+                .register(meterRegistry);
+        Gauge.builder("foodtiger.admission.waiting", waiting, AtomicInteger::get)
+                .description("正在等待許可的工作數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在設定的等待時間內嘗試取得許可。
+     *
+     * @return 取得許可則為 true；逾時則為 false，呼叫端應拒絕此工作
+     * @throws InterruptedException 等待期間執行緒被中斷
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        waiting.incrementAndGet();
+        try {
+            if (semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            rejected.increment();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * 阻塞直到取得許可，用於不能被拒絕的背景工作 (例如 @Async)。
+     *
+     * @throws InterruptedException 等待期間執行緒被中斷
+     */
+    public void acquire() throws InterruptedException {
+        waiting.incrementAndGet();
+        try {
+            semaphore.acquire();
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public long getAcquireTimeoutMs() {
+        return acquireTimeoutMs;
+    }
+}
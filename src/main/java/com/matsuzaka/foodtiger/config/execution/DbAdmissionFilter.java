@@ -0,0 +1,63 @@
+package com.matsuzaka.foodtiger.config.execution;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * API 請求的准入過濾器，排在 Spring Security 之前 (JWT 驗證本身也會查詢資料庫)。
+ * 取得許可逾時的請求回傳 503 與 Retry-After，而不是讓它們在連線池中排隊到逾時。
+ */
+public class DbAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DbAdmissionFilter.class);
+
+    private final DbAdmissionController admissionController;
+
+    public DbAdmissionFilter(DbAdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = admissionController.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+
+        if (!admitted) {
+            logger.warn("請求 {} {} 等待資料庫許可逾時 ({} ms)，回傳 503", request.getMethod(), request.getRequestURI(),
+                    admissionController.getAcquireTimeoutMs());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write("{\"status\":503,\"error\":\"Service Unavailable\",\"message\":\"系統忙碌中，請稍後再試\"}");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            admissionController.release();
+        }
+    }
+}
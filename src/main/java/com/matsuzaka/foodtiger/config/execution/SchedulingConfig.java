@@ -0,0 +1,12 @@
+package com.matsuzaka.foodtiger.config.execution;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 啟用 @Scheduled，供背景的定期工作 (清理、批次寫回、對帳等) 使用。
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
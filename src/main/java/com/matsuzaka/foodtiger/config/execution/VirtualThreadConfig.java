@@ -0,0 +1,70 @@
+package com.matsuzaka.foodtiger.config.execution;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 虛擬執行緒模式 (spring.threads.virtual.enabled=true) 的設定。
+ * Spring Boot 會自動將 Tomcat 與 @Async 的執行器換成虛擬執行緒；這裡補上以連線池大小為上限的准入控制，
+ * 避免無上限的虛擬執行緒同時擠在連線池上。平台執行緒模式下 Tomcat 執行緒池本身就是上限，因此不啟用。
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    // 同時允許進入的工作數，預設等於 Hikari 連線池大小
+    @Value("${app.admission.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int maxConcurrency;
+
+    // 等待許可的最長時間，應小於 Hikari 的 connection-timeout
+    @Value("${app.admission.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    @Bean
+    public DbAdmissionController dbAdmissionController(MeterRegistry meterRegistry) {
+        logger.info("已啟用虛擬執行緒模式，資料庫准入上限 {}，等待逾時 {} ms", maxConcurrency, acquireTimeoutMs);
+        return new DbAdmissionController(maxConcurrency, acquireTimeoutMs, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<DbAdmissionFilter> dbAdmissionFilter(DbAdmissionController dbAdmissionController) {
+        FilterRegistrationBean<DbAdmissionFilter> registration =
+                new FilterRegistrationBean<>(new DbAdmissionFilter(dbAdmissionController));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1); // 在 Spring Security 之前
+        return registration;
+    }
+
+    /**
+     * @Async 工作同樣受准入控制，但背景工作不應被拒絕，因此阻塞等待許可。
+     * Spring Boot 會將此 TaskDecorator 套用到自動設定的 applicationTaskExecutor。
+     */
+    @Bean
+    public TaskDecorator dbAdmissionTaskDecorator(DbAdmissionController dbAdmissionController) {
+        return runnable -> () -> {
+            try {
+                dbAdmissionController.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("等待資料庫許可時被中斷，略過非同步工作");
+                return;
+            }
+            try {
+                runnable.run();
+            } finally {
+                dbAdmissionController.release();
+            }
+        };
+    }
+}
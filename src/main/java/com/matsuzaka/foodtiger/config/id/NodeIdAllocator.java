@@ -0,0 +1,169 @@
+package com.matsuzaka.foodtiger.config.id;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 指派 SnowflakeIdGenerator 的節點 ID。
+ *
+ * <ul>
+ *     <li>app.id.node-id 設為 0 ~ 1023 時固定使用該值，部署時須自行確保各節點不同</li>
+ *     <li>未設定 (-1) 時向 id_node_lease 資料表租用一個未被占用或已過期的節點 ID，每隔 lease-renew-ms 續約</li>
+ * </ul>
+ *
+ * <p>租約制下產生器只會產生時間早於「租約到期 - max-clock-skew-ms」的 ID；續約失敗時到期後暫停產生，
+ * 發現租約已被其他節點接手時立即改租新的節點 ID。其他節點要等租約過期後才能接手，
+ * 只要各節點時鐘誤差小於 max-clock-skew-ms，接手後產生的 ID 不會與原節點重複。</p>
+ */
+@Component
+public class NodeIdAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeIdAllocator.class);
+
+    /**
+     * 讓 EntityManagerFactory 在節點 ID 指派後才建立，啟動過程中寫入訂單時已可產生 ID。
+     */
+    @Component
+    static class EntityManagerFactoryDependsOnNodeIdAllocator extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependsOnNodeIdAllocator() {
+            super(NodeIdAllocator.class);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.id.node-id:-1}")
+    private int configuredNodeId;
+
+    @Value("${app.id.lease-ttl-ms:60000}")
+    private long leaseTtlMs;
+
+    @Value("${app.id.max-clock-skew-ms:2000}")
+    private long maxClockSkewMs;
+
+    @Value("${app.id.max-borrow-ms:1000}")
+    private long maxBorrowMs;
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    private volatile SnowflakeIdGenerator generator;
+
+    @PostConstruct
+    public void init() {
+        if (configuredNodeId >= 0) {
+            generator = new SnowflakeIdGenerator(configuredNodeId, Long.MAX_VALUE, maxBorrowMs);
+            logger.info("ID 產生器使用設定的節點 ID {}", configuredNodeId);
+        } else {
+            generator = acquire();
+        }
+        SnowflakeIdentifierGenerator.use(generator);
+        Gauge.builder("foodtiger.id.node-id", this, allocator -> allocator.generator.nodeId())
+                .description("ID 產生器目前使用的節點 ID")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 直接產生一個 ID，供以 JDBC 寫入、不經過 Hibernate 的資料表使用 (例如 order_event_outbox)。
+     */
+    public long nextId() {
+        return generator.nextId();
+    }
+
+    /**
+     * 續約；租約已被其他節點接手時改租新的節點 ID。
+     */
+    @Scheduled(fixedDelayString = "${app.id.lease-renew-ms:15000}", initialDelayString = "${app.id.lease-renew-ms:15000}")
+    public void renew() {
+        if (configuredNodeId >= 0) {
+            return;
+        }
+        SnowflakeIdGenerator current = generator;
+        long now = System.currentTimeMillis();
+        int updated;
+        try {
+            updated = jdbcTemplate.update("UPDATE id_node_lease SET expires_at = ? WHERE node_id = ? AND owner = ?",
+                    new Timestamp(now + leaseTtlMs), current.nodeId(), owner);
+        } catch (DataAccessException e) {
+            // 租約到期前仍可產生 ID，下一輪再試
+            logger.warn("節點 ID {} 續約失敗，租約於 {} 到期", current.nodeId(), new Timestamp(current.validUntilMillis()), e);
+            return;
+        }
+        if (updated == 1) {
+            current.extendValidity(validUntil(now));
+            return;
+        }
+        current.extendValidity(0);
+        logger.error("節點 ID {} 的租約已被其他節點接手，改租新的節點 ID", current.nodeId());
+        generator = acquire();
+        SnowflakeIdentifierGenerator.use(generator);
+    }
+
+    @PreDestroy
+    public void release() {
+        if (configuredNodeId >= 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("DELETE FROM id_node_lease WHERE node_id = ? AND owner = ?", generator.nodeId(), owner);
+        } catch (DataAccessException e) {
+            logger.warn("釋放節點 ID {} 的租約失敗，將於租約到期後釋出", generator.nodeId(), e);
+        }
+    }
+
+    private SnowflakeIdGenerator acquire() {
+        long now = System.currentTimeMillis();
+        Set<Integer> taken = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT node_id FROM id_node_lease WHERE expires_at >= ?", Integer.class, new Timestamp(now)));
+        // 從隨機位置開始找，多個節點同時啟動時較少搶同一個節點 ID
+        int start = ThreadLocalRandom.current().nextInt(SnowflakeIdGenerator.MAX_NODE_ID + 1);
+        for (int i = 0; i <= SnowflakeIdGenerator.MAX_NODE_ID; i++) {
+            int candidate = (start + i) % (SnowflakeIdGenerator.MAX_NODE_ID + 1);
+            if (!taken.contains(candidate) && tryClaim(candidate, now)) {
+                logger.info("ID 產生器租用節點 ID {}，租約 {} 毫秒", candidate, leaseTtlMs);
+                return new SnowflakeIdGenerator(candidate, validUntil(now), maxBorrowMs);
+            }
+        }
+        throw new IllegalStateException("沒有可租用的節點 ID，已有 " + taken.size() + " 個節點持有租約");
+    }
+
+    private boolean tryClaim(int nodeId, long now) {
+        Timestamp expiresAt = new Timestamp(now + leaseTtlMs);
+        // 已過期的租約以條件更新接手，同時接手時只有一個節點更新成功
+        if (jdbcTemplate.update("UPDATE id_node_lease SET owner = ?, expires_at = ? WHERE node_id = ? AND expires_at < ?",
+                owner, expiresAt, nodeId, new Timestamp(now)) == 1) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO id_node_lease (node_id, owner, expires_at) VALUES (?, ?, ?)", nodeId, owner, expiresAt);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false; // 其他節點持有或剛搶到
+        }
+    }
+
+    private long validUntil(long leaseStart) {
+        return leaseStart + leaseTtlMs - maxClockSkewMs;
+    }
+}
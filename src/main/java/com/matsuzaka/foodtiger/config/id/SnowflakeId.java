@@ -0,0 +1,18 @@
+package com.matsuzaka.foodtiger.config.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 標在實體的 @Id 欄位上，改由 SnowflakeIdGenerator 在寫入前產生 ID (取代 GenerationType.IDENTITY)。
+ * ID 在 persist 時就已確定，Hibernate 可以把 INSERT 延到 flush 時批次送出。
+ */
+@IdGeneratorType(SnowflakeIdentifierGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface SnowflakeId {
+}
@@ -0,0 +1,113 @@
+package com.matsuzaka.foodtiger.config.id;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 依時間排序的 64 位元 ID (Snowflake 格式)，由應用程式在寫入前產生，不依賴資料庫的自動遞增。
+ *
+ * <pre>
+ * | 0 | 41 位元：自 EPOCH 起的毫秒數 | 10 位元：節點 ID | 12 位元：毫秒內序號 |
+ * </pre>
+ *
+ * <p>每個節點每毫秒可產生 4096 個 ID，可用到 EPOCH 後約 69 年。「毫秒數 + 序號」合成一個 long 存在 AtomicLong 中，
+ * 產生時以一次 CAS 取得下一個值，不加鎖：同一毫秒內序號加一；序號用完或時鐘倒退時沿用較大的邏輯時間繼續遞增 (借用未來的毫秒)，
+ * 借用超過 maxBorrowMillis 才短暫等待時鐘追上，因此 ID 在同一節點內嚴格遞增。</p>
+ *
+ * <p>節點 ID 由 NodeIdAllocator 以設定值或資料庫租約指派；租約制時 ID 內的時間不得超過租約有效期限，
+ * 避免租約過期後由其他節點接手同一節點 ID 時產生重複。</p>
+ */
+public final class SnowflakeIdGenerator {
+
+    /**
+     * 2025-01-01T00:00:00Z
+     */
+    public static final long EPOCH = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+
+    public static final int NODE_ID_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_ID_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_ID_BITS + SEQUENCE_BITS;
+    private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final int nodeId;
+    private final long maxBorrowMillis;
+    private final LongSupplier clock;
+    // 高位為毫秒時間戳記 (epoch 毫秒)，低 SEQUENCE_BITS 位為序號
+    private final AtomicLong state = new AtomicLong();
+    private volatile long validUntilMillis;
+
+    /**
+     * @param nodeId 0 ~ MAX_NODE_ID
+     * @param validUntilMillis 可產生 ID 的期限 (epoch 毫秒，不含)；固定指派的節點為 Long.MAX_VALUE
+     * @param maxBorrowMillis 邏輯時間最多可超前系統時鐘的毫秒數
+     */
+    public SnowflakeIdGenerator(int nodeId, long validUntilMillis, long maxBorrowMillis) {
+        this(nodeId, validUntilMillis, maxBorrowMillis, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int nodeId, long validUntilMillis, long maxBorrowMillis, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("節點 ID 必須介於 0 與 " + MAX_NODE_ID + " 之間：" + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.validUntilMillis = validUntilMillis;
+        this.maxBorrowMillis = maxBorrowMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return 下一個 ID，同一個產生器產生的 ID 嚴格遞增
+     * @throws IllegalStateException 節點 ID 的租約已過期
+     */
+    public long nextId() {
+        while (true) {
+            long now = clock.getAsLong();
+            long previous = state.get();
+            long next = Math.max(now << SEQUENCE_BITS, previous + 1);
+            long timestamp = next >>> SEQUENCE_BITS;
+            if (timestamp - now > maxBorrowMillis) {
+                // 序號長時間用盡或時鐘大幅倒退，等時鐘追上再產生
+                LockSupport.parkNanos(WAIT_NANOS);
+                continue;
+            }
+            if (timestamp >= validUntilMillis) {
+                throw new IllegalStateException("節點 ID " + nodeId + " 的租約已過期，暫停產生 ID");
+            }
+            if (state.compareAndSet(previous, next)) {
+                return ((timestamp - EPOCH) << TIMESTAMP_SHIFT) | ((long) nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 租約續約後延長可產生 ID 的期限。
+     */
+    public void extendValidity(long validUntilMillis) {
+        this.validUntilMillis = validUntilMillis;
+    }
+
+    public int nodeId() {
+        return nodeId;
+    }
+
+    public long validUntilMillis() {
+        return validUntilMillis;
+    }
+
+    /**
+     * @return ID 產生時的時間 (epoch 毫秒)；借用未來毫秒時可能略晚於實際時間
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    public static int nodeIdOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
@@ -0,0 +1,28 @@
+package com.matsuzaka.foodtiger.config.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+/**
+ * @SnowflakeId 對應的 Hibernate ID 產生器。
+ *
+ * <p>此類別由 Hibernate 建立，不是 Spring bean；實際產生 ID 的 SnowflakeIdGenerator 由 NodeIdAllocator
+ * 取得節點 ID 後透過 {@link #use} 設定，租約換成其他節點 ID 時會換成新的產生器。</p>
+ */
+public class SnowflakeIdentifierGenerator implements IdentifierGenerator {
+
+    private static volatile SnowflakeIdGenerator generator;
+
+    static void use(SnowflakeIdGenerator generator) {
+        SnowflakeIdentifierGenerator.generator = generator;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        SnowflakeIdGenerator current = generator;
+        if (current == null) {
+            throw new IllegalStateException("ID 產生器尚未取得節點 ID");
+        }
+        return current.nextId();
+    }
+}
@@ -0,0 +1,74 @@
+package com.matsuzaka.foodtiger.config.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 啟動時把 SampledLogFilter 加入 Logback，並定期把被丟棄的日誌以彙總計數輸出
+ * (結構化欄位 category、template、suppressed)。
+ */
+@Component
+public class LogSamplingConfigurer {
+
+    private static final Logger summaryLogger = LoggerFactory.getLogger("com.matsuzaka.foodtiger.logging.summary");
+
+    @Value("${app.logging.sampling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.logging.sampling.categories:}")
+    private List<String> categories;
+
+    @Value("${app.logging.sampling.sample-every:0}")
+    private int sampleEvery;
+
+    @Value("${app.logging.sampling.max-per-second:5}")
+    private int maxPerSecond;
+
+    private SampledLogFilter filter;
+
+    @PostConstruct
+    public void install() {
+        if (!enabled || categories.isEmpty() || !(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        filter = new SampledLogFilter(categories, sampleEvery, maxPerSecond);
+        filter.setName("foodtiger-log-sampling");
+        filter.setContext(context);
+        filter.start();
+        context.addTurboFilter(filter);
+        summaryLogger.info("日誌取樣已啟用：{} 個類別，每 {} 筆輸出一筆，每個訊息樣板每秒最多 {} 筆", categories.size(), sampleEvery, maxPerSecond);
+    }
+
+    @PreDestroy
+    public void uninstall() {
+        if (filter == null) {
+            return;
+        }
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getTurboFilterList().remove(filter);
+        flushSummary();
+        filter.stop();
+    }
+
+    /**
+     * 輸出上次彙總後被丟棄的日誌筆數，每個類別與訊息樣板一筆。
+     */
+    @Scheduled(fixedDelayString = "${app.logging.sampling.summary-ms:60000}", initialDelayString = "${app.logging.sampling.summary-ms:60000}")
+    public void flushSummary() {
+        if (filter == null) {
+            return;
+        }
+        filter.drainSuppressed((key, suppressed) -> summaryLogger.atInfo()
+                .addKeyValue("category", key.logger())
+                .addKeyValue("template", key.template())
+                .addKeyValue("suppressed", suppressed)
+                .log("已彙總 {} 筆取樣略過的日誌", suppressed));
+    }
+}
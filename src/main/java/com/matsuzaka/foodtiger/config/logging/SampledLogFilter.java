@@ -0,0 +1,116 @@
+package com.matsuzaka.foodtiger.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 高頻讀取路徑的日誌取樣。
+ *
+ * <p>只取樣帶有 {@link #READ_PATH} 標記的日誌，寫入、狀態異動等稽核用的日誌不帶標記，一律輸出。
+ * 指定類別 (logger 名稱或其前綴) 中帶標記的 INFO 以下日誌依訊息樣板 (未格式化的 format 字串) 分組：
+ * 每 sampleEvery 筆輸出一筆，且每個樣板每秒最多輸出 maxPerSecond 筆，其餘在格式化前就丟棄並累加計數，
+ * 由 LogSamplingConfigurer 定期輸出彙總。WARN 以上一律輸出。sampleEvery 為 0 時只輸出彙總。</p>
+ */
+public class SampledLogFilter extends TurboFilter {
+
+    /**
+     * 標記高頻讀取路徑 (查詢) 的日誌，例如 logger.info(SampledLogFilter.READ_PATH, "正在查詢 ID 為 {} 的訂單", id)。
+     */
+    public static final Marker READ_PATH = MarkerFactory.getMarker("READ_PATH");
+
+    private static final int MAX_TEMPLATES = 10_000;
+    private static final String OVERFLOW_TEMPLATE = "(其他樣板)";
+
+    /**
+     * 彙總的分組：logger 名稱與訊息樣板。
+     */
+    public record Key(String logger, String template) {
+    }
+
+    private static final class Stats {
+        final LongAdder seen = new LongAdder();
+        final LongAdder suppressed = new LongAdder();
+        final AtomicLong windowSecond = new AtomicLong();
+        final AtomicLong emittedInWindow = new AtomicLong();
+
+        boolean tryAcquire(long second, int maxPerSecond) {
+            long current = windowSecond.get();
+            if (current != second && windowSecond.compareAndSet(current, second)) {
+                emittedInWindow.set(0);
+            }
+            return emittedInWindow.incrementAndGet() <= maxPerSecond;
+        }
+    }
+
+    private final List<String> categories;
+    private final int sampleEvery;
+    private final int maxPerSecond;
+    private final Map<String, Boolean> sampledByLogger = new ConcurrentHashMap<>();
+    private final Map<Key, Stats> statsByKey = new ConcurrentHashMap<>();
+
+    public SampledLogFilter(List<String> categories, int sampleEvery, int maxPerSecond) {
+        this.categories = List.copyOf(categories);
+        this.sampleEvery = sampleEvery;
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format 為 null 是 isInfoEnabled() 之類的檢查，不計數
+        if (format == null || level.isGreaterOrEqual(Level.WARN) || marker == null || !marker.contains(READ_PATH)
+                || !isSampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL; // 本來就不會輸出，交給等級判斷
+        }
+        Stats stats = statsOf(logger.getName(), format);
+        stats.seen.increment();
+        boolean sampled = sampleEvery > 0 && stats.seen.sum() % sampleEvery == 1 % sampleEvery;
+        if (sampled && stats.tryAcquire(System.currentTimeMillis() / 1000, maxPerSecond)) {
+            return FilterReply.NEUTRAL;
+        }
+        stats.suppressed.increment();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * 取出並歸零各分組被丟棄的筆數。
+     */
+    public void drainSuppressed(BiConsumer<Key, Long> consumer) {
+        statsByKey.forEach((key, stats) -> {
+            long suppressed = stats.suppressed.sumThenReset();
+            if (suppressed > 0) {
+                consumer.accept(key, suppressed);
+            }
+        });
+    }
+
+    private boolean isSampled(String loggerName) {
+        return sampledByLogger.computeIfAbsent(loggerName, name -> categories.stream()
+                .anyMatch(category -> name.equals(category) || name.startsWith(category + ".")));
+    }
+
+    private Stats statsOf(String loggerName, String format) {
+        Key key = new Key(loggerName, format);
+        Stats stats = statsByKey.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (statsByKey.size() >= MAX_TEMPLATES) {
+            key = new Key(loggerName, OVERFLOW_TEMPLATE); // 訊息樣板異常多 (例如字串串接而非佔位符) 時合併計數
+        }
+        return statsByKey.computeIfAbsent(key, k -> new Stats());
+    }
+}
@@ -0,0 +1,20 @@
+package com.matsuzaka.foodtiger.config.profiling;
+
+/**
+ * 剖析的分層，對應 controller、service.impl 與 dao.repository 套件。
+ */
+enum Layer {
+    CONTROLLER("controller"),
+    SERVICE("service"),
+    REPOSITORY("repository");
+
+    private final String tag;
+
+    Layer(String tag) {
+        this.tag = tag;
+    }
+
+    String tag() {
+        return tag;
+    }
+}
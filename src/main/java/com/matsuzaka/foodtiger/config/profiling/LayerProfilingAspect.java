@@ -0,0 +1,143 @@
+package com.matsuzaka.foodtiger.config.profiling;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分層延遲剖析：記錄 controller、service.impl 與 repository 每個方法的經過時間、CPU 時間與配置的位元組數。
+ *
+ * <p>每個方法各一組 Micrometer 分布 (Timer 與 DistributionSummary，百分位數由 HdrHistogram 計算)，
+ * 可由 /actuator/metrics/foodtiger.profile.wall?tag=layer:service&amp;tag=component:OrderrServiceImpl 查詢。
+ * 在 HTTP 請求中的呼叫另外累計到該請求的 RequestProfile，由 RequestProfilingFilter 依路由彙總。</p>
+ *
+ * <p>排在交易等其他切面之外，service 方法的時間包含交易提交。只攔截經過代理的呼叫，類別內部的自我呼叫不會記錄。</p>
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "app.profiling", name = "enabled", havingValue = "true")
+public class LayerProfilingAspect {
+
+    private static final String BASE_PACKAGE = "com.matsuzaka.foodtiger.";
+
+    private record MethodKey(Class<?> beanType, Method method) {
+    }
+
+    private record MethodMeters(String name, Timer wall, Timer cpu, DistributionSummary allocation) {
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadCostMeter threadCostMeter;
+
+    @Value("${app.profiling.percentile-histogram:false}")
+    private boolean percentileHistogram;
+
+    private final Map<MethodKey, MethodMeters> metersByMethod = new ConcurrentHashMap<>();
+
+    @Around("within(com.matsuzaka.foodtiger.controller..*)")
+    public Object profileController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return profile(joinPoint, Layer.CONTROLLER);
+    }
+
+    @Around("within(com.matsuzaka.foodtiger.service.impl..*)")
+    public Object profileService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return profile(joinPoint, Layer.SERVICE);
+    }
+
+    // Spring Data 的 repository 是介面的 JDK 代理，繼承的方法 (findById 等) 宣告在框架介面上，因此以 bean 名稱比對
+    @Around("bean(*Repository)")
+    public Object profileRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return profile(joinPoint, Layer.REPOSITORY);
+    }
+
+    private Object profile(ProceedingJoinPoint joinPoint, Layer layer) throws Throwable {
+        RequestProfile requestProfile = RequestProfile.current();
+        long cpuStart = threadCostMeter.cpuNanos();
+        long allocatedStart = threadCostMeter.allocatedBytes();
+        long start = System.nanoTime();
+        if (requestProfile != null) {
+            requestProfile.enter();
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long wallNanos = System.nanoTime() - start;
+            long cpuNanos = cpuStart < 0 ? -1 : threadCostMeter.cpuNanos() - cpuStart;
+            long allocatedBytes = allocatedStart < 0 ? -1 : threadCostMeter.allocatedBytes() - allocatedStart;
+
+            MethodMeters meters = metersOf(joinPoint, layer);
+            meters.wall().record(wallNanos, TimeUnit.NANOSECONDS);
+            if (cpuNanos >= 0) {
+                meters.cpu().record(cpuNanos, TimeUnit.NANOSECONDS);
+            }
+            if (allocatedBytes >= 0) {
+                meters.allocation().record(allocatedBytes);
+            }
+            if (requestProfile != null) {
+                requestProfile.exit(layer, meters.name(), wallNanos, cpuNanos, allocatedBytes);
+            }
+        }
+    }
+
+    private MethodMeters metersOf(ProceedingJoinPoint joinPoint, Layer layer) {
+        Class<?> beanType = joinPoint.getThis().getClass();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        return metersByMethod.computeIfAbsent(new MethodKey(beanType, method), key -> {
+            String component = componentOf(key.beanType());
+            String methodName = key.method().getName();
+            Timer wall = Timer.builder("foodtiger.profile.wall")
+                    .description("方法經過時間 (含巢狀呼叫)")
+                    .tags("layer", layer.tag(), "component", component, "method", methodName)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(meterRegistry);
+            Timer cpu = Timer.builder("foodtiger.profile.cpu")
+                    .description("方法在呼叫執行緒上消耗的 CPU 時間 (含巢狀呼叫)")
+                    .tags("layer", layer.tag(), "component", component, "method", methodName)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(meterRegistry);
+            DistributionSummary allocation = DistributionSummary.builder("foodtiger.profile.alloc")
+                    .description("方法在呼叫執行緒上配置的位元組數 (含巢狀呼叫)")
+                    .baseUnit("bytes")
+                    .tags("layer", layer.tag(), "component", component, "method", methodName)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(meterRegistry);
+            return new MethodMeters(component + "." + methodName, wall, cpu, allocation);
+        });
+    }
+
+    // CGLIB 代理取原本的類別；repository 的 JDK 代理取專案內的介面名稱，而不是 SimpleJpaRepository
+    private static String componentOf(Class<?> beanType) {
+        if (Proxy.isProxyClass(beanType)) {
+            for (Class<?> type : beanType.getInterfaces()) {
+                if (type.getName().startsWith(BASE_PACKAGE)) {
+                    return type.getSimpleName();
+                }
+            }
+        }
+        return ClassUtils.getUserClass(beanType).getSimpleName();
+    }
+}
@@ -0,0 +1,42 @@
+package com.matsuzaka.foodtiger.config.profiling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 分層延遲剖析 (LayerProfilingAspect) 的設定，預設停用；以 app.profiling.enabled=true 或 profiling profile
+ * (application-profiling.properties) 啟用。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.profiling", name = "enabled", havingValue = "true")
+public class ProfilingConfig {
+
+    @Value("${app.profiling.cpu-time:false}")
+    private boolean cpuTimeEnabled;
+
+    @Value("${app.profiling.allocation:false}")
+    private boolean allocationEnabled;
+
+    // 逐請求明細會在回應標頭中透露內部類別與方法名稱，預設關閉
+    @Value("${app.profiling.breakdown-header.enabled:false}")
+    private boolean breakdownHeaderEnabled;
+
+    @Bean
+    public ThreadCostMeter threadCostMeter() {
+        return new ThreadCostMeter(cpuTimeEnabled, allocationEnabled);
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestProfilingFilter> requestProfilingFilter(MeterRegistry meterRegistry, ThreadCostMeter threadCostMeter) {
+        FilterRegistrationBean<RequestProfilingFilter> registration =
+                new FilterRegistrationBean<>(new RequestProfilingFilter(meterRegistry, threadCostMeter, breakdownHeaderEnabled));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 2); // 在准入控制與 Spring Security 之前
+        return registration;
+    }
+}
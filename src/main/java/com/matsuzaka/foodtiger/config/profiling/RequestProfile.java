@@ -0,0 +1,137 @@
+package com.matsuzaka.foodtiger.config.profiling;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 單一 HTTP 請求的剖析資料，只在處理請求的執行緒上存取 (ThreadLocal)，不需要同步。
+ *
+ * <p>各層記錄的是扣除巢狀呼叫後的時間 (exclusive)：controller 呼叫 service、service 呼叫 repository 時，
+ * 被呼叫端的時間只計入被呼叫端的分層。@Async 等交給其他執行緒的工作不會計入。</p>
+ */
+final class RequestProfile {
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+    static final String BREAKDOWN_HEADER = "X-Profile-Breakdown";
+
+    private static final ThreadLocal<RequestProfile> CURRENT = new ThreadLocal<>();
+    private static final int MAX_BREAKDOWN_METHODS = 15;
+
+    private static final class Frame {
+        long childWallNanos;
+        long childCpuNanos;
+        long childAllocatedBytes;
+    }
+
+    private static final class Totals {
+        int calls;
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;
+
+        void add(long wall, long cpu, long allocated) {
+            calls++;
+            wallNanos += wall;
+            cpuNanos += Math.max(cpu, 0);
+            allocatedBytes += Math.max(allocated, 0);
+        }
+    }
+
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private final Totals[] exclusiveByLayer = new Totals[Layer.values().length];
+    private final Map<String, Totals> inclusiveByMethod = new HashMap<>();
+    // 有要求逐請求明細時才保留 response，於最外層 controller 方法結束 (回應尚未送出) 時寫入標頭
+    private final HttpServletResponse breakdownResponse;
+
+    private RequestProfile(HttpServletResponse breakdownResponse) {
+        this.breakdownResponse = breakdownResponse;
+        for (Layer layer : Layer.values()) {
+            exclusiveByLayer[layer.ordinal()] = new Totals();
+        }
+    }
+
+    static RequestProfile begin(HttpServletResponse breakdownResponse) {
+        RequestProfile profile = new RequestProfile(breakdownResponse);
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static RequestProfile current() {
+        return CURRENT.get();
+    }
+
+    void enter() {
+        frames.push(new Frame());
+    }
+
+    /**
+     * 結束一次方法呼叫；cpuNanos 或 allocatedBytes 為 -1 表示無法取得。
+     */
+    void exit(Layer layer, String method, long wallNanos, long cpuNanos, long allocatedBytes) {
+        Frame frame = frames.pop();
+        exclusiveByLayer[layer.ordinal()].add(wallNanos - frame.childWallNanos,
+                cpuNanos < 0 ? -1 : cpuNanos - frame.childCpuNanos,
+                allocatedBytes < 0 ? -1 : allocatedBytes - frame.childAllocatedBytes);
+        if (breakdownResponse != null) {
+            inclusiveByMethod.computeIfAbsent(method, m -> new Totals()).add(wallNanos, cpuNanos, allocatedBytes);
+        }
+        Frame parent = frames.peek();
+        if (parent != null) {
+            parent.childWallNanos += wallNanos;
+            parent.childCpuNanos += Math.max(cpuNanos, 0);
+            parent.childAllocatedBytes += Math.max(allocatedBytes, 0);
+        } else if (layer == Layer.CONTROLLER && breakdownResponse != null && !breakdownResponse.isCommitted()) {
+            writeBreakdown(breakdownResponse);
+        }
+    }
+
+    /**
+     * @return 該層扣除巢狀呼叫後的累計時間 (奈秒)
+     */
+    long exclusiveWallNanos(Layer layer) {
+        return exclusiveByLayer[layer.ordinal()].wallNanos;
+    }
+
+    int calls(Layer layer) {
+        return exclusiveByLayer[layer.ordinal()].calls;
+    }
+
+    private void writeBreakdown(HttpServletResponse response) {
+        StringJoiner serverTiming = new StringJoiner(", ");
+        for (Layer layer : Layer.values()) {
+            Totals totals = exclusiveByLayer[layer.ordinal()];
+            if (totals.calls > 0) {
+                serverTiming.add(layer.tag() + ";dur=" + millis(totals.wallNanos)
+                        + ";desc=\"calls=" + totals.calls + " cpu=" + millis(totals.cpuNanos) + "ms alloc=" + totals.allocatedBytes + "B\"");
+            }
+        }
+        response.addHeader(SERVER_TIMING_HEADER, serverTiming.toString());
+
+        List<Map.Entry<String, Totals>> methods = new ArrayList<>(inclusiveByMethod.entrySet());
+        methods.sort(Comparator.comparingLong((Map.Entry<String, Totals> e) -> e.getValue().wallNanos).reversed());
+        StringJoiner breakdown = new StringJoiner(", ");
+        for (Map.Entry<String, Totals> entry : methods.subList(0, Math.min(methods.size(), MAX_BREAKDOWN_METHODS))) {
+            Totals totals = entry.getValue();
+            breakdown.add(entry.getKey() + ";calls=" + totals.calls + ";wall=" + millis(totals.wallNanos)
+                    + ";cpu=" + millis(totals.cpuNanos) + ";alloc=" + totals.allocatedBytes);
+        }
+        response.setHeader(BREAKDOWN_HEADER, breakdown.toString());
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000d);
+    }
+}
@@ -0,0 +1,96 @@
+package com.matsuzaka.foodtiger.config.profiling;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 為每個 API 請求建立 RequestProfile，請求結束後依路由樣板記錄各層時間、整個請求的 CPU 時間與配置量：
+ * <ul>
+ *     <li>foodtiger.profile.request.layer (tag uri、layer)：各層扣除巢狀呼叫後的時間，
+ *     other 為不在三層內的部分 (過濾器、安全驗證、JSON 序列化等)</li>
+ *     <li>foodtiger.profile.request.cpu、foodtiger.profile.request.alloc (tag uri)</li>
+ * </ul>
+ * 啟用明細標頭且請求帶有 X-Profile: true 時，回應加上 Server-Timing 與 X-Profile-Breakdown 標頭。
+ */
+public class RequestProfilingFilter extends OncePerRequestFilter {
+
+    static final String BREAKDOWN_REQUEST_HEADER = "X-Profile";
+
+    private final MeterRegistry meterRegistry;
+    private final ThreadCostMeter threadCostMeter;
+    private final boolean breakdownHeaderEnabled;
+
+    public RequestProfilingFilter(MeterRegistry meterRegistry, ThreadCostMeter threadCostMeter, boolean breakdownHeaderEnabled) {
+        this.meterRegistry = meterRegistry;
+        this.threadCostMeter = threadCostMeter;
+        this.breakdownHeaderEnabled = breakdownHeaderEnabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean breakdown = breakdownHeaderEnabled && "true".equalsIgnoreCase(request.getHeader(BREAKDOWN_REQUEST_HEADER));
+        RequestProfile profile = RequestProfile.begin(breakdown ? response : null);
+        long cpuStart = threadCostMeter.cpuNanos();
+        long allocatedStart = threadCostMeter.allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestProfile.end();
+            long wallNanos = System.nanoTime() - start;
+            // 未對應到任何路由 (404 等) 的請求歸為同一類，避免 uri 標籤數量無上限
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            record(profile, uri, wallNanos);
+            if (cpuStart >= 0) {
+                Timer.builder("foodtiger.profile.request.cpu")
+                        .tag("uri", uri)
+                        .register(meterRegistry)
+                        .record(threadCostMeter.cpuNanos() - cpuStart, TimeUnit.NANOSECONDS);
+            }
+            if (allocatedStart >= 0) {
+                DistributionSummary.builder("foodtiger.profile.request.alloc")
+                        .baseUnit("bytes")
+                        .tag("uri", uri)
+                        .register(meterRegistry)
+                        .record(threadCostMeter.allocatedBytes() - allocatedStart);
+            }
+        }
+    }
+
+    private void record(RequestProfile profile, String uri, long wallNanos) {
+        long profiledNanos = 0;
+        for (Layer layer : Layer.values()) {
+            if (profile.calls(layer) == 0) {
+                continue;
+            }
+            long layerNanos = profile.exclusiveWallNanos(layer);
+            profiledNanos += layerNanos;
+            layerTimer(uri, layer.tag()).record(layerNanos, TimeUnit.NANOSECONDS);
+        }
+        layerTimer(uri, "other").record(Math.max(wallNanos - profiledNanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    private Timer layerTimer(String uri, String layer) {
+        return Timer.builder("foodtiger.profile.request.layer")
+                .description("請求在各層扣除巢狀呼叫後的時間")
+                .tags("uri", uri, "layer", layer)
+                .register(meterRegistry);
+    }
+}
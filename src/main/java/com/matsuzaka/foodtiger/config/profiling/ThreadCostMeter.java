@@ -0,0 +1,46 @@
+package com.matsuzaka.foodtiger.config.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 以 ThreadMXBean 讀取目前執行緒累計的 CPU 時間與配置的位元組數。
+ * JVM 不支援、設定停用或目前是虛擬執行緒時 (JDK 回傳 -1) 各方法回傳 -1，呼叫端應略過該項數據。
+ */
+public class ThreadCostMeter {
+
+    private final ThreadMXBean threads;
+    private final com.sun.management.ThreadMXBean allocationThreads;
+    private final boolean cpuTime;
+    private final boolean allocation;
+
+    public ThreadCostMeter(boolean cpuTimeEnabled, boolean allocationEnabled) {
+        this.threads = ManagementFactory.getThreadMXBean();
+        this.allocationThreads = threads instanceof com.sun.management.ThreadMXBean sun ? sun : null;
+        this.cpuTime = cpuTimeEnabled && threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        this.allocation = allocationEnabled && allocationThreads != null
+                && allocationThreads.isThreadAllocatedMemorySupported() && allocationThreads.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * @return 目前執行緒累計的 CPU 時間 (奈秒)，無法取得時為 -1
+     */
+    public long cpuNanos() {
+        return cpuTime ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * @return 目前執行緒累計配置的位元組數，無法取得時為 -1
+     */
+    public long allocatedBytes() {
+        return allocation ? allocationThreads.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    public boolean isCpuTimeEnabled() {
+        return cpuTime;
+    }
+
+    public boolean isAllocationEnabled() {
+        return allocation;
+    }
+}
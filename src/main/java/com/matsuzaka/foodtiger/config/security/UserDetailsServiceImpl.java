@@ -1,7 +1,10 @@
 package com.matsuzaka.foodtiger.config.security;
 
+import com.matsuzaka.foodtiger.config.datasource.DataSourceRoutingContext;
+import com.matsuzaka.foodtiger.config.logging.SampledLogFilter;
 import com.matsuzaka.foodtiger.dao.entity.User;
 import com.matsuzaka.foodtiger.dao.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +12,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
@@ -18,9 +23,21 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
     /**
      * 根據用戶名載入用戶。
      * 這是 Spring Security 認證流程的一部分。
+     * 每個已認證請求都會呼叫，先查讀庫；讀庫找不到時改查主庫，避免剛註冊的帳號因讀庫尚未同步而無法登入。
      *
      * @param username 用戶名
      * @return 實現 UserDetails 介面的用戶對象 (CustomUserDetails)
@@ -28,13 +45,19 @@ public class UserDetailsServiceImpl implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        logger.debug("嘗試載入用戶: {}", username);
-        User user = userRepository.findByUsername(username);
+        logger.debug(SampledLogFilter.READ_PATH, "嘗試載入用戶: {}", username);
+        // 連線在交易中第一次查詢時才決定讀庫或主庫，改查主庫需另開交易
+        User user = readOnlyTransaction.execute(status -> userRepository.findByUsername(username));
+        if (user == null && !DataSourceRoutingContext.isForcePrimary()) {
+            logger.debug("讀庫未找到用戶 '{}'，改查主庫", username);
+            user = DataSourceRoutingContext.onPrimary(
+                    () -> readOnlyTransaction.execute(status -> userRepository.findByUsername(username)));
+        }
         if (user == null) {
             logger.warn("用戶名 '{}' 未找到", username);
             throw new UsernameNotFoundException("用戶名 " + username + " 未找到");
         }
-        logger.info("成功載入用戶: {}", username);
+        logger.info(SampledLogFilter.READ_PATH, "成功載入用戶: {}", username);
         return CustomUserDetails.build(user); // 使用 CustomUserDetails 構建
     }
 }
\ No newline at end of file
@@ -54,6 +54,8 @@ public class WebSecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // 無狀態會話
                 .authorizeHttpRequests(auth ->
                         auth.requestMatchers("/api/users/register", "/api/auth/**").permitAll() // 允許註冊和認證端點無需認證
+                                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll() // 負載平衡器的健康檢查
+                                .requestMatchers("/actuator/**").hasRole("ADMIN") // 指標等管理端點只允許管理員
                                 .anyRequest().authenticated() // 其他所有請求都需要認證
                 );
 
@@ -0,0 +1,49 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * 目前執行緒的訂單分片。未設定時走分片 0 (同時存放用戶、餐廳、菜單等全域資料表)。
+ *
+ * <p>必須在交易取得連線之前設定：交易一旦取得連線就固定在該分片，之後切換分片不會生效。
+ * 一般由 OrderShardRoutingAspect 在 service 方法的交易開始前設定，背景工作則以 {@link #onShard} 包住每個分片的處理。</p>
+ */
+public final class OrderShardContext {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private OrderShardContext() {
+    }
+
+    /**
+     * @return 目前的分片；未設定時為 null
+     */
+    public static Integer current() {
+        return SHARD.get();
+    }
+
+    public static void set(Integer shard) {
+        if (shard != null) {
+            SHARD.set(shard);
+        } else {
+            SHARD.remove();
+        }
+    }
+
+    /**
+     * 在指定分片上執行一段邏輯，結束後還原原本的設定。
+     *
+     * @param shard 分片編號
+     * @param action 要執行的邏輯
+     * @return 邏輯的回傳值
+     */
+    public static <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = current();
+        set(shard);
+        try {
+            return action.get();
+        } finally {
+            set(previous);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 訂單分片的資料來源設定，app.order-shards.enabled=true 時啟用。
+ *
+ * <ul>
+ *     <li>分片 0：沿用 spring.datasource.* 與 spring.datasource.hikari.*，並存放分片對照表 (order_shard_bucket)</li>
+ *     <li>分片 1 ~ N-1：app.order-shards.datasources[i].* (jdbc-url、username、password、maximum-pool-size 等)</li>
+ * </ul>
+ *
+ * <p>每個分片都建立完整的資料表。orderr、orderr_item、payment 及其封存表、restaurant_sales_hourly、order_event_outbox
+ * 依餐廳分散存放；用戶、地址、餐廳、菜單等其他資料表以分片 0 為準，須以資料庫複寫同步到其他分片 (唯讀)，
+ * 讓訂單交易在單一分片內即可完成。全域資料表的寫入 (註冊、修改菜單等) 不經過分片路由，一律寫入分片 0。</p>
+ *
+ * <p>與讀寫分離 (app.datasource.replica.enabled) 不可同時啟用。</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.order-shards", name = "enabled", havingValue = "true")
+public class OrderShardDataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderShardDataSourceConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource orderShard0DataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("order-shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    public OrderShardRoutingDataSource orderShardRoutingDataSource(HikariDataSource orderShard0DataSource, Environment environment) {
+        if (environment.getProperty("app.datasource.replica.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("訂單分片與讀寫分離不可同時啟用，請關閉 app.datasource.replica.enabled 或 app.order-shards.enabled");
+        }
+        List<HikariConfig> configs = Binder.get(environment)
+                .bind("app.order-shards.datasources", Bindable.listOf(HikariConfig.class))
+                .orElse(List.of());
+        List<DataSource> shards = new ArrayList<>(configs.size() + 1);
+        shards.add(orderShard0DataSource);
+        for (HikariConfig config : configs) {
+            config.setPoolName("order-shard-" + shards.size());
+            shards.add(new HikariDataSource(config));
+        }
+        logger.info("已啟用訂單分片：共 {} 個分片", shards.size());
+        return new OrderShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(OrderShardRoutingDataSource orderShardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(orderShardRoutingDataSource);
+    }
+
+    /**
+     * 與讀寫分離相同：交易結束即釋放連線，open-in-view 的 Session 中每個交易都重新經過路由，
+     * 不會沿用前一個交易在其他分片取得的連線。
+     */
+    @Bean
+    public HibernatePropertiesCustomizer orderShardConnectionHandlingCustomizer() {
+        return properties -> properties.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+}
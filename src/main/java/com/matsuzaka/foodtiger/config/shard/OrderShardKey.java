@@ -0,0 +1,39 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 標在 service 方法的參數上，由 OrderShardRoutingAspect 依這個參數決定整個方法 (含交易) 在哪個分片執行。
+ *
+ * <pre>
+ * public Orderr createOrder(&#64;OrderShardKey(property = "restaurantId") OrderRequest orderRequest)
+ * public Orderr acceptDelivery(&#64;OrderShardKey(OrderShardKey.Type.ORDER) Long orderId, Long deliveryPersonId)
+ * </pre>
+ *
+ * 參數 (或 property 取出的值) 為 null 時在分片 0 執行。
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrderShardKey {
+
+    enum Type {
+        /**
+         * 值為餐廳 ID
+         */
+        RESTAURANT,
+        /**
+         * 值為訂單 ID，先查出訂單所屬的餐廳
+         */
+        ORDER
+    }
+
+    Type value() default Type.RESTAURANT;
+
+    /**
+     * 從參數物件取出 ID 的屬性路徑，例如 "restaurantId"、"orderr.id"；空字串表示參數本身就是 ID。
+     */
+    String property() default "";
+}
@@ -0,0 +1,207 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * 餐廳到訂單分片的對照表。
+ *
+ * <p>餐廳 ID 先雜湊到 BUCKETS 個桶，再由 order_shard_bucket 資料表 (存在分片 0) 決定每個桶放在哪個分片；
+ * 第一次啟動時資料表是空的，依「桶號 % 分片數」建立。重新分配只需搬移一個桶的資料再改一列，
+ * 不必像「餐廳 ID % 分片數」那樣在增加分片時搬動大部分訂單。</p>
+ *
+ * <p>各節點在記憶體中保留一份對照，每隔 refresh-ms 重新讀取。搬移中的桶標記為 moving，
+ * 路由到這些桶的寫入會等到搬移完成 (見 OrderShards)。對照超過 refresh-ms 未成功更新時不再依它路由
+ * ({@link #checkFresh})，沒看到 moving 標記的節點不會一直寫入來源分片。</p>
+ *
+ * <p>每個分片另有 order_shard_fence 資料表，存在一列表示該桶的資料放在這個分片。寫入訂單資料的交易先以共用鎖讀取這一列
+ * (OrderShards.fence)，搬移時以排他鎖鎖住來源分片的這一列再複製，等進行中的寫入結束、擋住新的寫入，
+ * 搬移完成後刪除這一列，被擋住的寫入拿不到這一列而失敗重試。</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.order-shards", name = "enabled", havingValue = "true")
+public class OrderShardMap {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderShardMap.class);
+
+    public static final int BUCKET_BITS = 10;
+    public static final int BUCKETS = 1 << BUCKET_BITS;
+
+    private record Snapshot(int[] shardByBucket, boolean[] moving, long loadedAtMillis) {
+    }
+
+    @Autowired
+    private OrderShardRoutingDataSource routingDataSource;
+
+    @Value("${app.order-shards.refresh-ms:5000}")
+    private long refreshMs;
+
+    private JdbcTemplate jdbcTemplate; // 固定連分片 0，不受目前執行緒的分片影響
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate = new JdbcTemplate(routingDataSource.shard(0));
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_shard_bucket", Integer.class);
+        if (rows == null || rows < BUCKETS) {
+            initialize();
+        }
+        refresh();
+        initializeFences();
+        logger.info("訂單分片對照載入完成：{} 個桶分配到 {} 個分片", BUCKETS, routingDataSource.shardCount());
+    }
+
+    /**
+     * 重新讀取對照表；讀取失敗時沿用上一份，但超過 refresh-ms 後 {@link #checkFresh} 拒絕路由。
+     */
+    @Scheduled(fixedDelayString = "${app.order-shards.refresh-ms:5000}", initialDelayString = "${app.order-shards.refresh-ms:5000}")
+    public synchronized void refresh() {
+        long startedAt = System.currentTimeMillis();
+        int[] shardByBucket = new int[BUCKETS];
+        boolean[] moving = new boolean[BUCKETS];
+        Arrays.fill(shardByBucket, -1);
+        try {
+            jdbcTemplate.query("SELECT bucket, shard, moving FROM order_shard_bucket", rs -> {
+                int bucket = rs.getInt(1);
+                int shard = rs.getInt(2);
+                if (shard < 0 || shard >= routingDataSource.shardCount()) {
+                    throw new IllegalStateException("桶 " + bucket + " 分配到不存在的分片 " + shard
+                            + "，目前只設定了 " + routingDataSource.shardCount() + " 個分片");
+                }
+                shardByBucket[bucket] = shard;
+                moving[bucket] = rs.getBoolean(3);
+            });
+        } catch (DataAccessException e) {
+            if (snapshot == null) {
+                throw e;
+            }
+            logger.warn("重新讀取訂單分片對照失敗，沿用上一份", e);
+            return;
+        }
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (shardByBucket[bucket] < 0) {
+                throw new IllegalStateException("order_shard_bucket 缺少桶 " + bucket + " 的分配");
+            }
+        }
+        snapshot = new Snapshot(shardByBucket, moving, startedAt);
+    }
+
+    /**
+     * 確認對照在 refresh-ms 內更新過；過期時先同步重新讀取一次。
+     *
+     * @throws OrderShardUnavailableException 仍無法取得新的對照
+     */
+    public void checkFresh() {
+        if (System.currentTimeMillis() - snapshot.loadedAtMillis() <= refreshMs) {
+            return;
+        }
+        refresh();
+        long age = System.currentTimeMillis() - snapshot.loadedAtMillis();
+        if (age > refreshMs) {
+            throw new OrderShardUnavailableException("訂單分片對照已 " + age + " 毫秒未更新，暫停路由訂單寫入，請稍後再試");
+        }
+    }
+
+    /**
+     * @return 餐廳所在的桶，0 ~ BUCKETS - 1
+     */
+    public static int bucketOf(long restaurantId) {
+        // 乘上黃金比例常數後取最高位，連續的餐廳 ID 會平均分散到各桶
+        return (int) ((restaurantId * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - BUCKET_BITS));
+    }
+
+    public int shardOfBucket(int bucket) {
+        return snapshot.shardByBucket()[bucket];
+    }
+
+    public boolean isMoving(int bucket) {
+        return snapshot.moving()[bucket];
+    }
+
+    /**
+     * @return 是否有任何桶正在搬移
+     */
+    public boolean isAnyMoving() {
+        for (boolean moving : snapshot.moving()) {
+            if (moving) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int shardCount() {
+        return routingDataSource.shardCount();
+    }
+
+    /**
+     * 標記桶開始或結束搬移，並立即更新這個節點的對照；其他節點在下一次 refresh 後才看到。
+     */
+    void markMoving(int bucket, boolean moving) {
+        jdbcTemplate.update("UPDATE order_shard_bucket SET moving = ?, updated_at = ? WHERE bucket = ?",
+                moving, Timestamp.from(Instant.now()), bucket);
+        refresh();
+    }
+
+    /**
+     * 把桶改分配到另一個分片並結束搬移。
+     */
+    void assign(int bucket, int shard) {
+        jdbcTemplate.update("UPDATE order_shard_bucket SET shard = ?, moving = FALSE, updated_at = ? WHERE bucket = ?",
+                shard, Timestamp.from(Instant.now()), bucket);
+        refresh();
+    }
+
+    private void initialize() {
+        int shards = routingDataSource.shardCount();
+        Timestamp now = Timestamp.from(Instant.now());
+        int created = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            try {
+                jdbcTemplate.update("INSERT INTO order_shard_bucket (bucket, shard, moving, updated_at) VALUES (?, ?, FALSE, ?)",
+                        bucket, bucket % shards, now);
+                created++;
+            } catch (DuplicateKeyException e) {
+                // 已存在或其他節點同時建立，保留原本的分配
+            }
+        }
+        logger.info("建立訂單分片對照：{} 個桶依桶號平均分配到 {} 個分片", created, shards);
+    }
+
+    // 第一次啟動時依對照在各分片建立 order_shard_fence；之後由 OrderShardRebalancer 隨搬移維護
+    private void initializeFences() {
+        for (int shard = 0; shard < routingDataSource.shardCount(); shard++) {
+            JdbcTemplate shardJdbcTemplate = new JdbcTemplate(routingDataSource.shard(shard));
+            Integer rows = shardJdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_shard_fence", Integer.class);
+            if (rows != null && rows > 0) {
+                continue;
+            }
+            int created = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (shardOfBucket(bucket) != shard) {
+                    continue;
+                }
+                try {
+                    shardJdbcTemplate.update("INSERT INTO order_shard_fence (bucket) VALUES (?)", bucket);
+                    created++;
+                } catch (DuplicateKeyException e) {
+                    // 其他節點同時建立
+                }
+            }
+            logger.info("在分片 {} 建立 {} 個桶的 order_shard_fence", shard, created);
+        }
+    }
+}
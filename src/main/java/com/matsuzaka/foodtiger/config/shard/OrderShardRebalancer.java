@@ -0,0 +1,232 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import com.matsuzaka.foodtiger.dto.ShardMoveResult;
+import com.matsuzaka.foodtiger.exception.InvalidOperationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把一個桶的訂單資料從目前的分片搬到另一個分片。
+ *
+ * <ol>
+ *     <li>標記桶搬移中，等待 2 × refresh-ms：各節點都看到標記 (或因對照過期而拒絕路由)，新的寫入開始等待</li>
+ *     <li>在來源分片開一個交易，以排他鎖鎖住桶的 order_shard_fence：等路由較早、仍在進行的寫入交易提交，並擋住之後的寫入</li>
+ *     <li>依餐廳把訂單、訂單項目、付款、封存表與銷售彙總複製到目標分片 (先清除目標分片上同一餐廳的資料，重試時不會重複)，
+ *     逐表比對兩邊的列數</li>
+ *     <li>在目標分片建立 fence、改分配到目標分片並結束搬移，刪除來源分片的 fence 後提交；被擋住的寫入失敗重試，改送到目標分片</li>
+ *     <li>再等待 2 × refresh-ms，各節點都改讀目標分片後，確認來源分片的列數與複製時相同，再刪除來源分片上的資料</li>
+ * </ol>
+ *
+ * <p>order_event_outbox 不搬移，來源分片上尚未轉送的事件照常由 OrderEventRelay 轉送。
+ * 複製失敗時清除目標分片上已複製的資料並取消搬移標記，桶仍留在來源分片。
+ * 刪除前發現來源分片的列數改變時保留來源資料並記錄錯誤，不會刪掉未複製的寫入。</p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.order-shards", name = "enabled", havingValue = "true")
+public class OrderShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderShardRebalancer.class);
+
+    /**
+     * 依餐廳搬移的資料表，依外鍵順序排列 (刪除時反向)；where 的唯一參數為餐廳 ID。
+     */
+    private record MovedTable(String name, String where) {
+    }
+
+    private static final List<MovedTable> TABLES = List.of(
+            new MovedTable("orderr", "restaurant_id = ?"),
+            new MovedTable("orderr_item", "orderr_id IN (SELECT id FROM orderr WHERE restaurant_id = ?)"),
+            new MovedTable("payment", "orderr_id IN (SELECT id FROM orderr WHERE restaurant_id = ?)"),
+            new MovedTable("orderr_archive", "restaurant_id = ?"),
+            new MovedTable("orderr_item_archive", "orderr_id IN (SELECT id FROM orderr_archive WHERE restaurant_id = ?)"),
+            new MovedTable("payment_archive", "orderr_id IN (SELECT id FROM orderr_archive WHERE restaurant_id = ?)"),
+            new MovedTable("restaurant_sales_hourly", "restaurant_id = ?"));
+
+    @Autowired
+    private OrderShardMap shardMap;
+
+    @Autowired
+    private OrderShardRoutingDataSource routingDataSource;
+
+    @Value("${app.order-shards.refresh-ms:5000}")
+    private long refreshMs;
+
+    @Value("${app.order-shards.move-batch-size:500}")
+    private int moveBatchSize;
+
+    /**
+     * @param bucket 桶號，0 ~ OrderShardMap.BUCKETS - 1
+     * @param targetShard 目標分片
+     * @throws InvalidOperationException 如果桶號或分片不存在
+     */
+    public synchronized ShardMoveResult moveBucket(int bucket, int targetShard) throws InvalidOperationException {
+        if (bucket < 0 || bucket >= OrderShardMap.BUCKETS) {
+            throw new InvalidOperationException("桶號必須介於 0 與 " + (OrderShardMap.BUCKETS - 1) + " 之間");
+        }
+        if (targetShard < 0 || targetShard >= routingDataSource.shardCount()) {
+            throw new InvalidOperationException("分片 " + targetShard + " 不存在，目前共 " + routingDataSource.shardCount() + " 個分片");
+        }
+        int sourceShard = shardMap.shardOfBucket(bucket);
+        if (sourceShard == targetShard) {
+            return new ShardMoveResult(bucket, sourceShard, targetShard, 0, 0);
+        }
+        DataSource source = routingDataSource.shard(sourceShard);
+        DataSource target = routingDataSource.shard(targetShard);
+        List<Long> restaurantIds = restaurantsIn(bucket);
+        logger.info("開始搬移桶 {} ({} 間餐廳)：分片 {} → 分片 {}", bucket, restaurantIds.size(), sourceShard, targetShard);
+
+        shardMap.markMoving(bucket, true);
+        Map<Long, long[]> copiedRows = new HashMap<>();
+        try {
+            pause(2 * refreshMs);
+            JdbcTemplate sourceJdbc = new JdbcTemplate(source);
+            new TransactionTemplate(new DataSourceTransactionManager(source)).executeWithoutResult(status -> {
+                // 進行中的寫入交易持有共用鎖，這裡等它們提交；之後的寫入等這個交易結束
+                if (sourceJdbc.queryForList("SELECT bucket FROM order_shard_fence WHERE bucket = ? FOR UPDATE", Integer.class, bucket).isEmpty()) {
+                    throw new IllegalStateException("分片 " + sourceShard + " 沒有桶 " + bucket + " 的 order_shard_fence");
+                }
+                for (Long restaurantId : restaurantIds) {
+                    copiedRows.put(restaurantId, copy(sourceJdbc, target, restaurantId));
+                }
+                new JdbcTemplate(target).update("INSERT INTO order_shard_fence (bucket) VALUES (?)", bucket);
+                shardMap.assign(bucket, targetShard);
+                sourceJdbc.update("DELETE FROM order_shard_fence WHERE bucket = ?", bucket);
+            });
+        } catch (RuntimeException e) {
+            logger.error("搬移桶 {} 失敗，保留在分片 {}", bucket, sourceShard, e);
+            restaurantIds.forEach(restaurantId -> delete(target, restaurantId));
+            new JdbcTemplate(target).update("DELETE FROM order_shard_fence WHERE bucket = ?", bucket);
+            shardMap.assign(bucket, sourceShard); // 來源的交易已回滾，fence 仍在來源分片
+            throw e;
+        }
+
+        pause(2 * refreshMs);
+        long copied = 0;
+        for (Long restaurantId : restaurantIds) {
+            long[] expected = copiedRows.get(restaurantId);
+            long[] remaining = countRows(new JdbcTemplate(source), restaurantId);
+            copied += Arrays.stream(expected).sum();
+            if (!Arrays.equals(expected, remaining)) {
+                logger.error("搬移桶 {} 後分片 {} 上餐廳 ID {} 的列數由 {} 變為 {}，保留來源資料待人工確認",
+                        bucket, sourceShard, restaurantId, Arrays.toString(expected), Arrays.toString(remaining));
+                continue;
+            }
+            delete(source, restaurantId);
+        }
+        logger.info("桶 {} 已搬移到分片 {}，共複製 {} 列", bucket, targetShard, copied);
+        return new ShardMoveResult(bucket, sourceShard, targetShard, restaurantIds.size(), copied);
+    }
+
+    // 餐廳表在每個分片都有，以分片 0 為準
+    private List<Long> restaurantsIn(int bucket) {
+        List<Long> restaurantIds = new ArrayList<>();
+        new JdbcTemplate(routingDataSource.shard(0)).query("SELECT id FROM restaurant", rs -> {
+            long restaurantId = rs.getLong(1);
+            if (OrderShardMap.bucketOf(restaurantId) == bucket) {
+                restaurantIds.add(restaurantId);
+            }
+        });
+        return restaurantIds;
+    }
+
+    /**
+     * 在目標分片的一個交易中清除再複製一間餐廳的資料，來源以串流方式讀取，每 move-batch-size 列寫入一次。
+     * 提交前逐表比對兩邊的列數。
+     *
+     * @return 各表複製的列數，順序同 TABLES
+     */
+    private long[] copy(JdbcTemplate sourceJdbc, DataSource target, Long restaurantId) {
+        JdbcTemplate targetJdbc = new JdbcTemplate(target);
+        return new TransactionTemplate(new DataSourceTransactionManager(target)).execute(status -> {
+            deleteRows(targetJdbc, restaurantId);
+            for (MovedTable table : TABLES) {
+                List<Object[]> batch = new ArrayList<>(moveBatchSize);
+                String[] insert = new String[1];
+                sourceJdbc.query("SELECT * FROM " + table.name() + " WHERE " + table.where(), rs -> {
+                    ResultSetMetaData metaData = rs.getMetaData();
+                    if (insert[0] == null) {
+                        insert[0] = insertSql(table.name(), metaData);
+                    }
+                    Object[] row = new Object[metaData.getColumnCount()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    batch.add(row);
+                    if (batch.size() >= moveBatchSize) {
+                        targetJdbc.batchUpdate(insert[0], batch);
+                        batch.clear();
+                    }
+                }, restaurantId);
+                if (!batch.isEmpty()) {
+                    targetJdbc.batchUpdate(insert[0], batch);
+                }
+            }
+            long[] sourceRows = countRows(sourceJdbc, restaurantId);
+            long[] targetRows = countRows(targetJdbc, restaurantId);
+            if (!Arrays.equals(sourceRows, targetRows)) {
+                throw new IllegalStateException("餐廳 ID " + restaurantId + " 複製後列數不一致：來源 " + Arrays.toString(sourceRows)
+                        + "，目標 " + Arrays.toString(targetRows));
+            }
+            return targetRows;
+        });
+    }
+
+    private static long[] countRows(JdbcTemplate jdbcTemplate, Long restaurantId) {
+        long[] rows = new long[TABLES.size()];
+        for (int i = 0; i < TABLES.size(); i++) {
+            MovedTable table = TABLES.get(i);
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table.name() + " WHERE " + table.where(), Long.class, restaurantId);
+            rows[i] = count != null ? count : 0;
+        }
+        return rows;
+    }
+
+    private void delete(DataSource dataSource, Long restaurantId) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status ->
+                deleteRows(jdbcTemplate, restaurantId));
+    }
+
+    private static void deleteRows(JdbcTemplate jdbcTemplate, Long restaurantId) {
+        List<MovedTable> reversed = new ArrayList<>(TABLES);
+        Collections.reverse(reversed);
+        for (MovedTable table : reversed) {
+            jdbcTemplate.update("DELETE FROM " + table.name() + " WHERE " + table.where(), restaurantId);
+        }
+    }
+
+    private static String insertSql(String table, ResultSetMetaData metaData) throws SQLException {
+        List<String> columns = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.add(metaData.getColumnLabel(i));
+        }
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("搬移訂單分片時被中斷", e);
+        }
+    }
+}
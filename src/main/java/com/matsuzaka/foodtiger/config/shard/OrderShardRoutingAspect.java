@@ -0,0 +1,231 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.hibernate.Hibernate;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 依 &#64;OrderShardKey 把 service 方法路由到訂單所在的分片，&#64;OrderShardScatter 的方法則分散到每個分片再合併。
+ *
+ * <p>排在交易切面之外 (只在 LayerProfilingAspect 之內)：先設定分片再開始交易，交易中的所有 SQL
+ * (含用戶、餐廳等每個分片都有的資料表) 都在同一個分片上執行。已在交易中時，只允許呼叫同一個分片的方法，
+ * 跨分片的呼叫直接拋出例外，不會悄悄讀寫到錯誤的資料庫。</p>
+ *
+ * <p>讀寫交易 (&#64;Transactional 且非 readOnly) 的方法在交易開始時先呼叫 OrderShards.fence，
+ * 以共用鎖確認餐廳的桶仍在這個分片上，與搬移互斥。</p>
+ *
+ * <p>只有啟用分片時才註冊；未啟用時被標註的方法照常執行。</p>
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(prefix = "app.order-shards", name = "enabled", havingValue = "true")
+public class OrderShardRoutingAspect {
+
+    private record KeyParameter(int index, OrderShardKey key, boolean writes) {
+    }
+
+    private final TransactionAttributeSource transactionAttributeSource = new AnnotationTransactionAttributeSource();
+
+    @Autowired
+    private OrderShards orderShards;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final Map<Method, KeyParameter> keyParameterByMethod = new ConcurrentHashMap<>();
+
+    @Around("execution(* com.matsuzaka.foodtiger.service.impl..*.*(.., @com.matsuzaka.foodtiger.config.shard.OrderShardKey (*), ..))")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!orderShards.isSharded()) {
+            return joinPoint.proceed();
+        }
+        KeyParameter parameter = keyParameterOf(joinPoint);
+        Long id = idOf(joinPoint.getArgs()[parameter.index()], parameter.key().property());
+        Long restaurantId = parameter.key().value() == OrderShardKey.Type.ORDER && id != null ? orderShards.restaurantIdOfOrder(id) : id;
+        int shard = orderShards.shardOf(restaurantId);
+        if (parameter.writes() && restaurantId != null) {
+            return proceedFenced(joinPoint, shard, restaurantId);
+        }
+        return proceedOnShard(joinPoint, shard);
+    }
+
+    @Around("@annotation(com.matsuzaka.foodtiger.config.shard.OrderShardScatter)")
+    public Object scatter(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!orderShards.isSharded()) {
+            return joinPoint.proceed();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("已在交易中，無法分散查詢各分片：" + joinPoint.getSignature().toShortString());
+        }
+        List<Object> results = new ArrayList<>(orderShards.shardCount());
+        for (int shard = 0; shard < orderShards.shardCount(); shard++) {
+            results.add(proceedOnShard(joinPoint, shard));
+        }
+        return merge(((MethodSignature) joinPoint.getSignature()).getReturnType(), results);
+    }
+
+    private Object proceedOnShard(ProceedingJoinPoint joinPoint, int shard) throws Throwable {
+        return proceedOnShard(joinPoint, shard, () -> {
+        });
+    }
+
+    private Object proceedOnShard(ProceedingJoinPoint joinPoint, int shard, Runnable inTransaction) throws Throwable {
+        Integer current = OrderShardContext.current();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // 交易的連線已固定，同一分片的巢狀呼叫加入原本的交易
+            if ((current != null ? current : 0) == shard) {
+                inTransaction.run();
+                return joinPoint.proceed();
+            }
+            throw new IllegalStateException("交易已在分片 " + (current != null ? current : 0) + " 上，無法在同一交易中存取分片 "
+                    + shard + "：" + joinPoint.getSignature().toShortString());
+        }
+        OrderShardContext.set(shard);
+        try {
+            Object result = joinPoint.proceed();
+            orderShards.initializeOrderScoped(result);
+            return result;
+        } finally {
+            OrderShardContext.set(current);
+        }
+    }
+
+    /**
+     * 在分片上開 (或加入) 讀寫交易，先鎖定餐廳的桶再執行方法；方法的 &#64;Transactional 加入這個交易。
+     * 與 &#64;Transactional 相同，checked exception 不回滾 (除非方法已標記回滾)。
+     */
+    private Object proceedFenced(ProceedingJoinPoint joinPoint, int shard, Long restaurantId) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return proceedOnShard(joinPoint, shard, () -> orderShards.fence(List.of(restaurantId)));
+        }
+        Integer current = OrderShardContext.current();
+        OrderShardContext.set(shard);
+        try {
+            Throwable[] checked = new Throwable[1];
+            Object result = orderShards.inTransaction(shard, false, status -> {
+                orderShards.fence(List.of(restaurantId));
+                try {
+                    return joinPoint.proceed();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    checked[0] = e;
+                    if (status.isRollbackOnly()) {
+                        status.setRollbackOnly(); // 直接回滾並拋出原本的例外，而不是 UnexpectedRollbackException
+                    }
+                    return null;
+                }
+            });
+            if (checked[0] != null) {
+                throw checked[0];
+            }
+            orderShards.initializeOrderScoped(result);
+            return result;
+        } finally {
+            OrderShardContext.set(current);
+        }
+    }
+
+    private Object merge(Class<?> returnType, List<Object> results) {
+        if (returnType == void.class || returnType == Void.class) {
+            return null;
+        }
+        if (Optional.class.equals(returnType)) {
+            return results.stream()
+                    .map(result -> (Optional<?>) result)
+                    .filter(result -> result != null && result.isPresent())
+                    .findFirst()
+                    .orElse(Optional.empty());
+        }
+        if (List.class.isAssignableFrom(returnType)) {
+            PersistenceUnitUtil persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+            Map<Object, Object> merged = new LinkedHashMap<>();
+            for (Object result : results) {
+                if (result == null) {
+                    continue;
+                }
+                for (Object element : (List<?>) result) {
+                    merged.putIfAbsent(identityOf(persistenceUnitUtil, element), element);
+                }
+            }
+            return new ArrayList<>(merged.values());
+        }
+        throw new IllegalStateException("不支援合併 " + returnType.getName() + " 型別的分散查詢結果");
+    }
+
+    // 實體以型別加主鍵識別，其他物件以 equals 識別
+    private static Object identityOf(PersistenceUnitUtil persistenceUnitUtil, Object element) {
+        if (element == null) {
+            return new Object();
+        }
+        try {
+            Object id = persistenceUnitUtil.getIdentifier(element);
+            if (id != null) {
+                return List.of(Hibernate.getClass(element), id);
+            }
+        } catch (IllegalArgumentException e) {
+            // 不是實體
+        }
+        return element;
+    }
+
+    private KeyParameter keyParameterOf(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        return keyParameterByMethod.computeIfAbsent(method, declared -> {
+            Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+            Method specific = AopUtils.getMostSpecificMethod(declared, targetClass);
+            TransactionAttribute attribute = transactionAttributeSource.getTransactionAttribute(specific, targetClass);
+            boolean writes = attribute != null && !attribute.isReadOnly()
+                    && attribute.getPropagationBehavior() != TransactionDefinition.PROPAGATION_NOT_SUPPORTED
+                    && attribute.getPropagationBehavior() != TransactionDefinition.PROPAGATION_NEVER;
+            Annotation[][] annotations = specific.getParameterAnnotations();
+            for (int i = 0; i < annotations.length; i++) {
+                for (Annotation annotation : annotations[i]) {
+                    if (annotation instanceof OrderShardKey key) {
+                        return new KeyParameter(i, key, writes);
+                    }
+                }
+            }
+            throw new IllegalStateException(specific + " 沒有標註 @OrderShardKey 的參數");
+        });
+    }
+
+    private static Long idOf(Object argument, String property) {
+        Object value = argument;
+        if (value != null && !property.isEmpty()) {
+            try {
+                value = PropertyAccessorFactory.forBeanPropertyAccess(value).getPropertyValue(property);
+            } catch (BeansException e) {
+                value = null; // 巢狀屬性為 null，例如尚未設定餐廳的新訂單
+            }
+        }
+        return value instanceof Number number ? number.longValue() : null;
+    }
+}
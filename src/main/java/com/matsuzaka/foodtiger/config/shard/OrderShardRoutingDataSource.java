@@ -0,0 +1,61 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 依 OrderShardContext 路由的資料來源，未設定分片時走分片 0。
+ *
+ * <p>與 ReadWriteRoutingDataSource 相同，必須包在 {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} 內使用，
+ * 讓實體連線延後到第一個 SQL 執行時才取得，此時分片已由呼叫端設定完成。</p>
+ */
+public class OrderShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final List<DataSource> shards;
+
+    /**
+     * @param shards 各分片的資料來源，索引即分片編號；分片 0 為原本的主資料庫
+     */
+    public OrderShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = OrderShardContext.current();
+        return shard != null ? shard : 0;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * 關閉分片 1 ~ N-1 的連線池；分片 0 是獨立的 bean，由 Spring 關閉。
+     */
+    public void close() throws Exception {
+        for (int i = 1; i < shards.size(); i++) {
+            if (shards.get(i) instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * @return 指定分片的資料來源，不經過路由 (搬移資料時同時存取兩個分片)
+     */
+    public DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+}
@@ -0,0 +1,21 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 標在無法以餐廳或訂單決定分片的 service 查詢上 (例如依顧客、外送員查詢訂單)，
+ * 由 OrderShardRoutingAspect 在每個分片各執行一次 (各自一個交易) 再合併結果 (scatter-gather)：
+ *
+ * <ul>
+ *     <li>List：依分片順序串接，同一筆資料 (搬移期間可能同時存在兩個分片) 只保留一次</li>
+ *     <li>Optional：第一個有值的結果</li>
+ *     <li>void：每個分片都執行</li>
+ * </ul>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrderShardScatter {
+}
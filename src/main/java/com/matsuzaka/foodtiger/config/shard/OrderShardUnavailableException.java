@@ -0,0 +1,12 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+/**
+ * 訂單所在的桶搬移中，等待 move-wait-ms 後仍未完成；GlobalExceptionHandler 回傳 503 讓客戶端稍後重試。
+ *
+ * <p>由路由切面在 service 方法外拋出，不宣告為 checked exception，避免每個被路由的方法都要加上 throws。</p>
+ */
+public class OrderShardUnavailableException extends RuntimeException {
+    public OrderShardUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,329 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderItem;
+import com.matsuzaka.foodtiger.dao.entity.Orderr;
+import com.matsuzaka.foodtiger.dao.entity.Payment;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 訂單分片的入口：決定餐廳、訂單在哪個分片，以及在指定分片或每個分片上執行邏輯。
+ *
+ * <p>未啟用分片 (app.order-shards.enabled=false) 時只有分片 0，所有方法都直接在原本的資料庫上執行，
+ * 背景工作可以一律以 forEachShard 撰寫。</p>
+ *
+ * <p>訂單 ID 不含餐廳資訊，依訂單 ID 路由時先查記憶體中的「訂單 → 餐廳」快取，沒有時逐一查詢各分片的 orderr 與 orderr_archive；
+ * 快取記的是餐廳 ID 而不是分片，桶搬移後不需要清除。</p>
+ */
+@Component
+public class OrderShards {
+
+    private static final long MOVE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Autowired
+    private ObjectProvider<OrderShardRoutingDataSource> routingDataSourceProvider;
+
+    @Autowired
+    private ObjectProvider<OrderShardMap> shardMapProvider;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate; // 經過路由，加入目前的交易
+
+    @Value("${app.order-shards.move-wait-ms:15000}")
+    private long moveWaitMs;
+
+    @Value("${app.order-shards.locate-cache-size:100000}")
+    private int locateCacheSize;
+
+    private OrderShardRoutingDataSource routingDataSource; // null 表示未啟用分片
+    private OrderShardMap shardMap;
+    private List<JdbcTemplate> shardJdbcTemplates = List.of();
+    private Map<Long, Long> restaurantIdByOrderId;
+    private String shareLockClause = "LOCK IN SHARE MODE";
+
+    @PostConstruct
+    public void init() {
+        routingDataSource = routingDataSourceProvider.getIfAvailable();
+        shardMap = shardMapProvider.getIfAvailable();
+        if (routingDataSource != null) {
+            List<JdbcTemplate> templates = new ArrayList<>(routingDataSource.shardCount());
+            for (int shard = 0; shard < routingDataSource.shardCount(); shard++) {
+                templates.add(new JdbcTemplate(routingDataSource.shard(shard)));
+            }
+            shardJdbcTemplates = List.copyOf(templates);
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(routingDataSource.shard(0), DatabaseMetaData::getDatabaseProductName);
+                if ("H2".equals(product)) {
+                    shareLockClause = "FOR UPDATE"; // H2 (測試用) 沒有共用列鎖
+                }
+            } catch (MetaDataAccessException e) {
+                throw new IllegalStateException("無法取得訂單分片的資料庫類型", e);
+            }
+        }
+        restaurantIdByOrderId = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > locateCacheSize;
+            }
+        });
+    }
+
+    public boolean isSharded() {
+        return routingDataSource != null && routingDataSource.shardCount() > 1;
+    }
+
+    public int shardCount() {
+        return isSharded() ? routingDataSource.shardCount() : 1;
+    }
+
+    /**
+     * 餐廳訂單所在的分片。桶搬移中時等到搬移完成，最多 move-wait-ms。
+     *
+     * @param restaurantId 餐廳 ID；null 時為分片 0
+     * @throws OrderShardUnavailableException 等待逾時，或分片對照超過 refresh-ms 未更新
+     */
+    public int shardOf(Long restaurantId) {
+        if (!isSharded() || restaurantId == null) {
+            return 0;
+        }
+        shardMap.checkFresh();
+        int bucket = OrderShardMap.bucketOf(restaurantId);
+        long deadline = System.currentTimeMillis() + moveWaitMs;
+        while (shardMap.isMoving(bucket)) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new OrderShardUnavailableException("餐廳 ID " + restaurantId + " 的訂單資料搬移中，請稍後再試");
+            }
+            LockSupport.parkNanos(MOVE_POLL_NANOS);
+        }
+        return shardMap.shardOfBucket(bucket);
+    }
+
+    /**
+     * @return 餐廳所在的桶是否正在搬移，不等待
+     */
+    public boolean isMoving(Long restaurantId) {
+        return isSharded() && restaurantId != null && shardMap.isMoving(OrderShardMap.bucketOf(restaurantId));
+    }
+
+    /**
+     * @return 是否有任何桶正在搬移；封存等會在分片內搬動訂單的工作在搬移期間暫停
+     */
+    public boolean isAnyMoving() {
+        return isSharded() && shardMap.isAnyMoving();
+    }
+
+    /**
+     * 訂單所在的分片 (含已封存的訂單)。
+     *
+     * @return 找不到訂單時為分片 0，由呼叫端照常回報訂單不存在
+     * @throws OrderShardUnavailableException 訂單所在的桶搬移中且等待逾時
+     */
+    public int shardOfOrder(Long orderId) {
+        if (!isSharded() || orderId == null) {
+            return 0;
+        }
+        Long restaurantId = restaurantIdOfOrder(orderId);
+        return restaurantId != null ? shardOf(restaurantId) : 0;
+    }
+
+    /**
+     * @return 訂單所屬的餐廳 ID；任何分片都找不到時為 null
+     */
+    public Long restaurantIdOfOrder(Long orderId) {
+        Long cached = restaurantIdByOrderId.get(orderId);
+        if (cached != null) {
+            return cached;
+        }
+        for (JdbcTemplate jdbcTemplate : shardJdbcTemplates) {
+            List<Long> restaurantIds = jdbcTemplate.queryForList(
+                    "SELECT restaurant_id FROM orderr WHERE id = ? UNION ALL SELECT restaurant_id FROM orderr_archive WHERE id = ?",
+                    Long.class, orderId, orderId);
+            if (!restaurantIds.isEmpty()) {
+                remember(orderId, restaurantIds.get(0));
+                return restaurantIds.get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 新建立的訂單記下所屬餐廳，之後依訂單 ID 路由時不必查詢各分片。
+     */
+    public void remember(Long orderId, Long restaurantId) {
+        if (isSharded() && orderId != null && restaurantId != null) {
+            restaurantIdByOrderId.put(orderId, restaurantId);
+        }
+    }
+
+    /**
+     * 在目前分片的交易中，以共用鎖讀取這些餐廳所在桶的 order_shard_fence，確認資料仍在這個分片上。
+     * 鎖持有到交易結束，搬移這些桶時會等這個交易提交後才開始複製。寫入訂單資料的交易都要在寫入前呼叫。
+     *
+     * @param restaurantIds 交易要寫入的訂單所屬的餐廳；null 略過
+     * @throws OrderShardUnavailableException 桶已搬離目前的分片 (路由時的對照已過期)，交易應回滾後重試
+     */
+    public void fence(Collection<Long> restaurantIds) {
+        if (!isSharded()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("必須在交易中鎖定訂單分片的桶");
+        }
+        TreeSet<Integer> buckets = new TreeSet<>(); // 依桶號順序加鎖
+        for (Long restaurantId : restaurantIds) {
+            if (restaurantId != null) {
+                buckets.add(OrderShardMap.bucketOf(restaurantId));
+            }
+        }
+        for (int bucket : buckets) {
+            List<Integer> rows = jdbcTemplate.queryForList(
+                    "SELECT bucket FROM order_shard_fence WHERE bucket = ? " + shareLockClause, Integer.class, bucket);
+            if (rows.isEmpty()) {
+                Integer shard = OrderShardContext.current();
+                throw new OrderShardUnavailableException("桶 " + bucket + " 的訂單資料已搬離分片 " + (shard != null ? shard : 0) + "，請重試");
+            }
+        }
+    }
+
+    /**
+     * 在指定分片上執行；必須在交易開始前呼叫。
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        return OrderShardContext.onShard(shard, action);
+    }
+
+    /**
+     * 依序在每個分片上執行一次，未啟用分片時只執行一次 (分片 0)。
+     */
+    public void forEachShard(IntConsumer action) {
+        for (int shard = 0; shard < shardCount(); shard++) {
+            int current = shard;
+            OrderShardContext.onShard(shard, () -> {
+                action.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * 在指定分片上開一個交易執行。
+     *
+     * @throws IllegalStateException 已啟用分片且目前已在交易中 (交易的連線已固定在某個分片)
+     */
+    public <T> T inTransaction(int shard, boolean readOnly, TransactionCallback<T> callback) {
+        if (isSharded() && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("已在交易中，無法切換到分片 " + shard);
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return OrderShardContext.onShard(shard, () -> transactionTemplate.execute(callback));
+    }
+
+    /**
+     * 分頁查詢分散到每個分片 (scatter-gather)：各分片取前 (頁碼 + 1) × 每頁筆數筆，合併排序後切出要求的頁，總筆數為各分片加總。
+     * 頁碼越後面各分片要讀的筆數越多，只適合查詢前幾頁。未啟用分片時直接查詢。
+     *
+     * @param pageable 要求的頁
+     * @param order 與 pageable 排序一致的比較器，用於合併各分片的結果
+     * @param query 在單一分片上執行的分頁查詢
+     */
+    public <T> Page<T> scatterPage(Pageable pageable, Comparator<? super T> order, Function<Pageable, Page<T>> query) {
+        if (!isSharded()) {
+            return inTransaction(0, true, status -> query.apply(pageable));
+        }
+        int headSize = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+        Pageable head = PageRequest.of(0, headSize, pageable.getSort());
+        List<T> merged = new ArrayList<>();
+        long total = 0;
+        for (int shard = 0; shard < shardCount(); shard++) {
+            Page<T> page = inTransaction(shard, true, status -> {
+                Page<T> result = query.apply(head);
+                initializeOrderScoped(result);
+                return result;
+            });
+            merged.addAll(page.getContent());
+            total += page.getTotalElements();
+        }
+        merged.sort(order);
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new PageImpl<>(new ArrayList<>(merged.subList(from, to)), pageable, total);
+    }
+
+    /**
+     * @return 直接連到指定分片的 JdbcTemplate，不經過路由也不加入目前的交易
+     */
+    public JdbcTemplate jdbcTemplate(int shard) {
+        return shardJdbcTemplates.get(shard);
+    }
+
+    /**
+     * 在目前的分片上載入訂單相關的延遲關聯 (訂單項目、付款與項目所屬的訂單)。
+     *
+     * <p>開啟 open-in-view 時，回應序列化期間才載入的延遲關聯會在路由切面還原分片之後取得連線，讀到分片 0；
+     * 因此在離開分片前先載入。用戶、餐廳、地址、菜單存在每個分片，不需要處理。
+     * 只在交易中或 open-in-view 的 EntityManager 仍開著時載入，否則維持原本的延遲載入行為。</p>
+     */
+    public void initializeOrderScoped(Object result) {
+        if (!isSharded() || result == null || entityManagerFactory == null
+                || !TransactionSynchronizationManager.hasResource(entityManagerFactory)) {
+            return;
+        }
+        initialize(result);
+    }
+
+    private static void initialize(Object result) {
+        if (result instanceof Optional<?> optional) {
+            optional.ifPresent(OrderShards::initialize);
+        } else if (result instanceof Iterable<?> iterable) {
+            iterable.forEach(OrderShards::initialize);
+        } else if (result instanceof Orderr orderr) {
+            Hibernate.initialize(orderr.getOrderItems());
+        } else if (result instanceof Payment payment) {
+            Hibernate.initialize(payment.getOrderr());
+            if (payment.getOrderr() != null) {
+                Hibernate.initialize(payment.getOrderr().getOrderItems());
+            }
+        } else if (result instanceof OrderItem orderItem) {
+            Hibernate.initialize(orderItem.getOrderr());
+        }
+    }
+}
@@ -45,6 +45,8 @@ public class AddressController {
                     existingAddress.setDistrict(address.getDistrict());
                     existingAddress.setStreet(address.getStreet());
                     existingAddress.setExtraDetails(address.getExtraDetails());
+                    existingAddress.setLatitude(address.getLatitude()); // 未提供時由 saveAddress 依新的縣市、行政區推估
+                    existingAddress.setLongitude(address.getLongitude());
                     Address updatedAddress = addressService.saveAddress(existingAddress);
                     return new ResponseEntity<>(updatedAddress, HttpStatus.OK);
                 })
@@ -0,0 +1,60 @@
+package com.matsuzaka.foodtiger.controller;
+
+import com.matsuzaka.foodtiger.config.security.CustomUserDetails;
+import com.matsuzaka.foodtiger.dto.CourierLocation;
+import com.matsuzaka.foodtiger.dto.LocationPingBatch;
+import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.exception.UnauthorizedException;
+import com.matsuzaka.foodtiger.service.CourierLocationService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/courier-locations")
+public class CourierLocationController {
+
+    @Autowired
+    private CourierLocationService courierLocationService;
+
+    /**
+     * 外送員批次回報 GPS 位置。
+     * 僅限 DELIVER 角色。運送中的位置先存在記憶體，降採樣後才寫入資料庫；
+     * 沒有運送中訂單時的回報作為上線訊號，用於建議指派的外送員。
+     *
+     * @param batch 一批位置 (最多 200 筆)
+     * @return 實際接受的筆數和 ACCEPTED 狀態
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('DELIVER')")
+    public ResponseEntity<Map<String, Integer>> reportLocations(@Valid @RequestBody LocationPingBatch batch) {
+        CustomUserDetails currentUser = (CustomUserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        int accepted = courierLocationService.ingest(currentUser.getId(), batch.getPings());
+        return new ResponseEntity<>(Map.of("accepted", accepted), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * 查詢運送中訂單的外送員最新位置。
+     * 僅限下單的 CUSTOMER 或 ADMIN。
+     *
+     * @param orderId 訂單 ID
+     * @return 外送員最新位置和 OK 狀態
+     * @throws ResourceNotFoundException 如果訂單不在運送中或外送員尚未回報位置
+     * @throws UnauthorizedException 如果訂單不屬於當前用戶
+     */
+    @GetMapping("/orderrs/{orderId}")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN')")
+    public ResponseEntity<CourierLocation> getCourierLocation(@PathVariable Long orderId) throws ResourceNotFoundException, UnauthorizedException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails currentUser = (CustomUserDetails) authentication.getPrincipal();
+        boolean admin = authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        return new ResponseEntity<>(courierLocationService.findLatestForOrder(orderId, currentUser.getId(), admin), HttpStatus.OK);
+    }
+}
@@ -1,12 +1,24 @@
 package com.matsuzaka.foodtiger.controller;
 
 import com.matsuzaka.foodtiger.dao.entity.MenuItem;
+import com.matsuzaka.foodtiger.dto.CachedMenuResponse;
+import com.matsuzaka.foodtiger.dto.MenuImportResult;
+import com.matsuzaka.foodtiger.dto.PopularMenuItem;
+import com.matsuzaka.foodtiger.exception.InvalidOperationException;
+import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.service.MenuImportService;
 import com.matsuzaka.foodtiger.service.MenuItemService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -16,6 +28,9 @@ public class MenuItemController {
     @Autowired
     private MenuItemService menuItemService;
 
+    @Autowired
+    private MenuImportService menuImportService;
+
     @GetMapping
     public ResponseEntity<List<MenuItem>> getAllMenuItems() {
         List<MenuItem> menuItems = menuItemService.findAllMenuItems();
@@ -69,13 +84,86 @@ public class MenuItemController {
         return new ResponseEntity<>(menuItems, HttpStatus.OK);
     }
 
-    @GetMapping("/restaurant/{restaurantId}/available")
-    public ResponseEntity<List<MenuItem>> getAvailableMenuItemsByRestaurantId(@PathVariable Long restaurantId) {
-        List<MenuItem> menuItems = menuItemService.findAvailableMenuItemsByRestaurantId(restaurantId);
-        if (menuItems.isEmpty()) {
+    /**
+     * 批次匯入 (新增或更新) 餐廳菜單，同一餐廳內以菜名判斷是否已存在。
+     * 請求內容為 text/csv (第一列為標題列) 或 application/x-ndjson (每行一個 JSON 物件)，以串流方式處理。
+     * 僅限 ADMIN 或該餐廳的擁有者。
+     */
+    @PostMapping(value = "/restaurant/{restaurantId}/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ADMIN') or " +
+            "(hasRole('RESTAURANT_OWNER') and @restaurantService.findRestaurantById(#restaurantId).orElse(null)?.owner?.id == authentication.principal.id)")
+    public ResponseEntity<MenuImportResult> importMenuItems(@PathVariable Long restaurantId,
+                                                            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                            InputStream body)
+            throws ResourceNotFoundException, InvalidOperationException, IOException {
+        MenuImportService.Format format = contentType.isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? MenuImportService.Format.CSV
+                : MenuImportService.Format.NDJSON;
+        MenuImportResult result = menuImportService.importMenuItems(restaurantId, format, body);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/restaurant/{restaurantId}/popular")
+    public ResponseEntity<List<PopularMenuItem>> getPopularMenuItemsByRestaurantId(@PathVariable Long restaurantId,
+                                                                                   @RequestParam(defaultValue = "10") int limit) {
+        List<PopularMenuItem> popularMenuItems = menuItemService.findPopularMenuItems(restaurantId, limit);
+        if (popularMenuItems.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(menuItems, HttpStatus.OK);
+        return new ResponseEntity<>(popularMenuItems, HttpStatus.OK);
+    }
+
+    /**
+     * 取得餐廳可點的菜單項目 (AvailableMenuItem，只帶餐廳 ID)。回應已預先序列化並壓縮 (MenuResponseCache)，直接寫出位元組；
+     * 用戶端接受 gzip 時回傳壓縮版本，If-None-Match 符合時回傳 304。
+     */
+    @GetMapping("/restaurant/{restaurantId}/available")
+    public void getAvailableMenuItemsByRestaurantId(@PathVariable Long restaurantId,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                    HttpServletResponse response) throws IOException {
+        CachedMenuResponse entry = menuItemService.findAvailableMenuResponse(restaurantId);
+        if (entry.empty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, entry.etag());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (entry.etag().equals(ifNoneMatch)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+        byte[] body = gzip ? entry.gzip() : entry.json();
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // Accept-Encoding 中列出 gzip (或 *) 且 q 值不為 0
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
     }
 
     @GetMapping("/search")
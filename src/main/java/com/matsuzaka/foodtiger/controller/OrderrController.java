@@ -1,23 +1,39 @@
 package com.matsuzaka.foodtiger.controller;
 
 import com.matsuzaka.foodtiger.config.security.CustomUserDetails;
+import com.matsuzaka.foodtiger.config.shard.OrderShardRebalancer;
 import com.matsuzaka.foodtiger.dao.entity.Orderr;
 import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
 import com.matsuzaka.foodtiger.dao.entity.Restaurant;
+import com.matsuzaka.foodtiger.dao.entity.Role;
+import com.matsuzaka.foodtiger.dto.BulkOrderStatusUpdateRequest;
+import com.matsuzaka.foodtiger.dto.BulkOrderStatusUpdateResult;
+import com.matsuzaka.foodtiger.dto.CourierSuggestion;
 import com.matsuzaka.foodtiger.dto.DeliveryAssignmentRequest;
+import com.matsuzaka.foodtiger.dto.OrderRatingRequest;
 import com.matsuzaka.foodtiger.dto.OrderRequest;
+import com.matsuzaka.foodtiger.dto.OrderStatusCounts;
 import com.matsuzaka.foodtiger.dto.OrderStatusUpdateRequest;
+import com.matsuzaka.foodtiger.dto.OrderTicket;
+import com.matsuzaka.foodtiger.dto.ShardMoveResult;
+import com.matsuzaka.foodtiger.exception.FoodTigerException;
 import com.matsuzaka.foodtiger.exception.InvalidOperationException;
 import com.matsuzaka.foodtiger.exception.InvalidOrderStatusTransitionException;
 import com.matsuzaka.foodtiger.exception.MenuItemUnavailableException;
 import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.exception.ServiceBusyException;
 import com.matsuzaka.foodtiger.exception.UnauthorizedException;
+import com.matsuzaka.foodtiger.service.IdempotencyService;
+import com.matsuzaka.foodtiger.service.OrderIntakeService;
 import com.matsuzaka.foodtiger.service.OrderrService;
 import com.matsuzaka.foodtiger.service.RestaurantService; // Import RestaurantService
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -25,7 +41,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/orderrs")
@@ -39,6 +57,15 @@ public class OrderrController {
     @Autowired
     private RestaurantService restaurantService; // Autowire RestaurantService
 
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ObjectProvider<OrderShardRebalancer> orderShardRebalancer; // 只有啟用訂單分片時才有
+
     // 允許 ADMIN 獲取所有訂單
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -80,7 +107,7 @@ public class OrderrController {
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or " +
             "(hasRole('RESTAURANT_OWNER') and @orderrService.findOrderrById(#id).orElse(null)?.restaurant?.owner?.id == authentication.principal.id)")
-    public ResponseEntity<Orderr> updateOrderr(@PathVariable Long id, @RequestBody Orderr orderr) throws ResourceNotFoundException, UnauthorizedException {
+    public ResponseEntity<Orderr> updateOrderr(@PathVariable Long id, @RequestBody Orderr orderr) throws ResourceNotFoundException, UnauthorizedException, InvalidOperationException {
         logger.info("收到更新 ID 為 {} 訂單的請求", id);
 
         // 獲取當前認證用戶的 ID
@@ -98,6 +125,11 @@ public class OrderrController {
             }
         }
 
+        if (orderrService.findOrderrById(id).map(Orderr::isArchived).orElse(false)) {
+            logger.warn("嘗試更新已封存的訂單 ID {}", id);
+            throw new InvalidOperationException("訂單 ID " + id + " 已封存，不可修改");
+        }
+
         return orderrService.findOrderrById(id)
                 .map(existingOrderr -> {
                     existingOrderr.setUser(orderr.getUser()); // 這些字段的更新可能需要更細緻的權限控制
@@ -123,9 +155,14 @@ public class OrderrController {
     // 允許 ADMIN 刪除任何訂單
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> deleteOrderr(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteOrderr(@PathVariable Long id) throws InvalidOperationException {
         logger.warn("收到刪除 ID 為 {} 訂單的請求 (由 ADMIN 執行)", id);
-        if (orderrService.findOrderrById(id).isPresent()) {
+        Optional<Orderr> existingOrderr = orderrService.findOrderrById(id);
+        if (existingOrderr.isPresent() && existingOrderr.get().isArchived()) {
+            logger.warn("嘗試刪除已封存的訂單 ID {}", id);
+            throw new InvalidOperationException("訂單 ID " + id + " 已封存，不可刪除");
+        }
+        if (existingOrderr.isPresent()) {
             orderrService.deleteOrderr(id);
             logger.info("訂單 ID {} 刪除成功", id);
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -209,34 +246,73 @@ public class OrderrController {
         return new ResponseEntity<>(orderrs, HttpStatus.OK);
     }
 
-    // 允許 ADMIN 獲取任何狀態的訂單，或根據角色限制
+    /**
+     * 各狀態的訂單數 (不含已封存的訂單)，讀取記憶體中的計數，不載入訂單。
+     * ADMIN 可查全部餐廳的合計或任一餐廳；RESTAURANT_OWNER 只能查自己的餐廳。
+     *
+     * @param restaurantId 餐廳 ID；未提供時為全部餐廳的合計 (僅限 ADMIN)
+     * @return 各狀態的訂單數和 OK 狀態
+     */
+    @GetMapping("/counts")
+    @PreAuthorize("hasRole('ADMIN') or " +
+            "(hasRole('RESTAURANT_OWNER') and #restaurantId != null and @restaurantService.findRestaurantById(#restaurantId).orElse(null)?.owner?.id == authentication.principal.id)")
+    public ResponseEntity<OrderStatusCounts> getOrderrCounts(@RequestParam(required = false) Long restaurantId) {
+        return new ResponseEntity<>(orderrService.countOrderrsByStatus(restaurantId), HttpStatus.OK);
+    }
+
+    /**
+     * 依狀態分頁查詢訂單，查詢範圍依角色限制：CUSTOMER 只看自己的訂單，RESTAURANT_OWNER 只看自己餐廳的訂單，
+     * DELIVER 只看指派給自己的訂單，ADMIN 看全部。
+     *
+     * @param status 訂單狀態
+     * @param page 頁碼，從 0 開始
+     * @param size 每頁筆數 (最多 100)
+     * @return 依下單時間由新到舊的一頁訂單和 OK 狀態；沒有符合的訂單時為 NOT_FOUND
+     */
     @GetMapping("/status/{status}")
-    @PreAuthorize("hasRole('ADMIN') or hasAnyRole('CUSTOMER', 'DELIVER', 'RESTAURANT_OWNER')") // 這裡可以根據具體業務邏輯細化
-    public ResponseEntity<List<Orderr>> getOrderrsByStatus(@PathVariable OrderStatus status) {
-        logger.info("收到獲取狀態為 {} 訂單的請求", status);
-        // 這裡需要更細緻的權限控制，例如 CUSTOMER 只能看自己的訂單，RESTAURANT_OWNER 只能看自己餐廳的訂單
-        // 為了簡化，目前只允許所有已認證用戶訪問，但實際查詢結果會根據用戶角色在 Service 層進行過濾
-        List<Orderr> orderrs = orderrService.findOrderrsByStatus(status);
-        if (orderrs.isEmpty()) {
+    @PreAuthorize("hasAnyRole('ADMIN', 'CUSTOMER', 'DELIVER', 'RESTAURANT_OWNER')")
+    public ResponseEntity<PagedModel<Orderr>> getOrderrsByStatus(@PathVariable OrderStatus status,
+                                                                 @RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(defaultValue = "20") int size) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails currentUser = (CustomUserDetails) authentication.getPrincipal();
+        Role role = authentication.getAuthorities().stream()
+                .map(a -> a.getAuthority())
+                .filter(authority -> authority.startsWith("ROLE_"))
+                .map(authority -> Role.valueOf(authority.substring("ROLE_".length())))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("用戶 ID " + currentUser.getId() + " 沒有角色"));
+        logger.info("收到獲取狀態為 {} 訂單的請求，用戶 ID {} ({})", status, currentUser.getId(), role);
+
+        Page<Orderr> orderrs = orderrService.findOrderrsByStatus(status, currentUser.getId(), role, page, size);
+        if (orderrs.getTotalElements() == 0) {
             logger.warn("未找到狀態為 {} 的訂單", status);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        logger.info("成功獲取狀態為 {} 的 {} 筆訂單", status, orderrs.size());
-        return new ResponseEntity<>(orderrs, HttpStatus.OK);
+        logger.info("成功獲取狀態為 {} 的 {} 筆訂單 (共 {} 筆)", status, orderrs.getNumberOfElements(), orderrs.getTotalElements());
+        return new ResponseEntity<>(new PagedModel<>(orderrs), HttpStatus.OK);
     }
 
     /**
      * 創建新訂單的 API 端點。
      * 僅限 CUSTOMER 角色。
      *
+     * 啟用非同步下單 (app.order-intake.async-enabled=true) 時，只做記憶體驗證並排入佇列，
+     * 回傳 ACCEPTED 與訂單憑證，結果以 GET /api/orderrs/tickets/{ticketId} 查詢；
+     * 憑證只保存在受理的節點，多節點部署時需以黏著路由把查詢送回同一個節點。
+     * 帶有 Idempotency-Key 的重送會回放第一次的回應，不會重複建立訂單。
+     *
      * @param orderRequest 包含訂單詳細資訊的 DTO
-     * @return 創建成功的訂單實體和 CREATED 狀態
+     * @param idempotencyKey 選填的 Idempotency-Key 標頭
+     * @return 創建成功的訂單實體和 CREATED 狀態；非同步模式下為訂單憑證和 ACCEPTED 狀態
      * @throws ResourceNotFoundException 如果用戶、餐廳、地址或菜單項目不存在
      * @throws MenuItemUnavailableException 如果菜單項目不可用
+     * @throws ServiceBusyException 如果非同步模式下的寫入佇列已滿，或相同 Idempotency-Key 的請求仍在處理中
      */
     @PostMapping("/create")
     @PreAuthorize("hasRole('CUSTOMER')")
-    public ResponseEntity<Orderr> placeOrder(@Valid @RequestBody OrderRequest orderRequest) throws ResourceNotFoundException, MenuItemUnavailableException, UnauthorizedException {
+    public ResponseEntity<?> placeOrder(@Valid @RequestBody OrderRequest orderRequest,
+                                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) throws FoodTigerException {
         logger.info("收到下訂單請求，用戶 ID: {}, 餐廳 ID: {}", orderRequest.getUserId(), orderRequest.getRestaurantId());
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -248,9 +324,41 @@ public class OrderrController {
             throw new UnauthorizedException("您無權為其他用戶下訂單");
         }
 
-        Orderr newOrder = orderrService.createOrder(orderRequest);
-        logger.info("訂單 ID {} 下單成功", newOrder.getId());
-        return new ResponseEntity<>(newOrder, HttpStatus.CREATED);
+        return idempotencyService.execute(currentUser.getId(), "orderrs.create", idempotencyKey, orderRequest, () -> {
+            if (orderIntakeService.isAsyncEnabled()) {
+                OrderTicket ticket = orderIntakeService.submit(orderRequest);
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .location(URI.create("/api/orderrs/tickets/" + ticket.getTicketId()))
+                        .body(ticket);
+            }
+
+            Orderr newOrder = orderrService.createOrder(orderRequest);
+            logger.info("訂單 ID {} 下單成功", newOrder.getId());
+            return new ResponseEntity<>(newOrder, HttpStatus.CREATED);
+        });
+    }
+
+    /**
+     * 查詢非同步下單憑證的處理結果。
+     * 僅限憑證所屬的 CUSTOMER 或 ADMIN。
+     *
+     * @param ticketId 下單時回傳的憑證 ID
+     * @return 訂單憑證 (QUEUED、ACCEPTED 附 orderId，或 REJECTED 附原因) 和 OK 狀態
+     * @throws ResourceNotFoundException 如果憑證不存在、已過期，或不是由處理此請求的節點發出 (憑證只保存在受理下單的節點)
+     * @throws UnauthorizedException 如果憑證不屬於當前用戶
+     */
+    @GetMapping("/tickets/{ticketId}")
+    @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN')")
+    public ResponseEntity<OrderTicket> getOrderTicket(@PathVariable String ticketId) throws ResourceNotFoundException, UnauthorizedException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails currentUser = (CustomUserDetails) authentication.getPrincipal();
+
+        OrderTicket ticket = orderIntakeService.findTicket(ticketId);
+        if (!authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")) && !ticket.getUserId().equals(currentUser.getId())) {
+            logger.warn("用戶 ID {} 嘗試查詢非自己的訂單憑證 {}", currentUser.getId(), ticketId);
+            throw new UnauthorizedException("您無權查看此訂單憑證");
+        }
+        return new ResponseEntity<>(ticket, HttpStatus.OK);
     }
 
     /**
@@ -280,6 +388,26 @@ public class OrderrController {
         return new ResponseEntity<>(updatedOrder, HttpStatus.OK);
     }
 
+    /**
+     * 批次更新訂單狀態的 API 端點。
+     * 僅限 RESTAURANT_OWNER 角色，只會更新屬於自己餐廳且狀態轉換有效的訂單。
+     *
+     * @param request 包含訂單 ID 列表與新狀態的 DTO
+     * @return 每筆訂單的更新結果
+     */
+    @PutMapping("/status/bulk")
+    @PreAuthorize("hasRole('RESTAURANT_OWNER')")
+    public ResponseEntity<List<BulkOrderStatusUpdateResult>> bulkUpdateOrderStatus(@Valid @RequestBody BulkOrderStatusUpdateRequest request) {
+        logger.info("收到批次更新 {} 筆訂單狀態的請求，新狀態為 {}", request.getOrderIds().size(), request.getNewStatus());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails currentUser = (CustomUserDetails) authentication.getPrincipal();
+
+        List<BulkOrderStatusUpdateResult> results =
+                orderrService.bulkUpdateOrderStatus(request.getOrderIds(), request.getNewStatus(), currentUser.getId());
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
     /**
      * 指派外送員給訂單的 API 端點。
      * 僅限 ADMIN 或 RESTAURANT_OWNER 角色。
@@ -315,6 +443,54 @@ public class OrderrController {
         return new ResponseEntity<>(updatedOrder, HttpStatus.OK);
     }
 
+    /**
+     * 建議指派給訂單的外送員，依外送員最近回報位置與餐廳的直線距離由近到遠排列。
+     * 僅限 ADMIN 或 RESTAURANT_OWNER 角色。
+     *
+     * @param orderId 訂單 ID
+     * @param limit 最多建議的人數 (1-20，預設 5)
+     * @return 建議的外送員列表和 OK 狀態；餐廳地址沒有座標或附近沒有可用外送員時為空列表
+     * @throws ResourceNotFoundException 如果訂單不存在
+     * @throws UnauthorizedException 如果餐廳擁有者查詢非自己餐廳的訂單
+     */
+    @GetMapping("/{orderId}/suggest-couriers")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RESTAURANT_OWNER')")
+    public ResponseEntity<List<CourierSuggestion>> suggestCouriers(@PathVariable Long orderId,
+                                                                   @RequestParam(defaultValue = "5") int limit)
+            throws ResourceNotFoundException, UnauthorizedException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails currentUser = (CustomUserDetails) authentication.getPrincipal();
+
+        if (authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_RESTAURANT_OWNER"))) {
+            Orderr orderr = orderrService.findOrderrById(orderId)
+                    .orElseThrow(() -> new ResourceNotFoundException("訂單 ID " + orderId + " 未找到"));
+            if (!orderr.getRestaurant().getOwner().getId().equals(currentUser.getId())) {
+                logger.warn("餐廳擁有者 ID {} 嘗試查詢非自己餐廳訂單 ID {} 的建議外送員", currentUser.getId(), orderId);
+                throw new UnauthorizedException("您無權指派此訂單的外送員");
+            }
+        }
+
+        List<CourierSuggestion> suggestions = orderrService.suggestCouriers(orderId, Math.max(1, Math.min(limit, 20)));
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
+
+    /**
+     * 外送員認領所在行政區最早的待指派訂單 (準備中、尚未指派外送員)。
+     * 僅限 DELIVER 角色；多位外送員同時認領時各自拿到不同的訂單，不會互相等待。
+     *
+     * @return 認領到的訂單和 OK 狀態；沒有可認領的訂單時為 NO_CONTENT
+     * @throws ResourceNotFoundException 如果外送員不存在
+     * @throws InvalidOperationException 如果外送員沒有填寫行政區的地址
+     */
+    @PostMapping("/claim-next")
+    @PreAuthorize("hasRole('DELIVER')")
+    public ResponseEntity<Orderr> claimNextOrder() throws ResourceNotFoundException, InvalidOperationException {
+        CustomUserDetails currentUser = (CustomUserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return orderrService.claimNextOrder(currentUser.getId())
+                .map(orderr -> new ResponseEntity<>(orderr, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT));
+    }
+
     /**
      * 外送員接受訂單的 API 端點。
      * 僅限 DELIVER 角色。
@@ -362,4 +538,49 @@ public class OrderrController {
         logger.info("外送員 ID {} 成功拒絕訂單 ID {}，訂單狀態變回 {}", deliveryPersonId, orderId, updatedOrder.getStatus());
         return new ResponseEntity<>(updatedOrder, HttpStatus.OK);
     }
+
+    /**
+     * 顧客為已完成的訂單評分的 API 端點。
+     * 僅限 CUSTOMER 角色，且只能為自己的訂單評分。
+     *
+     * @param orderId 訂單 ID
+     * @param request 包含評分的 DTO
+     * @return 更新後的訂單實體和 OK 狀態
+     * @throws ResourceNotFoundException 如果訂單不存在
+     * @throws UnauthorizedException 如果訂單不屬於當前用戶
+     * @throws InvalidOperationException 如果訂單尚未完成
+     */
+    @PutMapping("/{orderId}/rating")
+    @PreAuthorize("hasRole('CUSTOMER')")
+    public ResponseEntity<Orderr> rateOrder(@PathVariable Long orderId, @Valid @RequestBody OrderRatingRequest request)
+            throws ResourceNotFoundException, UnauthorizedException, InvalidOperationException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        CustomUserDetails currentUser = (CustomUserDetails) authentication.getPrincipal();
+
+        logger.info("收到顧客 ID {} 為訂單 ID {} 評分的請求", currentUser.getId(), orderId);
+        Orderr updatedOrder = orderrService.rateOrder(orderId, request.getRating(), currentUser.getId());
+        return new ResponseEntity<>(updatedOrder, HttpStatus.OK);
+    }
+
+    /**
+     * 把一個分片桶 (一群餐廳) 的訂單資料搬到另一個分片，僅限 ADMIN。
+     * 搬移期間這些餐廳的寫入會等待，整個請求要數秒到數分鐘，完成後回傳搬移結果。
+     *
+     * @param bucket 桶號，0 ~ 1023
+     * @param targetShard 目標分片
+     * @return 搬移結果和 OK 狀態
+     * @throws InvalidOperationException 如果未啟用訂單分片，或桶號、分片不存在
+     */
+    @PostMapping("/shards/buckets/{bucket}/move")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ShardMoveResult> moveShardBucket(@PathVariable int bucket, @RequestParam int targetShard)
+            throws InvalidOperationException {
+        OrderShardRebalancer rebalancer = orderShardRebalancer.getIfAvailable();
+        if (rebalancer == null) {
+            throw new InvalidOperationException("未啟用訂單分片 (app.order-shards.enabled)");
+        }
+        logger.info("收到把桶 {} 搬移到分片 {} 的請求 (由 ADMIN 執行)", bucket, targetShard);
+        ShardMoveResult result = rebalancer.moveBucket(bucket, targetShard);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
 }
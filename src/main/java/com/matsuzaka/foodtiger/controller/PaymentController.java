@@ -5,10 +5,13 @@ import com.matsuzaka.foodtiger.dao.entity.Orderr;
 import com.matsuzaka.foodtiger.dao.entity.Payment;
 import com.matsuzaka.foodtiger.dao.entity.PaymentStatus;
 import com.matsuzaka.foodtiger.dto.PaymentRequest;
+import com.matsuzaka.foodtiger.exception.FoodTigerException;
 import com.matsuzaka.foodtiger.exception.InvalidOperationException;
 import com.matsuzaka.foodtiger.exception.PaymentFailedException;
 import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.exception.ServiceBusyException;
 import com.matsuzaka.foodtiger.exception.UnauthorizedException;
+import com.matsuzaka.foodtiger.service.IdempotencyService;
 import com.matsuzaka.foodtiger.service.OrderrService; // Import OrderrService
 import com.matsuzaka.foodtiger.service.PaymentService;
 import jakarta.validation.Valid;
@@ -36,6 +39,9 @@ public class PaymentController {
     @Autowired
     private OrderrService orderrService; // Autowire OrderrService
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     // 允許ADMIN 獲取所有支付記錄
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -158,16 +164,21 @@ public class PaymentController {
      * 處理支付的 API 端點。
      * 僅限 CUSTOMER 角色。
      *
+     * 帶有 Idempotency-Key 的重送會回放第一次的回應，不會重複處理支付。
+     *
      * @param request 包含支付詳細資訊的 DTO
+     * @param idempotencyKey 選填的 Idempotency-Key 標頭
      * @return 處理後的支付實體和 CREATED 狀態
      * @throws ResourceNotFoundException 如果訂單不存在
-     * @throws InvalidOperationException 如果訂單已支付
+     * @throws InvalidOperationException 如果訂單已支付，或相同 Idempotency-Key 被用於不同內容的請求
      * @throws PaymentFailedException 如果支付處理失敗
+     * @throws ServiceBusyException 如果相同 Idempotency-Key 的請求仍在處理中
      */
     @PostMapping("/process")
     @PreAuthorize("hasRole('CUSTOMER')")
-    public ResponseEntity<Payment> processPayment(@Valid @RequestBody PaymentRequest request)
-            throws ResourceNotFoundException, InvalidOperationException, PaymentFailedException, UnauthorizedException {
+    public ResponseEntity<?> processPayment(@Valid @RequestBody PaymentRequest request,
+                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey)
+            throws FoodTigerException {
         logger.info("收到處理支付請求，訂單 ID: {}, 金額: {}", request.getOrderrId(), request.getAmount());
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -181,8 +192,10 @@ public class PaymentController {
             throw new UnauthorizedException("您無權為此訂單處理支付");
         }
 
-        Payment processedPayment = paymentService.processPayment(request);
-        logger.info("訂單 ID {} 的支付處理完成，狀態為 {}", request.getOrderrId(), processedPayment.getStatus());
-        return new ResponseEntity<>(processedPayment, HttpStatus.CREATED);
+        return idempotencyService.execute(currentUser.getId(), "payments.process", idempotencyKey, request, () -> {
+            Payment processedPayment = paymentService.processPayment(request);
+            logger.info("訂單 ID {} 的支付處理完成，狀態為 {}", request.getOrderrId(), processedPayment.getStatus());
+            return new ResponseEntity<>(processedPayment, HttpStatus.CREATED);
+        });
     }
 }
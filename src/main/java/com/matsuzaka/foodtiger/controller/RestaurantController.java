@@ -1,13 +1,21 @@
 package com.matsuzaka.foodtiger.controller;
 
 import com.matsuzaka.foodtiger.dao.entity.Restaurant;
+import com.matsuzaka.foodtiger.dto.SalesStats;
+import com.matsuzaka.foodtiger.exception.InvalidOperationException;
 import com.matsuzaka.foodtiger.service.RestaurantService;
+import com.matsuzaka.foodtiger.service.SalesStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/restaurants")
@@ -16,6 +24,12 @@ public class RestaurantController {
     @Autowired
     private RestaurantService restaurantService;
 
+    @Autowired
+    private SalesStatsService salesStatsService;
+
+    // 單次查詢最多涵蓋的天數，避免以小時為單位時回傳過多資料
+    private static final long MAX_STATS_DAYS = 366;
+
     @GetMapping
     public ResponseEntity<List<Restaurant>> getAllRestaurants() {
         List<Restaurant> restaurants = restaurantService.findAllRestaurants();
@@ -85,4 +99,50 @@ public class RestaurantController {
         }
         return new ResponseEntity<>(restaurants, HttpStatus.OK);
     }
+
+    /**
+     * 查詢餐廳在日期區間內的銷售統計 (訂單數、營業額、運費、取消數)，資料來自每小時彙總表。
+     * 僅限 ADMIN 或該餐廳的擁有者。
+     *
+     * @param id 餐廳 ID
+     * @param from 起始日期 (含)，格式 yyyy-MM-dd
+     * @param to 結束日期 (含)，格式 yyyy-MM-dd
+     * @param granularity HOUR 或 DAY，預設 DAY
+     * @return 依時間排序的統計列表
+     * @throws InvalidOperationException 如果日期區間無效或過長
+     */
+    @GetMapping("/{id}/stats")
+    @PreAuthorize("hasRole('ADMIN') or " +
+            "(hasRole('RESTAURANT_OWNER') and @restaurantService.findRestaurantById(#id).orElse(null)?.owner?.id == authentication.principal.id)")
+    public ResponseEntity<List<SalesStats>> getRestaurantStats(@PathVariable Long id,
+                                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                               @RequestParam(defaultValue = "DAY") SalesStatsService.Granularity granularity)
+            throws InvalidOperationException {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_STATS_DAYS) {
+            throw new InvalidOperationException("日期區間無效，結束日期不可早於起始日期，且最多查詢 " + MAX_STATS_DAYS + " 天");
+        }
+        List<SalesStats> stats = salesStatsService.findSalesStats(id, from, to, granularity);
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    /**
+     * 依訂單資料回補日期區間內的銷售彙總，僅限 ADMIN。
+     *
+     * @param from 起始日期 (含)，格式 yyyy-MM-dd
+     * @param to 結束日期 (含)，格式 yyyy-MM-dd
+     * @return 寫入的彙總列數
+     * @throws InvalidOperationException 如果結束日期早於起始日期
+     */
+    @PostMapping("/stats/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> backfillStats(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to)
+            throws InvalidOperationException {
+        if (to.isBefore(from)) {
+            throw new InvalidOperationException("結束日期不可早於起始日期");
+        }
+        int rows = salesStatsService.backfill(from, to);
+        return new ResponseEntity<>(Map.of("rows", rows), HttpStatus.OK);
+    }
 }
@@ -2,12 +2,16 @@ package com.matsuzaka.foodtiger.dao.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.util.Date;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "address")
 @Table(name = "address")
 @Data
 public class Address {
@@ -35,6 +39,11 @@ public class Address {
     @Column(name = "extra_details", length = 50)
     private String extraDetails;
 
+    // 未提供時由 DistrictGeocoder 依縣市、行政區推估，精度為行政區層級
+    private Double latitude;
+
+    private Double longitude;
+
     @CreationTimestamp
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "created_at", updatable = false)
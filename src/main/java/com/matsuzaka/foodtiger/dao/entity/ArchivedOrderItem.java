@@ -0,0 +1,30 @@
+package com.matsuzaka.foodtiger.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * 已封存訂單的訂單項目 (orderr_item_archive)，欄位與 orderr_item 相同。
+ */
+@Entity
+@Table(name = "orderr_item_archive")
+@Data
+public class ArchivedOrderItem {
+
+    @Id
+    private Long id; // 沿用原訂單項目 ID
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "orderr_id", nullable = false)
+    private ArchivedOrderr orderr;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "menu_item_id", nullable = false)
+    private MenuItem menuItem;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "price_at_orderr", nullable = false)
+    private Integer priceAtOrderr;
+}
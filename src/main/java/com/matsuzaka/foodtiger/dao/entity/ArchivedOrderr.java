@@ -0,0 +1,103 @@
+package com.matsuzaka.foodtiger.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 已封存的訂單 (orderr_archive)，欄位與 orderr 相同，由 OrderArchiveServiceImpl 從 orderr 搬移過來。
+ * 只供查詢歷史訂單，透過 toOrderr() 轉成一般的 Orderr 回傳。
+ */
+@Entity
+@Table(name = "orderr_archive")
+@Data
+public class ArchivedOrderr {
+
+    @Id
+    private Long id; // 沿用原訂單 ID
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "restaurant_id", nullable = false)
+    private Restaurant restaurant;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "delivery_person_id")
+    private User deliveryPerson;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "delivery_address_id", nullable = false)
+    private Address deliveryAddress;
+
+    @Column(name = "total_amount", nullable = false)
+    private Integer totalAmount;
+
+    @Column(name = "delivery_fee")
+    private Integer deliveryFee;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "orderr_time")
+    private Date orderrTime;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "estimated_delivery_time")
+    private Date estimatedDeliveryTime;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "completed_time")
+    private Date completedTime;
+
+    @Column(name = "rating")
+    private Integer rating;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "archived_at", nullable = false)
+    private Date archivedAt;
+
+    @OneToMany(mappedBy = "orderr")
+    private List<ArchivedOrderItem> orderItems;
+
+    /**
+     * 轉成標記為已封存的 Orderr (不受 EntityManager 管理，不可再儲存)。
+     */
+    public Orderr toOrderr() {
+        Orderr orderr = new Orderr();
+        orderr.setId(id);
+        orderr.setUser(user);
+        orderr.setRestaurant(restaurant);
+        orderr.setDeliveryPerson(deliveryPerson);
+        orderr.setDeliveryAddress(deliveryAddress);
+        orderr.setTotalAmount(totalAmount);
+        orderr.setDeliveryFee(deliveryFee);
+        orderr.setStatus(status);
+        orderr.setOrderrTime(orderrTime);
+        orderr.setEstimatedDeliveryTime(estimatedDeliveryTime);
+        orderr.setCompletedTime(completedTime);
+        orderr.setRating(rating);
+        orderr.setArchived(true);
+        List<OrderItem> items = new ArrayList<>();
+        if (orderItems != null) {
+            for (ArchivedOrderItem archivedItem : orderItems) {
+                OrderItem item = new OrderItem();
+                item.setId(archivedItem.getId());
+                item.setOrderr(orderr);
+                item.setMenuItem(archivedItem.getMenuItem());
+                item.setQuantity(archivedItem.getQuantity());
+                item.setPriceAtOrderr(archivedItem.getPriceAtOrderr());
+                items.add(item);
+            }
+        }
+        orderr.setOrderItems(items);
+        return orderr;
+    }
+}
@@ -0,0 +1,35 @@
+package com.matsuzaka.foodtiger.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.util.Date;
+
+/**
+ * 快取失效紀錄 (cache_invalidation_log)，由 JdbcCacheInvalidationTransport 以 JDBC 讀寫；
+ * 此實體只用來讓 Hibernate 在測試環境建立資料表。
+ */
+@Entity
+@Table(name = "cache_invalidation_log")
+@Data
+public class CacheInvalidationLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    private String region;
+
+    @Column(name = "entity_key")
+    private Long entityKey;
+
+    @Column(name = "origin_node", nullable = false, length = 100)
+    private String originNode;
+
+    @CreationTimestamp
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at")
+    private Date createdAt;
+}
@@ -0,0 +1,34 @@
+package com.matsuzaka.foodtiger.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 降採樣後的外送員軌跡點 (courier_location_track)，由 CourierLocationServiceImpl 以 JDBC 批次寫入；
+ * 此實體只用來讓 Hibernate 在測試環境建立資料表。
+ */
+@Entity
+@Table(name = "courier_location_track", indexes = @Index(name = "idx_courier_location_track_courier_time", columnList = "courier_id, recorded_at"))
+@Data
+public class CourierLocationTrack {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "courier_id", nullable = false)
+    private Long courierId;
+
+    @Column(nullable = false, precision = 10, scale = 7)
+    private BigDecimal latitude;
+
+    @Column(nullable = false, precision = 10, scale = 7)
+    private BigDecimal longitude;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "recorded_at", nullable = false)
+    private Date recordedAt;
+}
@@ -8,7 +8,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.util.Date;
 
 @Entity
-@Table(name = "menu_item")
+@Table(name = "menu_item", uniqueConstraints = @UniqueConstraint(name = "uk_menu_item_restaurant_title", columnNames = {"restaurant_id", "title"}))
 @Data
 public class MenuItem {
 
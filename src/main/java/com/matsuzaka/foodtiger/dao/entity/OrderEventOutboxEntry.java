@@ -0,0 +1,56 @@
+package com.matsuzaka.foodtiger.dao.entity;
+
+import com.matsuzaka.foodtiger.config.id.SnowflakeId;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 訂單事件 outbox (order_event_outbox)，由 OrderEventOutbox 與 OrderEventRelay 以 JDBC 讀寫；
+ * 此實體只用來讓 Hibernate 在測試環境建立資料表。
+ */
+@Entity
+@Table(name = "order_event_outbox", indexes = @Index(name = "idx_order_event_outbox_pending", columnList = "published_at, id"))
+@Data
+public class OrderEventOutboxEntry {
+
+    @Id
+    @SnowflakeId
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "restaurant_id")
+    private Long restaurantId;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "published_at")
+    private Date publishedAt;
+
+    // 與 create.sql 相同的預設值，寫入時不帶這兩欄
+    @Column(nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int attempts;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "next_attempt_at")
+    private Date nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(nullable = false, columnDefinition = "BOOLEAN NOT NULL DEFAULT FALSE")
+    private boolean dead;
+}
@@ -1,5 +1,6 @@
 package com.matsuzaka.foodtiger.dao.entity;
 
+import com.matsuzaka.foodtiger.config.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -9,7 +10,7 @@ import lombok.Data;
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -1,5 +1,6 @@
 package com.matsuzaka.foodtiger.dao.entity;
 
+import com.matsuzaka.foodtiger.config.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -13,7 +14,7 @@ import java.util.List; // Import List
 public class Orderr {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -58,6 +59,10 @@ public class Orderr {
     @Column(name = "rating")
     private Integer rating; // CHECK (rating BETWEEN 1 AND 5) - handled by validation in service/controller
 
+    // 從封存表 (orderr_archive) 讀出的歷史訂單為 true，這類訂單不可再修改
+    @Transient
+    private boolean archived;
+
     // 新增：與 OrderItem 的一對多關係
     @OneToMany(mappedBy = "orderr", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<OrderItem> orderItems;
@@ -1,5 +1,6 @@
 package com.matsuzaka.foodtiger.dao.entity;
 
+import com.matsuzaka.foodtiger.config.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -12,7 +13,7 @@ import java.util.Date;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
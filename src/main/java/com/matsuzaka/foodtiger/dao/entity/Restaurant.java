@@ -2,12 +2,16 @@ package com.matsuzaka.foodtiger.dao.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.util.Date;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "restaurant")
 @Table(name = "restaurant")
 @Data
 public class Restaurant {
@@ -30,9 +34,20 @@ public class Restaurant {
     @Column(columnDefinition = "TEXT")
     private String description;
 
-    @Column(precision = 3, scale = 1)
+    @Column(columnDefinition = "DECIMAL(3,1) DEFAULT 0") // 與 create.sql 一致；Double 不能指定 scale
     private Double rating;
 
+    // 以下由 RestaurantRatingAggregator 以 SQL 累加，實體不寫入
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long ratingSum;
+
+    @Column(name = "rating_count", nullable = false, insertable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer ratingCount;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "rating_flushed_at", insertable = false, updatable = false, columnDefinition = "TIMESTAMP(3) NULL")
+    private Date ratingFlushedAt;
+
     @CreationTimestamp
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "created_at", updatable = false)
@@ -0,0 +1,51 @@
+package com.matsuzaka.foodtiger.dao.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 餐廳每小時的銷售彙總，依下單時間 (orderr_time) 的整點分桶。
+ * 由 OrderrServiceImpl 在下單與取消時於同一個交易內累加，另有回補工作可依 orderr 表重建。
+ */
+@Entity
+@Table(name = "restaurant_sales_hourly")
+@IdClass(RestaurantSalesHourly.Key.class)
+@Data
+public class RestaurantSalesHourly {
+
+    @Id
+    @Column(name = "restaurant_id")
+    private Long restaurantId;
+
+    @Id
+    @Column(name = "bucket_hour")
+    private LocalDateTime bucketHour; // 整點，例如 2026-10-19 12:00
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(name = "gross_amount", nullable = false)
+    private Long grossAmount = 0L; // 所有訂單 (含之後取消的) 的 total_amount 總和
+
+    @Column(name = "delivery_fee_amount", nullable = false)
+    private Long deliveryFeeAmount = 0L;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Long cancelledCount = 0L;
+
+    @Column(name = "cancelled_amount", nullable = false)
+    private Long cancelledAmount = 0L;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long restaurantId;
+        private LocalDateTime bucketHour;
+    }
+}
@@ -5,9 +5,11 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AddressRepository extends JpaRepository<Address, Long> {
     List<Address> findByUserId(Long userId);
     List<Address> findByCityAndDistrictAndStreet(String city, String district, String street);
+    Optional<Address> findFirstByUserIdAndDistrictIsNotNullOrderByUpdatedAtDescIdDesc(Long userId); // 外送員的服務區域取最近更新的地址
 }
@@ -0,0 +1,111 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * idempotency_record 資料表的存取。
+ *
+ * <p>刻意用 JdbcTemplate 而不是 JPA：搶占 key 時的重複插入與輪詢其他節點的結果都在 open-in-view 的
+ * EntityManager 之外進行，避免失敗的 insert 或一級快取中的舊實體影響同一個請求後續的 JPA 操作。</p>
+ */
+@Repository
+public class IdempotencyRecordRepository {
+
+    /**
+     * @param statusCode 為 null 表示原始請求仍在處理中
+     * @param leaseExpiresAt 處理中紀錄的租約到期時間，執行中的節點會定期續約
+     */
+    public record IdempotencyRecord(String requestHash, Integer statusCode, String responseBody, String location,
+                                    Instant createdAt, Instant expiresAt, Instant leaseExpiresAt) {
+    }
+
+    public record Key(Long userId, String scope, String idemKey) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public Optional<IdempotencyRecord> find(Long userId, String scope, String idemKey) {
+        return jdbcTemplate.query(
+                "SELECT request_hash, status_code, response_body, location, created_at, expires_at, lease_expires_at " +
+                        "FROM idempotency_record WHERE user_id = ? AND scope = ? AND idem_key = ?",
+                (rs, rowNum) -> new IdempotencyRecord(
+                        rs.getString("request_hash"),
+                        (Integer) rs.getObject("status_code"),
+                        rs.getString("response_body"),
+                        rs.getString("location"),
+                        rs.getTimestamp("created_at").toInstant(),
+                        rs.getTimestamp("expires_at").toInstant(),
+                        rs.getTimestamp("lease_expires_at") != null ? rs.getTimestamp("lease_expires_at").toInstant() : null),
+                userId, scope, idemKey).stream().findFirst();
+    }
+
+    /**
+     * 插入處理中的紀錄以取得 key 的執行權。
+     *
+     * @return 插入成功則為 true；已有相同 (user, scope, key) 的紀錄則為 false
+     */
+    public boolean insertPending(Long userId, String scope, String idemKey, String requestHash, Instant leaseExpiresAt,
+                                 Instant expiresAt) {
+        return jdbcTemplate.update(
+                "INSERT IGNORE INTO idempotency_record (user_id, scope, idem_key, request_hash, created_at, expires_at, lease_expires_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                userId, scope, idemKey, requestHash, Timestamp.from(Instant.now()), Timestamp.from(expiresAt),
+                Timestamp.from(leaseExpiresAt)) == 1;
+    }
+
+    /**
+     * 延長仍在處理中的紀錄的租約，已完成或已被刪除的紀錄不受影響。
+     */
+    public void renewLeases(Collection<Key> keys, Instant leaseExpiresAt) {
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            rows.add(new Object[]{Timestamp.from(leaseExpiresAt), key.userId(), key.scope(), key.idemKey()});
+        }
+        jdbcTemplate.batchUpdate(
+                "UPDATE idempotency_record SET lease_expires_at = ? " +
+                        "WHERE user_id = ? AND scope = ? AND idem_key = ? AND status_code IS NULL", rows);
+    }
+
+    public void complete(Long userId, String scope, String idemKey, int statusCode, String responseBody,
+                         String location, Instant expiresAt) {
+        jdbcTemplate.update(
+                "UPDATE idempotency_record SET status_code = ?, response_body = ?, location = ?, expires_at = ? " +
+                        "WHERE user_id = ? AND scope = ? AND idem_key = ?",
+                statusCode, responseBody, location, Timestamp.from(expiresAt), userId, scope, idemKey);
+    }
+
+    /**
+     * 刪除仍在處理中的紀錄 (原始請求失敗或已逾時被視為中斷)，已完成的紀錄不受影響。
+     */
+    public void deletePending(Long userId, String scope, String idemKey) {
+        jdbcTemplate.update(
+                "DELETE FROM idempotency_record WHERE user_id = ? AND scope = ? AND idem_key = ? AND status_code IS NULL",
+                userId, scope, idemKey);
+    }
+
+    /**
+     * 刪除租約已到期 (執行的節點已中斷、未再續約) 的處理中紀錄。
+     *
+     * @return 刪除成功則為 true；紀錄已完成、已被續約或已不存在則為 false
+     */
+    public boolean deleteAbandoned(Long userId, String scope, String idemKey) {
+        return jdbcTemplate.update(
+                "DELETE FROM idempotency_record WHERE user_id = ? AND scope = ? AND idem_key = ? " +
+                        "AND status_code IS NULL AND lease_expires_at < ?",
+                userId, scope, idemKey, Timestamp.from(Instant.now())) == 1;
+    }
+
+    public int deleteExpired() {
+        return jdbcTemplate.update("DELETE FROM idempotency_record WHERE expires_at < ?", Timestamp.from(Instant.now()));
+    }
+}
@@ -7,7 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
+public interface MenuItemRepository extends JpaRepository<MenuItem, Long>, MenuItemRepositoryCustom {
     List<MenuItem> findByRestaurantId(Long restaurantId);
     List<MenuItem> findByRestaurantIdAndAvailableTrue(Long restaurantId);
     List<MenuItem> findByTitleContainingIgnoreCase(String title);
@@ -0,0 +1,9 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import com.matsuzaka.foodtiger.dto.MenuItemImportRow;
+
+import java.util.List;
+
+public interface MenuItemRepositoryCustom {
+    void upsertAll(Long restaurantId, List<MenuItemImportRow> rows);
+}
@@ -0,0 +1,34 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import com.matsuzaka.foodtiger.dto.MenuItemImportRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * 批次匯入菜單的 upsert。以 (restaurant_id, title) 唯一鍵判斷新增或更新，整批以 JDBC batch 送出，
+ * 沿用呼叫端交易的連線。更新時以列別名 (AS new，MySQL 8.0.19 起) 引用新值，取代已棄用的 VALUES(col)。
+ */
+public class MenuItemRepositoryImpl implements MenuItemRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Long restaurantId, List<MenuItemImportRow> rows) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO menu_item (restaurant_id, title, description, price, image_url, available) VALUES (?, ?, ?, ?, ?, ?) AS new " +
+                        "ON DUPLICATE KEY UPDATE description = new.description, price = new.price, " +
+                        "image_url = new.image_url, available = new.available",
+                rows, rows.size(),
+                (ps, row) -> {
+                    ps.setLong(1, restaurantId);
+                    ps.setString(2, row.getTitle());
+                    ps.setString(3, row.getDescription());
+                    ps.setInt(4, row.getPrice());
+                    ps.setString(5, row.getImageUrl());
+                    ps.setBoolean(6, row.getAvailable() == null || row.getAvailable());
+                });
+    }
+}
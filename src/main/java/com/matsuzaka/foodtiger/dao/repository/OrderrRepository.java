@@ -2,15 +2,22 @@ package com.matsuzaka.foodtiger.dao.repository;
 
 import com.matsuzaka.foodtiger.dao.entity.Orderr;
 import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
+/**
+ * findByIdIncludingArchive、findByUserId、findByRestaurantId、findByDeliveryPersonId 由 OrderrRepositoryImpl 實作，會一併查詢封存表；
+ * 依狀態的分頁查詢只查 orderr (已封存的只有完成與取消的訂單，狀態查詢用於處理進行中的訂單)。
+ *
+ * <p>依狀態的查詢一律帶上顧客、餐廳或外送員條件，分別以 (user_id, status, orderr_time)、(restaurant_id, status, orderr_time)、
+ * (delivery_person_id, status, orderr_time) 索引取得一頁，不掃描整個狀態。</p>
+ */
 @Repository
-public interface OrderrRepository extends JpaRepository<Orderr, Long> {
-    List<Orderr> findByUserId(Long userId);
-    List<Orderr> findByRestaurantId(Long restaurantId);
-    List<Orderr> findByDeliveryPersonId(Long deliveryPersonId);
-    List<Orderr> findByStatus(OrderStatus status);
+public interface OrderrRepository extends JpaRepository<Orderr, Long>, OrderrRepositoryCustom {
+    Page<Orderr> findByStatus(OrderStatus status, Pageable pageable); // 僅供 ADMIN
+    Page<Orderr> findByUserIdAndStatus(Long userId, OrderStatus status, Pageable pageable);
+    Page<Orderr> findByRestaurantOwnerIdAndStatus(Long ownerId, OrderStatus status, Pageable pageable);
+    Page<Orderr> findByDeliveryPersonIdAndStatus(Long deliveryPersonId, OrderStatus status, Pageable pageable);
 }
@@ -0,0 +1,51 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.entity.Orderr;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 訂單查詢在 orderr 找不到時改查封存表 (orderr_archive)，呼叫端不需區分訂單是否已封存。
+ * 從封存表讀出的訂單 archived 為 true，不受 EntityManager 管理，不可再儲存；
+ * 單筆查詢需要包含封存訂單時明確呼叫 findByIdIncludingArchive，要修改訂單的流程使用只查 orderr 的 findById。
+ *
+ * <p>批次更新狀態時以 lockStatusRows 一次讀出並鎖住訂單的狀態與所屬餐廳擁有者，再以 updateStatus 一次更新。</p>
+ *
+ * <p>findActiveDeliveries 只讀外送員運送中訂單的 ID 與顧客，供位置回報判斷權限，不載入實體。</p>
+ *
+ * <p>外送員認領訂單時先以 findClaimCandidates 不加鎖地讀出候選，再以 lockIfClaimable 逐筆嘗試鎖定 (SKIP LOCKED)。</p>
+ */
+public interface OrderrRepositoryCustom {
+
+    /**
+     * 批次更新狀態所需的訂單欄位。
+     */
+    record StatusRow(Long id, Long restaurantId, Long ownerId, OrderStatus status, Integer totalAmount, Timestamp orderrTime) {
+    }
+
+    /**
+     * 外送員運送中的訂單與下單顧客。
+     */
+    record ActiveDelivery(Long orderId, Long customerId) {
+    }
+
+    /**
+     * 可供外送員認領的訂單 (準備中且尚未指派)。
+     */
+    record ClaimCandidate(Long id, Timestamp orderrTime) {
+    }
+
+    Optional<Orderr> findByIdIncludingArchive(Long id);
+    List<Orderr> findByUserId(Long userId);
+    List<Orderr> findByRestaurantId(Long restaurantId);
+    List<Orderr> findByDeliveryPersonId(Long deliveryPersonId);
+    List<StatusRow> lockStatusRows(Collection<Long> ids);
+    int updateStatus(Collection<Long> ids, OrderStatus newStatus);
+    List<ActiveDelivery> findActiveDeliveries(Long deliveryPersonId);
+    List<ClaimCandidate> findClaimCandidates(String city, String district, ClaimCandidate after, int limit);
+    boolean lockIfClaimable(Long id);
+}
@@ -0,0 +1,149 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import com.matsuzaka.foodtiger.dao.entity.ArchivedOrderr;
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.entity.Orderr;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 依 ID 查詢時先查 orderr，找不到才查封存表；依用戶、餐廳、外送員查詢時合併兩張表的結果 (未封存的在前)。
+ * 封存表的訂單項目以 JOIN FETCH 一併載入，轉換成 Orderr 時不會逐筆查詢。
+ *
+ * <p>批次狀態更新以 JdbcTemplate 執行，沿用呼叫端交易的連線；不載入 Orderr 實體，也不經過 Hibernate 的 executeUpdate。</p>
+ */
+public class OrderrRepositoryImpl implements OrderrRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<Orderr> findByIdIncludingArchive(Long id) {
+        Orderr orderr = entityManager.find(Orderr.class, id);
+        if (orderr != null) {
+            return Optional.of(orderr);
+        }
+        return entityManager.createQuery(
+                        "SELECT DISTINCT a FROM ArchivedOrderr a LEFT JOIN FETCH a.orderItems WHERE a.id = :id", ArchivedOrderr.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .map(ArchivedOrderr::toOrderr);
+    }
+
+    @Override
+    public List<Orderr> findByUserId(Long userId) {
+        return findHotAndArchived("user", userId);
+    }
+
+    @Override
+    public List<Orderr> findByRestaurantId(Long restaurantId) {
+        return findHotAndArchived("restaurant", restaurantId);
+    }
+
+    @Override
+    public List<Orderr> findByDeliveryPersonId(Long deliveryPersonId) {
+        return findHotAndArchived("deliveryPerson", deliveryPersonId);
+    }
+
+    /**
+     * 以一次查詢讀出訂單狀態與所屬餐廳擁有者，並以 FOR UPDATE 鎖住這些訂單直到交易結束，避免檢查後被其他請求改變狀態。
+     * 擁有者以子查詢不加鎖地讀取 (外層的 FOR UPDATE 不會鎖住子查詢讀到的列)，只鎖訂單、不鎖 restaurant，
+     * 大量批次更新不會與評分累加等寫入 restaurant 的操作互相等待。
+     */
+    @Override
+    public List<StatusRow> lockStatusRows(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "SELECT o.id, o.restaurant_id, (SELECT r.owner_id FROM restaurant r WHERE r.id = o.restaurant_id), " +
+                        "o.status, o.total_amount, o.orderr_time FROM orderr o " +
+                        "WHERE o.id IN (" + placeholders(ids.size()) + ") ORDER BY o.id FOR UPDATE",
+                (rs, rowNum) -> new StatusRow(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                        OrderStatus.valueOf(rs.getString(4)), rs.getInt(5), rs.getTimestamp(6)),
+                ids.toArray());
+    }
+
+    @Override
+    public int updateStatus(Collection<Long> ids, OrderStatus newStatus) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Object> params = new ArrayList<>(ids.size() + 1);
+        params.add(newStatus.name());
+        params.addAll(ids);
+        return jdbcTemplate.update("UPDATE orderr SET status = ? WHERE id IN (" + placeholders(ids.size()) + ")", params.toArray());
+    }
+
+    @Override
+    public List<ActiveDelivery> findActiveDeliveries(Long deliveryPersonId) {
+        return jdbcTemplate.query("SELECT id, user_id FROM orderr WHERE delivery_person_id = ? AND status = ?",
+                (rs, rowNum) -> new ActiveDelivery(rs.getLong(1), rs.getLong(2)),
+                deliveryPersonId, OrderStatus.運送中.name());
+    }
+
+    /**
+     * 餐廳位於指定縣市、行政區，且準備中、尚未指派外送員的訂單，依下單時間由舊到新排列。
+     * 不加鎖 (一般一致性讀取)，結果可能已被其他外送員認領，需再以 lockIfClaimable 確認。
+     *
+     * @param after 上一批的最後一筆，從它之後繼續讀；第一批為 null
+     */
+    @Override
+    public List<ClaimCandidate> findClaimCandidates(String city, String district, ClaimCandidate after, int limit) {
+        String sql = "SELECT o.id, o.orderr_time FROM orderr o " +
+                "WHERE o.status = ? AND o.delivery_person_id IS NULL " +
+                "AND o.restaurant_id IN (SELECT r.id FROM restaurant r JOIN address a ON a.id = r.address_id WHERE a.city = ? AND a.district = ?) ";
+        List<Object> params = new ArrayList<>(List.of(OrderStatus.準備中.name(), city, district));
+        if (after != null) {
+            sql += "AND (o.orderr_time > ? OR (o.orderr_time = ? AND o.id > ?)) ";
+            params.addAll(List.of(after.orderrTime(), after.orderrTime(), after.id()));
+        }
+        params.add(limit);
+        return jdbcTemplate.query(sql + "ORDER BY o.orderr_time, o.id LIMIT ?",
+                (rs, rowNum) -> new ClaimCandidate(rs.getLong(1), rs.getTimestamp(2)), params.toArray());
+    }
+
+    /**
+     * 以主鍵鎖定一筆訂單，並確認它仍是準備中且尚未指派；其他交易已鎖定時不等待，直接略過 (SKIP LOCKED)。
+     * 每次只鎖一列，依時間順序掃描時不會順帶鎖住其他外送員要認領的訂單。
+     *
+     * @return 鎖定成功且仍可認領時為 true，鎖持續到交易結束
+     */
+    @Override
+    public boolean lockIfClaimable(Long id) {
+        return !jdbcTemplate.queryForList(
+                "SELECT id FROM orderr WHERE id = ? AND status = ? AND delivery_person_id IS NULL FOR UPDATE SKIP LOCKED",
+                Long.class, id, OrderStatus.準備中.name()).isEmpty();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // association 只會是上面寫死的屬性名稱，不來自使用者輸入
+    private List<Orderr> findHotAndArchived(String association, Long id) {
+        List<Orderr> orderrs = new ArrayList<>(entityManager.createQuery(
+                        "SELECT o FROM Orderr o WHERE o." + association + ".id = :id ORDER BY o.id", Orderr.class)
+                .setParameter("id", id)
+                .getResultList());
+        entityManager.createQuery(
+                        "SELECT DISTINCT a FROM ArchivedOrderr a LEFT JOIN FETCH a.orderItems WHERE a." + association + ".id = :id ORDER BY a.id",
+                        ArchivedOrderr.class)
+                .setParameter("id", id)
+                .getResultList()
+                .forEach(archived -> orderrs.add(archived.toOrderr()));
+        return orderrs;
+    }
+}
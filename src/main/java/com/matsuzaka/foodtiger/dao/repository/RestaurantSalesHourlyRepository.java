@@ -0,0 +1,15 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import com.matsuzaka.foodtiger.dao.entity.RestaurantSalesHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RestaurantSalesHourlyRepository extends JpaRepository<RestaurantSalesHourly, RestaurantSalesHourly.Key>,
+        RestaurantSalesHourlyRepositoryCustom {
+    List<RestaurantSalesHourly> findByRestaurantIdAndBucketHourGreaterThanEqualAndBucketHourLessThanOrderByBucketHour(
+            Long restaurantId, LocalDateTime from, LocalDateTime to);
+}
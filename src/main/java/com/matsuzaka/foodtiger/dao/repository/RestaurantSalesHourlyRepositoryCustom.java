@@ -0,0 +1,17 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface RestaurantSalesHourlyRepositoryCustom {
+
+    /**
+     * 一間餐廳一個整點的累加量。
+     */
+    record HourlyDelta(Long restaurantId, LocalDateTime bucketHour, long orderCount, long grossAmount,
+                       long deliveryFeeAmount, long cancelledCount, long cancelledAmount) {
+    }
+
+    void addAll(Collection<HourlyDelta> deltas);
+    int rebuild(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,66 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 銷售彙總的累加與重建。
+ *
+ * <p>累加以 JdbcTemplate 批次執行 upsert，沿用呼叫端 (RestaurantSalesRollup) 交易的連線；
+ * 不經過 Hibernate 的原生查詢，避免 executeUpdate 清空整個二級快取。</p>
+ */
+public class RestaurantSalesHourlyRepositoryImpl implements RestaurantSalesHourlyRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addAll(Collection<HourlyDelta> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        for (HourlyDelta delta : deltas) {
+            rows.add(new Object[]{delta.restaurantId(), bucketOf(delta.bucketHour()),
+                    delta.orderCount(), delta.grossAmount(), delta.deliveryFeeAmount(), delta.cancelledCount(), delta.cancelledAmount(),
+                    delta.orderCount(), delta.grossAmount(), delta.deliveryFeeAmount(), delta.cancelledCount(), delta.cancelledAmount()});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO restaurant_sales_hourly (restaurant_id, bucket_hour, order_count, gross_amount, delivery_fee_amount, cancelled_count, cancelled_amount) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE order_count = order_count + ?, gross_amount = gross_amount + ?, delivery_fee_amount = delivery_fee_amount + ?, " +
+                        "cancelled_count = cancelled_count + ?, cancelled_amount = cancelled_amount + ?",
+                rows);
+    }
+
+    /**
+     * 依 orderr 與 orderr_archive 表重建 [from, to) 區間的彙總 (先刪除再以 GROUP BY 寫入)。
+     *
+     * @return 寫入的彙總列數
+     */
+    @Override
+    @Transactional
+    public int rebuild(LocalDateTime from, LocalDateTime to) {
+        Timestamp fromHour = bucketOf(from);
+        Timestamp toHour = bucketOf(to);
+        jdbcTemplate.update("DELETE FROM restaurant_sales_hourly WHERE bucket_hour >= ? AND bucket_hour < ?", fromHour, toHour);
+        return jdbcTemplate.update(
+                "INSERT INTO restaurant_sales_hourly (restaurant_id, bucket_hour, order_count, gross_amount, delivery_fee_amount, cancelled_count, cancelled_amount) " +
+                        "SELECT restaurant_id, DATE_FORMAT(orderr_time, '%Y-%m-%d %H:00:00'), COUNT(*), SUM(total_amount), SUM(COALESCE(delivery_fee, 0)), " +
+                        "SUM(CASE WHEN status = '取消' THEN 1 ELSE 0 END), SUM(CASE WHEN status = '取消' THEN total_amount ELSE 0 END) " +
+                        "FROM (SELECT restaurant_id, orderr_time, total_amount, delivery_fee, status FROM orderr WHERE orderr_time >= ? AND orderr_time < ? " +
+                        "UNION ALL " +
+                        "SELECT restaurant_id, orderr_time, total_amount, delivery_fee, status FROM orderr_archive WHERE orderr_time >= ? AND orderr_time < ?) o " +
+                        "GROUP BY restaurant_id, DATE_FORMAT(orderr_time, '%Y-%m-%d %H:00:00')",
+                fromHour, toHour, fromHour, toHour);
+    }
+
+    private static Timestamp bucketOf(LocalDateTime time) {
+        return Timestamp.valueOf(time.truncatedTo(ChronoUnit.HOURS));
+    }
+}
@@ -0,0 +1,26 @@
+package com.matsuzaka.foodtiger.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 餐廳可點菜單中的一個項目。只帶餐廳 ID，不內嵌餐廳 (及其擁有者、地址)，
+ * 餐廳資料異動時快取的菜單回應 (MenuResponseCache) 不會過期。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableMenuItem {
+    private Long id;
+    private Long restaurantId;
+    private String title;
+    private String description;
+    private Integer price;
+    private String imageUrl;
+    private Boolean available;
+    private Date createdAt;
+    private Date updatedAt;
+}
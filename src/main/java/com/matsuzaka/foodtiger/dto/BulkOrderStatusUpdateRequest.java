@@ -0,0 +1,19 @@
+package com.matsuzaka.foodtiger.dto;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkOrderStatusUpdateRequest {
+    @NotEmpty(message = "訂單 ID 列表不能為空")
+    @Size(max = 500, message = "一次最多更新 500 筆訂單")
+    private List<@NotNull(message = "訂單 ID 不能為空") Long> orderIds;
+
+    @NotNull(message = "新的訂單狀態不能為空")
+    private OrderStatus newStatus;
+}
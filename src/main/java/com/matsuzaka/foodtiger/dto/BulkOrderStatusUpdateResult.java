@@ -0,0 +1,27 @@
+package com.matsuzaka.foodtiger.dto;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批次更新訂單狀態時單筆訂單的結果。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderStatusUpdateResult {
+
+    public enum Outcome {
+        UPDATED,            // 已更新
+        NOT_FOUND,          // 訂單不存在 (或已封存)
+        UNAUTHORIZED,       // 訂單不屬於操作者的餐廳
+        INVALID_TRANSITION  // 目前狀態不允許轉換為新狀態
+    }
+
+    private Long orderId;
+    private Outcome outcome;
+    private OrderStatus previousStatus; // 訂單不存在或無權限時為 null
+    private String message;
+}
@@ -0,0 +1,12 @@
+package com.matsuzaka.foodtiger.dto;
+
+/**
+ * 預先序列化的菜單回應 (見 MenuResponseCache)。
+ *
+ * @param json 未壓縮的 JSON
+ * @param gzip gzip 壓縮後的 JSON
+ * @param etag 依內容計算的強 ETag (含引號)
+ * @param empty 沒有任何菜單項目
+ */
+public record CachedMenuResponse(byte[] json, byte[] gzip, String etag, boolean empty) {
+}
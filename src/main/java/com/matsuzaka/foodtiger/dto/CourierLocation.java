@@ -0,0 +1,21 @@
+package com.matsuzaka.foodtiger.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 訂單外送員的最新位置，由記憶體提供。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourierLocation {
+    private Long orderId;
+    private Long courierId;
+    private double latitude;
+    private double longitude;
+    private Instant recordedAt;
+}
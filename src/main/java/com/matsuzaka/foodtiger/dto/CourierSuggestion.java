@@ -0,0 +1,21 @@
+package com.matsuzaka.foodtiger.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 指派外送員時建議的候選，依與餐廳的直線距離排序。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourierSuggestion {
+    private Long courierId;
+    private double distanceMeters;
+    private double latitude;
+    private double longitude;
+    private Instant lastSeenAt; // 外送員最後一次回報位置的定位時間
+}
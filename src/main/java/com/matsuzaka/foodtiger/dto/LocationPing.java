@@ -0,0 +1,25 @@
+package com.matsuzaka.foodtiger.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 外送員回報的一筆 GPS 位置。
+ */
+@Data
+public class LocationPing {
+    @NotNull(message = "緯度不能為空")
+    @DecimalMin(value = "-90", message = "緯度必須介於 -90 到 90")
+    @DecimalMax(value = "90", message = "緯度必須介於 -90 到 90")
+    private Double latitude;
+
+    @NotNull(message = "經度不能為空")
+    @DecimalMin(value = "-180", message = "經度必須介於 -180 到 180")
+    @DecimalMax(value = "180", message = "經度必須介於 -180 到 180")
+    private Double longitude;
+
+    @NotNull(message = "定位時間不能為空")
+    private Long recordedAt; // 裝置定位的時間 (epoch 毫秒)
+}
@@ -0,0 +1,19 @@
+package com.matsuzaka.foodtiger.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 外送員一次上傳的多筆 GPS 位置 (例如離線期間累積的定位)。
+ */
+@Data
+public class LocationPingBatch {
+    @NotEmpty(message = "位置列表不能為空")
+    @Size(max = 200, message = "一次最多上傳 200 筆位置")
+    private List<@Valid @NotNull(message = "位置不能為空") LocationPing> pings;
+}
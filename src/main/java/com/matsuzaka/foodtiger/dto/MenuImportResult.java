@@ -0,0 +1,29 @@
+package com.matsuzaka.foodtiger.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批次匯入菜單的結果。錯誤明細最多保留 app.menu-import.max-errors 筆，超過時 errorsTruncated 為 true，failedRows 仍為實際筆數。
+ */
+@Data
+public class MenuImportResult {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line; // 資料在上傳檔案中的行號 (從 1 起算，含 CSV 標題列)
+        private String message;
+    }
+
+    private long totalRows;
+    private long upsertedRows;
+    private long failedRows;
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+}
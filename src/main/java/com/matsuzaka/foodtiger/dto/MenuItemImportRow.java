@@ -0,0 +1,28 @@
+package com.matsuzaka.foodtiger.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 批次匯入菜單的一列資料 (CSV 的一列或 NDJSON 的一行)。同一餐廳內以 title 判斷新增或更新。
+ */
+@Data
+public class MenuItemImportRow {
+    @NotBlank(message = "菜名不能為空")
+    @Size(max = 100, message = "菜名不能超過 100 個字")
+    private String title;
+
+    private String description;
+
+    @NotNull(message = "價格不能為空")
+    @Min(value = 0, message = "價格不能為負數")
+    private Integer price;
+
+    @Size(max = 255, message = "圖片連結不能超過 255 個字")
+    private String imageUrl;
+
+    private Boolean available; // 未提供時視為 true
+}
@@ -0,0 +1,14 @@
+package com.matsuzaka.foodtiger.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class OrderRatingRequest {
+    @NotNull(message = "評分不能為空")
+    @Min(value = 1, message = "評分必須介於 1 到 5")
+    @Max(value = 5, message = "評分必須介於 1 到 5")
+    private Integer rating;
+}
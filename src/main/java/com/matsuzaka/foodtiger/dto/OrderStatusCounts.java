@@ -0,0 +1,20 @@
+package com.matsuzaka.foodtiger.dto;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 各狀態的訂單數 (不含已封存的訂單)。restaurantId 為 null 時是全部餐廳的合計。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusCounts {
+    private Long restaurantId;
+    private Map<OrderStatus, Long> counts;
+    private long total;
+}
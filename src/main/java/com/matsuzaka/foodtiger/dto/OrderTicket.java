@@ -0,0 +1,29 @@
+package com.matsuzaka.foodtiger.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 非同步下單模式下回傳給客戶端的訂單憑證，可用 ticketId 查詢寫入結果。
+ * 由寫入執行緒更新，請求執行緒讀取，因此欄位皆為 volatile。
+ */
+@Data
+public class OrderTicket {
+
+    public enum Status {
+        QUEUED,   // 已排入佇列，尚未寫入資料庫
+        ACCEPTED, // 已寫入資料庫，orderId 可用
+        REJECTED  // 寫入時驗證失敗或發生錯誤，原因見 message
+    }
+
+    private volatile String ticketId;
+    private volatile Long userId;
+    private volatile Long restaurantId;
+    private volatile Status status;
+    private volatile Long orderId;
+    private volatile Integer totalAmount;
+    private volatile String message;
+    private volatile LocalDateTime createdAt;
+    private volatile LocalDateTime completedAt;
+}
@@ -0,0 +1,18 @@
+package com.matsuzaka.foodtiger.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 熱門菜單項目。score 為隨時間衰減的點購份數估計值，只適合用來排序與相對比較。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PopularMenuItem {
+    private Long menuItemId;
+    private String title;
+    private Integer price;
+    private double score;
+}
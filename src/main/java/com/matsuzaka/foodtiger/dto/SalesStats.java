@@ -0,0 +1,25 @@
+package com.matsuzaka.foodtiger.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 餐廳在一個時間區段 (小時或日) 內的銷售統計。
+ */
+@Data
+public class SalesStats {
+    private LocalDateTime periodStart;
+    private long orderCount;
+    private long grossAmount;
+    private long deliveryFeeAmount;
+    private long cancelledCount;
+    private long cancelledAmount;
+
+    /**
+     * @return 扣除取消訂單後的營業額
+     */
+    public long getNetAmount() {
+        return grossAmount - cancelledAmount;
+    }
+}
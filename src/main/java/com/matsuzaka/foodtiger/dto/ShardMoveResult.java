@@ -0,0 +1,19 @@
+package com.matsuzaka.foodtiger.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 搬移一個訂單分片桶的結果。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardMoveResult {
+    private int bucket;
+    private int sourceShard;
+    private int targetShard;
+    private int restaurantCount; // 桶內的餐廳數
+    private long copiedRows;     // 複製到目標分片的資料列數 (訂單、項目、付款、封存與銷售彙總)
+}
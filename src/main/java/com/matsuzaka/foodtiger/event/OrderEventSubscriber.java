@@ -0,0 +1,26 @@
+package com.matsuzaka.foodtiger.event;
+
+import java.util.List;
+
+/**
+ * 訂單事件的訂閱者 (通知、分析、派單等副作用)，註冊為 Spring bean 即會由 OrderEventRelay 在交易提交後分批呼叫。
+ *
+ * <p>投遞保證為至少一次：任一訂閱者拋出例外時整批稍後重送給所有訂閱者，因此實作必須可重複執行
+ * (以 {@link OrderLifecycleEvent#id()} 去除重複)。呼叫在轉送執行緒上進行並持有該批 outbox 的列鎖，
+ * 耗時的工作應自行交給其他執行緒。</p>
+ */
+public interface OrderEventSubscriber {
+
+    /**
+     * @return 用於日誌與指標的名稱
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @param events 依 outbox 序號排列的一批事件，包含所有類型，訂閱者自行過濾
+     * @throws Exception 處理失敗，整批稍後重送
+     */
+    void onEvents(List<OrderLifecycleEvent> events) throws Exception;
+}
@@ -0,0 +1,19 @@
+package com.matsuzaka.foodtiger.event;
+
+/**
+ * 寫入訂單事件 outbox 的事件類型。
+ */
+public enum OrderEventType {
+    /** 訂單建立，payload：userId、totalAmount、deliveryFee、itemCount */
+    ORDER_CREATED,
+    /** 訂單狀態變更，payload：previousStatus、newStatus */
+    STATUS_CHANGED,
+    /** 指派外送員，payload：deliveryPersonId */
+    DELIVERY_ASSIGNED,
+    /** 外送員拒絕訂單，payload：deliveryPersonId */
+    DELIVERY_REJECTED,
+    /** 支付成功，payload：paymentId、amount、paymentMethod */
+    PAYMENT_SUCCEEDED,
+    /** 訂單在某狀態超過時限，payload：status、action (CANCELLED 自動取消或 ESCALATED 通報) */
+    SLA_BREACHED
+}
@@ -0,0 +1,18 @@
+package com.matsuzaka.foodtiger.event;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * 由 outbox 轉送給 OrderEventSubscriber 的訂單事件。
+ *
+ * @param id outbox 序號，同一事件重送時不變，訂閱者可用來去除重複
+ * @param type 事件類型
+ * @param orderId 訂單 ID
+ * @param restaurantId 訂單所屬餐廳 ID
+ * @param payload 各類型的附加欄位，見 {@link OrderEventType}
+ * @param createdAt 寫入 outbox (即狀態變更交易) 的時間
+ */
+public record OrderLifecycleEvent(long id, OrderEventType type, Long orderId, Long restaurantId,
+                                  Map<String, Object> payload, Instant createdAt) {
+}
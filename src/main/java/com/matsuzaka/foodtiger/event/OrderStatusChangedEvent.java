@@ -0,0 +1,15 @@
+package com.matsuzaka.foodtiger.event;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+
+import java.util.List;
+
+/**
+ * 訂單狀態變更事件，在變更狀態的交易中發佈；一次批次更新只發佈一個事件，包含所有變更的訂單。
+ * 需要在提交後才處理的監聽器請使用 @TransactionalEventListener。
+ */
+public record OrderStatusChangedEvent(List<Change> changes) {
+
+    public record Change(Long orderId, Long restaurantId, OrderStatus previousStatus, OrderStatus newStatus) {
+    }
+}
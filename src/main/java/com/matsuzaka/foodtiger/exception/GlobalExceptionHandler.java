@@ -1,7 +1,9 @@
 package com.matsuzaka.foodtiger.exception;
 
+import com.matsuzaka.foodtiger.config.shard.OrderShardUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -60,6 +62,52 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * 處理 ServiceBusyException，表示系統暫時無法受理請求 (例如下單佇列已滿)。
+     * 回傳 503 並附上 Retry-After，讓客戶端稍後重試。記錄為 WARN 級別。
+     *
+     * @param ex 拋出的 ServiceBusyException 實例
+     * @param request 當前的 Web 請求
+     * @return 包含錯誤詳情的 ResponseEntity
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Object> handleServiceBusyException(ServiceBusyException ex, WebRequest request) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", "Service Unavailable");
+        body.put("message", ex.getMessage());
+        body.put("path", request.getDescription(false));
+
+        logger.warn("系統忙碌 (Checked Exception): {}", ex.getMessage()); // 記錄為 WARN
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+
+    /**
+     * 處理 OrderShardUnavailableException，表示訂單所在的分片桶正在搬移，等待逾時。
+     * 與系統忙碌相同回傳 503 並附上 Retry-After，搬移完成後重試即可。記錄為 WARN 級別。
+     *
+     * @param ex 拋出的 OrderShardUnavailableException 實例
+     * @param request 當前的 Web 請求
+     * @return 包含錯誤詳情的 ResponseEntity
+     */
+    @ExceptionHandler(OrderShardUnavailableException.class)
+    public ResponseEntity<Object> handleOrderShardUnavailableException(OrderShardUnavailableException ex, WebRequest request) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", "Service Unavailable");
+        body.put("message", ex.getMessage());
+        body.put("path", request.getDescription(false));
+
+        logger.warn("訂單分片搬移中: {}", ex.getMessage()); // 記錄為 WARN
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(body);
+    }
+
     /**
      * 處理所有未被特定處理器捕獲的 RuntimeException (Unchecked Exception)。
      * 這些通常表示程式碼邏輯錯誤、配置問題或環境故障。
@@ -0,0 +1,7 @@
+package com.matsuzaka.foodtiger.exception;
+
+public class ServiceBusyException extends FoodTigerException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,27 @@
+package com.matsuzaka.foodtiger.service;
+
+import com.matsuzaka.foodtiger.dto.CourierLocation;
+import com.matsuzaka.foodtiger.dto.LocationPing;
+import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.exception.UnauthorizedException;
+
+import java.util.List;
+
+public interface CourierLocationService {
+
+    /**
+     * 接收外送員回報的一批 GPS 位置。有運送中的訂單時記錄軌跡；沒有時只以最新一筆更新可指派外送員的位置。
+     *
+     * @return 實際加入的筆數 (重複、過舊或時間在未來的位置不計；沒有運送中訂單時最多 1 筆)
+     */
+    int ingest(Long courierId, List<LocationPing> pings);
+
+    /**
+     * 查詢運送中訂單的外送員最新位置。
+     *
+     * @param userId 查詢者 ID，非管理員時必須是下單顧客
+     * @throws ResourceNotFoundException 訂單不在運送中或外送員尚未回報位置
+     * @throws UnauthorizedException 查詢者不是下單顧客
+     */
+    CourierLocation findLatestForOrder(Long orderId, Long userId, boolean admin) throws ResourceNotFoundException, UnauthorizedException;
+}
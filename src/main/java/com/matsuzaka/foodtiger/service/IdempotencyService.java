@@ -0,0 +1,17 @@
+package com.matsuzaka.foodtiger.service;
+
+import com.matsuzaka.foodtiger.exception.FoodTigerException;
+import org.springframework.http.ResponseEntity;
+
+public interface IdempotencyService {
+
+    String HEADER = "Idempotency-Key";
+    String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @FunctionalInterface
+    interface Operation {
+        ResponseEntity<?> execute() throws FoodTigerException;
+    }
+
+    ResponseEntity<?> execute(Long userId, String scope, String idempotencyKey, Object request, Operation operation) throws FoodTigerException;
+}
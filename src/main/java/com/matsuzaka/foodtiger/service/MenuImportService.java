@@ -0,0 +1,19 @@
+package com.matsuzaka.foodtiger.service;
+
+import com.matsuzaka.foodtiger.dto.MenuImportResult;
+import com.matsuzaka.foodtiger.exception.InvalidOperationException;
+import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface MenuImportService {
+
+    enum Format {
+        CSV,
+        NDJSON
+    }
+
+    MenuImportResult importMenuItems(Long restaurantId, Format format, InputStream input)
+            throws ResourceNotFoundException, InvalidOperationException, IOException;
+}
@@ -1,6 +1,8 @@
 package com.matsuzaka.foodtiger.service;
 
 import com.matsuzaka.foodtiger.dao.entity.MenuItem;
+import com.matsuzaka.foodtiger.dto.CachedMenuResponse;
+import com.matsuzaka.foodtiger.dto.PopularMenuItem;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,5 +14,7 @@ public interface MenuItemService {
     void deleteMenuItem(Long id);
     List<MenuItem> findMenuItemsByRestaurantId(Long restaurantId);
     List<MenuItem> findAvailableMenuItemsByRestaurantId(Long restaurantId);
+    CachedMenuResponse findAvailableMenuResponse(Long restaurantId);
     List<MenuItem> searchMenuItemsByTitle(String title);
+    List<PopularMenuItem> findPopularMenuItems(Long restaurantId, int limit);
 }
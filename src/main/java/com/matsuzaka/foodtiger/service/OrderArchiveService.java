@@ -0,0 +1,7 @@
+package com.matsuzaka.foodtiger.service;
+
+import java.time.LocalDateTime;
+
+public interface OrderArchiveService {
+    int archiveOrderrsBefore(LocalDateTime cutoff);
+}
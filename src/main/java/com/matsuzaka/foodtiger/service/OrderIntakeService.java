@@ -0,0 +1,13 @@
+package com.matsuzaka.foodtiger.service;
+
+import com.matsuzaka.foodtiger.dto.OrderRequest;
+import com.matsuzaka.foodtiger.dto.OrderTicket;
+import com.matsuzaka.foodtiger.exception.MenuItemUnavailableException;
+import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.exception.ServiceBusyException;
+
+public interface OrderIntakeService {
+    boolean isAsyncEnabled();
+    OrderTicket submit(OrderRequest orderRequest) throws ResourceNotFoundException, MenuItemUnavailableException, ServiceBusyException;
+    OrderTicket findTicket(String ticketId) throws ResourceNotFoundException;
+}
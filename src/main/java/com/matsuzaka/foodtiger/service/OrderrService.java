@@ -2,14 +2,19 @@ package com.matsuzaka.foodtiger.service;
 
 import com.matsuzaka.foodtiger.dao.entity.Orderr;
 import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.entity.Role;
+import com.matsuzaka.foodtiger.dto.BulkOrderStatusUpdateResult;
+import com.matsuzaka.foodtiger.dto.CourierSuggestion;
 import com.matsuzaka.foodtiger.dto.DeliveryAssignmentRequest;
 import com.matsuzaka.foodtiger.dto.OrderRequest;
+import com.matsuzaka.foodtiger.dto.OrderStatusCounts;
 import com.matsuzaka.foodtiger.dto.OrderStatusUpdateRequest;
 import com.matsuzaka.foodtiger.exception.InvalidOperationException;
 import com.matsuzaka.foodtiger.exception.InvalidOrderStatusTransitionException;
 import com.matsuzaka.foodtiger.exception.MenuItemUnavailableException;
 import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
 import com.matsuzaka.foodtiger.exception.UnauthorizedException;
+import org.springframework.data.domain.Page;
 
 import java.util.List;
 import java.util.Optional;
@@ -22,10 +27,15 @@ public interface OrderrService {
     List<Orderr> findOrderrsByUserId(Long userId);
     List<Orderr> findOrderrsByRestaurantId(Long restaurantId);
     List<Orderr> findOrderrsByDeliveryPersonId(Long deliveryPersonId);
-    List<Orderr> findOrderrsByStatus(OrderStatus status);
+    Page<Orderr> findOrderrsByStatus(OrderStatus status, Long userId, Role role, int page, int size);
+    OrderStatusCounts countOrderrsByStatus(Long restaurantId);
     Orderr createOrder(OrderRequest orderRequest) throws ResourceNotFoundException, MenuItemUnavailableException;
     Orderr updateOrderStatus(Long orderId, OrderStatusUpdateRequest request, Long restaurantOwnerId) throws ResourceNotFoundException, InvalidOrderStatusTransitionException, UnauthorizedException;
+    List<BulkOrderStatusUpdateResult> bulkUpdateOrderStatus(List<Long> orderIds, OrderStatus newStatus, Long restaurantOwnerId);
     Orderr assignDeliveryPerson(Long orderId, DeliveryAssignmentRequest request) throws ResourceNotFoundException, InvalidOperationException; // New method
+    List<CourierSuggestion> suggestCouriers(Long orderId, int limit) throws ResourceNotFoundException;
+    Optional<Orderr> claimNextOrder(Long deliveryPersonId) throws ResourceNotFoundException, InvalidOperationException;
     Orderr acceptDelivery(Long orderId, Long deliveryPersonId) throws ResourceNotFoundException, UnauthorizedException, InvalidOperationException; // New method
     Orderr rejectDelivery(Long orderId, Long deliveryPersonId) throws ResourceNotFoundException, UnauthorizedException, InvalidOperationException; // New method
+    Orderr rateOrder(Long orderId, Integer rating, Long customerId) throws ResourceNotFoundException, UnauthorizedException, InvalidOperationException;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.matsuzaka.foodtiger.service;
+
+import com.matsuzaka.foodtiger.dto.SalesStats;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesStatsService {
+
+    enum Granularity {
+        HOUR, DAY
+    }
+
+    List<SalesStats> findSalesStats(Long restaurantId, LocalDate from, LocalDate to, Granularity granularity);
+    int backfill(LocalDate from, LocalDate to);
+}
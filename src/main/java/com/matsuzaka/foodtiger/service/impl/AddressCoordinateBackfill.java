@@ -0,0 +1,90 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.cache.CacheInvalidationBus;
+import com.matsuzaka.foodtiger.dao.entity.Address;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 為沒有座標的地址 (新增座標欄位前的資料、資料產生工具匯入的資料) 依縣市、行政區補上座標。
+ * 啟動後在背景依 ID 分批執行，每批一個交易；以 JDBC 更新後清除二級快取中的 Address。
+ */
+@Component
+public class AddressCoordinateBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddressCoordinateBackfill.class);
+
+    private record Row(long id, String city, String district) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DistrictGeocoder districtGeocoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${app.geo.backfill-batch-size:1000}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long cursor = 0;
+        int filled = 0;
+        int unknown = 0;
+        while (true) {
+            long from = cursor;
+            List<Row> rows = jdbcTemplate.query(
+                    "SELECT id, city, district FROM address WHERE latitude IS NULL AND id > ? ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Row(rs.getLong(1), rs.getString(2), rs.getString(3)), from, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                districtGeocoder.locate(row.city(), row.district())
+                        .ifPresent(c -> updates.add(new Object[]{c.latitude(), c.longitude(), row.id()}));
+            }
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate("UPDATE address SET latitude = ?, longitude = ? WHERE id = ? AND latitude IS NULL", updates));
+            filled += updates.size();
+            unknown += rows.size() - updates.size(); // 縣市不在對照表中，留空
+            cursor = rows.get(rows.size() - 1).id();
+        }
+        if (filled > 0) {
+            entityManagerFactory.getCache().evict(Address.class);
+            cacheInvalidationBus.publish(CacheInvalidationBus.ADDRESS, null);
+            logger.info("已為 {} 筆地址補上座標，{} 筆地址的縣市不在對照表中", filled, unknown);
+        }
+    }
+}
@@ -1,20 +1,29 @@
 package com.matsuzaka.foodtiger.service.impl;
 
+import com.matsuzaka.foodtiger.config.cache.CacheInvalidationBus;
 import com.matsuzaka.foodtiger.dao.entity.Address;
 import com.matsuzaka.foodtiger.dao.repository.AddressRepository;
 import com.matsuzaka.foodtiger.service.AddressService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Transactional(readOnly = true)
 public class AddressServiceImpl implements AddressService {
 
     @Autowired
     private AddressRepository addressRepository;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private DistrictGeocoder districtGeocoder;
+
     @Override
     public List<Address> findAllAddresses() {
         return addressRepository.findAll();
@@ -26,13 +35,25 @@ public class AddressServiceImpl implements AddressService {
     }
 
     @Override
+    @Transactional
     public Address saveAddress(Address address) {
-        return addressRepository.save(address);
+        // 未提供座標時依縣市、行政區推估；修改地址時清除舊座標，讓這裡重新推估
+        if (address.getLatitude() == null || address.getLongitude() == null) {
+            districtGeocoder.locate(address.getCity(), address.getDistrict()).ifPresent(coordinates -> {
+                address.setLatitude(coordinates.latitude());
+                address.setLongitude(coordinates.longitude());
+            });
+        }
+        Address savedAddress = addressRepository.save(address);
+        cacheInvalidationBus.publish(CacheInvalidationBus.ADDRESS, savedAddress.getId());
+        return savedAddress;
     }
 
     @Override
+    @Transactional
     public void deleteAddress(Long id) {
         addressRepository.deleteById(id);
+        cacheInvalidationBus.publish(CacheInvalidationBus.ADDRESS, id);
     }
 
     @Override
@@ -0,0 +1,91 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Count-min sketch：以固定記憶體估計各 key 的累計權重，估計值只會高估不會低估。
+ * 誤差約為 總權重 × e / width，機率 1 - e^-depth 內成立。非執行緒安全，由呼叫端加鎖。
+ */
+final class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final double[][] cells;
+    private final long[] seeds;
+
+    CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        this.cells = new double[depth][width];
+        this.seeds = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = 0x9E3779B97F4A7C15L * (i + 1);
+        }
+    }
+
+    /**
+     * 累加權重並回傳累加後的估計值。
+     */
+    double add(long key, double weight) {
+        double estimate = Double.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int index = indexOf(key, i);
+            cells[i][index] += weight;
+            estimate = Math.min(estimate, cells[i][index]);
+        }
+        return estimate;
+    }
+
+    double estimate(long key) {
+        double estimate = Double.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, cells[i][indexOf(key, i)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * 所有計數乘上同一個係數，用於時間衰減的重新縮放。
+     */
+    void scale(double factor) {
+        for (double[] row : cells) {
+            for (int j = 0; j < width; j++) {
+                row[j] *= factor;
+            }
+        }
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    int width() {
+        return width;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        for (double[] row : cells) {
+            for (double cell : row) {
+                out.writeDouble(cell);
+            }
+        }
+    }
+
+    void readFrom(DataInputStream in) throws IOException {
+        for (double[] row : cells) {
+            for (int j = 0; j < width; j++) {
+                row[j] = in.readDouble();
+            }
+        }
+    }
+
+    private int indexOf(long key, int row) {
+        long hash = (key ^ seeds[row]) * 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 31;
+        hash *= 0x94D049BB133111EBL;
+        hash ^= hash >>> 29;
+        return (int) Math.floorMod(hash, (long) width);
+    }
+}
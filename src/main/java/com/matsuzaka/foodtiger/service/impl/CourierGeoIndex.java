@@ -0,0 +1,144 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.dto.CourierSuggestion;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 外送員與餐廳位置的記憶體索引，用於指派外送員時找出離餐廳最近的可用外送員。
+ *
+ * <p>外送員位置來自位置回報 (CourierLocationServiceImpl)，存放在 SpatialGrid 中；
+ * 餐廳位置取自餐廳地址的座標，啟動時與每隔 restaurant-refresh-ms 整批載入，查不到時再單獨查詢一次。
+ * 查詢只檢查餐廳附近的幾個格子，不需要存取資料庫。</p>
+ */
+@Component
+public class CourierGeoIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourierGeoIndex.class);
+
+    private record Position(int latitudeE7, int longitudeE7) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.geo.cell-degrees:0.01}")
+    private double cellDegrees;
+
+    @Value("${app.geo.courier-available-ttl-ms:120000}")
+    private long courierAvailableTtlMs;
+
+    @Value("${app.geo.max-distance-meters:10000}")
+    private double maxDistanceMeters;
+
+    private SpatialGrid couriers;
+    private final Set<Long> busyCourierIds = ConcurrentHashMap.newKeySet();
+    private volatile Map<Long, Position> restaurantPositions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        couriers = new SpatialGrid(cellDegrees);
+        Gauge.builder("foodtiger.geo.couriers", this, index -> index.couriers.size())
+                .description("位置索引中的外送員數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 更新外送員位置；recordedAt 早於目前記錄的位置會被略過。
+     *
+     * @param busy 外送員是否有運送中的訂單
+     */
+    public void updateCourier(long courierId, double latitude, double longitude, long recordedAt, boolean busy) {
+        couriers.put(courierId, CourierTrack.toE7(latitude), CourierTrack.toE7(longitude), recordedAt);
+        if (busy) {
+            busyCourierIds.add(courierId);
+        } else {
+            busyCourierIds.remove(courierId);
+        }
+    }
+
+    public void removeCourier(long courierId) {
+        couriers.remove(courierId);
+        busyCourierIds.remove(courierId);
+    }
+
+    /**
+     * @return 餐廳地址有座標時為 true
+     */
+    public boolean hasRestaurant(Long restaurantId) {
+        return restaurantPosition(restaurantId).isPresent();
+    }
+
+    /**
+     * 離餐廳最近、位置夠新且沒有運送中訂單的外送員。
+     *
+     * @param limit 最多回傳的人數
+     * @return 由近到遠排列；餐廳沒有座標時為空
+     */
+    public List<CourierSuggestion> nearestAvailableCouriers(Long restaurantId, int limit) {
+        Optional<Position> restaurant = restaurantPosition(restaurantId);
+        if (restaurant.isEmpty()) {
+            return List.of();
+        }
+        long freshAfter = System.currentTimeMillis() - courierAvailableTtlMs;
+        // 位置過舊的外送員在挑選時就排除，不會佔用名額而讓較遠但位置新的外送員落選
+        return couriers.nearest(restaurant.get().latitudeE7(), restaurant.get().longitudeE7(), limit, maxDistanceMeters,
+                        freshAfter, courierId -> !busyCourierIds.contains(courierId)).stream()
+                .map(neighbor -> new CourierSuggestion(neighbor.id(), Math.round(neighbor.distanceMeters() * 10) / 10.0,
+                        neighbor.latitudeE7() / 1e7, neighbor.longitudeE7() / 1e7, Instant.ofEpochMilli(neighbor.updatedAt())))
+                .toList();
+    }
+
+    /**
+     * 整批重新載入餐廳座標，啟動時及定期執行 (餐廳地址變更後最多延遲一個週期)。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.geo.restaurant-refresh-ms:600000}", initialDelayString = "${app.geo.restaurant-refresh-ms:600000}")
+    public void refreshRestaurants() {
+        Map<Long, Position> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT r.id, a.latitude, a.longitude FROM restaurant r JOIN address a ON a.id = r.address_id " +
+                        "WHERE a.latitude IS NOT NULL AND a.longitude IS NOT NULL",
+                rs -> {
+                    loaded.put(rs.getLong(1), new Position(CourierTrack.toE7(rs.getDouble(2)), CourierTrack.toE7(rs.getDouble(3))));
+                });
+        restaurantPositions = new ConcurrentHashMap<>(loaded);
+        logger.info("已載入 {} 間餐廳的座標", loaded.size());
+    }
+
+    private Optional<Position> restaurantPosition(Long restaurantId) {
+        Position position = restaurantPositions.get(restaurantId);
+        if (position != null) {
+            return Optional.of(position);
+        }
+        // 載入後才新增的餐廳，或地址座標剛補上
+        List<Position> found = jdbcTemplate.query("SELECT a.latitude, a.longitude FROM restaurant r JOIN address a ON a.id = r.address_id " +
+                        "WHERE r.id = ? AND a.latitude IS NOT NULL AND a.longitude IS NOT NULL",
+                (rs, rowNum) -> new Position(CourierTrack.toE7(rs.getDouble(1)), CourierTrack.toE7(rs.getDouble(2))), restaurantId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        restaurantPositions.put(restaurantId, found.get(0));
+        return Optional.of(found.get(0));
+    }
+}
@@ -0,0 +1,285 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.repository.OrderrRepository;
+import com.matsuzaka.foodtiger.dao.repository.OrderrRepositoryCustom.ActiveDelivery;
+import com.matsuzaka.foodtiger.dto.CourierLocation;
+import com.matsuzaka.foodtiger.dto.LocationPing;
+import com.matsuzaka.foodtiger.event.OrderEventSubscriber;
+import com.matsuzaka.foodtiger.event.OrderEventType;
+import com.matsuzaka.foodtiger.event.OrderLifecycleEvent;
+import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.exception.UnauthorizedException;
+import com.matsuzaka.foodtiger.service.CourierLocationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 外送員位置回報。
+ *
+ * <p>每位外送員一個 CourierTrack 環狀緩衝區，回報只寫入記憶體；排程定期把新增的點降採樣後批次寫入
+ * courier_location_track，顧客查詢最新位置時直接讀記憶體，不經過資料庫。</p>
+ *
+ * <p>外送員運送中的訂單每隔 active-check-ms 以一次輕量查詢確認，同時建立訂單到外送員的索引供顧客查詢；
+ * 訂單離開運送中時，本節點轉送到的狀態變更事件會立即移除索引；其他節點轉送的事件不會到達本節點，
+ * 外送員也可能停止回報，因此顧客查詢時索引超過 active-check-ms 未確認就重新查詢訂單狀態。位置只存在接收回報的節點，
+ * 多節點部署時需依外送員與訂單將請求導向同一節點。</p>
+ *
+ * <p>沒有運送中訂單的外送員回報不記錄軌跡，只以最新一筆更新 CourierGeoIndex，作為可指派的上線訊號。</p>
+ */
+@Service
+public class CourierLocationServiceImpl implements CourierLocationService, OrderEventSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourierLocationServiceImpl.class);
+
+    private record ActiveOrder(Long courierId, Long customerId, long verifiedAt) {
+    }
+
+    @Autowired
+    private OrderrRepository orderrRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CourierGeoIndex geoIndex;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    @Value("${app.courier-location.buffer-capacity:256}")
+    private int bufferCapacity;
+
+    @Value("${app.courier-location.active-check-ms:30000}")
+    private long activeCheckMs;
+
+    @Value("${app.courier-location.max-ping-age-ms:600000}")
+    private long maxPingAgeMs;
+
+    @Value("${app.courier-location.max-clock-skew-ms:60000}")
+    private long maxClockSkewMs;
+
+    @Value("${app.courier-location.idle-evict-ms:900000}")
+    private long idleEvictMs;
+
+    @Value("${app.courier-location.persist.min-interval-ms:10000}")
+    private long persistMinIntervalMs;
+
+    @Value("${app.courier-location.persist.max-interval-ms:60000}")
+    private long persistMaxIntervalMs;
+
+    @Value("${app.courier-location.persist.min-distance-meters:50}")
+    private double persistMinDistanceMeters;
+
+    private final Map<Long, CourierTrack> tracksByCourierId = new ConcurrentHashMap<>();
+    private final Map<Long, Long> activeCheckedAtByCourierId = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> activeOrderIdsByCourierId = new ConcurrentHashMap<>();
+    private final Map<Long, ActiveOrder> activeOrdersByOrderId = new ConcurrentHashMap<>();
+    private Counter acceptedCounter;
+    private Counter droppedCounter;
+    private Counter persistedCounter;
+    private Counter overwrittenCounter;
+
+    @PostConstruct
+    public void init() {
+        acceptedCounter = Counter.builder("foodtiger.courier.location.accepted").description("已接受的位置回報數").register(meterRegistry);
+        droppedCounter = Counter.builder("foodtiger.courier.location.dropped").description("重複、過舊或時間在未來而略過的位置回報數").register(meterRegistry);
+        persistedCounter = Counter.builder("foodtiger.courier.location.persisted").description("降採樣後寫入資料庫的軌跡點數").register(meterRegistry);
+        overwrittenCounter = Counter.builder("foodtiger.courier.location.overwritten").description("寫入資料庫前就被環狀緩衝區覆蓋的點數").register(meterRegistry);
+        Gauge.builder("foodtiger.courier.location.tracked", tracksByCourierId, Map::size)
+                .description("記憶體中有軌跡的外送員數")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushTracks();
+    }
+
+    @Override
+    public int ingest(Long courierId, List<LocationPing> pings) {
+        refreshActiveDeliveries(courierId);
+        long now = System.currentTimeMillis();
+        List<LocationPing> ordered = new ArrayList<>(pings.size());
+        for (LocationPing ping : pings) {
+            long time = ping.getRecordedAt();
+            if (time <= now + maxClockSkewMs && time >= now - maxPingAgeMs) {
+                ordered.add(ping);
+            }
+        }
+        ordered.sort(Comparator.comparing(LocationPing::getRecordedAt));
+
+        if (activeOrderIdsByCourierId.getOrDefault(courierId, Set.of()).isEmpty()) {
+            // 沒有運送中的訂單：只以最新一筆更新可指派外送員的位置索引，不記錄軌跡
+            if (ordered.isEmpty()) {
+                droppedCounter.increment(pings.size());
+                return 0;
+            }
+            LocationPing latest = ordered.get(ordered.size() - 1);
+            geoIndex.updateCourier(courierId, latest.getLatitude(), latest.getLongitude(), latest.getRecordedAt(), false);
+            acceptedCounter.increment();
+            droppedCounter.increment(pings.size() - 1);
+            return 1;
+        }
+
+        CourierTrack track = tracksByCourierId.computeIfAbsent(courierId, id -> new CourierTrack(bufferCapacity));
+        int accepted = 0;
+        for (LocationPing ping : ordered) {
+            if (track.append(ping.getRecordedAt(), CourierTrack.toE7(ping.getLatitude()), CourierTrack.toE7(ping.getLongitude()))) {
+                accepted++;
+            }
+        }
+        CourierTrack.Point latest = track.latest();
+        if (accepted > 0 && latest != null) {
+            geoIndex.updateCourier(courierId, latest.latitude(), latest.longitude(), latest.recordedAt(), true);
+        }
+        acceptedCounter.increment(accepted);
+        droppedCounter.increment(pings.size() - accepted);
+        return accepted;
+    }
+
+    @Override
+    public CourierLocation findLatestForOrder(Long orderId, Long userId, boolean admin) throws ResourceNotFoundException, UnauthorizedException {
+        ActiveOrder activeOrder = activeOrdersByOrderId.get(orderId);
+        if (activeOrder == null || !stillDelivering(orderId, activeOrder)) {
+            throw new ResourceNotFoundException("訂單 ID " + orderId + " 目前沒有外送員位置");
+        }
+        if (!admin && !activeOrder.customerId().equals(userId)) {
+            logger.warn("用戶 ID {} 嘗試查詢非自己訂單 ID {} 的外送員位置", userId, orderId);
+            throw new UnauthorizedException("您無權查看此訂單的外送員位置");
+        }
+        CourierTrack track = tracksByCourierId.get(activeOrder.courierId());
+        CourierTrack.Point latest = track != null ? track.latest() : null;
+        if (latest == null) {
+            throw new ResourceNotFoundException("訂單 ID " + orderId + " 目前沒有外送員位置");
+        }
+        return new CourierLocation(orderId, activeOrder.courierId(), latest.latitude(), latest.longitude(),
+                Instant.ofEpochMilli(latest.recordedAt()));
+    }
+
+    /**
+     * 訂單離開運送中 (送達、取消) 時移除顧客查詢用的索引。
+     */
+    @Override
+    public void onEvents(List<OrderLifecycleEvent> events) {
+        for (OrderLifecycleEvent event : events) {
+            if (event.type() == OrderEventType.STATUS_CHANGED
+                    && !OrderStatus.運送中.name().equals(event.payload().get("newStatus"))) {
+                activeOrdersByOrderId.remove(event.orderId());
+            }
+        }
+    }
+
+    /**
+     * 定期把各外送員新增的點降採樣後批次寫入資料庫，並移除太久沒有回報的外送員。
+     */
+    @Scheduled(fixedDelayString = "${app.courier-location.flush-ms:10000}", initialDelayString = "${app.courier-location.flush-ms:10000}")
+    public void flushTracks() {
+        List<Object[]> rows = new ArrayList<>();
+        long overwritten = 0;
+        long idleBefore = System.currentTimeMillis() - idleEvictMs;
+        Iterator<Map.Entry<Long, CourierTrack>> iterator = tracksByCourierId.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, CourierTrack> entry = iterator.next();
+            Long courierId = entry.getKey();
+            overwritten += entry.getValue().drainDownsampled(persistMinIntervalMs, persistMaxIntervalMs, persistMinDistanceMeters,
+                    (time, latE7, lonE7) -> rows.add(new Object[]{courierId, BigDecimal.valueOf(latE7, 7), BigDecimal.valueOf(lonE7, 7), new Timestamp(time)}));
+            if (entry.getValue().lastSeenMillis() < idleBefore) {
+                iterator.remove();
+                activeCheckedAtByCourierId.remove(courierId);
+                activeOrdersByOrderId.keySet().removeAll(activeOrderIdsByCourierId.getOrDefault(courierId, Set.of()));
+                activeOrderIdsByCourierId.remove(courierId);
+                geoIndex.removeCourier(courierId);
+            }
+        }
+        // 沒有運送中訂單而從未建立軌跡的外送員
+        activeCheckedAtByCourierId.forEach((courierId, checkedAt) -> {
+            if (checkedAt < idleBefore && !tracksByCourierId.containsKey(courierId)) {
+                activeCheckedAtByCourierId.remove(courierId);
+                activeOrderIdsByCourierId.remove(courierId);
+                geoIndex.removeCourier(courierId);
+            }
+        });
+        overwrittenCounter.increment(overwritten);
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO courier_location_track (courier_id, latitude, longitude, recorded_at) VALUES (?, ?, ?, ?)", rows);
+            persistedCounter.increment(rows.size());
+        } catch (RuntimeException e) {
+            // 軌跡只用於事後查詢，寫入失敗時捨棄這一批，不影響即時位置
+            logger.error("寫入 {} 筆外送員軌跡點失敗", rows.size(), e);
+        }
+    }
+
+    // 每位外送員每隔 active-check-ms 才查一次資料庫；外送員的訂單可能分散在各分片
+    private void refreshActiveDeliveries(Long courierId) {
+        long now = System.currentTimeMillis();
+        Long checkedAt = activeCheckedAtByCourierId.get(courierId);
+        if (checkedAt != null && now - checkedAt < activeCheckMs) {
+            return;
+        }
+        activeCheckedAtByCourierId.put(courierId, now);
+        Set<Long> activeOrderIds = new HashSet<>();
+        orderShards.forEachShard(shard -> {
+            for (ActiveDelivery delivery : orderrRepository.findActiveDeliveries(courierId)) {
+                activeOrderIds.add(delivery.orderId());
+                activeOrdersByOrderId.put(delivery.orderId(), new ActiveOrder(courierId, delivery.customerId(), now));
+            }
+        });
+        Set<Long> previous = activeOrderIdsByCourierId.put(courierId, Set.copyOf(activeOrderIds));
+        if (previous != null) {
+            for (Long orderId : previous) {
+                if (!activeOrderIds.contains(orderId)) {
+                    activeOrdersByOrderId.remove(orderId);
+                }
+            }
+        }
+    }
+
+    // 索引超過 active-check-ms 未確認時，確認訂單仍由同一位外送員運送中；分片時直接連到訂單所在的分片
+    private boolean stillDelivering(Long orderId, ActiveOrder activeOrder) {
+        long now = System.currentTimeMillis();
+        if (now - activeOrder.verifiedAt() < activeCheckMs) {
+            return true;
+        }
+        JdbcTemplate shardJdbcTemplate = orderShards.isSharded() ? orderShards.jdbcTemplate(orderShards.shardOfOrder(orderId)) : jdbcTemplate;
+        boolean delivering = !shardJdbcTemplate.queryForList(
+                "SELECT id FROM orderr WHERE id = ? AND status = ? AND delivery_person_id = ?",
+                Long.class, orderId, OrderStatus.運送中.name(), activeOrder.courierId()).isEmpty();
+        if (delivering) {
+            activeOrdersByOrderId.replace(orderId, activeOrder, new ActiveOrder(activeOrder.courierId(), activeOrder.customerId(), now));
+        } else {
+            activeOrdersByOrderId.remove(orderId, activeOrder);
+            logger.debug("訂單 ID {} 已不在外送員 ID {} 的運送中訂單，移除位置索引", orderId, activeOrder.courierId());
+        }
+        return delivering;
+    }
+}
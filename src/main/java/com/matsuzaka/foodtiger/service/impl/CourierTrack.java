@@ -0,0 +1,127 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+/**
+ * 單一外送員的 GPS 環狀緩衝區。座標以 1e-7 度的整數 (約 1 公分) 存放在基本型別陣列中，
+ * 每個點 16 bytes，不為每筆回報配置物件；緩衝區滿時覆蓋最舊的點。所有方法以物件本身同步。
+ */
+final class CourierTrack {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    /**
+     * 一個軌跡點。
+     */
+    record Point(long recordedAt, int latitudeE7, int longitudeE7) {
+
+        double latitude() {
+            return latitudeE7 / 1e7;
+        }
+
+        double longitude() {
+            return longitudeE7 / 1e7;
+        }
+    }
+
+    /**
+     * 降採樣後要寫入資料庫的點。
+     */
+    interface PointSink {
+        void accept(long recordedAt, int latitudeE7, int longitudeE7);
+    }
+
+    private final long[] recordedAt;
+    private final int[] latitudeE7;
+    private final int[] longitudeE7;
+    private final int capacity;
+    private long written;     // 累計寫入的點數，第 n 個點存在 n % capacity
+    private long drainedUpTo; // 已經過降採樣處理的點數
+    private long lastPersistedAt = Long.MIN_VALUE;
+    private int lastPersistedLatitudeE7;
+    private int lastPersistedLongitudeE7;
+    private volatile long lastSeenMillis;
+
+    CourierTrack(int capacity) {
+        this.capacity = capacity;
+        this.recordedAt = new long[capacity];
+        this.latitudeE7 = new int[capacity];
+        this.longitudeE7 = new int[capacity];
+        this.lastSeenMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 加入一個點；定位時間不晚於最新一點的 (重送或順序錯亂) 略過。
+     *
+     * @return 是否加入
+     */
+    synchronized boolean append(long time, int latE7, int lonE7) {
+        lastSeenMillis = System.currentTimeMillis();
+        if (written > 0 && time <= recordedAt[(int) ((written - 1) % capacity)]) {
+            return false;
+        }
+        int index = (int) (written % capacity);
+        recordedAt[index] = time;
+        latitudeE7[index] = latE7;
+        longitudeE7[index] = lonE7;
+        written++;
+        return true;
+    }
+
+    /**
+     * @return 最新的點，尚未有任何點時為 null
+     */
+    synchronized Point latest() {
+        if (written == 0) {
+            return null;
+        }
+        int index = (int) ((written - 1) % capacity);
+        return new Point(recordedAt[index], latitudeE7[index], longitudeE7[index]);
+    }
+
+    /**
+     * 把上次處理後新增的點降採樣後交給 sink：距上一個保留點超過 maxIntervalMs，
+     * 或超過 minIntervalMs 且移動超過 minDistanceMeters 的點才保留。
+     *
+     * @return 尚未處理就被覆蓋的點數 (緩衝區在兩次處理之間寫滿)
+     */
+    synchronized long drainDownsampled(long minIntervalMs, long maxIntervalMs, double minDistanceMeters, PointSink sink) {
+        long start = Math.max(drainedUpTo, written - capacity);
+        long overwritten = start - drainedUpTo;
+        for (long n = start; n < written; n++) {
+            int index = (int) (n % capacity);
+            long time = recordedAt[index];
+            boolean keep;
+            if (lastPersistedAt == Long.MIN_VALUE) {
+                keep = true;
+            } else {
+                long elapsed = time - lastPersistedAt;
+                keep = elapsed >= maxIntervalMs || (elapsed >= minIntervalMs && distanceMeters(
+                        lastPersistedLatitudeE7, lastPersistedLongitudeE7, latitudeE7[index], longitudeE7[index]) >= minDistanceMeters);
+            }
+            if (keep) {
+                sink.accept(time, latitudeE7[index], longitudeE7[index]);
+                lastPersistedAt = time;
+                lastPersistedLatitudeE7 = latitudeE7[index];
+                lastPersistedLongitudeE7 = longitudeE7[index];
+            }
+        }
+        drainedUpTo = written;
+        return overwritten;
+    }
+
+    long lastSeenMillis() {
+        return lastSeenMillis;
+    }
+
+    static int toE7(double degrees) {
+        return (int) Math.round(degrees * 1e7);
+    }
+
+    // 等距圓柱投影近似，幾公里內的誤差可忽略
+    static double distanceMeters(int lat1E7, int lon1E7, int lat2E7, int lon2E7) {
+        double lat1 = Math.toRadians(lat1E7 / 1e7);
+        double lat2 = Math.toRadians(lat2E7 / 1e7);
+        double x = Math.toRadians((lon2E7 - lon1E7) / 1e7) * Math.cos((lat1 + lat2) / 2);
+        double y = lat2 - lat1;
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_METERS;
+    }
+}
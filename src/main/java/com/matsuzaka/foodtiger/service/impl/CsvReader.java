@@ -0,0 +1,95 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 逐筆讀取 CSV 記錄 (RFC 4180：逗號分隔、雙引號包住的欄位可含逗號與換行、"" 表示一個雙引號)。
+ * 一次只保留一筆記錄，超過 maxFieldLength 的欄位會被截斷並標記為格式錯誤，記憶體用量不隨檔案大小增加。
+ */
+final class CsvReader {
+
+    private final Reader reader;
+    private final int maxFieldLength;
+    private long line = 1;
+    private long recordLine;
+    private String recordError;
+
+    CsvReader(Reader reader, int maxFieldLength) {
+        this.reader = reader;
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    /**
+     * @return 下一筆記錄的欄位，檔案結束時為 null
+     */
+    List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        recordError = null;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    recordError = "引號未結束";
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue; // 引號後的字元依一般規則處理
+                    }
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                append(field, c);
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c != '\r') {
+                append(field, c);
+            }
+            c = reader.read();
+        }
+    }
+
+    /**
+     * @return 最近一筆記錄的起始行號
+     */
+    long recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * @return 最近一筆記錄的格式錯誤，沒有錯誤時為 null
+     */
+    String recordError() {
+        return recordError;
+    }
+
+    private void append(StringBuilder field, int c) {
+        if (field.length() < maxFieldLength) {
+            field.append((char) c);
+        } else if (recordError == null) {
+            recordError = "欄位長度超過 " + maxFieldLength + " 個字";
+        }
+    }
+}
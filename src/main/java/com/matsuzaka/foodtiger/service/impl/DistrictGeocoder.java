@@ -0,0 +1,73 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 依縣市與行政區查表推估座標 (離線，不呼叫外部地理編碼服務)。
+ * 精度為行政區層級，只適合用於派單時的距離排序；找不到行政區時退回縣市的座標。
+ */
+@Component
+public class DistrictGeocoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistrictGeocoder.class);
+
+    /**
+     * 經緯度 (度)。
+     */
+    public record Coordinates(double latitude, double longitude) {
+    }
+
+    @Value("${app.geo.district-table:classpath:geo/tw-district-coordinates.csv}")
+    private Resource districtTable;
+
+    private final Map<String, Coordinates> coordinatesByKey = new HashMap<>();
+
+    @PostConstruct
+    public void load() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(districtTable.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                coordinatesByKey.put(keyOf(fields[0], fields[1]),
+                        new Coordinates(Double.parseDouble(fields[2].trim()), Double.parseDouble(fields[3].trim())));
+            }
+        }
+        logger.info("已載入 {} 筆縣市與行政區座標", coordinatesByKey.size());
+    }
+
+    /**
+     * @param city 縣市，例如「台北市」或「臺北市」
+     * @param district 行政區，可為 null
+     * @return 行政區的座標；行政區不在表中時為縣市的座標；縣市也不在表中時為空
+     */
+    public Optional<Coordinates> locate(String city, String district) {
+        if (city == null) {
+            return Optional.empty();
+        }
+        Coordinates coordinates = district != null ? coordinatesByKey.get(keyOf(city, district)) : null;
+        if (coordinates == null) {
+            coordinates = coordinatesByKey.get(keyOf(city, ""));
+        }
+        return Optional.ofNullable(coordinates);
+    }
+
+    private static String keyOf(String city, String district) {
+        return (city.trim() + "|" + district.trim()).replace('臺', '台');
+    }
+}
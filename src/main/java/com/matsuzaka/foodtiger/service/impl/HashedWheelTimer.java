@@ -0,0 +1,260 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 雜湊時間輪：大量逾時計時器的排程與取消都是 O(1)，精度為一個 tick。
+ *
+ * <p>輪上有 wheelSize 個格子 (2 的次方)，每個格子是一條雙向鏈結串列；到期時間超過一圈的計時器記錄剩餘圈數，
+ * 指針每經過一次減一。新增與取消先放進佇列，由唯一的工作執行緒在每個 tick 搬進或移出格子，
+ * 呼叫端不需要加鎖；到期的工作交給 executor 執行，不佔用工作執行緒。</p>
+ */
+final class HashedWheelTimer {
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    // 每個 tick 最多搬入的新計時器數，避免啟動時大量重建卡住指針
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    /**
+     * 排程後的計時器，可取消。
+     */
+    final class Timeout {
+        private final Runnable task;
+        private final long deadlineNanos; // 相對於 startNanos
+        private final AtomicInteger state = new AtomicInteger(INIT);
+        private long remainingRounds;
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return 尚未到期且由這次呼叫取消時為 true
+         */
+        boolean cancel() {
+            if (!state.compareAndSet(INIT, CANCELLED)) {
+                return false;
+            }
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(INIT, EXPIRED)) {
+                pendingCount.decrementAndGet();
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // executor 已關閉 (應用程式停止中)，放棄這個工作
+                }
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void expireTimeouts() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor executor;
+    private final LongSupplier nanoClock;
+    private Thread worker;
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private volatile boolean running = true;
+    private final long startNanos;
+    private long tick;
+
+    /**
+     * 建立後立即啟動工作執行緒。
+     *
+     * @param tickMillis 指針每格的時間，也是計時器的精度
+     * @param wheelSize 格子數，會調整為 2 的次方
+     * @param executor 執行到期工作
+     */
+    HashedWheelTimer(long tickMillis, int wheelSize, Executor executor, String threadName) {
+        this(tickMillis, wheelSize, executor, System::nanoTime);
+        this.worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 不啟動工作執行緒，由呼叫端控制時間並以 advance 推進指針 (測試用)。
+     *
+     * @param nanoClock 目前時間 (奈秒)，取代 System.nanoTime
+     */
+    HashedWheelTimer(long tickMillis, int wheelSize, Executor executor, LongSupplier nanoClock) {
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * 在 delayMillis 毫秒後執行 task (到期後的下一個 tick)，delayMillis 小於等於 0 時於下一個 tick 執行。
+     */
+    Timeout schedule(Runnable task, long delayMillis) {
+        long deadlineNanos = nanoClock.getAsLong() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(task, deadlineNanos);
+        pendingCount.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return 尚未到期也未取消的計時器數
+     */
+    long pending() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 停止工作執行緒；尚未到期的計時器不再執行。
+     */
+    void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 2 + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            if (waitForNextTick()) {
+                advance();
+            }
+        }
+    }
+
+    /**
+     * 處理目前的 tick：移除已取消的計時器、搬入新的計時器、執行目前格子中到期的計時器，再把指針移到下一格。
+     * 只能由工作執行緒呼叫；以 nanoClock 建立時由呼叫端 (單一執行緒) 呼叫。
+     */
+    void advance() {
+        removeCancelled();
+        transferNewTimeouts();
+        wheel[(int) (tick & mask)].expireTimeouts();
+        tick++;
+    }
+
+    // 等到目前 tick 的結束時間；停止時回傳 false
+    private boolean waitForNextTick() {
+        long deadlineNanos = tickNanos * (tick + 1);
+        while (true) {
+            long sleepNanos = deadlineNanos - (nanoClock.getAsLong() - startNanos);
+            if (sleepNanos <= 0) {
+                return true;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            pendingCount.decrementAndGet();
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferNewTimeouts() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timeout timeout = newTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.isCancelled()) {
+                continue; // 已在 cancelledTimeouts 中扣掉計數
+            }
+            long expireTick = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = (expireTick - tick) / wheel.length;
+            // 已經過期的放在目前的格子，這個 tick 就會執行
+            wheel[(int) (Math.max(expireTick, tick) & mask)].add(timeout);
+        }
+    }
+}
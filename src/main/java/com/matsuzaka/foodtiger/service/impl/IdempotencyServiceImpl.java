@@ -0,0 +1,317 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matsuzaka.foodtiger.dao.repository.IdempotencyRecordRepository;
+import com.matsuzaka.foodtiger.dao.repository.IdempotencyRecordRepository.IdempotencyRecord;
+import com.matsuzaka.foodtiger.dao.repository.IdempotencyRecordRepository.Key;
+import com.matsuzaka.foodtiger.exception.FoodTigerException;
+import com.matsuzaka.foodtiger.exception.InvalidOperationException;
+import com.matsuzaka.foodtiger.exception.ServiceBusyException;
+import com.matsuzaka.foodtiger.service.IdempotencyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency-Key 支援：同一用戶以相同 key 重送的請求直接回放第一次的成功回應，不再重做驗證與寫入。
+ *
+ * <p>第一層是記憶體中有上限、依 TTL 淘汰的 Map；同一節點上同時到達的重複請求會等待進行中的原始請求完成後回放結果。
+ * 第二層是 idempotency_record 資料表，讓重啟後或打到其他節點的重送也能回放，並以唯一鍵確保只有一個節點執行。</p>
+ *
+ * <p>只保存 2xx 回應。原始請求拋出例外時釋放 key，重送會重新執行 (業務錯誤本身不會產生寫入)。</p>
+ *
+ * <p>處理中的紀錄帶有租約，執行中的節點每 heartbeat-ms 續約一次。其他節點只在租約到期 (原節點已中斷、未再續約) 時
+ * 才接手重新執行；執行時間再長，只要原節點仍在續約就只會等待或回 503，不會重複下單或付款。</p>
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long DB_POLL_INTERVAL_MS = 50;
+
+    private record StoredResponse(int statusCode, String body, String location) {
+    }
+
+    private static final class Entry {
+        final String requestHash;
+        // 完成時為原始回應；原始請求失敗時為 null，等待者需重新嘗試取得執行權
+        final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        volatile long expiresAtMillis = Long.MAX_VALUE; // 進行中的不會過期
+
+        Entry(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+
+    @Value("${app.idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    @Value("${app.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    @Value("${app.idempotency.lease-ms:30000}")
+    private long leaseMs;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Key> inFlight = new ConcurrentHashMap<>(); // 本節點正在執行、需要續約的紀錄
+
+    /**
+     * 依 Idempotency-Key 執行或回放請求。
+     *
+     * @param userId 當前用戶 ID，key 只在同一用戶內有效
+     * @param scope API 名稱，例如 orderrs.create
+     * @param idempotencyKey 客戶端提供的 key；為 null 或空白時直接執行
+     * @param request 請求內容，用於確認相同 key 的重送內容一致
+     * @param operation 實際的處理邏輯
+     * @return 第一次執行的回應，或回放的回應 (附 Idempotent-Replayed: true)
+     * @throws InvalidOperationException 如果 key 過長，或相同 key 被用於不同內容的請求
+     * @throws ServiceBusyException 如果相同 key 的原始請求在等待時間內仍未完成
+     */
+    @Override
+    public ResponseEntity<?> execute(Long userId, String scope, String idempotencyKey, Object request, Operation operation)
+            throws FoodTigerException {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return operation.execute();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidOperationException(HEADER + " 長度不可超過 " + MAX_KEY_LENGTH);
+        }
+
+        String requestHash = hash(request);
+        String cacheKey = userId + ":" + scope + ":" + idempotencyKey;
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+
+        while (true) {
+            Entry mine = new Entry(requestHash);
+            Entry existing = entries.putIfAbsent(cacheKey, mine);
+            if (existing == null) {
+                return executeAsOwner(cacheKey, mine, userId, scope, idempotencyKey, operation, deadline);
+            }
+            if (existing.expiresAtMillis < System.currentTimeMillis()) {
+                entries.remove(cacheKey, existing);
+                continue;
+            }
+            checkSameRequest(existing.requestHash, requestHash, idempotencyKey);
+            StoredResponse stored = await(existing.result, deadline);
+            if (stored != null) {
+                logger.info("用戶 ID {} 以相同 {} 重送 {}，回放原始回應", userId, HEADER, scope);
+                return replay(stored);
+            }
+            // 原始請求失敗並已釋放 key，重新嘗試取得執行權
+        }
+    }
+
+    /**
+     * 定期延長本節點執行中紀錄的租約。
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.heartbeat-ms:5000}", initialDelayString = "${app.idempotency.heartbeat-ms:5000}")
+    public void renewLeases() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        try {
+            idempotencyRecordRepository.renewLeases(inFlight.values(), leaseExpiry());
+        } catch (DataAccessException e) {
+            logger.warn("續約 {} 筆處理中的 Idempotency-Key 紀錄失敗，稍後重試: {}", inFlight.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 定期清除記憶體與資料庫中過期的紀錄。
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-ms:300000}", initialDelayString = "${app.idempotency.cleanup-ms:300000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis < now);
+        int deleted = idempotencyRecordRepository.deleteExpired();
+        if (deleted > 0) {
+            logger.info("已清除 {} 筆過期的 Idempotency-Key 紀錄", deleted);
+        }
+    }
+
+    private ResponseEntity<?> executeAsOwner(String cacheKey, Entry mine, Long userId, String scope, String idempotencyKey,
+                                             Operation operation, long deadline) throws FoodTigerException {
+        boolean claimed = false;
+        try {
+            // 其他節點或重啟前可能已處理過；若其他節點正在處理，等它完成
+            while (!idempotencyRecordRepository.insertPending(userId, scope, idempotencyKey, mine.requestHash, leaseExpiry(), expiry())) {
+                Optional<IdempotencyRecord> record = idempotencyRecordRepository.find(userId, scope, idempotencyKey);
+                if (record.isPresent()) { // 不存在表示剛被刪除 (對方失敗或已過期)，下一輪再搶一次
+                    checkSameRequest(record.get().requestHash(), mine.requestHash, idempotencyKey);
+                    if (record.get().statusCode() != null) {
+                        StoredResponse stored = new StoredResponse(record.get().statusCode(), record.get().responseBody(), record.get().location());
+                        complete(mine, stored);
+                        logger.info("用戶 ID {} 以相同 {} 重送 {}，由資料庫紀錄回放原始回應", userId, HEADER, scope);
+                        return replay(stored);
+                    }
+                    Instant leaseExpiresAt = record.get().leaseExpiresAt();
+                    if (leaseExpiresAt != null && leaseExpiresAt.isBefore(Instant.now())
+                            && idempotencyRecordRepository.deleteAbandoned(userId, scope, idempotencyKey)) {
+                        // 原節點已停止續約，視為已中斷
+                        logger.warn("用戶 ID {} 的 {} {} 處理中紀錄租約已到期，改由本節點執行", userId, scope, idempotencyKey);
+                        continue;
+                    }
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new ServiceBusyException("相同 " + HEADER + " 的請求仍在處理中，請稍後再試");
+                }
+                sleep(DB_POLL_INTERVAL_MS);
+            }
+            claimed = true;
+            inFlight.put(cacheKey, new Key(userId, scope, idempotencyKey));
+
+            ResponseEntity<?> response = operation.execute();
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                release(cacheKey, mine, userId, scope, idempotencyKey);
+                return response;
+            }
+            URI location = response.getHeaders().getLocation();
+            StoredResponse stored = new StoredResponse(response.getStatusCode().value(), serialize(response.getBody()),
+                    location != null ? location.toString() : null);
+            idempotencyRecordRepository.complete(userId, scope, idempotencyKey, stored.statusCode(), stored.body(),
+                    stored.location(), expiry());
+            complete(mine, stored);
+            return response;
+        } catch (FoodTigerException | RuntimeException e) {
+            if (claimed) {
+                release(cacheKey, mine, userId, scope, idempotencyKey);
+            } else {
+                entries.remove(cacheKey, mine);
+                mine.result.complete(null);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey);
+        }
+    }
+
+    private void complete(Entry entry, StoredResponse stored) {
+        entry.expiresAtMillis = System.currentTimeMillis() + ttlMs;
+        entry.result.complete(stored);
+        if (entries.size() > maxEntries) {
+            trim();
+        }
+    }
+
+    private void release(String cacheKey, Entry entry, Long userId, String scope, String idempotencyKey) {
+        entries.remove(cacheKey, entry);
+        idempotencyRecordRepository.deletePending(userId, scope, idempotencyKey);
+        entry.result.complete(null);
+    }
+
+    // 超過上限時先清除過期的，仍超過則淘汰部分已完成的紀錄 (資料庫仍保有，之後重送可由資料庫回放)
+    private void trim() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis < now);
+        int toRemove = entries.size() - maxEntries + maxEntries / 10;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && toRemove > 0) {
+            if (iterator.next().getValue().result.isDone()) {
+                iterator.remove();
+                toRemove--;
+            }
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> result, long deadline) throws ServiceBusyException {
+        try {
+            return result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceBusyException("相同 " + HEADER + " 的請求仍在處理中，請稍後再試");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("等待相同 " + HEADER + " 的請求時被中斷");
+        } catch (ExecutionException e) {
+            return null; // 不會發生，原始請求失敗時以 null 完成
+        }
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash, String idempotencyKey) throws InvalidOperationException {
+        if (!storedHash.equals(requestHash)) {
+            logger.warn("{} {} 被用於內容不同的請求", HEADER, idempotencyKey);
+            throw new InvalidOperationException(HEADER + " 已用於內容不同的請求，請使用新的 key");
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.statusCode())
+                .header(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            builder.header(HttpHeaders.LOCATION, stored.location());
+        }
+        if (stored.body() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body());
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("無法計算請求內容的雜湊", e);
+        }
+    }
+
+    private String serialize(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("無法序列化回應內容", e);
+        }
+    }
+
+    private Instant expiry() {
+        return Instant.now().plusMillis(ttlMs);
+    }
+
+    private Instant leaseExpiry() {
+        return Instant.now().plusMillis(leaseMs);
+    }
+
+    private static void sleep(long millis) throws ServiceBusyException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("等待相同 " + HEADER + " 的請求時被中斷");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.cache.CacheInvalidationBus;
+import com.matsuzaka.foodtiger.dao.repository.MenuItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 各餐廳菜單的記憶體快照，供下單前的快速驗證使用 (非同步下單模式)。
+ *
+ * <p>快照只用於提早拒絕明顯無效的請求；真正寫入時 OrderrServiceImpl.createOrder 仍會以資料庫為準重新驗證，
+ * 因此短暫的舊資料不會造成錯誤訂單。菜單異動由 MenuItemServiceImpl 在交易提交後清除對應餐廳的快照，
+ * 同時清除 MenuResponseCache 中的菜單回應，並經由 CacheInvalidationBus 通知其他節點清除。</p>
+ */
+@Component
+public class MenuCatalog {
+
+    /**
+     * 菜單項目快照，只保留驗證與計價需要的欄位。
+     */
+    public record Item(Long id, Long restaurantId, String title, Integer price, boolean available) {
+    }
+
+    @Value("${app.menu-catalog.max-restaurants:10000}")
+    private int maxRestaurants;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private MenuResponseCache menuResponseCache;
+
+    private final ConcurrentHashMap<Long, Map<Long, Item>> menuByRestaurantId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> restaurantIdByItemId = new ConcurrentHashMap<>();
+    // 每次清除快照時遞增，載入期間若有清除則不放入快取，避免把載入前讀到的舊資料寫回
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void registerInvalidation() {
+        cacheInvalidationBus.register(CacheInvalidationBus.MENU, restaurantId -> evict(null, restaurantId), this::evictAll);
+        cacheInvalidationBus.register(CacheInvalidationBus.MENU_ITEM, menuItemId -> evict(menuItemId, null), this::evictAll);
+    }
+
+    /**
+     * 取得餐廳的菜單快照，未快取時從資料庫載入。
+     *
+     * @param restaurantId 餐廳 ID
+     * @return 菜單項目 ID 對應快照的唯讀 Map；餐廳不存在或沒有菜單時為空
+     */
+    public Map<Long, Item> menuOf(Long restaurantId) {
+        Map<Long, Item> menu = menuByRestaurantId.get(restaurantId);
+        if (menu != null) {
+            return menu;
+        }
+        long evictionsBeforeLoad = evictions.get();
+        menu = load(restaurantId);
+        if (evictions.get() == evictionsBeforeLoad) {
+            if (menuByRestaurantId.size() >= maxRestaurants) {
+                evictSome();
+            }
+            menuByRestaurantId.put(restaurantId, menu);
+            menu.keySet().forEach(itemId -> restaurantIdByItemId.put(itemId, restaurantId));
+        }
+        return menu;
+    }
+
+    /**
+     * 菜單項目新增、修改或刪除後呼叫；若在交易中，於提交後才清除，避免其他執行緒在提交前重新載入舊資料。
+     * 給其他節點的失效通知在目前交易中寫入。
+     *
+     * @param menuItemId 異動的菜單項目 ID，可為 null (新增時)
+     * @param restaurantId 菜單項目目前所屬的餐廳 ID，可為 null (刪除時)
+     */
+    public void evictAfterCommit(Long menuItemId, Long restaurantId) {
+        if (menuItemId != null) {
+            cacheInvalidationBus.publish(CacheInvalidationBus.MENU_ITEM, menuItemId);
+        }
+        if (restaurantId != null) {
+            cacheInvalidationBus.publish(CacheInvalidationBus.MENU, restaurantId);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(menuItemId, restaurantId);
+                }
+            });
+        } else {
+            evict(menuItemId, restaurantId);
+        }
+    }
+
+    private void evict(Long menuItemId, Long restaurantId) {
+        evictions.incrementAndGet();
+        menuResponseCache.evict(menuItemId, restaurantId);
+        if (menuItemId != null) {
+            // 項目可能從其他餐廳移過來，舊餐廳的快照也要清除
+            Long previousRestaurantId = restaurantIdByItemId.remove(menuItemId);
+            if (previousRestaurantId != null) {
+                menuByRestaurantId.remove(previousRestaurantId);
+            }
+        }
+        if (restaurantId != null) {
+            menuByRestaurantId.remove(restaurantId);
+        }
+    }
+
+    private Map<Long, Item> load(Long restaurantId) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> menuItemRepository.findByRestaurantId(restaurantId).stream()
+                .map(menuItem -> new Item(menuItem.getId(), restaurantId, menuItem.getTitle(), menuItem.getPrice(),
+                        Boolean.TRUE.equals(menuItem.getAvailable())))
+                .collect(Collectors.toUnmodifiableMap(Item::id, item -> item)));
+    }
+
+    private void evictAll() {
+        evictions.incrementAndGet();
+        menuResponseCache.evictAll();
+        menuByRestaurantId.clear();
+        restaurantIdByItemId.clear();
+    }
+
+    // 超過上限時清掉約一成的餐廳快照，被清掉的下次查詢時再載入
+    private void evictSome() {
+        int toRemove = Math.max(1, maxRestaurants / 10);
+        Iterator<Map.Entry<Long, Map<Long, Item>>> iterator = menuByRestaurantId.entrySet().iterator();
+        while (iterator.hasNext() && toRemove-- > 0) {
+            Map<Long, Item> removed = iterator.next().getValue();
+            iterator.remove();
+            removed.keySet().forEach(restaurantIdByItemId::remove);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matsuzaka.foodtiger.dao.repository.MenuItemRepository;
+import com.matsuzaka.foodtiger.dao.repository.RestaurantRepository;
+import com.matsuzaka.foodtiger.dto.MenuImportResult;
+import com.matsuzaka.foodtiger.dto.MenuItemImportRow;
+import com.matsuzaka.foodtiger.exception.InvalidOperationException;
+import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.service.MenuImportService;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 串流匯入菜單 (CSV 或 NDJSON)。
+ *
+ * <p>邊讀邊解析，每列驗證後放入批次，滿 batch-size 筆就以一個交易、一次 JDBC batch upsert 寫入，
+ * 記憶體中只保留目前的批次與有上限的錯誤明細，檔案大小不影響記憶體用量。同一餐廳內以菜名判斷新增或更新。</p>
+ *
+ * <p>各批次獨立提交：某一批寫入失敗時改為逐列寫入，找出失敗的列回報，其他列照常寫入。</p>
+ */
+@Service
+public class MenuImportServiceImpl implements MenuImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MenuImportServiceImpl.class);
+
+    private static final int MAX_FIELD_LENGTH = 10_000;
+
+    private record ParsedRow(long line, MenuItemImportRow row, String error) {
+    }
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+
+    @Autowired
+    private MenuCatalog menuCatalog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.menu-import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.menu-import.max-rows:200000}")
+    private long maxRows;
+
+    @Value("${app.menu-import.max-errors:1000}")
+    private int maxErrors;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 匯入菜單項目。
+     *
+     * @param restaurantId 餐廳 ID
+     * @param format 上傳內容的格式
+     * @param input 上傳內容 (UTF-8)
+     * @return 匯入結果與各列錯誤
+     * @throws ResourceNotFoundException 如果餐廳不存在
+     * @throws InvalidOperationException 如果 CSV 缺少標題列或必要欄位
+     * @throws IOException 如果讀取上傳內容失敗
+     */
+    @Override
+    public MenuImportResult importMenuItems(Long restaurantId, Format format, InputStream input)
+            throws ResourceNotFoundException, InvalidOperationException, IOException {
+        if (!restaurantRepository.existsById(restaurantId)) {
+            throw new ResourceNotFoundException("餐廳 ID " + restaurantId + " 未找到");
+        }
+        logger.info("開始匯入餐廳 ID {} 的菜單，格式為 {}", restaurantId, format);
+
+        MenuImportResult result = new MenuImportResult();
+        Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        skipByteOrderMark(reader);
+        RowSource source = format == Format.CSV ? new CsvRowSource(reader) : new NdjsonRowSource(reader);
+
+        List<ParsedRow> batch = new ArrayList<>(batchSize);
+        ParsedRow parsed;
+        while ((parsed = source.next()) != null) {
+            if (result.getTotalRows() >= maxRows) {
+                addError(result, parsed.line(), "超過單次匯入上限 " + maxRows + " 列，之後的資料未處理");
+                break;
+            }
+            result.setTotalRows(result.getTotalRows() + 1);
+            String error = parsed.error() != null ? parsed.error() : validate(parsed.row());
+            if (error != null) {
+                addError(result, parsed.line(), error);
+                continue;
+            }
+            batch.add(parsed);
+            if (batch.size() >= batchSize) {
+                flush(restaurantId, batch, result);
+            }
+        }
+        flush(restaurantId, batch, result);
+        logger.info("餐廳 ID {} 的菜單匯入完成：共 {} 列，寫入 {} 列，失敗 {} 列",
+                restaurantId, result.getTotalRows(), result.getUpsertedRows(), result.getFailedRows());
+        return result;
+    }
+
+    private void flush(Long restaurantId, List<ParsedRow> batch, MenuImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<MenuItemImportRow> rows = batch.stream().map(ParsedRow::row).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsert(restaurantId, rows));
+            result.setUpsertedRows(result.getUpsertedRows() + rows.size());
+        } catch (DataAccessException e) {
+            logger.warn("菜單匯入批次寫入失敗，改為逐列寫入: {}", e.getMessage());
+            for (ParsedRow parsed : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> upsert(restaurantId, List.of(parsed.row())));
+                    result.setUpsertedRows(result.getUpsertedRows() + 1);
+                } catch (DataAccessException rowException) {
+                    addError(result, parsed.line(), "寫入失敗: " + NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    // 與寫入同一個交易清除菜單快照並寫入失效通知
+    private void upsert(Long restaurantId, List<MenuItemImportRow> rows) {
+        menuItemRepository.upsertAll(restaurantId, rows);
+        menuCatalog.evictAfterCommit(null, restaurantId);
+    }
+
+    private String validate(MenuItemImportRow row) {
+        Set<ConstraintViolation<MenuItemImportRow>> violations = validator.validate(row);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("；"));
+    }
+
+    private void addError(MenuImportResult result, long line, String message) {
+        result.setFailedRows(result.getFailedRows() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new MenuImportResult.RowError(line, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private static void skipByteOrderMark(Reader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private interface RowSource {
+        ParsedRow next() throws IOException, InvalidOperationException;
+    }
+
+    /**
+     * 第一列為標題列，欄位順序不限；必要欄位為 title 與 price，選用欄位為 description、image_url、available。
+     */
+    private final class CsvRowSource implements RowSource {
+
+        private final CsvReader csvReader;
+        private Map<String, Integer> columns;
+
+        CsvRowSource(Reader reader) {
+            this.csvReader = new CsvReader(reader, MAX_FIELD_LENGTH);
+        }
+
+        @Override
+        public ParsedRow next() throws IOException, InvalidOperationException {
+            if (columns == null) {
+                readHeader();
+            }
+            List<String> fields;
+            do {
+                fields = csvReader.readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank()); // 略過空白列
+            long line = csvReader.recordLine();
+            if (csvReader.recordError() != null) {
+                return new ParsedRow(line, null, csvReader.recordError());
+            }
+
+            MenuItemImportRow row = new MenuItemImportRow();
+            row.setTitle(trimToNull(field(fields, "title")));
+            row.setDescription(trimToNull(field(fields, "description")));
+            row.setImageUrl(trimToNull(field(fields, "imageurl")));
+            String price = trimToNull(field(fields, "price"));
+            if (price != null) {
+                try {
+                    row.setPrice(Integer.valueOf(price));
+                } catch (NumberFormatException e) {
+                    return new ParsedRow(line, null, "價格必須是整數：" + price);
+                }
+            }
+            String available = trimToNull(field(fields, "available"));
+            if (available != null) {
+                switch (available.toLowerCase(Locale.ROOT)) {
+                    case "true", "1", "y", "yes" -> row.setAvailable(true);
+                    case "false", "0", "n", "no" -> row.setAvailable(false);
+                    default -> {
+                        return new ParsedRow(line, null, "available 必須是 true 或 false：" + available);
+                    }
+                }
+            }
+            return new ParsedRow(line, row, null);
+        }
+
+        private void readHeader() throws IOException, InvalidOperationException {
+            List<String> header = csvReader.readRecord();
+            if (header == null) {
+                header = List.of();
+            }
+            columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                // image_url、imageUrl、Image URL 都視為同一欄
+                String name = header.get(i).trim().toLowerCase(Locale.ROOT).replace("_", "").replace(" ", "");
+                columns.putIfAbsent(name, i);
+            }
+            if (!columns.containsKey("title") || !columns.containsKey("price")) {
+                throw new InvalidOperationException("CSV 標題列必須包含 title 與 price 欄位");
+            }
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            return index != null && index < fields.size() ? fields.get(index) : null;
+        }
+    }
+
+    /**
+     * 每行一個 JSON 物件，欄位名稱同 MenuItemImportRow；空白行略過。
+     */
+    private final class NdjsonRowSource implements RowSource {
+
+        private final Reader reader;
+        private final StringBuilder buffer = new StringBuilder();
+        private long line;
+
+        NdjsonRowSource(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            while (true) {
+                buffer.setLength(0);
+                boolean tooLong = false;
+                int c = reader.read();
+                if (c == -1) {
+                    return null;
+                }
+                line++;
+                while (c != -1 && c != '\n') {
+                    if (buffer.length() < MAX_FIELD_LENGTH) {
+                        buffer.append((char) c);
+                    } else {
+                        tooLong = true;
+                    }
+                    c = reader.read();
+                }
+                if (tooLong) {
+                    return new ParsedRow(line, null, "單行長度超過 " + MAX_FIELD_LENGTH + " 個字");
+                }
+                String json = buffer.toString().trim();
+                if (json.isEmpty()) {
+                    continue;
+                }
+                try {
+                    MenuItemImportRow row = objectMapper.readValue(json, MenuItemImportRow.class);
+                    row.setTitle(trimToNull(row.getTitle()));
+                    row.setDescription(trimToNull(row.getDescription()));
+                    row.setImageUrl(trimToNull(row.getImageUrl()));
+                    return new ParsedRow(line, row, null);
+                } catch (JsonProcessingException e) {
+                    return new ParsedRow(line, null, "JSON 格式錯誤: " + e.getOriginalMessage());
+                }
+            }
+        }
+    }
+}
@@ -2,19 +2,35 @@ package com.matsuzaka.foodtiger.service.impl;
 
 import com.matsuzaka.foodtiger.dao.entity.MenuItem;
 import com.matsuzaka.foodtiger.dao.repository.MenuItemRepository;
+import com.matsuzaka.foodtiger.dto.CachedMenuResponse;
+import com.matsuzaka.foodtiger.dto.PopularMenuItem;
 import com.matsuzaka.foodtiger.service.MenuItemService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@Transactional(readOnly = true)
 public class MenuItemServiceImpl implements MenuItemService {
 
     @Autowired
     private MenuItemRepository menuItemRepository;
 
+    @Autowired
+    private MenuCatalog menuCatalog;
+
+    @Autowired
+    private PopularMenuItemTracker popularMenuItemTracker;
+
+    @Autowired
+    private MenuResponseCache menuResponseCache;
+
     @Override
     public List<MenuItem> findAllMenuItems() {
         return menuItemRepository.findAll();
@@ -26,13 +42,19 @@ public class MenuItemServiceImpl implements MenuItemService {
     }
 
     @Override
+    @Transactional
     public MenuItem saveMenuItem(MenuItem menuItem) {
-        return menuItemRepository.save(menuItem);
+        MenuItem savedMenuItem = menuItemRepository.save(menuItem);
+        Long restaurantId = savedMenuItem.getRestaurant() != null ? savedMenuItem.getRestaurant().getId() : null;
+        menuCatalog.evictAfterCommit(savedMenuItem.getId(), restaurantId);
+        return savedMenuItem;
     }
 
     @Override
+    @Transactional
     public void deleteMenuItem(Long id) {
         menuItemRepository.deleteById(id);
+        menuCatalog.evictAfterCommit(id, null);
     }
 
     @Override
@@ -45,8 +67,50 @@ public class MenuItemServiceImpl implements MenuItemService {
         return menuItemRepository.findByRestaurantIdAndAvailableTrue(restaurantId);
     }
 
+    /**
+     * 取得餐廳可點菜單的預先序列化回應。快取命中時不開啟交易、不取得資料庫連線，未命中時由 MenuResponseCache 自行開啟唯讀交易載入。
+     *
+     * @param restaurantId 餐廳 ID
+     * @return 序列化後的 JSON 與 gzip 版本
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CachedMenuResponse findAvailableMenuResponse(Long restaurantId) {
+        return menuResponseCache.availableMenu(restaurantId);
+    }
+
     @Override
     public List<MenuItem> searchMenuItemsByTitle(String title) {
         return menuItemRepository.findByTitleContainingIgnoreCase(title);
     }
+
+    /**
+     * 取得餐廳的熱門菜單項目，資料來自記憶體中的串流統計，不查詢訂單項目。
+     * 已刪除的項目不會列出。
+     *
+     * @param restaurantId 餐廳 ID
+     * @param limit 最多回傳幾項，限制在 1 到 app.popular.top-k 之間 (超出範圍時取最接近的值)
+     * @return 依熱門程度由高到低排列的菜單項目
+     */
+    @Override
+    public List<PopularMenuItem> findPopularMenuItems(Long restaurantId, int limit) {
+        int size = Math.max(1, Math.min(limit, popularMenuItemTracker.getTopK()));
+        List<PopularMenuItemTracker.Ranked> ranked = popularMenuItemTracker.top(restaurantId);
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, MenuCatalog.Item> menu = menuCatalog.menuOf(restaurantId);
+        List<PopularMenuItem> popular = new ArrayList<>(size);
+        for (PopularMenuItemTracker.Ranked entry : ranked) {
+            MenuCatalog.Item item = menu.get(entry.menuItemId());
+            if (item == null) {
+                continue;
+            }
+            popular.add(new PopularMenuItem(item.id(), item.title(), item.price(), entry.score()));
+            if (popular.size() == size) {
+                break;
+            }
+        }
+        return popular;
+    }
 }
@@ -0,0 +1,210 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matsuzaka.foodtiger.dao.entity.MenuItem;
+import com.matsuzaka.foodtiger.dao.repository.MenuItemRepository;
+import com.matsuzaka.foodtiger.dto.AvailableMenuItem;
+import com.matsuzaka.foodtiger.dto.CachedMenuResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 餐廳可點菜單 (GET /api/menu-items/restaurant/{id}/available) 的回應快取。
+ *
+ * <p>每間餐廳保存序列化後的 JSON 與預先以最高壓縮等級產生的 gzip 版本，命中時直接把位元組寫到回應，
+ * 不查詢資料庫也不經過 Jackson。內容為 {@link AvailableMenuItem} 的清單，只帶餐廳 ID，
+ * 餐廳、擁有者或地址異動時不需清除。</p>
+ *
+ * <p>餐廳 ID 雜湊到固定數量的版本號，菜單異動時 (MenuCatalog 清除快照時一併呼叫) 遞增並移除快取；
+ * 載入期間版本若有變動則不放入快取，避免把異動前讀到的資料寫回 (雜湊碰撞只會讓另一間餐廳這次不放入快取)。
+ * 總大小超過 max-bytes 時依最近最少使用淘汰。</p>
+ */
+@Component
+public class MenuResponseCache {
+
+    private static final int VERSION_SLOTS = 4096;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.menu-response-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    private final LinkedHashMap<Long, CachedMenuResponse> entries = new LinkedHashMap<>(256, 0.75f, true); // 依存取順序排列
+    private final Map<Long, Long> restaurantIdByItemId = new ConcurrentHashMap<>();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_SLOTS); // 不隨查詢過的餐廳 ID 數量成長
+    private long totalBytes;
+    private TransactionTemplate readOnly;
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        hitCounter = Counter.builder("foodtiger.menu.response.cache").tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("foodtiger.menu.response.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("foodtiger.menu.response.cache.bytes", this, cache -> cache.currentBytes())
+                .description("菜單回應快取目前佔用的位元組數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 取得餐廳可點菜單的回應，未快取時從資料庫載入並序列化、壓縮。
+     *
+     * @param restaurantId 餐廳 ID
+     * @return 回應內容
+     */
+    public CachedMenuResponse availableMenu(Long restaurantId) {
+        synchronized (entries) {
+            CachedMenuResponse entry = entries.get(restaurantId);
+            if (entry != null) {
+                hitCounter.increment();
+                return entry;
+            }
+        }
+        missCounter.increment();
+        long versionBeforeLoad = versions.get(slotOf(restaurantId));
+        List<Long> menuItemIds = new ArrayList<>();
+        // 在交易內序列化
+        CachedMenuResponse entry = readOnly.execute(status -> {
+            List<MenuItem> menuItems = menuItemRepository.findByRestaurantIdAndAvailableTrue(restaurantId);
+            menuItems.forEach(menuItem -> menuItemIds.add(menuItem.getId()));
+            return build(menuItems);
+        });
+        synchronized (entries) {
+            if (versions.get(slotOf(restaurantId)) == versionBeforeLoad && sizeOf(entry) <= maxBytes / 4) {
+                CachedMenuResponse previous = entries.put(restaurantId, entry);
+                if (previous != null) {
+                    totalBytes -= sizeOf(previous);
+                }
+                totalBytes += sizeOf(entry);
+                menuItemIds.forEach(menuItemId -> restaurantIdByItemId.put(menuItemId, restaurantId));
+                evictOverCapacity();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 清除餐廳的快取回應，由 MenuCatalog 在菜單異動提交後或收到其他節點的失效通知時呼叫。
+     *
+     * @param menuItemId 異動的菜單項目 ID，可為 null
+     * @param restaurantId 餐廳 ID，可為 null
+     */
+    public void evict(Long menuItemId, Long restaurantId) {
+        if (menuItemId != null) {
+            Long previousRestaurantId = restaurantIdByItemId.remove(menuItemId);
+            if (previousRestaurantId != null) {
+                evictRestaurant(previousRestaurantId);
+            }
+        }
+        if (restaurantId != null) {
+            evictRestaurant(restaurantId);
+        }
+    }
+
+    public void evictAll() {
+        synchronized (entries) {
+            for (int slot = 0; slot < VERSION_SLOTS; slot++) {
+                versions.incrementAndGet(slot);
+            }
+            entries.clear();
+            restaurantIdByItemId.clear();
+            totalBytes = 0;
+        }
+    }
+
+    private void evictRestaurant(Long restaurantId) {
+        synchronized (entries) {
+            versions.incrementAndGet(slotOf(restaurantId));
+            CachedMenuResponse removed = entries.remove(restaurantId);
+            if (removed != null) {
+                totalBytes -= sizeOf(removed);
+            }
+        }
+    }
+
+    private static int slotOf(Long restaurantId) {
+        return Long.hashCode(restaurantId) & (VERSION_SLOTS - 1);
+    }
+
+    // 呼叫端持有 entries 的鎖
+    private void evictOverCapacity() {
+        Iterator<Map.Entry<Long, CachedMenuResponse>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static long sizeOf(CachedMenuResponse response) {
+        return response.json().length + response.gzip().length + 128L; // 128 約為物件與 ETag 的額外開銷
+    }
+
+    private long currentBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private CachedMenuResponse build(List<MenuItem> menuItems) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(menuItems.stream()
+                    .map(menuItem -> new AvailableMenuItem(menuItem.getId(), menuItem.getRestaurant().getId(), menuItem.getTitle(),
+                            menuItem.getDescription(), menuItem.getPrice(), menuItem.getImageUrl(), menuItem.getAvailable(),
+                            menuItem.getCreatedAt(), menuItem.getUpdatedAt()))
+                    .toList());
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION); // 只在載入時壓縮一次，使用最高壓縮等級
+                }
+            }) {
+                gzip.write(json);
+            }
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            String etag = "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+            return new CachedMenuResponse(json, compressed.toByteArray(), etag, menuItems.isEmpty());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("無法序列化菜單", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // 寫入記憶體不會發生
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.shard.OrderShardUnavailableException;
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.service.OrderArchiveService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把完成或取消超過保留天數的訂單，連同訂單項目與支付記錄，搬到封存表 (orderr_archive、orderr_item_archive、payment_archive)，
+ * 讓 orderr 只保留近期的訂單，索引與緩衝池維持在較小的範圍。
+ *
+ * <p>每批在一個交易中以 INSERT ... SELECT 複製後刪除原資料，批次之間暫停，避免長時間鎖住大量資料列或拖慢線上寫入；
+ * 單次執行有時間上限，未搬完的留到下次排程。查詢透過 OrderrRepositoryImpl 自動改查封存表。</p>
+ *
+ * <p>啟用訂單分片時逐一封存每個分片；有桶正在搬移時不封存 (搬移會同時複製訂單表與封存表)，留到下次排程。</p>
+ */
+@Service
+public class OrderArchiveServiceImpl implements OrderArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderArchiveServiceImpl.class);
+
+    private static final List<String> TRACKED_TABLES = List.of(
+            "orderr", "orderr_item", "payment", "orderr_archive", "orderr_item_archive", "payment_archive");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.archive.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${app.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.archive.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${app.archive.max-run-minutes:60}")
+    private long maxRunMinutes;
+
+    private Counter archivedCounter;
+    private final Map<String, AtomicLong> tableRows = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        archivedCounter = Counter.builder("foodtiger.archive.orderrs").description("已封存的訂單數").register(meterRegistry);
+        for (String table : TRACKED_TABLES) {
+            AtomicLong rows = new AtomicLong(-1); // 尚未取得統計前為 -1
+            tableRows.put(table, rows);
+            Gauge.builder("foodtiger.table.rows", rows, AtomicLong::get)
+                    .description("資料表的估計列數 (information_schema)")
+                    .tag("table", table)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 0 3 * * *}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        archiveOrderrsBefore(LocalDateTime.now().minusDays(retentionDays));
+    }
+
+    /**
+     * 分批封存下單時間早於 cutoff 的已完成、已取消訂單。
+     *
+     * @param cutoff 下單時間早於此時間的訂單才封存
+     * @return 本次封存的訂單數
+     */
+    @Override
+    public synchronized int archiveOrderrsBefore(LocalDateTime cutoff) {
+        Timestamp cutoffTime = Timestamp.valueOf(cutoff);
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(maxRunMinutes);
+        logger.info("開始封存 {} 之前已完成或取消的訂單", cutoff);
+        int total = 0;
+        shards:
+        for (int shard = 0; shard < orderShards.shardCount(); shard++) {
+            while (true) {
+                if (orderShards.isAnyMoving()) {
+                    logger.warn("訂單分片搬移中，剩餘的訂單留到下次排程");
+                    break shards;
+                }
+                Integer archived;
+                try {
+                    archived = orderShards.inTransaction(shard, false, status -> archiveBatch(cutoffTime));
+                } catch (OrderShardUnavailableException e) {
+                    logger.warn("訂單分片搬移中，剩餘的訂單留到下次排程: {}", e.getMessage());
+                    break shards;
+                }
+                total += archived;
+                archivedCounter.increment(archived);
+                if (archived < batchSize) {
+                    break;
+                }
+                if (System.nanoTime() > deadline) {
+                    logger.warn("訂單封存已執行超過 {} 分鐘，剩餘的訂單留到下次排程", maxRunMinutes);
+                    break shards;
+                }
+                try {
+                    Thread.sleep(pauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break shards;
+                }
+            }
+        }
+        logger.info("訂單封存完成，共封存 {} 筆訂單", total);
+        refreshTableRows();
+        return total;
+    }
+
+    /**
+     * 定期更新各資料表的估計列數 (各分片加總)。使用 information_schema 的統計值，不對大表執行 COUNT(*)。
+     */
+    @Scheduled(fixedDelayString = "${app.archive.table-stats-ms:300000}", initialDelayString = "${app.archive.table-stats-ms:300000}")
+    public void refreshTableRows() {
+        try {
+            Map<String, Long> rowsByTable = new HashMap<>();
+            orderShards.forEachShard(shard -> jdbcTemplate.query("SELECT TABLE_NAME, TABLE_ROWS FROM information_schema.TABLES " +
+                            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN (" + placeholders(TRACKED_TABLES.size()) + ")",
+                    rs -> {
+                        rowsByTable.merge(rs.getString(1), rs.getLong(2), Long::sum);
+                    },
+                    TRACKED_TABLES.toArray()));
+            rowsByTable.forEach((table, rows) -> {
+                AtomicLong gauge = tableRows.get(table);
+                if (gauge != null) {
+                    gauge.set(rows);
+                }
+            });
+        } catch (DataAccessException e) {
+            logger.warn("無法取得資料表列數統計: {}", e.getMessage());
+        }
+    }
+
+    private int archiveBatch(Timestamp cutoff) {
+        // 先鎖住這批訂單，複製與刪除之間不會被修改
+        List<OrderStatusCounter.Transition> removed = new ArrayList<>();
+        List<Long> ids = jdbcTemplate.query(
+                "SELECT id, restaurant_id, status FROM orderr WHERE status IN ('完成', '取消') AND orderr_time < ? ORDER BY id LIMIT ? FOR UPDATE",
+                (rs, rowNum) -> {
+                    removed.add(new OrderStatusCounter.Transition(rs.getLong(2), OrderStatus.valueOf(rs.getString(3)), null));
+                    return rs.getLong(1);
+                },
+                cutoff, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        orderShards.fence(removed.stream().map(OrderStatusCounter.Transition::restaurantId).toList());
+        String in = placeholders(ids.size());
+        Object[] idParams = ids.toArray();
+        List<Object> archiveParams = new ArrayList<>(ids.size() + 1);
+        archiveParams.add(new Timestamp(System.currentTimeMillis()));
+        archiveParams.addAll(ids);
+
+        jdbcTemplate.update("INSERT INTO orderr_archive (id, user_id, restaurant_id, delivery_person_id, delivery_address_id, total_amount, " +
+                        "delivery_fee, status, orderr_time, estimated_delivery_time, completed_time, rating, archived_at) " +
+                        "SELECT id, user_id, restaurant_id, delivery_person_id, delivery_address_id, total_amount, " +
+                        "delivery_fee, status, orderr_time, estimated_delivery_time, completed_time, rating, ? " +
+                        "FROM orderr WHERE id IN (" + in + ")",
+                archiveParams.toArray());
+        jdbcTemplate.update("INSERT INTO orderr_item_archive (id, orderr_id, menu_item_id, quantity, price_at_orderr) " +
+                        "SELECT id, orderr_id, menu_item_id, quantity, price_at_orderr FROM orderr_item WHERE orderr_id IN (" + in + ")",
+                idParams);
+        jdbcTemplate.update("INSERT INTO payment_archive (id, orderr_id, amount, payment_method, transaction_id, status, payment_time) " +
+                        "SELECT id, orderr_id, amount, payment_method, transaction_id, status, payment_time FROM payment WHERE orderr_id IN (" + in + ")",
+                idParams);
+
+        jdbcTemplate.update("DELETE FROM payment WHERE orderr_id IN (" + in + ")", idParams);
+        jdbcTemplate.update("DELETE FROM orderr_item WHERE orderr_id IN (" + in + ")", idParams);
+        jdbcTemplate.update("DELETE FROM orderr WHERE id IN (" + in + ")", idParams);
+        orderStatusCounter.recordAfterCommit(removed);
+        logger.debug("已封存訂單 ID {} 至 {}", ids.get(0), ids.get(ids.size() - 1));
+        return ids.size();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
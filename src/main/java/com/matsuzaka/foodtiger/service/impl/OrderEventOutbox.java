@@ -0,0 +1,108 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matsuzaka.foodtiger.config.id.NodeIdAllocator;
+import com.matsuzaka.foodtiger.event.OrderEventType;
+import com.matsuzaka.foodtiger.event.OrderStatusChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 訂單事件 outbox 的寫入端。
+ *
+ * <p>事件以 JdbcTemplate 寫入 order_event_outbox，沿用呼叫端交易的連線，與訂單狀態變更一起提交或回滾；
+ * 請求交易中只多一次 INSERT，通知、分析、派單等副作用由 OrderEventRelay 在提交後於背景轉送給訂閱者。</p>
+ *
+ * <p>事件 ID 由 Snowflake 產生而不是 AUTO_INCREMENT：啟用訂單分片時事件寫在各分片的 outbox，
+ * 訂閱者收到的事件 ID 仍不會重複。</p>
+ */
+@Component
+public class OrderEventOutbox {
+
+    /**
+     * 一筆待寫入的事件。
+     */
+    public record Entry(OrderEventType type, Long orderId, Long restaurantId, Map<String, Object> payload) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderEventRelay orderEventRelay;
+
+    @Autowired
+    private NodeIdAllocator nodeIdAllocator;
+
+    /**
+     * 在目前交易中寫入一筆事件，必須在交易中呼叫。
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OrderEventType type, Long orderId, Long restaurantId, Map<String, Object> payload) {
+        appendAll(List.of(new Entry(type, orderId, restaurantId, payload)));
+    }
+
+    /**
+     * 在目前交易中批次寫入事件，必須在交易中呼叫。
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            rows.add(new Object[]{nodeIdAllocator.nextId(), entry.type().name(), entry.orderId(), entry.restaurantId(), toJson(entry.payload()), now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO order_event_outbox (id, event_type, order_id, restaurant_id, payload, created_at) VALUES (?, ?, ?, ?, ?, ?)", rows);
+        // 提交後立即喚醒轉送執行緒，不必等到下一次輪詢
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                orderEventRelay.wakeUp();
+            }
+        });
+    }
+
+    /**
+     * 狀態變更事件在變更狀態的交易中同步發佈，於同一交易寫入 outbox。
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        List<Entry> entries = new ArrayList<>(event.changes().size());
+        for (OrderStatusChangedEvent.Change change : event.changes()) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("previousStatus", change.previousStatus().name());
+            payload.put("newStatus", change.newStatus().name());
+            entries.add(new Entry(OrderEventType.STATUS_CHANGED, change.orderId(), change.restaurantId(), payload));
+        }
+        appendAll(entries);
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("無法序列化訂單事件內容", e);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.event.OrderEventSubscriber;
+import com.matsuzaka.foodtiger.event.OrderEventType;
+import com.matsuzaka.foodtiger.event.OrderLifecycleEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 訂單事件 outbox 的轉送端。
+ *
+ * <p>以一條虛擬執行緒在交易提交後 (由 OrderEventOutbox 喚醒) 或每隔 poll-ms 輪詢，
+ * 以 FOR UPDATE SKIP LOCKED 鎖住一批尚未轉送的事件，依序交給所有 OrderEventSubscriber，全部成功才標記為已轉送，
+ * 多節點同時轉送也不會重複取得同一批。</p>
+ *
+ * <p>任一訂閱者失敗時整批回滾 (訂閱者在同一交易中的寫入一併取消)，再把這批對半拆開、各自在新交易中重送，
+ * 直到找出失敗的單筆事件；只有失敗的事件另開交易記錄失敗次數並以指數退避延後重試，同批其他事件照常轉送。
+ * 投遞保證為至少一次；重試中的事件不會擋住後續事件，超過 max-attempts 的事件標記為 dead 並記錄錯誤。</p>
+ *
+ * <p>啟用訂單分片時，事件寫在訂單所在分片的 outbox，轉送、指標與清除都逐一處理每個分片。</p>
+ */
+@Component
+public class OrderEventRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventRelay.class);
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {
+    };
+
+    private record PendingRow(long id, int attempts, OrderLifecycleEvent event) {
+    }
+
+    private record BatchResult(int claimed, int delivered) {
+    }
+
+    private static class DeliveryFailedException extends RuntimeException {
+        final List<PendingRow> rows;
+        final String subscriber;
+
+        DeliveryFailedException(List<PendingRow> rows, String subscriber, Throwable cause) {
+            super(cause);
+            this.rows = rows;
+            this.subscriber = subscriber;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private List<OrderEventSubscriber> subscribers = Collections.emptyList();
+
+    @Value("${app.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.poll-ms:1000}")
+    private long pollMs;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${app.outbox.retention-hours:72}")
+    private long retentionHours;
+
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong oldestPendingAgeMs = new AtomicLong();
+    private TransactionTemplate transactionTemplate;
+    private Timer lagTimer;
+    private Counter deliveredCounter;
+    private Counter deadCounter;
+    private DistributionSummary batchSizeSummary;
+    private volatile boolean running;
+    private Thread worker;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        lagTimer = Timer.builder("foodtiger.outbox.lag")
+                .description("事件從寫入 outbox 到轉送給訂閱者的延遲")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        deliveredCounter = Counter.builder("foodtiger.outbox.delivered").description("已轉送的事件數").register(meterRegistry);
+        deadCounter = Counter.builder("foodtiger.outbox.dead").description("超過重試次數而放棄的事件數").register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("foodtiger.outbox.batch.size").description("每批轉送的事件數").register(meterRegistry);
+        Gauge.builder("foodtiger.outbox.pending", pendingCount, AtomicLong::get)
+                .description("尚未轉送的事件數")
+                .register(meterRegistry);
+        Gauge.builder("foodtiger.outbox.oldest.age", oldestPendingAgeMs, a -> a.get() / 1000.0)
+                .description("最舊一筆尚未轉送事件的等待時間 (秒)")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || worker != null) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofVirtual().name("order-event-relay").start(this::relayLoop);
+        logger.info("訂單事件轉送已啟動，{} 個訂閱者，每批 {} 筆", subscribers.size(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        wakeups.release();
+        try {
+            worker.join(Duration.ofSeconds(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 有新事件提交時呼叫，喚醒轉送執行緒。
+     */
+    public void wakeUp() {
+        wakeups.release();
+    }
+
+    /**
+     * 轉送所有目前可轉送的事件，每個分片直到沒有或不足一批。
+     *
+     * @return 本次成功轉送的事件數
+     */
+    public int relayPending() {
+        int[] total = new int[1];
+        orderShards.forEachShard(shard -> {
+            BatchResult result;
+            do {
+                result = relayBatch();
+                total[0] += result.delivered();
+            } while (result.claimed() == batchSize && running);
+        });
+        return total[0];
+    }
+
+    /**
+     * 定期更新待轉送數量與最舊事件的等待時間 (延遲指標)。
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.metrics-ms:15000}", initialDelayString = "${app.outbox.metrics-ms:15000}")
+    public void refreshLagMetrics() {
+        long[] pending = new long[1];
+        long[] oldestAgeMs = new long[1];
+        orderShards.forEachShard(shard -> jdbcTemplate.query(
+                "SELECT COUNT(*), MIN(created_at) FROM order_event_outbox WHERE published_at IS NULL", rs -> {
+                    pending[0] += rs.getLong(1);
+                    Timestamp oldest = rs.getTimestamp(2);
+                    if (oldest != null) {
+                        oldestAgeMs[0] = Math.max(oldestAgeMs[0], System.currentTimeMillis() - oldest.getTime());
+                    }
+                }));
+        pendingCount.set(pending[0]);
+        oldestPendingAgeMs.set(oldestAgeMs[0]);
+    }
+
+    /**
+     * 刪除已轉送超過保留時間的事件。
+     */
+    @Scheduled(cron = "${app.outbox.purge-cron:0 15 * * * *}")
+    public void purge() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(Duration.ofHours(retentionHours)));
+        int[] purged = new int[1];
+        orderShards.forEachShard(shard ->
+                purged[0] += jdbcTemplate.update("DELETE FROM order_event_outbox WHERE published_at < ?", cutoff));
+        if (purged[0] > 0) {
+            logger.info("已刪除 {} 筆已轉送的訂單事件", purged[0]);
+        }
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                wakeups.tryAcquire(pollMs, TimeUnit.MILLISECONDS);
+                wakeups.drainPermits(); // 多次喚醒合併成一輪
+                relayPending();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("訂單事件轉送失敗，{} ms 後重試", pollMs, e);
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private BatchResult relayBatch() {
+        List<PendingRow> claimed = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                claimed.addAll(claimBatch());
+                deliver(claimed);
+            });
+            recordDelivered(claimed);
+            return new BatchResult(claimed.size(), claimed.size());
+        } catch (DeliveryFailedException e) {
+            return new BatchResult(claimed.size(), isolate(e));
+        }
+    }
+
+    /**
+     * 整批失敗後把失敗的事件對半拆開，各自重新鎖定並在新交易中轉送，直到找出失敗的單筆事件並記錄其失敗。
+     *
+     * @return 拆開後成功轉送的事件數
+     */
+    private int isolate(DeliveryFailedException failure) {
+        if (failure.rows.size() <= 1) {
+            transactionTemplate.executeWithoutResult(status -> recordFailure(failure));
+            return 0;
+        }
+        int half = failure.rows.size() / 2;
+        int delivered = 0;
+        for (List<PendingRow> part : List.of(failure.rows.subList(0, half), failure.rows.subList(half, failure.rows.size()))) {
+            List<PendingRow> relocked = new ArrayList<>();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    relocked.addAll(claimRows(part));
+                    deliver(relocked);
+                });
+                recordDelivered(relocked);
+                delivered += relocked.size();
+            } catch (DeliveryFailedException e) {
+                delivered += isolate(e);
+            }
+        }
+        return delivered;
+    }
+
+    // 在目前交易中把事件交給所有訂閱者並標記為已轉送；任一訂閱者失敗時拋出 DeliveryFailedException 讓交易回滾
+    private void deliver(List<PendingRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<OrderLifecycleEvent> events = rows.stream().map(PendingRow::event).toList();
+        for (OrderEventSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onEvents(events);
+            } catch (Exception e) {
+                throw new DeliveryFailedException(List.copyOf(rows), subscriber.name(), e);
+            }
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate("UPDATE order_event_outbox SET published_at = ? WHERE id = ?",
+                rows.stream().map(row -> new Object[]{now, row.id()}).toList());
+    }
+
+    private void recordDelivered(List<PendingRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (PendingRow row : rows) {
+            lagTimer.record(Duration.between(row.event().createdAt(), now));
+        }
+        deliveredCounter.increment(rows.size());
+        batchSizeSummary.record(rows.size());
+    }
+
+    private List<PendingRow> claimBatch() {
+        return jdbcTemplate.query("SELECT id, event_type, order_id, restaurant_id, payload, created_at, attempts FROM order_event_outbox " +
+                        "WHERE published_at IS NULL AND (next_attempt_at IS NULL OR next_attempt_at <= ?) ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED",
+                this::mapRow, Timestamp.from(Instant.now()), batchSize);
+    }
+
+    // 重新鎖定整批失敗後拆開的事件；回滾後已被其他節點取得或已轉送的略過
+    private List<PendingRow> claimRows(List<PendingRow> rows) {
+        return jdbcTemplate.query("SELECT id, event_type, order_id, restaurant_id, payload, created_at, attempts FROM order_event_outbox " +
+                        "WHERE id IN (" + String.join(", ", Collections.nCopies(rows.size(), "?")) + ") AND published_at IS NULL " +
+                        "ORDER BY id FOR UPDATE SKIP LOCKED",
+                this::mapRow, rows.stream().map(PendingRow::id).toArray());
+    }
+
+    private PendingRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new PendingRow(rs.getLong("id"), rs.getInt("attempts"), new OrderLifecycleEvent(
+                rs.getLong("id"),
+                OrderEventType.valueOf(rs.getString("event_type")),
+                rs.getLong("order_id"),
+                rs.getObject("restaurant_id", Long.class),
+                parsePayload(rs.getString("payload")),
+                rs.getTimestamp("created_at").toInstant()));
+    }
+
+    private void recordFailure(DeliveryFailedException failure) {
+        Throwable cause = failure.getCause();
+        String error = failure.subscriber + ": " + cause;
+        if (error.length() > 500) {
+            error = error.substring(0, 500); // last_error 欄位長度
+        }
+        meterRegistry.counter("foodtiger.outbox.failures", "subscriber", failure.subscriber).increment();
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> retries = new ArrayList<>();
+        List<Object[]> dead = new ArrayList<>();
+        for (PendingRow row : failure.rows) {
+            int attempts = row.attempts() + 1;
+            if (attempts >= maxAttempts) {
+                dead.add(new Object[]{attempts, error, now, row.id()});
+            } else {
+                long backoffMs = retryBaseMs << Math.min(attempts - 1, 16);
+                retries.add(new Object[]{attempts, error, new Timestamp(now.getTime() + backoffMs), row.id()});
+            }
+        }
+        jdbcTemplate.batchUpdate("UPDATE order_event_outbox SET attempts = ?, last_error = ?, next_attempt_at = ? WHERE id = ?", retries);
+        jdbcTemplate.batchUpdate("UPDATE order_event_outbox SET attempts = ?, last_error = ?, published_at = ?, dead = TRUE WHERE id = ?", dead);
+        deadCounter.increment(dead.size());
+        if (!dead.isEmpty()) {
+            logger.error("{} 筆訂單事件重試 {} 次仍失敗，已放棄轉送 (dead = TRUE)", dead.size(), maxAttempts, cause);
+        } else {
+            logger.warn("訂閱者 {} 處理 {} 筆訂單事件失敗，稍後重試", failure.subscriber, failure.rows.size(), cause);
+        }
+    }
+
+    private Map<String, Object> parsePayload(String json) {
+        try {
+            return objectMapper.readValue(json, PAYLOAD_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("無法解析訂單事件內容", e);
+        }
+    }
+}
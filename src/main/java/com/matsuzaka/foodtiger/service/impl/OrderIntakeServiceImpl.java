@@ -0,0 +1,338 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.shard.OrderShardUnavailableException;
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.dao.entity.Orderr;
+import com.matsuzaka.foodtiger.dto.OrderItemRequest;
+import com.matsuzaka.foodtiger.dto.OrderRequest;
+import com.matsuzaka.foodtiger.dto.OrderTicket;
+import com.matsuzaka.foodtiger.exception.MenuItemUnavailableException;
+import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
+import com.matsuzaka.foodtiger.exception.ServiceBusyException;
+import com.matsuzaka.foodtiger.service.OrderIntakeService;
+import com.matsuzaka.foodtiger.service.OrderrService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 非同步下單 (app.order-intake.async-enabled=true)。
+ *
+ * <p>請求執行緒只以記憶體中的菜單快照 (MenuCatalog) 驗證，通過後放入有界佇列並立即回傳憑證，
+ * 不佔用資料庫連線。寫入執行緒從佇列一次取出多筆，在同一個交易內逐筆呼叫 createOrder 後一起提交 (group commit)，
+ * 把尖峰時每筆訂單一個交易、一次提交的成本攤到整批。</p>
+ *
+ * <p>批次中個別訂單的業務驗證失敗 (例如項目剛下架) 只會拒絕該筆；若整批交易因資料庫錯誤回滾，
+ * 則改為逐筆各自的交易重試，找出真正失敗的訂單。憑證在交易提交後才標記為 ACCEPTED。</p>
+ *
+ * <p>啟用訂單分片時，一批訂單依餐廳所在的分片分組，每組各自一個交易。</p>
+ *
+ * <p>佇列與憑證只存在於受理下單的節點的記憶體中：多節點部署時查詢憑證必須回到同一個節點
+ * (負載平衡器需設定黏著路由，或只由單一節點啟用非同步下單)；節點重啟後尚未寫入的訂單與所有憑證都會遺失，
+ * 客戶端需改以訂單列表確認訂單是否已建立。憑證 ID 以節點啟動時產生的代號開頭，
+ * 查詢到其他節點或重啟前發出的憑證時回報明確的錯誤，而不是與已過期的憑證混為一談。</p>
+ */
+@Service
+public class OrderIntakeServiceImpl implements OrderIntakeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeServiceImpl.class);
+
+    private record PendingOrder(OrderTicket ticket, OrderRequest request) {
+    }
+
+    // 寫入結果：成功時 orderr 不為 null，否則 reason 為拒絕原因
+    private record Outcome(Orderr orderr, String reason) {
+    }
+
+    @Value("${app.order-intake.async-enabled:false}")
+    private boolean asyncEnabled;
+
+    @Value("${app.order-intake.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.order-intake.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.order-intake.linger-ms:5}")
+    private long lingerMs;
+
+    @Value("${app.order-intake.writer-threads:1}")
+    private int writerThreads;
+
+    @Value("${app.order-intake.ticket-ttl-ms:600000}")
+    private long ticketTtlMs;
+
+    @Autowired
+    private OrderrService orderrService;
+
+    @Autowired
+    private MenuCatalog menuCatalog;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 本節點本次啟動的代號，作為憑證 ID 的前綴
+    private final String nodeToken = UUID.randomUUID().toString().substring(0, 8);
+    private final Map<String, OrderTicket> tickets = new ConcurrentHashMap<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private BlockingQueue<PendingOrder> queue;
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!asyncEnabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("foodtiger.intake.queue.size", queue, BlockingQueue::size)
+                .description("等待寫入資料庫的訂單數")
+                .register(meterRegistry);
+        acceptedCounter = Counter.builder("foodtiger.intake.accepted").description("已寫入的訂單數").register(meterRegistry);
+        rejectedCounter = Counter.builder("foodtiger.intake.rejected").description("寫入時被拒絕的訂單數").register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < writerThreads; i++) {
+            Thread writer = Thread.ofPlatform().name("order-intake-writer-" + i).start(this::drainLoop);
+            writers.add(writer);
+        }
+        logger.info("非同步下單已啟用，佇列容量 {}，每批最多 {} 筆，寫入執行緒 {} 條", queueCapacity, batchSize, writerThreads);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!asyncEnabled) {
+            return;
+        }
+        running = false; // 寫入執行緒會先把佇列中剩餘的訂單寫完才結束
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        PendingOrder pending;
+        while ((pending = queue.poll()) != null) {
+            reject(pending.ticket(), "系統關閉中，訂單未寫入，請重新下單");
+        }
+    }
+
+    @Override
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    /**
+     * 以記憶體中的菜單快照驗證訂單後放入寫入佇列。
+     *
+     * @param orderRequest 包含訂單詳細資訊的 DTO
+     * @return 狀態為 QUEUED 的訂單憑證
+     * @throws ResourceNotFoundException 如果餐廳不存在或沒有菜單
+     * @throws MenuItemUnavailableException 如果菜單項目不存在、不屬於該餐廳或不可用
+     * @throws ServiceBusyException 如果寫入佇列已滿
+     */
+    @Override
+    public OrderTicket submit(OrderRequest orderRequest)
+            throws ResourceNotFoundException, MenuItemUnavailableException, ServiceBusyException {
+        validate(orderRequest);
+
+        OrderTicket ticket = new OrderTicket();
+        ticket.setTicketId(nodeToken + "-" + UUID.randomUUID());
+        ticket.setUserId(orderRequest.getUserId());
+        ticket.setRestaurantId(orderRequest.getRestaurantId());
+        ticket.setStatus(OrderTicket.Status.QUEUED);
+        ticket.setCreatedAt(LocalDateTime.now());
+
+        tickets.put(ticket.getTicketId(), ticket); // 先登記，寫入執行緒完成時才找得到
+        if (!running || !queue.offer(new PendingOrder(ticket, orderRequest))) {
+            tickets.remove(ticket.getTicketId());
+            logger.warn("下單佇列已滿或寫入執行緒已停止，拒絕用戶 ID {} 的訂單", orderRequest.getUserId());
+            throw new ServiceBusyException("目前訂單量過大，請稍後再試");
+        }
+        logger.info("用戶 ID {} 的訂單已排入佇列，憑證 {}", orderRequest.getUserId(), ticket.getTicketId());
+        return ticket;
+    }
+
+    /**
+     * 查詢本節點發出的憑證。
+     *
+     * @param ticketId 下單時回傳的憑證 ID
+     * @return 訂單憑證
+     * @throws ResourceNotFoundException 如果未啟用非同步下單、憑證不是由本節點本次啟動後發出，或已過期
+     */
+    @Override
+    public OrderTicket findTicket(String ticketId) throws ResourceNotFoundException {
+        if (!asyncEnabled) {
+            throw new ResourceNotFoundException("未啟用非同步下單，沒有訂單憑證可查詢");
+        }
+        OrderTicket ticket = tickets.get(ticketId);
+        if (ticket != null) {
+            return ticket;
+        }
+        if (!ticketId.startsWith(nodeToken + "-")) {
+            logger.warn("憑證 {} 不是由本節點 ({}) 發出", ticketId, nodeToken);
+            throw new ResourceNotFoundException("訂單憑證 " + ticketId + " 不是由目前的節點發出 (可能由其他節點受理，或節點已重啟)，" +
+                    "請改以訂單列表確認訂單是否已建立");
+        }
+        throw new ResourceNotFoundException("訂單憑證 " + ticketId + " 已過期，請改以訂單列表確認訂單是否已建立");
+    }
+
+    /**
+     * 定期移除已完成且超過保存時間的憑證。
+     */
+    @Scheduled(fixedDelayString = "${app.order-intake.ticket-cleanup-ms:60000}")
+    public void evictExpiredTickets() {
+        if (!asyncEnabled) {
+            return;
+        }
+        LocalDateTime threshold = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(ticketTtlMs));
+        tickets.values().removeIf(ticket -> ticket.getCompletedAt() != null && ticket.getCompletedAt().isBefore(threshold));
+    }
+
+    private void validate(OrderRequest orderRequest) throws ResourceNotFoundException, MenuItemUnavailableException {
+        Map<Long, MenuCatalog.Item> menu = menuCatalog.menuOf(orderRequest.getRestaurantId());
+        if (menu.isEmpty()) {
+            logger.warn("下單驗證失敗：餐廳 ID {} 不存在或沒有菜單", orderRequest.getRestaurantId());
+            throw new ResourceNotFoundException("餐廳 ID " + orderRequest.getRestaurantId() + " 未找到");
+        }
+        for (OrderItemRequest itemRequest : orderRequest.getItems()) {
+            MenuCatalog.Item item = menu.get(itemRequest.getMenuItemId());
+            if (item == null) {
+                logger.warn("下單驗證失敗：菜單項目 ID {} 不屬於餐廳 ID {}", itemRequest.getMenuItemId(), orderRequest.getRestaurantId());
+                throw new MenuItemUnavailableException("菜單項目 ID " + itemRequest.getMenuItemId() + " 不屬於餐廳 ID " + orderRequest.getRestaurantId());
+            }
+            if (!item.available()) {
+                logger.warn("下單驗證失敗：菜單項目 '{}' (ID: {}) 不可用", item.title(), item.id());
+                throw new MenuItemUnavailableException("菜單項目 '" + item.title() + "' 不可用");
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+                if (batch.size() < batchSize && lingerMs > 0) {
+                    // 量少時稍等一下，讓同一批多收幾筆
+                    Thread.sleep(lingerMs);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("下單寫入執行緒發生未預期錯誤", e);
+                batch.forEach(pending -> reject(pending.ticket(), "訂單寫入失敗，請重新下單"));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch(List<PendingOrder> batch) {
+        // 啟用訂單分片時依餐廳所在的分片分組，每組一個交易
+        Outcome[] outcomes = new Outcome[batch.size()];
+        Map<Integer, List<Integer>> indexesByShard = new TreeMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                int shard = orderShards.shardOf(batch.get(i).request().getRestaurantId());
+                indexesByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(i);
+            } catch (OrderShardUnavailableException e) {
+                outcomes[i] = new Outcome(null, e.getMessage());
+            }
+        }
+        indexesByShard.forEach((shard, indexes) -> {
+            List<Outcome> groupOutcomes = commitGroup(shard, indexes.stream().map(batch::get).toList());
+            for (int i = 0; i < indexes.size(); i++) {
+                outcomes[indexes.get(i)] = groupOutcomes.get(i);
+            }
+        });
+
+        for (int i = 0; i < batch.size(); i++) {
+            OrderTicket ticket = batch.get(i).ticket();
+            Outcome outcome = outcomes[i];
+            if (outcome.orderr() != null) {
+                ticket.setOrderId(outcome.orderr().getId());
+                ticket.setTotalAmount(outcome.orderr().getTotalAmount());
+                ticket.setCompletedAt(LocalDateTime.now());
+                ticket.setStatus(OrderTicket.Status.ACCEPTED);
+                acceptedCounter.increment();
+            } else {
+                reject(ticket, outcome.reason());
+            }
+        }
+        logger.info("批次寫入完成，共 {} 筆訂單", batch.size());
+    }
+
+    private List<Outcome> commitGroup(int shard, List<PendingOrder> group) {
+        List<Outcome> outcomes = new ArrayList<>(group.size());
+        try {
+            orderShards.inTransaction(shard, false, status -> {
+                for (PendingOrder pending : group) {
+                    try {
+                        // 加入外層交易，整組一起提交
+                        outcomes.add(new Outcome(orderrService.createOrder(pending.request()), null));
+                    } catch (ResourceNotFoundException | MenuItemUnavailableException e) {
+                        outcomes.add(new Outcome(null, e.getMessage()));
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("批次寫入 {} 筆訂單失敗，改為逐筆寫入: {}", group.size(), e.getMessage());
+            outcomes.clear();
+            for (PendingOrder pending : group) {
+                outcomes.add(createSingle(pending.request()));
+            }
+        }
+        return outcomes;
+    }
+
+    private Outcome createSingle(OrderRequest orderRequest) {
+        try {
+            return new Outcome(orderrService.createOrder(orderRequest), null);
+        } catch (ResourceNotFoundException | MenuItemUnavailableException e) {
+            return new Outcome(null, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("用戶 ID {} 的訂單寫入失敗", orderRequest.getUserId(), e);
+            return new Outcome(null, "訂單寫入失敗，請重新下單");
+        }
+    }
+
+    private void reject(OrderTicket ticket, String reason) {
+        ticket.setMessage(reason);
+        ticket.setCompletedAt(LocalDateTime.now());
+        ticket.setStatus(OrderTicket.Status.REJECTED);
+        if (rejectedCounter != null) {
+            rejectedCounter.increment();
+        }
+        logger.warn("憑證 {} 的訂單被拒絕: {}", ticket.getTicketId(), reason);
+    }
+}
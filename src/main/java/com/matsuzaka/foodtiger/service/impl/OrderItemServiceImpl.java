@@ -1,46 +1,56 @@
 package com.matsuzaka.foodtiger.service.impl;
 
+import com.matsuzaka.foodtiger.config.shard.OrderShardKey;
+import com.matsuzaka.foodtiger.config.shard.OrderShardScatter;
 import com.matsuzaka.foodtiger.dao.entity.OrderItem;
 import com.matsuzaka.foodtiger.dao.repository.OrderItemRepository;
 import com.matsuzaka.foodtiger.service.OrderItemService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Transactional(readOnly = true)
 public class OrderItemServiceImpl implements OrderItemService {
 
     @Autowired
     private OrderItemRepository orderItemRepository;
 
     @Override
+    @OrderShardScatter
     public List<OrderItem> findAllOrderItems() {
         return orderItemRepository.findAll();
     }
 
     @Override
+    @OrderShardScatter
     public Optional<OrderItem> findOrderItemById(Long id) {
         return orderItemRepository.findById(id);
     }
 
     @Override
-    public OrderItem saveOrderItem(OrderItem orderItem) {
+    @Transactional
+    public OrderItem saveOrderItem(@OrderShardKey(value = OrderShardKey.Type.ORDER, property = "orderr.id") OrderItem orderItem) {
         return orderItemRepository.save(orderItem);
     }
 
     @Override
+    @Transactional
+    @OrderShardScatter
     public void deleteOrderItem(Long id) {
         orderItemRepository.deleteById(id);
     }
 
     @Override
-    public List<OrderItem> findOrderItemsByOrderrId(Long orderrId) {
+    public List<OrderItem> findOrderItemsByOrderrId(@OrderShardKey(OrderShardKey.Type.ORDER) Long orderrId) {
         return orderItemRepository.findByOrderrId(orderrId);
     }
 
     @Override
+    @OrderShardScatter
     public List<OrderItem> findOrderItemsByMenuItemId(Long menuItemId) {
         return orderItemRepository.findByMenuItemId(menuItemId);
     }
@@ -0,0 +1,277 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.repository.OrderrRepository;
+import com.matsuzaka.foodtiger.dao.repository.OrderrRepositoryCustom.StatusRow;
+import com.matsuzaka.foodtiger.event.OrderEventType;
+import com.matsuzaka.foodtiger.event.OrderStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 訂單時限 (SLA) 計時器。
+ *
+ * <p>每筆未結束的訂單在 HashedWheelTimer 上有一個計時器，時限一律從下單時間起算：
+ * 處理中超過 processing-timeout-ms (餐廳一直沒有接單) 自動取消；準備中超過 preparing-timeout-ms、
+ * 運送中超過 delivering-timeout-ms 時寫入 SLA_BREACHED 事件通報。訂單建立與每次狀態變更 (提交後) 換成新狀態的計時器，
+ * 進入完成或取消時移除，排程與取消都是 O(1)，不需要定期掃描訂單表。</p>
+ *
+ * <p>到期時在交易中鎖住訂單並確認狀態仍與排程時相同才處理，計時器與實際狀態不一致 (其他節點已變更、重建時讀到舊資料) 時直接略過。
+ * 計時器只在記憶體中，啟動時由資料庫重建；多節點部署時每個節點都會重建，自動取消只會成功一次，
+ * 通報則可能由多個節點各寫一次。</p>
+ */
+@Component
+public class OrderSlaTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSlaTimer.class);
+
+    private enum Action {
+        CANCELLED, ESCALATED
+    }
+
+    private record PendingOrder(long id, OrderStatus status, Timestamp orderrTime) {
+    }
+
+    private static final class Scheduled {
+        final OrderStatus status;
+        final long orderrTimeMillis;
+        volatile HashedWheelTimer.Timeout timeout;
+
+        Scheduled(OrderStatus status, long orderrTimeMillis) {
+            this.status = status;
+            this.orderrTimeMillis = orderrTimeMillis;
+        }
+    }
+
+    @Autowired
+    private OrderrRepository orderrRepository;
+
+    @Autowired
+    private RestaurantSalesRollup restaurantSalesRollup;
+
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.sla.processing-timeout-ms:900000}")
+    private long processingTimeoutMs;
+
+    @Value("${app.sla.preparing-timeout-ms:3600000}")
+    private long preparingTimeoutMs;
+
+    @Value("${app.sla.delivering-timeout-ms:7200000}")
+    private long deliveringTimeoutMs;
+
+    @Value("${app.sla.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.sla.wheel-size:4096}")
+    private int wheelSize;
+
+    @Value("${app.sla.handler-threads:2}")
+    private int handlerThreads;
+
+    @Value("${app.sla.rebuild-batch-size:5000}")
+    private int rebuildBatchSize;
+
+    private final Map<Long, Scheduled> scheduledByOrderId = new ConcurrentHashMap<>();
+    private ExecutorService handlerExecutor;
+    private HashedWheelTimer timer;
+
+    @PostConstruct
+    public void init() {
+        handlerExecutor = Executors.newFixedThreadPool(handlerThreads, Thread.ofPlatform().name("order-sla-", 0).daemon().factory());
+        timer = new HashedWheelTimer(tickMs, wheelSize, handlerExecutor, "order-sla-wheel");
+        Gauge.builder("foodtiger.order.sla.pending", timer, HashedWheelTimer::pending)
+                .description("尚未到期的訂單時限計時器數")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.stop();
+        handlerExecutor.shutdown();
+    }
+
+    /**
+     * 訂單建立後呼叫；在交易中時於提交後才排程，回滾的訂單不會留下計時器。
+     */
+    public void scheduleAfterCommit(Long orderId, OrderStatus status, Date orderrTime) {
+        long orderrTimeMillis = orderrTime != null ? orderrTime.getTime() : System.currentTimeMillis();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(orderId, status, orderrTimeMillis);
+                }
+            });
+        } else {
+            schedule(orderId, status, orderrTimeMillis);
+        }
+    }
+
+    /**
+     * 狀態變更提交後換成新狀態的計時器；這個節點沒有計時器的訂單 (其他節點建立) 才查一次下單時間。
+     */
+    @TransactionalEventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        for (OrderStatusChangedEvent.Change change : event.changes()) {
+            Scheduled current = scheduledByOrderId.get(change.orderId());
+            Long orderrTimeMillis = current != null ? Long.valueOf(current.orderrTimeMillis)
+                    : findOrderrTimeMillis(change.orderId(), change.restaurantId());
+            if (orderrTimeMillis == null) {
+                continue;
+            }
+            schedule(change.orderId(), change.newStatus(), orderrTimeMillis);
+        }
+    }
+
+    /**
+     * 啟動時從資料庫 (每個分片) 依 ID 分批重建所有未結束訂單的計時器；已經過期的在下一個 tick 處理。
+     * 重建期間收到的狀態變更較新，不會被重建時讀到的舊狀態覆蓋。
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long[] count = new long[1];
+        orderShards.forEachShard(shard -> {
+            long lastId = 0;
+            while (true) {
+                List<PendingOrder> rows = jdbcTemplate.query(
+                        "SELECT id, status, orderr_time FROM orderr WHERE id > ? AND status IN (?, ?, ?) ORDER BY id LIMIT ?",
+                        (rs, rowNum) -> new PendingOrder(rs.getLong(1), OrderStatus.valueOf(rs.getString(2)), rs.getTimestamp(3)),
+                        lastId, OrderStatus.處理中.name(), OrderStatus.準備中.name(), OrderStatus.運送中.name(), rebuildBatchSize);
+                for (PendingOrder row : rows) {
+                    long orderrTimeMillis = row.orderrTime() != null ? row.orderrTime().getTime() : System.currentTimeMillis();
+                    if (timeoutOf(row.status()) > 0) {
+                        long delay = deadlineOf(row.status(), orderrTimeMillis) - System.currentTimeMillis();
+                        scheduledByOrderId.computeIfAbsent(row.id(), id -> newScheduled(id, row.status(), orderrTimeMillis, delay));
+                        count[0]++;
+                    }
+                    lastId = row.id();
+                }
+                if (rows.size() < rebuildBatchSize) {
+                    break;
+                }
+            }
+        });
+        logger.info("已從資料庫重建 {} 筆訂單的時限計時器", count[0]);
+    }
+
+    private void schedule(Long orderId, OrderStatus status, long orderrTimeMillis) {
+        Scheduled previous;
+        if (timeoutOf(status) <= 0) {
+            previous = scheduledByOrderId.remove(orderId); // 已結束或未設定時限的狀態
+        } else {
+            long delay = deadlineOf(status, orderrTimeMillis) - System.currentTimeMillis();
+            previous = scheduledByOrderId.put(orderId, newScheduled(orderId, status, orderrTimeMillis, delay));
+        }
+        if (previous != null) {
+            previous.timeout.cancel();
+        }
+    }
+
+    private Scheduled newScheduled(Long orderId, OrderStatus status, long orderrTimeMillis, long delay) {
+        Scheduled scheduled = new Scheduled(status, orderrTimeMillis);
+        scheduled.timeout = timer.schedule(() -> onExpired(orderId, scheduled), delay);
+        return scheduled;
+    }
+
+    private void onExpired(Long orderId, Scheduled scheduled) {
+        if (!scheduledByOrderId.remove(orderId, scheduled)) {
+            return; // 已換成新狀態的計時器
+        }
+        OrderStatus expected = scheduled.status;
+        Action action = expected == OrderStatus.處理中 ? Action.CANCELLED : Action.ESCALATED;
+        try {
+            Boolean handled = orderShards.inTransaction(orderShards.shardOfOrder(orderId), false, tx -> {
+                List<StatusRow> rows = orderrRepository.lockStatusRows(List.of(orderId));
+                if (rows.isEmpty() || rows.get(0).status() != expected) {
+                    return false;
+                }
+                StatusRow row = rows.get(0);
+                orderShards.fence(List.of(row.restaurantId()));
+                if (action == Action.CANCELLED) {
+                    orderrRepository.updateStatus(List.of(orderId), OrderStatus.取消);
+                    restaurantSalesRollup.recordCancellationAfterCommit(row.restaurantId(),
+                            row.orderrTime() != null ? row.orderrTime().toLocalDateTime() : LocalDateTime.now(), row.totalAmount());
+                    eventPublisher.publishEvent(new OrderStatusChangedEvent(List.of(
+                            new OrderStatusChangedEvent.Change(orderId, row.restaurantId(), expected, OrderStatus.取消))));
+                }
+                orderEventOutbox.append(OrderEventType.SLA_BREACHED, orderId, row.restaurantId(),
+                        Map.of("status", expected.name(), "action", action.name()));
+                return true;
+            });
+            if (Boolean.TRUE.equals(handled)) {
+                Counter.builder("foodtiger.order.sla.breached").tag("status", expected.name()).tag("action", action.name())
+                        .register(meterRegistry).increment();
+                logger.warn("訂單 ID {} 在 {} 狀態超過時限，已{}", orderId, expected, action == Action.CANCELLED ? "自動取消" : "通報");
+            }
+        } catch (RuntimeException e) {
+            logger.error("處理訂單 ID {} 的時限到期失敗，{} 毫秒後重試", orderId, tickMs * 60, e);
+            scheduledByOrderId.computeIfAbsent(orderId, id -> newScheduled(id, expected, scheduled.orderrTimeMillis, tickMs * 60));
+        }
+    }
+
+    private long deadlineOf(OrderStatus status, long orderrTimeMillis) {
+        return orderrTimeMillis + timeoutOf(status);
+    }
+
+    private long timeoutOf(OrderStatus status) {
+        return switch (status) {
+            case 處理中 -> processingTimeoutMs;
+            case 準備中 -> preparingTimeoutMs;
+            case 運送中 -> deliveringTimeoutMs;
+            default -> 0;
+        };
+    }
+
+    // 在提交後的事件中呼叫，原交易的連線可能仍綁在執行緒上，分片時直接連到餐廳所在的分片
+    private Long findOrderrTimeMillis(Long orderId, Long restaurantId) {
+        JdbcTemplate shardJdbcTemplate = orderShards.isSharded()
+                ? orderShards.jdbcTemplate(restaurantId != null ? orderShards.shardOf(restaurantId) : orderShards.shardOfOrder(orderId))
+                : jdbcTemplate;
+        List<Timestamp> times = shardJdbcTemplate.queryForList("SELECT orderr_time FROM orderr WHERE id = ?", Timestamp.class, orderId);
+        if (times.isEmpty()) {
+            return null;
+        }
+        return times.get(0) != null ? times.get(0).getTime() : System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,254 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.event.OrderStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 各餐廳、各狀態的訂單數 (只計 orderr 表，不含已封存的訂單)。
+ *
+ * <p>每間餐廳每個狀態一個 LongAdder (分段累加，多執行緒同時更新不會互相競爭)，另外保留全部餐廳的合計；
+ * 訂單建立、狀態變更 (提交後) 與封存時增減，查詢只讀記憶體，不需要載入訂單。</p>
+ *
+ * <p>啟動時及每隔 reconcile-ms 以一次 GROUP BY 重建計數，修正其他管道 (例如管理員直接修改或刪除訂單、
+ * 多節點部署時其他節點的變更) 造成的偏差。無法得知查詢的快照包含哪些剛提交的異動，因此只修正掃描期間
+ * 沒有異動、也沒有提交中交易的餐廳 (記憶體與快照必定對應同一組已提交的異動)，其餘餐廳留到下一輪，
+ * 不會把同一筆異動計入兩次。</p>
+ */
+@Component
+public class OrderStatusCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusCounter.class);
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    /**
+     * 一筆訂單的狀態異動；previousStatus 為 null 表示新建立，newStatus 為 null 表示移出 orderr 表。
+     */
+    public record Transition(Long restaurantId, OrderStatus previousStatus, OrderStatus newStatus) {
+    }
+
+    private static final class Counts {
+        final LongAdder[] byStatus = new LongAdder[STATUSES.length];
+
+        Counts() {
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] = new LongAdder();
+            }
+        }
+
+        void apply(Transition transition) {
+            if (transition.previousStatus() != null) {
+                byStatus[transition.previousStatus().ordinal()].decrement();
+            }
+            if (transition.newStatus() != null) {
+                byStatus[transition.newStatus().ordinal()].increment();
+            }
+        }
+
+        Map<OrderStatus, Long> toMap() {
+            Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+            for (OrderStatus status : STATUSES) {
+                counts.put(status, Math.max(0, byStatus[status.ordinal()].sum()));
+            }
+            return counts;
+        }
+
+        boolean sameAs(Counts other) {
+            for (int i = 0; i < byStatus.length; i++) {
+                if (byStatus[i].sum() != other.byStatus[i].sum()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    private final ConcurrentHashMap<Long, Counts> countsByRestaurantId = new ConcurrentHashMap<>();
+    private volatile Counts totals = new Counts();
+
+    // 掃描期間有異動的餐廳，以及交易已進入提交、尚未計入記憶體的餐廳，這一輪都不修正
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private final Set<Long> touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Long, AtomicInteger> committingByRestaurantId = new ConcurrentHashMap<>();
+    private volatile boolean rebuilding;
+    private boolean loaded; // 啟動時第一次重建不算偏差
+    private Counter driftCounter;
+
+    @PostConstruct
+    public void init() {
+        driftCounter = Counter.builder("foodtiger.order.counts.drift")
+                .description("重建時與記憶體中計數不同的餐廳數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 訂單建立或移出 orderr 表 (封存) 後呼叫；在交易中時於提交後才計入。
+     */
+    public void recordAfterCommit(List<Transition> transitions) {
+        if (transitions.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    transitions.forEach(transition -> committingByRestaurantId
+                            .computeIfAbsent(transition.restaurantId(), id -> new AtomicInteger()).incrementAndGet());
+                }
+
+                @Override
+                public void afterCommit() {
+                    transitions.forEach(OrderStatusCounter.this::apply);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    transitions.forEach(transition -> committingByRestaurantId.computeIfPresent(transition.restaurantId(),
+                            (id, committing) -> committing.decrementAndGet() > 0 ? committing : null));
+                }
+            });
+        } else {
+            transitions.forEach(this::apply);
+        }
+    }
+
+    /**
+     * 狀態變更事件在變更狀態的交易中同步發佈，提交後計入。
+     */
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        recordAfterCommit(event.changes().stream()
+                .map(change -> new Transition(change.restaurantId(), change.previousStatus(), change.newStatus()))
+                .toList());
+    }
+
+    /**
+     * @param restaurantId 餐廳 ID；null 時為全部餐廳的合計
+     * @return 各狀態的訂單數，沒有訂單的狀態為 0
+     */
+    public Map<OrderStatus, Long> counts(Long restaurantId) {
+        Counts counts = restaurantId != null ? countsByRestaurantId.get(restaurantId) : totals;
+        return (counts != null ? counts : new Counts()).toMap();
+    }
+
+    /**
+     * 以 GROUP BY 重建所有餐廳的計數，啟動時及定期執行；啟用訂單分片時逐一查詢各分片後加總。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.order-counts.reconcile-ms:300000}", initialDelayString = "${app.order-counts.reconcile-ms:300000}")
+    public synchronized void reconcile() {
+        rebuildLock.writeLock().lock();
+        try {
+            touchedDuringRebuild.clear();
+            rebuilding = true;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+
+        Map<Long, Counts> snapshot = new HashMap<>();
+        try {
+            orderShards.forEachShard(shard -> jdbcTemplate.query(
+                    "SELECT restaurant_id, status, COUNT(*) FROM orderr GROUP BY restaurant_id, status",
+                    rs -> {
+                        snapshot.computeIfAbsent(rs.getLong(1), id -> new Counts())
+                                .byStatus[OrderStatus.valueOf(rs.getString(2)).ordinal()].add(rs.getLong(3));
+                    }));
+        } catch (RuntimeException e) {
+            rebuilding = false;
+            throw e;
+        }
+
+        rebuildLock.writeLock().lock();
+        try {
+            Set<Long> restaurantIds = new HashSet<>(snapshot.keySet());
+            restaurantIds.addAll(countsByRestaurantId.keySet());
+            Counts empty = new Counts();
+            List<Long> drifted = new ArrayList<>();
+            int deferred = 0;
+            for (Long restaurantId : restaurantIds) {
+                Counts current = countsByRestaurantId.getOrDefault(restaurantId, empty);
+                Counts scanned = snapshot.getOrDefault(restaurantId, empty);
+                if (current.sameAs(scanned)) {
+                    continue;
+                }
+                if (touchedDuringRebuild.contains(restaurantId) || committingByRestaurantId.containsKey(restaurantId)) {
+                    deferred++; // 無法判斷快照是否已包含這些異動，下一輪再比對
+                    continue;
+                }
+                drifted.add(restaurantId);
+                if (scanned == empty) {
+                    countsByRestaurantId.remove(restaurantId);
+                } else {
+                    countsByRestaurantId.put(restaurantId, scanned);
+                }
+            }
+            Counts recomputedTotals = new Counts();
+            countsByRestaurantId.values().forEach(counts -> {
+                for (int i = 0; i < STATUSES.length; i++) {
+                    recomputedTotals.byStatus[i].add(counts.byStatus[i].sum());
+                }
+            });
+            totals = recomputedTotals;
+            rebuilding = false;
+            touchedDuringRebuild.clear();
+            if (!loaded) {
+                loaded = true;
+                logger.info("訂單狀態計數載入完成，共 {} 間餐廳", countsByRestaurantId.size());
+            } else if (!drifted.isEmpty() || deferred > 0) {
+                driftCounter.increment(drifted.size());
+                logger.info("訂單狀態計數重建完成，共 {} 間餐廳，已修正 {} 間與記憶體中不同的計數，{} 間掃描期間有異動留待下一輪",
+                        countsByRestaurantId.size(), drifted.size(), deferred);
+            }
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Transition transition) {
+        rebuildLock.readLock().lock();
+        try {
+            countsByRestaurantId.computeIfAbsent(transition.restaurantId(), id -> new Counts()).apply(transition);
+            totals.apply(transition);
+            if (rebuilding) {
+                touchedDuringRebuild.add(transition.restaurantId());
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package com.matsuzaka.foodtiger.service.impl;
 
+import com.matsuzaka.foodtiger.config.datasource.RecentWriteTracker;
+import com.matsuzaka.foodtiger.config.logging.SampledLogFilter;
+import com.matsuzaka.foodtiger.config.shard.OrderShardKey;
+import com.matsuzaka.foodtiger.config.shard.OrderShardScatter;
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
 import com.matsuzaka.foodtiger.dao.entity.*;
 import com.matsuzaka.foodtiger.dao.repository.*;
+import com.matsuzaka.foodtiger.dao.repository.OrderrRepositoryCustom.ClaimCandidate;
+import com.matsuzaka.foodtiger.dto.BulkOrderStatusUpdateResult;
+import com.matsuzaka.foodtiger.dto.BulkOrderStatusUpdateResult.Outcome;
+import com.matsuzaka.foodtiger.dto.CourierSuggestion;
 import com.matsuzaka.foodtiger.dto.DeliveryAssignmentRequest;
 import com.matsuzaka.foodtiger.dto.OrderItemRequest;
 import com.matsuzaka.foodtiger.dto.OrderRequest;
+import com.matsuzaka.foodtiger.dto.OrderStatusCounts;
 import com.matsuzaka.foodtiger.dto.OrderStatusUpdateRequest;
+import com.matsuzaka.foodtiger.event.OrderEventType;
+import com.matsuzaka.foodtiger.event.OrderStatusChangedEvent;
 import com.matsuzaka.foodtiger.exception.InvalidOperationException;
 import com.matsuzaka.foodtiger.exception.InvalidOrderStatusTransitionException;
 import com.matsuzaka.foodtiger.exception.MenuItemUnavailableException;
@@ -15,17 +27,51 @@ import com.matsuzaka.foodtiger.service.OrderrService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
+@Transactional(readOnly = true) // 查詢預設走讀庫，寫入方法各自標註 @Transactional
 public class OrderrServiceImpl implements OrderrService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderrServiceImpl.class);
 
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // 與 findOrderrsByStatus 的排序一致，合併各分片的分頁結果時使用
+    private static final Comparator<Orderr> NEWEST_FIRST = Comparator
+            .comparing(Orderr::getOrderrTime, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Orderr::getId, Comparator.reverseOrder());
+
+    // 與 findClaimCandidates 的排序一致
+    private static final Comparator<ClaimCandidate> OLDEST_CANDIDATE_FIRST = Comparator
+            .comparing(ClaimCandidate::orderrTime, Comparator.nullsFirst(Comparator.<Date>naturalOrder()))
+            .thenComparing(ClaimCandidate::id);
+
     @Autowired
     private OrderrRepository orderrRepository;
     @Autowired
@@ -38,53 +84,113 @@ public class OrderrServiceImpl implements OrderrService {
     private MenuItemRepository menuItemRepository;
     @Autowired
     private OrderItemRepository orderItemRepository;
+    @Autowired
+    private RecentWriteTracker recentWriteTracker;
+    @Autowired
+    private RestaurantRatingAggregator restaurantRatingAggregator;
+    @Autowired
+    private RestaurantSalesRollup restaurantSalesRollup;
+    @Autowired
+    private PopularMenuItemTracker popularMenuItemTracker;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
+    @Autowired
+    private CourierGeoIndex courierGeoIndex;
+    @Autowired
+    private OrderSlaTimer orderSlaTimer;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderShards orderShards;
+
+    @Value("${app.claim.candidate-window:20}")
+    private int claimCandidateWindow;
 
     @Override
+    @OrderShardScatter
     public List<Orderr> findAllOrderrs() {
-        logger.info("正在查詢所有訂單");
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢所有訂單");
         return orderrRepository.findAll();
     }
 
     @Override
-    public Optional<Orderr> findOrderrById(Long id) {
-        logger.info("正在查詢 ID 為 {} 的訂單", id);
-        return orderrRepository.findById(id);
+    public Optional<Orderr> findOrderrById(@OrderShardKey(OrderShardKey.Type.ORDER) Long id) {
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢 ID 為 {} 的訂單", id);
+        return orderrRepository.findByIdIncludingArchive(id);
     }
 
     @Override
-    public Orderr saveOrderr(Orderr orderr) {
+    @Transactional
+    public Orderr saveOrderr(@OrderShardKey(property = "restaurant.id") Orderr orderr) {
         logger.info("正在保存訂單 ID: {}", orderr.getId());
+        if (orderr.isArchived()) {
+            // 封存的訂單已不在 orderr 表，merge 會新增一筆同內容的訂單
+            throw new IllegalStateException("訂單 ID " + orderr.getId() + " 已封存，不可修改");
+        }
         return orderrRepository.save(orderr);
     }
 
     @Override
-    public void deleteOrderr(Long id) {
+    @Transactional
+    public void deleteOrderr(@OrderShardKey(OrderShardKey.Type.ORDER) Long id) {
         logger.warn("正在刪除 ID 為 {} 的訂單", id);
         orderrRepository.deleteById(id);
     }
 
     @Override
+    @OrderShardScatter
     public List<Orderr> findOrderrsByUserId(Long userId) {
-        logger.info("正在查詢用戶 ID 為 {} 的訂單", userId);
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢用戶 ID 為 {} 的訂單", userId);
         return orderrRepository.findByUserId(userId);
     }
 
     @Override
-    public List<Orderr> findOrderrsByRestaurantId(Long restaurantId) {
-        logger.info("正在查詢餐廳 ID 為 {} 的訂單", restaurantId);
+    public List<Orderr> findOrderrsByRestaurantId(@OrderShardKey Long restaurantId) {
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢餐廳 ID 為 {} 的訂單", restaurantId);
         return orderrRepository.findByRestaurantId(restaurantId);
     }
 
     @Override
+    @OrderShardScatter
     public List<Orderr> findOrderrsByDeliveryPersonId(Long deliveryPersonId) {
-        logger.info("正在查詢外送員 ID 為 {} 的訂單", deliveryPersonId);
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢外送員 ID 為 {} 的訂單", deliveryPersonId);
         return orderrRepository.findByDeliveryPersonId(deliveryPersonId);
     }
 
+    /**
+     * 依查詢者的角色查詢某狀態的訂單：顧客只查自己的訂單，餐廳擁有者只查自己餐廳的訂單，外送員只查指派給自己的訂單，
+     * 管理員查全部；依下單時間由新到舊分頁。啟用訂單分片時分散查詢各分片再合併 (OrderShards.scatterPage)。
+     *
+     * @param userId 查詢者 ID
+     * @param role 查詢者角色
+     * @param page 頁碼，從 0 開始
+     * @param size 每頁筆數，最多 MAX_PAGE_SIZE
+     */
     @Override
-    public List<Orderr> findOrderrsByStatus(OrderStatus status) {
-        logger.info("正在查詢狀態為 {} 的訂單", status);
-        return orderrRepository.findByStatus(status);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 每個分片各自一個唯讀交易
+    public Page<Orderr> findOrderrsByStatus(OrderStatus status, Long userId, Role role, int page, int size) {
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢狀態為 {} 的訂單，查詢者 ID {} ({})，第 {} 頁", status, userId, role, page);
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+                Sort.by(Sort.Order.desc("orderrTime"), Sort.Order.desc("id")));
+        return orderShards.scatterPage(pageable, NEWEST_FIRST, shardPageable -> switch (role) {
+            case CUSTOMER -> orderrRepository.findByUserIdAndStatus(userId, status, shardPageable);
+            case RESTAURANT_OWNER -> orderrRepository.findByRestaurantOwnerIdAndStatus(userId, status, shardPageable);
+            case DELIVER -> orderrRepository.findByDeliveryPersonIdAndStatus(userId, status, shardPageable);
+            case ADMIN -> orderrRepository.findByStatus(status, shardPageable);
+        });
+    }
+
+    /**
+     * 各狀態的訂單數，直接讀記憶體中的計數 (OrderStatusCounter)，不查詢資料庫。
+     *
+     * @param restaurantId 餐廳 ID；null 時為全部餐廳的合計
+     */
+    @Override
+    public OrderStatusCounts countOrderrsByStatus(Long restaurantId) {
+        Map<OrderStatus, Long> counts = orderStatusCounter.counts(restaurantId);
+        return new OrderStatusCounts(restaurantId, counts, counts.values().stream().mapToLong(Long::longValue).sum());
     }
 
     /**
@@ -99,7 +205,7 @@ public class OrderrServiceImpl implements OrderrService {
      */
     @Override
     @Transactional // 確保訂單創建和訂單項目保存的原子性
-    public Orderr createOrder(OrderRequest orderRequest) throws ResourceNotFoundException, MenuItemUnavailableException {
+    public Orderr createOrder(@OrderShardKey(property = "restaurantId") OrderRequest orderRequest) throws ResourceNotFoundException, MenuItemUnavailableException {
         logger.info("收到創建新訂單的請求，用戶 ID: {}, 餐廳 ID: {}", orderRequest.getUserId(), orderRequest.getRestaurantId());
 
         // 1. 驗證用戶
@@ -168,6 +274,18 @@ public class OrderrServiceImpl implements OrderrService {
 
         newOrderr.setTotalAmount(totalAmount);
         Orderr savedOrderr = orderrRepository.save(newOrderr); // 保存訂單和所有關聯的訂單項目
+        orderShards.remember(savedOrderr.getId(), restaurant.getId()); // 之後依訂單 ID 路由時不必查詢各分片
+        restaurantSalesRollup.recordOrderAfterCommit(restaurant.getId(), orderrTimeOf(savedOrderr),
+                savedOrderr.getTotalAmount(), savedOrderr.getDeliveryFee()); // 提交後累加，批次寫入銷售彙總
+        popularMenuItemTracker.recordAfterCommit(restaurant.getId(), savedOrderr.getOrderItems());
+        orderSlaTimer.scheduleAfterCommit(savedOrderr.getId(), savedOrderr.getStatus(), savedOrderr.getOrderrTime());
+        orderStatusCounter.recordAfterCommit(List.of(new OrderStatusCounter.Transition(restaurant.getId(), null, savedOrderr.getStatus())));
+        recentWriteTracker.markWrite(user.getId()); // 接下來查詢訂單、付款時改讀主庫，避免讀庫尚未同步
+        orderEventOutbox.append(OrderEventType.ORDER_CREATED, savedOrderr.getId(), restaurant.getId(), Map.of(
+                "userId", user.getId(),
+                "totalAmount", savedOrderr.getTotalAmount(),
+                "deliveryFee", savedOrderr.getDeliveryFee(),
+                "itemCount", savedOrderr.getOrderItems().size()));
 
         logger.info("新訂單 ID {} 創建成功，總金額為 {}", savedOrderr.getId(), savedOrderr.getTotalAmount());
         return savedOrderr;
@@ -188,7 +306,7 @@ public class OrderrServiceImpl implements OrderrService {
      */
     @Override
     @Transactional
-    public Orderr updateOrderStatus(Long orderId, OrderStatusUpdateRequest request, Long restaurantOwnerId)
+    public Orderr updateOrderStatus(@OrderShardKey(OrderShardKey.Type.ORDER) Long orderId, OrderStatusUpdateRequest request, Long restaurantOwnerId)
             throws ResourceNotFoundException, InvalidOrderStatusTransitionException, UnauthorizedException {
         logger.info("嘗試更新訂單 ID {} 的狀態為 {}，操作者為餐廳擁有者 ID {}", orderId, request.getNewStatus(), restaurantOwnerId);
 
@@ -216,10 +334,89 @@ public class OrderrServiceImpl implements OrderrService {
 
         orderr.setStatus(newStatus);
         Orderr updatedOrderr = orderrRepository.save(orderr);
+        if (newStatus == OrderStatus.取消) {
+            restaurantSalesRollup.recordCancellationAfterCommit(orderr.getRestaurant().getId(), orderrTimeOf(orderr), orderr.getTotalAmount());
+        }
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(List.of(
+                new OrderStatusChangedEvent.Change(orderId, orderr.getRestaurant().getId(), currentStatus, newStatus))));
         logger.info("訂單 ID {} 狀態成功更新為 {}", orderId, newStatus);
         return updatedOrderr;
     }
 
+    /**
+     * 批次更新多筆訂單的狀態 (餐廳擁有者)。
+     * 以一次查詢鎖住所有訂單並檢查所屬餐廳與狀態轉換，符合條件的以一次 UPDATE 更新，
+     * 其餘訂單不受影響，各自回傳失敗原因；狀態變更事件合併成一個發佈。
+     * 啟用訂單分片時依訂單所在的分片分組，每個分片各自一個交易。
+     *
+     * @param orderIds 訂單 ID 列表，重複的 ID 只處理一次
+     * @param newStatus 新狀態
+     * @param restaurantOwnerId 執行操作的餐廳擁有者 ID
+     * @return 每筆訂單的結果，順序與輸入相同
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BulkOrderStatusUpdateResult> bulkUpdateOrderStatus(List<Long> orderIds, OrderStatus newStatus, Long restaurantOwnerId) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(orderIds);
+        logger.info("嘗試批次更新 {} 筆訂單的狀態為 {}，操作者為餐廳擁有者 ID {}", uniqueIds.size(), newStatus, restaurantOwnerId);
+
+        Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+        for (Long orderId : uniqueIds) {
+            idsByShard.computeIfAbsent(orderShards.shardOfOrder(orderId), shard -> new ArrayList<>()).add(orderId);
+        }
+        Map<Long, BulkOrderStatusUpdateResult> resultsById = new HashMap<>();
+        idsByShard.forEach((shard, ids) -> resultsById.putAll(orderShards.inTransaction(shard, false,
+                tx -> bulkUpdateOrderStatusOnShard(ids, newStatus, restaurantOwnerId))));
+
+        List<BulkOrderStatusUpdateResult> results = uniqueIds.stream().map(resultsById::get).toList();
+        long updated = results.stream().filter(result -> result.getOutcome() == Outcome.UPDATED).count();
+        if (updated == 0) {
+            logger.warn("批次更新訂單狀態：{} 筆訂單皆未更新", uniqueIds.size());
+        } else {
+            logger.info("批次更新訂單狀態完成：{} 筆更新為 {}，{} 筆未更新", updated, newStatus, uniqueIds.size() - updated);
+        }
+        return results;
+    }
+
+    // 在目前分片的交易中鎖住、檢查並更新同一分片上的訂單
+    private Map<Long, BulkOrderStatusUpdateResult> bulkUpdateOrderStatusOnShard(Collection<Long> orderIds, OrderStatus newStatus,
+                                                                                Long restaurantOwnerId) {
+        Map<Long, OrderrRepositoryCustom.StatusRow> rowsById = orderrRepository.lockStatusRows(orderIds).stream()
+                .collect(Collectors.toMap(OrderrRepositoryCustom.StatusRow::id, Function.identity()));
+        orderShards.fence(rowsById.values().stream().map(OrderrRepositoryCustom.StatusRow::restaurantId).toList());
+
+        Map<Long, BulkOrderStatusUpdateResult> results = new HashMap<>();
+        List<OrderrRepositoryCustom.StatusRow> updatable = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            OrderrRepositoryCustom.StatusRow row = rowsById.get(orderId);
+            if (row == null) {
+                results.put(orderId, new BulkOrderStatusUpdateResult(orderId, Outcome.NOT_FOUND, null, "訂單 ID " + orderId + " 未找到"));
+            } else if (!row.ownerId().equals(restaurantOwnerId)) {
+                results.put(orderId, new BulkOrderStatusUpdateResult(orderId, Outcome.UNAUTHORIZED, null, "您無權修改此訂單的狀態"));
+            } else if (!isValidStatusTransition(row.status(), newStatus)) {
+                results.put(orderId, new BulkOrderStatusUpdateResult(orderId, Outcome.INVALID_TRANSITION, row.status(),
+                        "無效的訂單狀態轉換：從 " + row.status() + " 到 " + newStatus));
+            } else {
+                updatable.add(row);
+                results.put(orderId, new BulkOrderStatusUpdateResult(orderId, Outcome.UPDATED, row.status(), null));
+            }
+        }
+        if (updatable.isEmpty()) {
+            return results;
+        }
+
+        orderrRepository.updateStatus(updatable.stream().map(OrderrRepositoryCustom.StatusRow::id).toList(), newStatus);
+        List<OrderStatusChangedEvent.Change> changes = new ArrayList<>(updatable.size());
+        for (OrderrRepositoryCustom.StatusRow row : updatable) {
+            if (newStatus == OrderStatus.取消) {
+                restaurantSalesRollup.recordCancellationAfterCommit(row.restaurantId(), orderrTimeOf(row.orderrTime()), row.totalAmount());
+            }
+            changes.add(new OrderStatusChangedEvent.Change(row.id(), row.restaurantId(), row.status(), newStatus));
+        }
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(changes));
+        return results;
+    }
+
     /**
      * 指派外送員給訂單。
      * 僅限訂單狀態為「準備中」時可指派。
@@ -232,7 +429,7 @@ public class OrderrServiceImpl implements OrderrService {
      */
     @Override
     @Transactional
-    public Orderr assignDeliveryPerson(Long orderId, DeliveryAssignmentRequest request)
+    public Orderr assignDeliveryPerson(@OrderShardKey(OrderShardKey.Type.ORDER) Long orderId, DeliveryAssignmentRequest request)
             throws ResourceNotFoundException, InvalidOperationException {
         logger.info("嘗試指派外送員 ID {} 給訂單 ID {}", request.getDeliveryPersonId(), orderId);
 
@@ -268,10 +465,121 @@ public class OrderrServiceImpl implements OrderrService {
 
         orderr.setDeliveryPerson(deliveryPerson);
         Orderr updatedOrderr = orderrRepository.save(orderr);
+        orderEventOutbox.append(OrderEventType.DELIVERY_ASSIGNED, orderId, orderr.getRestaurant().getId(),
+                Map.of("deliveryPersonId", deliveryPerson.getId()));
         logger.info("訂單 ID {} 成功指派給外送員 ID {}", orderId, deliveryPerson.getId());
         return updatedOrderr;
     }
 
+    /**
+     * 依外送員最近回報的位置，建議離訂單餐廳最近的可用外送員 (沒有運送中的訂單且最近仍有回報)。
+     *
+     * @param orderId 訂單 ID
+     * @param limit 最多建議的人數
+     * @return 由近到遠排列；餐廳地址沒有座標時為空
+     * @throws ResourceNotFoundException 如果訂單不存在
+     */
+    @Override
+    public List<CourierSuggestion> suggestCouriers(@OrderShardKey(OrderShardKey.Type.ORDER) Long orderId, int limit) throws ResourceNotFoundException {
+        Orderr orderr = orderrRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("訂單 ID " + orderId + " 未找到"));
+        Long restaurantId = orderr.getRestaurant().getId();
+        if (!courierGeoIndex.hasRestaurant(restaurantId)) {
+            logger.warn("訂單 ID {} 的餐廳 ID {} 地址沒有座標，無法建議外送員", orderId, restaurantId);
+            return List.of();
+        }
+        return courierGeoIndex.nearestAvailableCouriers(restaurantId, limit);
+    }
+
+    /**
+     * 外送員認領所在行政區最早下單、尚未指派的準備中訂單。
+     * 行政區取外送員最近更新、有填行政區的地址，與餐廳地址的縣市、行政區比對。
+     *
+     * <p>候選訂單依時間順序逐筆以 SKIP LOCKED 嘗試鎖定，其他外送員正在認領的訂單直接跳過而不等待，
+     * 同時認領的外送員各自拿到不同的訂單；整個流程在一個短交易內完成。</p>
+     *
+     * <p>啟用訂單分片時先不加鎖地讀出各分片最早的候選，依下單時間由早到晚逐一在該分片的交易中認領；
+     * 搬移中的餐廳訂單跳過。</p>
+     *
+     * @param deliveryPersonId 外送員 ID
+     * @return 認領到的訂單；所在行政區沒有可認領的訂單時為空
+     * @throws ResourceNotFoundException 如果外送員不存在
+     * @throws InvalidOperationException 如果外送員沒有填寫行政區的地址
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 在訂單所在的分片上各自開交易
+    public Optional<Orderr> claimNextOrder(Long deliveryPersonId) throws ResourceNotFoundException, InvalidOperationException {
+        User deliveryPerson = userRepository.findById(deliveryPersonId)
+                .orElseThrow(() -> new ResourceNotFoundException("外送員 ID " + deliveryPersonId + " 未找到"));
+        Address serviceArea = addressRepository.findFirstByUserIdAndDistrictIsNotNullOrderByUpdatedAtDescIdDesc(deliveryPersonId)
+                .orElseThrow(() -> {
+                    logger.warn("認領訂單失敗：外送員 ID {} 沒有填寫行政區的地址", deliveryPersonId);
+                    return new InvalidOperationException("請先設定外送員的地址 (含行政區)，才能認領所在行政區的訂單");
+                });
+
+        for (int shard : claimShardsInOrder(serviceArea)) {
+            Optional<Orderr> claimed = orderShards.inTransaction(shard, false, tx -> {
+                Optional<Orderr> result = claimOnShard(deliveryPerson, serviceArea);
+                orderShards.initializeOrderScoped(result);
+                return result;
+            });
+            if (claimed.isPresent()) {
+                return claimed;
+            }
+        }
+        return Optional.empty();
+    }
+
+    // 未啟用分片時只有分片 0；否則只保留有候選的分片，依最早的候選排序
+    private List<Integer> claimShardsInOrder(Address serviceArea) {
+        if (!orderShards.isSharded()) {
+            return List.of(0);
+        }
+        Map<Integer, ClaimCandidate> earliestByShard = new HashMap<>();
+        for (int shard = 0; shard < orderShards.shardCount(); shard++) {
+            int current = shard;
+            orderShards.inTransaction(shard, true, tx -> orderrRepository.findClaimCandidates(
+                            serviceArea.getCity(), serviceArea.getDistrict(), null, 1))
+                    .stream()
+                    .findFirst()
+                    .ifPresent(candidate -> earliestByShard.put(current, candidate));
+        }
+        return earliestByShard.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(OLDEST_CANDIDATE_FIRST))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private Optional<Orderr> claimOnShard(User deliveryPerson, Address serviceArea) {
+        ClaimCandidate after = null;
+        while (true) {
+            List<ClaimCandidate> candidates = orderrRepository.findClaimCandidates(
+                    serviceArea.getCity(), serviceArea.getDistrict(), after, claimCandidateWindow);
+            for (ClaimCandidate candidate : candidates) {
+                if (!orderrRepository.lockIfClaimable(candidate.id())) {
+                    continue; // 其他外送員正在認領或已認領
+                }
+                Orderr orderr = orderrRepository.findById(candidate.id())
+                        .orElseThrow(() -> new IllegalStateException("已鎖定的訂單 ID " + candidate.id() + " 未找到"));
+                if (orderShards.isMoving(orderr.getRestaurant().getId())) {
+                    continue; // 搬移中的訂單不等待，改認領下一筆
+                }
+                orderShards.fence(List.of(orderr.getRestaurant().getId()));
+                orderr.setDeliveryPerson(deliveryPerson);
+                Orderr claimedOrderr = orderrRepository.save(orderr);
+                orderEventOutbox.append(OrderEventType.DELIVERY_ASSIGNED, orderr.getId(), orderr.getRestaurant().getId(),
+                        Map.of("deliveryPersonId", deliveryPerson.getId(), "claimed", true));
+                logger.info("外送員 ID {} 認領訂單 ID {} ({}{})", deliveryPerson.getId(), orderr.getId(),
+                        serviceArea.getCity(), serviceArea.getDistrict());
+                return Optional.of(claimedOrderr);
+            }
+            if (candidates.size() < claimCandidateWindow) {
+                return Optional.empty();
+            }
+            after = candidates.get(candidates.size() - 1);
+        }
+    }
+
     /**
      * 外送員接受訂單。
      * 僅限訂單狀態為「準備中」且已指派給該外送員時可接受。
@@ -286,7 +594,7 @@ public class OrderrServiceImpl implements OrderrService {
      */
     @Override
     @Transactional
-    public Orderr acceptDelivery(Long orderId, Long deliveryPersonId)
+    public Orderr acceptDelivery(@OrderShardKey(OrderShardKey.Type.ORDER) Long orderId, Long deliveryPersonId)
             throws ResourceNotFoundException, UnauthorizedException, InvalidOperationException {
         logger.info("外送員 ID {} 嘗試接受訂單 ID {}", deliveryPersonId, orderId);
 
@@ -310,6 +618,8 @@ public class OrderrServiceImpl implements OrderrService {
 
         orderr.setStatus(OrderStatus.運送中);
         Orderr updatedOrderr = orderrRepository.save(orderr);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(List.of(
+                new OrderStatusChangedEvent.Change(orderId, orderr.getRestaurant().getId(), OrderStatus.準備中, OrderStatus.運送中))));
         logger.info("外送員 ID {} 成功接受訂單 ID {}，狀態變為 {}", deliveryPersonId, orderId, OrderStatus.運送中);
         return updatedOrderr;
     }
@@ -328,7 +638,7 @@ public class OrderrServiceImpl implements OrderrService {
      */
     @Override
     @Transactional
-    public Orderr rejectDelivery(Long orderId, Long deliveryPersonId)
+    public Orderr rejectDelivery(@OrderShardKey(OrderShardKey.Type.ORDER) Long orderId, Long deliveryPersonId)
             throws ResourceNotFoundException, UnauthorizedException, InvalidOperationException {
         logger.warn("外送員 ID {} 嘗試拒絕訂單 ID {}", deliveryPersonId, orderId); // WARN 級別日誌，因為拒絕是負面操作
 
@@ -353,10 +663,70 @@ public class OrderrServiceImpl implements OrderrService {
         orderr.setDeliveryPerson(null); // 清除外送員指派
         orderr.setStatus(OrderStatus.準備中); // 狀態變回準備中，等待重新指派
         Orderr updatedOrderr = orderrRepository.save(orderr);
+        orderEventOutbox.append(OrderEventType.DELIVERY_REJECTED, orderId, orderr.getRestaurant().getId(),
+                Map.of("deliveryPersonId", deliveryPersonId));
         logger.info("外送員 ID {} 成功拒絕訂單 ID {}，訂單狀態變回 {}", deliveryPersonId, orderId, OrderStatus.準備中);
         return updatedOrderr;
     }
 
+    /**
+     * 顧客為已完成的訂單評分，可重新評分。
+     * 評分變動會計入餐廳評分彙總，由 RestaurantRatingAggregator 定期寫回餐廳評分。
+     *
+     * @param orderId 訂單 ID
+     * @param rating 評分 (1 到 5)
+     * @param customerId 評分的顧客 ID
+     * @return 更新後的訂單實體
+     * @throws ResourceNotFoundException 如果訂單不存在
+     * @throws UnauthorizedException 如果訂單不屬於該顧客
+     * @throws InvalidOperationException 如果訂單尚未完成
+     */
+    @Override
+    @Transactional
+    public Orderr rateOrder(@OrderShardKey(OrderShardKey.Type.ORDER) Long orderId, Integer rating, Long customerId)
+            throws ResourceNotFoundException, UnauthorizedException, InvalidOperationException {
+        logger.info("顧客 ID {} 嘗試為訂單 ID {} 評分 {}", customerId, orderId, rating);
+
+        Orderr orderr = orderrRepository.findByIdIncludingArchive(orderId)
+                .orElseThrow(() -> {
+                    logger.warn("訂單評分失敗：訂單 ID {} 未找到", orderId);
+                    return new ResourceNotFoundException("訂單 ID " + orderId + " 未找到");
+                });
+
+        if (!orderr.getUser().getId().equals(customerId)) {
+            logger.warn("訂單評分失敗：顧客 ID {} 無權為訂單 ID {} 評分", customerId, orderId);
+            throw new UnauthorizedException("您無權為此訂單評分");
+        }
+
+        if (orderr.getStatus() != OrderStatus.完成) {
+            logger.warn("訂單評分失敗：訂單 ID {} 狀態為 {}，尚未完成", orderId, orderr.getStatus());
+            throw new InvalidOperationException("訂單狀態為 " + orderr.getStatus() + "，完成後才能評分");
+        }
+
+        if (orderr.isArchived()) {
+            logger.warn("訂單評分失敗：訂單 ID {} 已封存", orderId);
+            throw new InvalidOperationException("訂單 ID " + orderId + " 已封存，不可再評分");
+        }
+
+        Integer previousRating = orderr.getRating();
+        orderr.setRating(rating);
+        Orderr updatedOrderr = orderrRepository.save(orderr);
+        restaurantRatingAggregator.recordAfterCommit(orderr.getRestaurant().getId(), previousRating, rating);
+        logger.info("訂單 ID {} 評分成功，評分為 {}", orderId, rating);
+        return updatedOrderr;
+    }
+
+    // 銷售彙總依下單時間分桶；剛建立的訂單若尚未帶回下單時間則以現在時間計
+    private static LocalDateTime orderrTimeOf(Orderr orderr) {
+        return orderr.getOrderrTime() != null
+                ? LocalDateTime.ofInstant(orderr.getOrderrTime().toInstant(), ZoneId.systemDefault())
+                : LocalDateTime.now();
+    }
+
+    private static LocalDateTime orderrTimeOf(Timestamp orderrTime) {
+        return orderrTime != null ? orderrTime.toLocalDateTime() : LocalDateTime.now();
+    }
+
     /**
      * 檢查訂單狀態轉換是否有效。
      * 這是業務規則的一部分。
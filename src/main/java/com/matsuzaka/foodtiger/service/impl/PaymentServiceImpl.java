@@ -1,11 +1,16 @@
 package com.matsuzaka.foodtiger.service.impl;
 
+import com.matsuzaka.foodtiger.config.datasource.RecentWriteTracker;
+import com.matsuzaka.foodtiger.config.logging.SampledLogFilter;
+import com.matsuzaka.foodtiger.config.shard.OrderShardKey;
+import com.matsuzaka.foodtiger.config.shard.OrderShardScatter;
 import com.matsuzaka.foodtiger.dao.entity.Orderr;
 import com.matsuzaka.foodtiger.dao.entity.Payment;
 import com.matsuzaka.foodtiger.dao.entity.PaymentStatus;
 import com.matsuzaka.foodtiger.dao.repository.OrderrRepository;
 import com.matsuzaka.foodtiger.dao.repository.PaymentRepository;
 import com.matsuzaka.foodtiger.dto.PaymentRequest;
+import com.matsuzaka.foodtiger.event.OrderEventType;
 import com.matsuzaka.foodtiger.exception.InvalidOperationException;
 import com.matsuzaka.foodtiger.exception.PaymentFailedException;
 import com.matsuzaka.foodtiger.exception.ResourceNotFoundException;
@@ -17,9 +22,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@Transactional(readOnly = true)
 public class PaymentServiceImpl implements PaymentService {
 
     private static final Logger logger = LoggerFactory.getLogger(PaymentServiceImpl.class);
@@ -28,46 +35,57 @@ public class PaymentServiceImpl implements PaymentService {
     private PaymentRepository paymentRepository;
     @Autowired
     private OrderrRepository orderrRepository; // Need OrderrRepository to check order status
+    @Autowired
+    private RecentWriteTracker recentWriteTracker;
+    @Autowired
+    private OrderEventOutbox orderEventOutbox;
 
     @Override
+    @OrderShardScatter
     public List<Payment> findAllPayments() {
-        logger.info("正在查詢所有支付記錄");
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢所有支付記錄");
         return paymentRepository.findAll();
     }
 
     @Override
+    @OrderShardScatter
     public Optional<Payment> findPaymentById(Long id) {
-        logger.info("正在查詢 ID 為 {} 的支付記錄", id);
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢 ID 為 {} 的支付記錄", id);
         return paymentRepository.findById(id);
     }
 
     @Override
-    public Payment savePayment(Payment payment) {
+    @Transactional
+    public Payment savePayment(@OrderShardKey(value = OrderShardKey.Type.ORDER, property = "orderr.id") Payment payment) {
         logger.info("正在保存支付記錄 ID: {}", payment.getId());
         return paymentRepository.save(payment);
     }
 
     @Override
+    @Transactional
+    @OrderShardScatter
     public void deletePayment(Long id) {
         logger.warn("正在刪除 ID 為 {} 的支付記錄", id);
         paymentRepository.deleteById(id);
     }
 
     @Override
-    public Optional<Payment> findPaymentByOrderrId(Long orderrId) {
-        logger.info("正在查詢訂單 ID 為 {} 的支付記錄", orderrId);
+    public Optional<Payment> findPaymentByOrderrId(@OrderShardKey(OrderShardKey.Type.ORDER) Long orderrId) {
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢訂單 ID 為 {} 的支付記錄", orderrId);
         return paymentRepository.findByOrderrId(orderrId);
     }
 
     @Override
+    @OrderShardScatter
     public List<Payment> findPaymentsByStatus(PaymentStatus status) {
-        logger.info("正在查詢狀態為 {} 的支付記錄", status);
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢狀態為 {} 的支付記錄", status);
         return paymentRepository.findByStatus(status);
     }
 
     @Override
+    @OrderShardScatter
     public Optional<Payment> findPaymentByTransactionId(String transactionId) {
-        logger.info("正在查詢交易 ID 為 {} 的支付記錄", transactionId);
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢交易 ID 為 {} 的支付記錄", transactionId);
         return paymentRepository.findByTransactionId(transactionId);
     }
 
@@ -84,16 +102,22 @@ public class PaymentServiceImpl implements PaymentService {
      */
     @Override
     @Transactional
-    public Payment processPayment(PaymentRequest request) throws ResourceNotFoundException, InvalidOperationException, PaymentFailedException {
+    public Payment processPayment(@OrderShardKey(value = OrderShardKey.Type.ORDER, property = "orderrId") PaymentRequest request) throws ResourceNotFoundException, InvalidOperationException, PaymentFailedException {
         logger.info("收到處理訂單 ID {} 的支付請求，金額: {}", request.getOrderrId(), request.getAmount());
 
         // 1. 驗證訂單是否存在
-        Orderr orderr = orderrRepository.findById(request.getOrderrId())
+        Orderr orderr = orderrRepository.findByIdIncludingArchive(request.getOrderrId())
                 .orElseThrow(() -> {
                     logger.warn("支付處理失敗：訂單 ID {} 未找到", request.getOrderrId());
                     return new ResourceNotFoundException("訂單 ID " + request.getOrderrId() + " 未找到");
                 });
 
+        // 已封存的訂單都已完成或取消，支付記錄也一併封存
+        if (orderr.isArchived()) {
+            logger.warn("支付處理失敗：訂單 ID {} 已封存", orderr.getId());
+            throw new InvalidOperationException("訂單 ID " + orderr.getId() + " 已封存，不可支付");
+        }
+
         // 2. 檢查訂單是否已支付
         if (paymentRepository.findByOrderrId(orderr.getId()).isPresent()) {
             logger.warn("支付處理失敗：訂單 ID {} 已存在支付記錄", orderr.getId());
@@ -120,7 +144,13 @@ public class PaymentServiceImpl implements PaymentService {
             throw new PaymentFailedException("支付處理失敗，交易 ID: " + request.getTransactionId());
         }
 
-        return paymentRepository.save(newPayment);
+        Payment savedPayment = paymentRepository.save(newPayment);
+        recentWriteTracker.markWrite(orderr.getUser().getId());
+        orderEventOutbox.append(OrderEventType.PAYMENT_SUCCEEDED, orderr.getId(), orderr.getRestaurant().getId(), Map.of(
+                "paymentId", savedPayment.getId(),
+                "amount", savedPayment.getAmount(),
+                "paymentMethod", savedPayment.getPaymentMethod().name()));
+        return savedPayment;
     }
 
     /**
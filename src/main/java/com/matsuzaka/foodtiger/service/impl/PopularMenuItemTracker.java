@@ -0,0 +1,290 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 各餐廳熱門菜單項目的串流統計 (heavy hitters)。
+ *
+ * <p>所有菜單項目共用一個 count-min sketch 估計點購份數，每間餐廳另外以有上限的最小堆積保留估計值最高的候選項目，
+ * 記憶體固定，不需要掃描 orderr_item。</p>
+ *
+ * <p>時間衰減採 forward decay：時間 t 的點購以 e^(λ(t - landmark)) 加權累加，讀取時再乘上 e^(-λ(now - landmark))，
+ * 等同每筆點購隨時間以設定的半衰期遞減，卻不需要定期衰減所有計數；權重過大時整體重新縮放並移動 landmark。</p>
+ *
+ * <p>狀態定期寫入快照檔，重啟時載入，不會因重啟而歸零。</p>
+ */
+@Component
+public class PopularMenuItemTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularMenuItemTracker.class);
+
+    private static final int SNAPSHOT_VERSION = 1;
+    // λ(now - landmark) 超過此值時重新縮放，e^30 約 1e13，遠低於 double 的上限
+    private static final double MAX_EXPONENT = 30;
+
+    /**
+     * 熱門項目的 ID 與衰減後的分數。
+     */
+    public record Ranked(long menuItemId, double score) {
+    }
+
+    private static final class Candidate {
+        final long menuItemId;
+        double weight;
+
+        Candidate(long menuItemId, double weight) {
+            this.menuItemId = menuItemId;
+            this.weight = weight;
+        }
+    }
+
+    private static final class TopK {
+        final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingDouble(c -> c.weight));
+        final Map<Long, Candidate> byMenuItemId = new HashMap<>();
+
+        void offer(long menuItemId, double estimate, int capacity) {
+            Candidate existing = byMenuItemId.get(menuItemId);
+            if (existing != null) {
+                heap.remove(existing);
+                existing.weight = estimate;
+                heap.add(existing);
+            } else if (heap.size() < capacity) {
+                add(new Candidate(menuItemId, estimate));
+            } else if (estimate > heap.peek().weight) {
+                byMenuItemId.remove(heap.poll().menuItemId);
+                add(new Candidate(menuItemId, estimate));
+            }
+        }
+
+        void add(Candidate candidate) {
+            heap.add(candidate);
+            byMenuItemId.put(candidate.menuItemId, candidate);
+        }
+    }
+
+    @Value("${app.popular.top-k:10}")
+    private int topK;
+
+    @Value("${app.popular.half-life-hours:168}")
+    private double halfLifeHours;
+
+    @Value("${app.popular.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${app.popular.sketch-width:65536}")
+    private int sketchWidth;
+
+    @Value("${app.popular.snapshot-file:data/popular-menu-items.snapshot}")
+    private String snapshotFile;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, TopK> topKByRestaurantId = new HashMap<>();
+    private CountMinSketch sketch;
+    private double lambdaPerMs;
+    private long landmarkMillis;
+    private int candidateCapacity;
+    private volatile boolean dirty;
+
+    @PostConstruct
+    public void init() {
+        sketch = new CountMinSketch(sketchDepth, sketchWidth);
+        lambdaPerMs = Math.log(2) / (halfLifeHours * 3_600_000d);
+        landmarkMillis = System.currentTimeMillis();
+        candidateCapacity = topK * 2; // 多留一些候選，估計誤差造成的排名跳動不會直接把項目擠出
+        loadSnapshot();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    /**
+     * 訂單建立後呼叫；在交易中時於提交後才計入。
+     *
+     * @param restaurantId 訂單所屬餐廳 ID
+     * @param orderItems 訂單項目
+     */
+    public void recordAfterCommit(Long restaurantId, List<OrderItem> orderItems) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem orderItem : orderItems) {
+            quantities.merge(orderItem.getMenuItem().getId(), orderItem.getQuantity(), Integer::sum);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(restaurantId, quantities);
+                }
+            });
+        } else {
+            record(restaurantId, quantities);
+        }
+    }
+
+    /**
+     * @param restaurantId 餐廳 ID
+     * @return 依分數由高到低排列的候選項目，最多 top-k 的兩倍
+     */
+    public List<Ranked> top(Long restaurantId) {
+        lock.lock();
+        try {
+            TopK topKOfRestaurant = topKByRestaurantId.get(restaurantId);
+            if (topKOfRestaurant == null) {
+                return List.of();
+            }
+            double decay = Math.exp(-lambdaPerMs * (System.currentTimeMillis() - landmarkMillis));
+            List<Ranked> ranked = new ArrayList<>(topKOfRestaurant.heap.size());
+            for (Candidate candidate : topKOfRestaurant.heap) {
+                ranked.add(new Ranked(candidate.menuItemId, candidate.weight * decay));
+            }
+            ranked.sort(Comparator.comparingDouble(Ranked::score).reversed());
+            return ranked;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * 定期把目前狀態寫入快照檔 (先寫暫存檔再替換，避免寫到一半的檔案)。
+     */
+    @Scheduled(fixedDelayString = "${app.popular.snapshot-ms:300000}", initialDelayString = "${app.popular.snapshot-ms:300000}")
+    public void snapshot() {
+        if (!dirty) {
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(sketchDepth * sketchWidth * Double.BYTES + 1024);
+        lock.lock();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            dirty = false;
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(sketch.depth());
+            out.writeInt(sketch.width());
+            out.writeDouble(halfLifeHours);
+            out.writeLong(landmarkMillis);
+            sketch.writeTo(out);
+            out.writeInt(topKByRestaurantId.size());
+            for (Map.Entry<Long, TopK> entry : topKByRestaurantId.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().heap.size());
+                for (Candidate candidate : entry.getValue().heap) {
+                    out.writeLong(candidate.menuItemId);
+                    out.writeDouble(candidate.weight);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("無法序列化熱門菜單快照", e); // 寫入記憶體不會發生
+        } finally {
+            lock.unlock();
+        }
+
+        Path target = Path.of(snapshotFile);
+        try {
+            Path parent = target.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, "popular-menu-items", ".tmp");
+            Files.write(temp, buffer.toByteArray());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("熱門菜單快照已寫入 {}", target);
+        } catch (IOException e) {
+            dirty = true; // 下一輪重試
+            logger.error("寫入熱門菜單快照 {} 失敗", target, e);
+        }
+    }
+
+    private void record(Long restaurantId, Map<Long, Integer> quantities) {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (lambdaPerMs * (now - landmarkMillis) > MAX_EXPONENT) {
+                rescale(now);
+            }
+            double weight = Math.exp(lambdaPerMs * (now - landmarkMillis));
+            TopK topKOfRestaurant = topKByRestaurantId.computeIfAbsent(restaurantId, id -> new TopK());
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                double estimate = sketch.add(entry.getKey(), entry.getValue() * weight);
+                topKOfRestaurant.offer(entry.getKey(), estimate, candidateCapacity);
+            }
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 所有權重乘上同一係數，相對順序不變，堆積不需重建
+    private void rescale(long now) {
+        double factor = Math.exp(-lambdaPerMs * (now - landmarkMillis));
+        sketch.scale(factor);
+        for (TopK topKOfRestaurant : topKByRestaurantId.values()) {
+            for (Candidate candidate : topKOfRestaurant.heap) {
+                candidate.weight *= factor;
+            }
+        }
+        landmarkMillis = now;
+    }
+
+    private void loadSnapshot() {
+        Path source = Path.of(snapshotFile);
+        if (!Files.exists(source)) {
+            return;
+        }
+        try (InputStream file = Files.newInputStream(source);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            if (in.readInt() != SNAPSHOT_VERSION || in.readInt() != sketchDepth || in.readInt() != sketchWidth
+                    || in.readDouble() != halfLifeHours) {
+                logger.warn("熱門菜單快照 {} 的格式或參數與目前設定不同，略過載入", source);
+                return;
+            }
+            landmarkMillis = in.readLong();
+            sketch.readFrom(in);
+            int restaurants = in.readInt();
+            for (int i = 0; i < restaurants; i++) {
+                long restaurantId = in.readLong();
+                int candidates = in.readInt();
+                TopK topKOfRestaurant = new TopK();
+                for (int j = 0; j < candidates; j++) {
+                    topKOfRestaurant.offer(in.readLong(), in.readDouble(), candidateCapacity);
+                }
+                topKByRestaurantId.put(restaurantId, topKOfRestaurant);
+            }
+            logger.info("已從 {} 載入 {} 間餐廳的熱門菜單統計", source, restaurants);
+        } catch (IOException e) {
+            // 快照損毀時重新開始統計，不影響啟動
+            sketch = new CountMinSketch(sketchDepth, sketchWidth);
+            landmarkMillis = System.currentTimeMillis();
+            topKByRestaurantId.clear();
+            logger.error("載入熱門菜單快照 {} 失敗，重新開始統計", source, e);
+        }
+    }
+}
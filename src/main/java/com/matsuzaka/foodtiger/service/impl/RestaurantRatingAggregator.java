@@ -0,0 +1,224 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.cache.CacheInvalidationBus;
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.dao.entity.Restaurant;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 餐廳評分的增量彙總。
+ *
+ * <p>restaurant 保存評分總和 (rating_sum) 與筆數 (rating_count)，平均 (rating) 由兩者在 SQL 中算出。
+ * 顧客評分時只把增量累加到記憶體 (LongAdder，依餐廳分開，多執行緒同時評分不會互相競爭)，
+ * 排程定期以 rating_sum = rating_sum + ? 分批寫回；多個節點各自累加，不會互相覆蓋，
+ * 讓 findRestaurantsByMinRating 直接用欄位過濾，不必在讀取時彙總訂單。</p>
+ *
+ * <p>啟動時及每日排程以一次 GROUP BY 全表掃描修正其他管道 (例如管理員直接修改訂單) 造成的偏差。
+ * 掃描前已提交的評分可能還在各節點的記憶體中，因此掃描結果等兩輪寫回 (所有節點都已寫回掃描前的增量) 後才套用，
+ * 且只覆蓋掃描開始後沒有再累加過 (rating_flushed_at 早於掃描開始) 的餐廳，其餘留到下一次重建；
+ * 節點寫回失敗超過等待時間時增量仍可能重複計入，由下一次重建修正。</p>
+ */
+@Component
+public class RestaurantRatingAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestaurantRatingAggregator.class);
+
+    private static final class RatingDelta {
+        final LongAdder sum = new LongAdder();
+        final LongAdder count = new LongAdder();
+    }
+
+    /**
+     * 一次全表掃描的結果，applyAfterMillis 之後才套用。
+     */
+    private record Correction(Timestamp scanStartedAt, Map<Long, long[]> totals, long applyAfterMillis) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Value("${app.rating.flush-ms:30000}")
+    private long flushMs;
+
+    // 累加時取讀鎖，寫回前取寫鎖換上新的 Map，確保換下的 Map 不會再被累加
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile ConcurrentHashMap<Long, RatingDelta> pending = new ConcurrentHashMap<>();
+    private Correction correction;
+
+    /**
+     * 訂單評分異動後呼叫；在交易中時於提交後才計入，回滾的評分不會影響計數。
+     *
+     * @param restaurantId 訂單所屬餐廳 ID
+     * @param previousRating 原本的評分，首次評分時為 null
+     * @param newRating 新的評分
+     */
+    public void recordAfterCommit(Long restaurantId, Integer previousRating, Integer newRating) {
+        long sumDelta = (newRating != null ? newRating : 0) - (previousRating != null ? previousRating : 0);
+        long countDelta = (newRating != null ? 1 : 0) - (previousRating != null ? 1 : 0);
+        if (sumDelta == 0 && countDelta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(restaurantId, sumDelta, countDelta);
+                }
+            });
+        } else {
+            add(restaurantId, sumDelta, countDelta);
+        }
+    }
+
+    /**
+     * 定期把記憶體中的評分增量分批累加到 restaurant，並在等待時間過後套用全表掃描的修正。
+     */
+    @Scheduled(fixedDelayString = "${app.rating.flush-ms:30000}", initialDelayString = "${app.rating.flush-ms:30000}")
+    public synchronized void flush() {
+        Map<Long, RatingDelta> drained;
+        swapLock.writeLock().lock();
+        try {
+            drained = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        if (!drained.isEmpty()) {
+            List<Object[]> updates = new ArrayList<>(drained.size());
+            drained.forEach((restaurantId, delta) -> {
+                long sum = delta.sum.sum();
+                long count = delta.count.sum();
+                updates.add(new Object[]{count, sum, count, sum, count, restaurantId});
+            });
+            try {
+                // rating 放在最前面：MySQL 依序套用 SET，後面的欄位會讀到已更新的值
+                jdbcTemplate.batchUpdate("UPDATE restaurant SET " +
+                        "rating = CASE WHEN rating_count + ? > 0 THEN ROUND(CAST(rating_sum + ? AS DECIMAL(20,4)) / (rating_count + ?), 1) END, " +
+                        "rating_sum = rating_sum + ?, rating_count = rating_count + ?, rating_flushed_at = CURRENT_TIMESTAMP(3) " +
+                        "WHERE id = ?", updates);
+            } catch (RuntimeException e) {
+                drained.forEach((restaurantId, delta) -> add(restaurantId, delta.sum.sum(), delta.count.sum())); // 下一輪重試
+                throw e;
+            }
+            evict(drained.keySet());
+            logger.info("已累加 {} 間餐廳的評分", drained.size());
+        }
+
+        if (correction != null && System.currentTimeMillis() >= correction.applyAfterMillis()) {
+            Correction ready = correction;
+            correction = null;
+            applyCorrection(ready);
+        }
+    }
+
+    /**
+     * 以全表掃描重新計算所有餐廳的評分總和與筆數，啟動時及每日排程執行；啟用訂單分片時逐一掃描各分片後加總。
+     * 結果等兩輪寫回後由 flush 套用。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.rating.rebuild-cron:0 30 4 * * *}")
+    public synchronized void rebuild() {
+        // 以資料庫的時鐘為準，與 rating_flushed_at 比較
+        Timestamp scanStartedAt = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(3)", Timestamp.class);
+        Map<Long, long[]> totals = new HashMap<>();
+        // 已封存的訂單仍計入評分
+        orderShards.forEachShard(shard -> jdbcTemplate.query("SELECT restaurant_id, SUM(rating_sum), SUM(rating_count) FROM (" +
+                        "SELECT restaurant_id, SUM(rating) AS rating_sum, COUNT(rating) AS rating_count FROM orderr WHERE rating IS NOT NULL GROUP BY restaurant_id " +
+                        "UNION ALL " +
+                        "SELECT restaurant_id, SUM(rating), COUNT(rating) FROM orderr_archive WHERE rating IS NOT NULL GROUP BY restaurant_id" +
+                        ") t GROUP BY restaurant_id",
+                rs -> {
+                    long[] total = totals.computeIfAbsent(rs.getLong(1), id -> new long[2]);
+                    total[0] += rs.getLong(2);
+                    total[1] += rs.getLong(3);
+                }));
+        correction = new Correction(scanStartedAt, totals, System.currentTimeMillis() + 2 * flushMs);
+        logger.info("餐廳評分全表掃描完成，共 {} 間餐廳有評分，{} 毫秒後修正偏差", totals.size(), 2 * flushMs);
+    }
+
+    // 只覆蓋掃描開始後沒有再累加過的餐廳；條件寫在 UPDATE 中，與其他節點的累加不會交錯
+    private void applyCorrection(Correction correction) {
+        List<Object[]> updates = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, rating_sum, rating_count FROM restaurant WHERE rating_flushed_at IS NULL OR rating_flushed_at < ?",
+                rs -> {
+                    long[] expected = correction.totals().getOrDefault(rs.getLong(1), new long[2]);
+                    if (rs.getLong(2) != expected[0] || rs.getLong(3) != expected[1]) {
+                        updates.add(new Object[]{average(expected[0], expected[1]), expected[0], expected[1], rs.getLong(1),
+                                correction.scanStartedAt()});
+                    }
+                }, correction.scanStartedAt());
+        if (updates.isEmpty()) {
+            logger.info("餐廳評分與全表掃描一致");
+            return;
+        }
+        int[] results = jdbcTemplate.batchUpdate("UPDATE restaurant SET rating = ?, rating_sum = ?, rating_count = ? " +
+                "WHERE id = ? AND (rating_flushed_at IS NULL OR rating_flushed_at < ?)", updates);
+        List<Long> corrected = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != 0) {
+                corrected.add((Long) updates.get(i)[3]);
+            }
+        }
+        evict(corrected);
+        logger.info("已依全表掃描修正 {} 間餐廳的評分，{} 間在掃描後有新評分，留待下一次重建", corrected.size(),
+                updates.size() - corrected.size());
+    }
+
+    // 直接以 SQL 更新，需清除本機與其他節點二級快取中對應的 Restaurant
+    private void evict(Collection<Long> restaurantIds) {
+        if (restaurantIds.isEmpty()) {
+            return;
+        }
+        restaurantIds.forEach(restaurantId -> entityManagerFactory.getCache().evict(Restaurant.class, restaurantId));
+        cacheInvalidationBus.publishAll(CacheInvalidationBus.RESTAURANT, List.copyOf(restaurantIds));
+    }
+
+    // 與 restaurant.rating DECIMAL(3,1) 及 SQL 的 ROUND 一致，四捨五入到小數 1 位
+    private static BigDecimal average(long sum, long count) {
+        return count > 0 ? BigDecimal.valueOf(sum).divide(BigDecimal.valueOf(count), 1, RoundingMode.HALF_UP) : null;
+    }
+
+    private void add(Long restaurantId, long sumDelta, long countDelta) {
+        swapLock.readLock().lock();
+        try {
+            RatingDelta delta = pending.computeIfAbsent(restaurantId, id -> new RatingDelta());
+            delta.sum.add(sumDelta);
+            delta.count.add(countDelta);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.dao.repository.RestaurantSalesHourlyRepository;
+import com.matsuzaka.foodtiger.dao.repository.RestaurantSalesHourlyRepositoryCustom.HourlyDelta;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 銷售彙總 (restaurant_sales_hourly) 的批次累加。
+ *
+ * <p>熱門餐廳同一個整點只有一列彙總，若在下單交易中直接 upsert，所有訂單都會排隊等同一列的行鎖。
+ * 改為交易提交後把增量累加到記憶體 (LongAdder，依餐廳與整點分開)，排程每 flush-ms 依分片分批寫入一次，
+ * 每列每輪只更新一次。</p>
+ *
+ * <p>寫入失敗 (例如桶正在搬移) 時增量併回記憶體，下一輪重試；節點中斷時尚未寫入的增量 (最多約 flush-ms)
+ * 會遺失，由 SalesStatsService.backfill 依訂單表重建修正。</p>
+ */
+@Component
+public class RestaurantSalesRollup {
+
+    private static final Logger logger = LoggerFactory.getLogger(RestaurantSalesRollup.class);
+
+    private record Key(Long restaurantId, LocalDateTime bucketHour) {
+    }
+
+    private static final class Totals {
+        final LongAdder orderCount = new LongAdder();
+        final LongAdder grossAmount = new LongAdder();
+        final LongAdder deliveryFeeAmount = new LongAdder();
+        final LongAdder cancelledCount = new LongAdder();
+        final LongAdder cancelledAmount = new LongAdder();
+
+        HourlyDelta toDelta(Key key) {
+            return new HourlyDelta(key.restaurantId(), key.bucketHour(), orderCount.sum(), grossAmount.sum(),
+                    deliveryFeeAmount.sum(), cancelledCount.sum(), cancelledAmount.sum());
+        }
+    }
+
+    @Autowired
+    private RestaurantSalesHourlyRepository restaurantSalesHourlyRepository;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    // 累加時取讀鎖，寫入前取寫鎖換上新的 Map，確保換下的 Map 不會再被累加
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile ConcurrentHashMap<Key, Totals> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 新訂單成立後呼叫；在交易中時於提交後才計入。
+     *
+     * @param orderrTime 下單時間，決定計入哪一個整點
+     */
+    public void recordOrderAfterCommit(Long restaurantId, LocalDateTime orderrTime, int totalAmount, int deliveryFee) {
+        afterCommit(() -> add(restaurantId, orderrTime, 1, totalAmount, deliveryFee, 0, 0));
+    }
+
+    /**
+     * 訂單取消後呼叫；在交易中時於提交後才計入。
+     *
+     * @param orderrTime 原訂單的下單時間
+     */
+    public void recordCancellationAfterCommit(Long restaurantId, LocalDateTime orderrTime, int totalAmount) {
+        afterCommit(() -> add(restaurantId, orderrTime, 0, 0, 0, 1, totalAmount));
+    }
+
+    /**
+     * 把記憶體中的增量依分片分批寫入 restaurant_sales_hourly。
+     */
+    @Scheduled(fixedDelayString = "${app.sales-hourly.flush-ms:1000}", initialDelayString = "${app.sales-hourly.flush-ms:1000}")
+    public synchronized void flush() {
+        Map<Key, Totals> drained;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            drained = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        Map<Integer, List<HourlyDelta>> byShard = new TreeMap<>();
+        for (Map.Entry<Key, Totals> entry : drained.entrySet()) {
+            HourlyDelta delta = entry.getValue().toDelta(entry.getKey());
+            try {
+                byShard.computeIfAbsent(orderShards.shardOf(delta.restaurantId()), shard -> new ArrayList<>()).add(delta);
+            } catch (RuntimeException e) {
+                logger.warn("餐廳 ID {} 的銷售彙總暫時無法路由，下一輪重試: {}", delta.restaurantId(), e.getMessage());
+                restore(delta);
+            }
+        }
+        int written = 0;
+        for (Map.Entry<Integer, List<HourlyDelta>> entry : byShard.entrySet()) {
+            List<HourlyDelta> deltas = entry.getValue();
+            try {
+                orderShards.inTransaction(entry.getKey(), false, status -> {
+                    orderShards.fence(deltas.stream().map(HourlyDelta::restaurantId).distinct().toList());
+                    restaurantSalesHourlyRepository.addAll(deltas);
+                    return null;
+                });
+                written += deltas.size();
+            } catch (RuntimeException e) {
+                logger.warn("分片 {} 的 {} 筆銷售彙總寫入失敗，下一輪重試: {}", entry.getKey(), deltas.size(), e.getMessage());
+                deltas.forEach(this::restore);
+            }
+        }
+        logger.debug("已寫入 {} 筆銷售彙總增量", written);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void restore(HourlyDelta delta) {
+        add(delta.restaurantId(), delta.bucketHour(), delta.orderCount(), delta.grossAmount(), delta.deliveryFeeAmount(),
+                delta.cancelledCount(), delta.cancelledAmount());
+    }
+
+    private void add(Long restaurantId, LocalDateTime time, long orderCount, long grossAmount, long deliveryFeeAmount,
+                     long cancelledCount, long cancelledAmount) {
+        swapLock.readLock().lock();
+        try {
+            Totals totals = pending.computeIfAbsent(new Key(restaurantId, time.truncatedTo(ChronoUnit.HOURS)), key -> new Totals());
+            totals.orderCount.add(orderCount);
+            totals.grossAmount.add(grossAmount);
+            totals.deliveryFeeAmount.add(deliveryFeeAmount);
+            totals.cancelledCount.add(cancelledCount);
+            totals.cancelledAmount.add(cancelledAmount);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,20 +1,26 @@
 package com.matsuzaka.foodtiger.service.impl;
 
+import com.matsuzaka.foodtiger.config.cache.CacheInvalidationBus;
 import com.matsuzaka.foodtiger.dao.entity.Restaurant;
 import com.matsuzaka.foodtiger.dao.repository.RestaurantRepository;
 import com.matsuzaka.foodtiger.service.RestaurantService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Transactional(readOnly = true)
 public class RestaurantServiceImpl implements RestaurantService {
 
     @Autowired
     private RestaurantRepository restaurantRepository;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
     @Override
     public List<Restaurant> findAllRestaurants() {
         return restaurantRepository.findAll();
@@ -26,13 +32,19 @@ public class RestaurantServiceImpl implements RestaurantService {
     }
 
     @Override
+    @Transactional
     public Restaurant saveRestaurant(Restaurant restaurant) {
-        return restaurantRepository.save(restaurant);
+        Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+        cacheInvalidationBus.publish(CacheInvalidationBus.RESTAURANT, savedRestaurant.getId());
+        return savedRestaurant;
     }
 
     @Override
+    @Transactional
     public void deleteRestaurant(Long id) {
         restaurantRepository.deleteById(id);
+        cacheInvalidationBus.publish(CacheInvalidationBus.RESTAURANT, id);
+        cacheInvalidationBus.publish(CacheInvalidationBus.MENU, id); // 菜單項目隨餐廳連動刪除
     }
 
     @Override
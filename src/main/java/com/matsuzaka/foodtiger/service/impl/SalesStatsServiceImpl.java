@@ -0,0 +1,95 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.config.shard.OrderShardKey;
+import com.matsuzaka.foodtiger.config.shard.OrderShards;
+import com.matsuzaka.foodtiger.dao.entity.RestaurantSalesHourly;
+import com.matsuzaka.foodtiger.dao.repository.RestaurantSalesHourlyRepository;
+import com.matsuzaka.foodtiger.dto.SalesStats;
+import com.matsuzaka.foodtiger.service.SalesStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@Transactional(readOnly = true)
+public class SalesStatsServiceImpl implements SalesStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesStatsServiceImpl.class);
+
+    @Autowired
+    private RestaurantSalesHourlyRepository restaurantSalesHourlyRepository;
+
+    @Autowired
+    private OrderShards orderShards;
+
+    @Autowired
+    private RestaurantSalesRollup restaurantSalesRollup;
+
+    /**
+     * 從每小時彙總表查詢餐廳在 [from, to] 日期區間的銷售統計，不需掃描訂單。
+     *
+     * @param restaurantId 餐廳 ID
+     * @param from 起始日期 (含)
+     * @param to 結束日期 (含)
+     * @param granularity 以小時或日為單位
+     * @return 依時間排序的統計，沒有訂單的時段不列出
+     */
+    @Override
+    public List<SalesStats> findSalesStats(@OrderShardKey Long restaurantId, LocalDate from, LocalDate to, Granularity granularity) {
+        logger.info("正在查詢餐廳 ID {} 從 {} 到 {} 的銷售統計 ({})", restaurantId, from, to, granularity);
+        List<RestaurantSalesHourly> hourly = restaurantSalesHourlyRepository
+                .findByRestaurantIdAndBucketHourGreaterThanEqualAndBucketHourLessThanOrderByBucketHour(
+                        restaurantId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+
+        Map<LocalDateTime, SalesStats> byPeriod = new LinkedHashMap<>();
+        for (RestaurantSalesHourly row : hourly) {
+            LocalDateTime periodStart = granularity == Granularity.DAY
+                    ? row.getBucketHour().toLocalDate().atStartOfDay()
+                    : row.getBucketHour();
+            SalesStats stats = byPeriod.computeIfAbsent(periodStart, start -> {
+                SalesStats s = new SalesStats();
+                s.setPeriodStart(start);
+                return s;
+            });
+            stats.setOrderCount(stats.getOrderCount() + row.getOrderCount());
+            stats.setGrossAmount(stats.getGrossAmount() + row.getGrossAmount());
+            stats.setDeliveryFeeAmount(stats.getDeliveryFeeAmount() + row.getDeliveryFeeAmount());
+            stats.setCancelledCount(stats.getCancelledCount() + row.getCancelledCount());
+            stats.setCancelledAmount(stats.getCancelledAmount() + row.getCancelledAmount());
+        }
+        return new ArrayList<>(byPeriod.values());
+    }
+
+    /**
+     * 依 orderr 表重建 [from, to] 日期區間的彙總，每天一個交易，避免長時間鎖住訂單表。
+     * 用於首次上線或彙總與訂單不一致時 (例如管理員直接修改訂單狀態)。啟用訂單分片時依序回補每個分片。
+     *
+     * @param from 起始日期 (含)
+     * @param to 結束日期 (含)
+     * @return 寫入的彙總列數
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 每天由 rebuild 各自開交易
+    public int backfill(LocalDate from, LocalDate to) {
+        logger.info("開始回補 {} 到 {} 的銷售彙總", from, to);
+        restaurantSalesRollup.flush(); // 先寫入已提交訂單的增量，避免重建後再累加一次
+        int[] rows = new int[1];
+        orderShards.forEachShard(shard -> {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                rows[0] += restaurantSalesHourlyRepository.rebuild(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+            }
+        });
+        logger.info("銷售彙總回補完成，共寫入 {} 列", rows[0]);
+        return rows[0];
+    }
+}
@@ -0,0 +1,143 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * 以經緯度等分格子為索引的最近鄰查詢。每個格子記錄落在其中的 ID，查詢從所在格子向外一圈一圈擴張，
+ * 找到 k 個候選且下一圈的最短可能距離已超過第 k 近的距離時停止，只檢查附近幾個格子。
+ * 可同時讀寫；位置更新與查詢並行時，查詢可能看到更新前或更新後的位置。
+ */
+final class SpatialGrid {
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    /**
+     * 查詢結果：ID、與查詢點的距離及該 ID 的位置。
+     */
+    record Neighbor(long id, double distanceMeters, int latitudeE7, int longitudeE7, long updatedAt) {
+    }
+
+    private record Entry(int latitudeE7, int longitudeE7, long cell, long updatedAt) {
+    }
+
+    private final double cellDegrees;
+    private final Map<Long, Set<Long>> idsByCell = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entriesById = new ConcurrentHashMap<>();
+
+    SpatialGrid(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * 新增或移動一個 ID；updatedAt 早於目前記錄的更新會被略過。
+     */
+    void put(long id, int latE7, int lonE7, long updatedAt) {
+        long cell = cellOf(latE7, lonE7);
+        Entry[] previous = new Entry[1];
+        Entry current = entriesById.compute(id, (key, existing) -> {
+            if (existing != null && existing.updatedAt() > updatedAt) {
+                return existing;
+            }
+            previous[0] = existing;
+            return new Entry(latE7, lonE7, cell, updatedAt);
+        });
+        if (current.cell() == cell && (previous[0] == null || previous[0].cell() != cell)) {
+            idsByCell.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(id);
+            if (previous[0] != null) {
+                removeFromCell(previous[0].cell(), id);
+            }
+        }
+    }
+
+    void remove(long id) {
+        Entry removed = entriesById.remove(id);
+        if (removed != null) {
+            removeFromCell(removed.cell(), id);
+        }
+    }
+
+    int size() {
+        return entriesById.size();
+    }
+
+    /**
+     * 條件在挑選前套用：不符合的 ID 不會佔用 k 個名額，也不會讓擴張提早停止。
+     *
+     * @param updatedAfter 只回傳 updatedAt 不早於此時間的 ID (位置夠新)
+     * @param filter 只回傳符合條件的 ID (例如有空)
+     * @return 距離 maxDistanceMeters 內最近的 k 個 ID，由近到遠
+     */
+    List<Neighbor> nearest(int latE7, int lonE7, int k, double maxDistanceMeters, long updatedAfter, LongPredicate filter) {
+        PriorityQueue<Neighbor> best = new PriorityQueue<>(Comparator.comparingDouble(Neighbor::distanceMeters).reversed());
+        long centerLat = Math.floorDiv(latE7, cellE7());
+        long centerLon = Math.floorDiv(lonE7, cellE7());
+        double cellMeters = cellDegrees * METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latE7 / 1e7)), 0.01);
+        int maxRing = (int) Math.ceil(maxDistanceMeters / cellMeters) + 1;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double ringMinDistance = Math.max(ring - 1, 0) * cellMeters; // 第 ring 圈的格子與查詢點至少相距 (ring - 1) 格
+            if (best.size() == k && ringMinDistance > best.peek().distanceMeters()) {
+                break;
+            }
+            for (long dLat = -ring; dLat <= ring; dLat++) {
+                for (long dLon = -ring; dLon <= ring; dLon++) {
+                    if (Math.abs(dLat) != ring && Math.abs(dLon) != ring) {
+                        continue; // 只看這一圈的外框
+                    }
+                    Set<Long> ids = idsByCell.get(cellKey(centerLat + dLat, centerLon + dLon));
+                    if (ids != null) {
+                        collect(ids, latE7, lonE7, k, maxDistanceMeters, updatedAfter, filter, best);
+                    }
+                }
+            }
+        }
+        List<Neighbor> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbor::distanceMeters));
+        return result;
+    }
+
+    private void collect(Set<Long> ids, int latE7, int lonE7, int k, double maxDistanceMeters, long updatedAfter,
+                         LongPredicate filter, PriorityQueue<Neighbor> best) {
+        for (Long id : ids) {
+            Entry entry = entriesById.get(id);
+            if (entry == null || entry.updatedAt() < updatedAfter || !filter.test(id)) {
+                continue;
+            }
+            double distance = CourierTrack.distanceMeters(latE7, lonE7, entry.latitudeE7(), entry.longitudeE7());
+            if (distance > maxDistanceMeters) {
+                continue;
+            }
+            if (best.size() < k) {
+                best.add(new Neighbor(id, distance, entry.latitudeE7(), entry.longitudeE7(), entry.updatedAt()));
+            } else if (distance < best.peek().distanceMeters()) {
+                best.poll();
+                best.add(new Neighbor(id, distance, entry.latitudeE7(), entry.longitudeE7(), entry.updatedAt()));
+            }
+        }
+    }
+
+    private void removeFromCell(long cell, long id) {
+        idsByCell.computeIfPresent(cell, (c, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private int cellE7() {
+        return (int) Math.round(cellDegrees * 1e7);
+    }
+
+    private long cellOf(int latE7, int lonE7) {
+        return cellKey(Math.floorDiv(latE7, cellE7()), Math.floorDiv(lonE7, cellE7()));
+    }
+
+    private static long cellKey(long latCell, long lonCell) {
+        return (latCell << 32) | (lonCell & 0xFFFFFFFFL);
+    }
+}
@@ -1,5 +1,7 @@
 package com.matsuzaka.foodtiger.service.impl;
 
+import com.matsuzaka.foodtiger.config.cache.CacheInvalidationBus;
+import com.matsuzaka.foodtiger.config.logging.SampledLogFilter;
 import com.matsuzaka.foodtiger.dao.entity.User;
 import com.matsuzaka.foodtiger.dao.repository.UserRepository;
 import com.matsuzaka.foodtiger.dto.UserRegistrationRequest;
@@ -10,11 +12,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder; // Import PasswordEncoder
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class); // Logger instance
@@ -22,48 +26,56 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
     @Autowired(required = false) // Make PasswordEncoder optional for now, user needs to configure it
     private PasswordEncoder passwordEncoder; // Autowire PasswordEncoder
 
     @Override
     public List<User> findAllUsers() {
-        logger.info("正在查詢所有用戶"); // INFO 級別日誌
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢所有用戶"); // INFO 級別日誌
         return userRepository.findAll();
     }
 
     @Override
     public Optional<User> findUserById(Long id) {
-        logger.info("正在查詢 ID 為 {} 的用戶", id); // INFO 級別日誌
+        logger.info(SampledLogFilter.READ_PATH, "正在查詢 ID 為 {} 的用戶", id); // INFO 級別日誌
         return userRepository.findById(id);
     }
 
     @Override
+    @Transactional
     public User saveUser(User user) {
         logger.info("正在保存用戶: {}", user.getUsername()); // INFO 級別日誌
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        cacheInvalidationBus.publish(CacheInvalidationBus.USER, savedUser.getId());
+        return savedUser;
     }
 
     @Override
+    @Transactional
     public void deleteUser(Long id) {
         logger.warn("正在刪除 ID 為 {} 的用戶", id); // WARN 級別日誌，因為刪除是敏感操作
         userRepository.deleteById(id);
+        cacheInvalidationBus.publish(CacheInvalidationBus.USER, id);
     }
 
     @Override
     public User findByUsername(String username) {
-        logger.debug("正在按用戶名查詢用戶: {}", username); // DEBUG 級別日誌
+        logger.debug(SampledLogFilter.READ_PATH, "正在按用戶名查詢用戶: {}", username); // DEBUG 級別日誌
         return userRepository.findByUsername(username);
     }
 
     @Override
     public User findByEmail(String email) {
-        logger.debug("正在按電子郵件查詢用戶: {}", email); // DEBUG 級別日誌
+        logger.debug(SampledLogFilter.READ_PATH, "正在按電子郵件查詢用戶: {}", email); // DEBUG 級別日誌
         return userRepository.findByEmail(email);
     }
 
     @Override
     public User findByPhone(String phone) {
-        logger.debug("正在按電話號碼查詢用戶: {}", phone); // DEBUG 級別日誌
+        logger.debug(SampledLogFilter.READ_PATH, "正在按電話號碼查詢用戶: {}", phone); // DEBUG 級別日誌
         return userRepository.findByPhone(phone);
     }
 
@@ -78,6 +90,7 @@ public class UserServiceImpl implements UserService {
      * @throws UserAlreadyExistsException 如果用戶名、電子郵件或電話已存在
      */
     @Override
+    @Transactional
     public User registerUser(UserRegistrationRequest request) throws UserAlreadyExistsException {
         // 檢查用戶名是否已存在
         if (userRepository.findByUsername(request.getUsername()) != null) {
@@ -0,0 +1,21 @@
+package com.matsuzaka.foodtiger.tool.datagen;
+
+/**
+ * 一個資料區塊 (chunk) 的輸出端，每個 chunk 由單一執行緒獨佔使用。
+ * 實作需保證同一 chunk 內的列依 {@link GeneratedTable} 的順序落地，使外鍵在寫入時即成立。
+ */
+public interface ChunkWriter extends AutoCloseable {
+
+    /**
+     * 寫入一列資料，值的順序對應 {@link GeneratedTable#getColumns()}。
+     */
+    void write(GeneratedTable table, Object... values) throws Exception;
+
+    /**
+     * 完成此 chunk，將剩餘資料全部落地。
+     */
+    void finish() throws Exception;
+
+    @Override
+    void close() throws Exception;
+}
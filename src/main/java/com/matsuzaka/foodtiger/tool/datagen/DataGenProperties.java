@@ -0,0 +1,92 @@
+package com.matsuzaka.foodtiger.tool.datagen;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.entity.PaymentMethod;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 大量測試資料產生器的設定，對應 application-datagen.properties 中 datagen.* 的屬性。
+ * 同一組設定與 seed 必定產生完全相同的資料。
+ */
+@Data
+@ConfigurationProperties(prefix = "datagen")
+public class DataGenProperties {
+
+    public enum Mode {
+        JDBC, // 多執行緒批次 INSERT 直接寫入資料庫
+        FILE  // 輸出 TSV 檔與 LOAD DATA 腳本
+    }
+
+    private Mode mode = Mode.FILE;
+
+    private long seed = 20251001L;
+
+    // ----- 各表規模 -----
+    private int customers = 1_000_000;
+    private int deliverers = 20_000;
+    private int owners = 20_000;
+    private int restaurants = 50_000;
+    private int menuItemsPerRestaurant = 30;
+    private long orders = 10_000_000L;
+    private int maxItemsPerOrder = 5;
+
+    // ----- 分佈 -----
+    // 餐廳熱門程度的 Zipf 指數，越大越集中在少數熱門餐廳
+    private double restaurantZipfExponent = 1.1;
+
+    // 訂單狀態的權重，預設大多數為歷史完成訂單
+    private Map<OrderStatus, Integer> statusWeights = defaultStatusWeights();
+
+    private Map<PaymentMethod, Integer> paymentMethodWeights = defaultPaymentMethodWeights();
+
+    // 完成訂單中留下評分的比例
+    private double ratingProbability = 0.35;
+
+    // 訂單時間分佈在 endDate 之前的 days 天內
+    private LocalDate endDate = LocalDate.of(2026, 10, 1);
+    private int days = 365;
+
+    // 一天 24 小時的下單權重，預設午餐與晚餐尖峰
+    private List<Integer> hourWeights = Arrays.asList(
+            1, 1, 1, 1, 1, 1, 2, 4, 6, 5, 6, 14, 20, 12, 5, 4, 5, 10, 18, 16, 9, 6, 4, 2);
+
+    // ----- 執行方式 -----
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 1_000;
+    private int chunkSize = 20_000;
+
+    // FILE 模式的輸出目錄
+    private String outputDir = "target/datagen";
+
+    // 所有產生的帳號共用的明文密碼 (僅計算一次 BCrypt)
+    private String password = "password123";
+
+    private static Map<OrderStatus, Integer> defaultStatusWeights() {
+        Map<OrderStatus, Integer> weights = new EnumMap<>(OrderStatus.class);
+        weights.put(OrderStatus.完成, 82);
+        weights.put(OrderStatus.取消, 8);
+        weights.put(OrderStatus.運送中, 3);
+        weights.put(OrderStatus.準備中, 4);
+        weights.put(OrderStatus.處理中, 3);
+        return weights;
+    }
+
+    private static Map<PaymentMethod, Integer> defaultPaymentMethodWeights() {
+        Map<PaymentMethod, Integer> weights = new EnumMap<>(PaymentMethod.class);
+        weights.put(PaymentMethod.刷卡, 50);
+        weights.put(PaymentMethod.App, 35);
+        weights.put(PaymentMethod.現金, 15);
+        return weights;
+    }
+
+    public long totalUsers() {
+        return (long) customers + deliverers + owners + 1; // 最後一位為 ADMIN
+    }
+}
@@ -0,0 +1,148 @@
+package com.matsuzaka.foodtiger.tool.datagen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 大量測試資料產生器的進入點，僅在 datagen profile 下啟用：
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.profiles=datagen
+ * </pre>
+ * 依外鍵順序逐表產生，每張表切成多個 chunk 交由執行緒池並行處理。
+ * JDBC 模式直接批次寫入 (資料表需先以 create.sql 建立且為空)；FILE 模式輸出 TSV 與 load.sql。
+ */
+@Component
+@Profile("datagen")
+@EnableConfigurationProperties(DataGenProperties.class)
+public class DataGenRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataGenRunner.class);
+
+    @Autowired
+    private DataGenProperties props;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void generate(long chunk, long fromId, long toId, ChunkWriter out) throws Exception;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        logger.info("開始產生測試資料，模式 {}，seed {}，執行緒 {}", props.getMode(), props.getSeed(), props.getThreads());
+        long started = System.currentTimeMillis();
+
+        // 所有帳號共用同一個密碼雜湊，避免 BCrypt 成為瓶頸
+        DataGenerator generator = new DataGenerator(props, passwordEncoder.encode(props.getPassword()));
+        long totalUsers = props.totalUsers();
+        long restaurants = props.getRestaurants();
+
+        ExecutorService executor = Executors.newFixedThreadPool(props.getThreads());
+        try {
+            runPhase(executor, GeneratedTable.USER, totalUsers, generator::writeUsers);
+            runPhase(executor, GeneratedTable.ADDRESS, totalUsers + restaurants, generator::writeAddresses);
+            runPhase(executor, GeneratedTable.RESTAURANT, restaurants, generator::writeRestaurants);
+            runPhase(executor, GeneratedTable.MENU_ITEM, restaurants * props.getMenuItemsPerRestaurant(), generator::writeMenuItems);
+            runPhase(executor, GeneratedTable.ORDERR, props.getOrders(), generator::writeOrders);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (props.getMode() == DataGenProperties.Mode.FILE) {
+            Path script = writeLoadScript(Paths.get(props.getOutputDir()));
+            logger.info("TSV 檔案已輸出至 {}，請以 mysql --local-infile=1 執行 {}", props.getOutputDir(), script);
+        }
+        logger.info("測試資料產生完成，耗時 {} 秒", (System.currentTimeMillis() - started) / 1000);
+    }
+
+    /**
+     * 將 1..rowCount 切成 chunk 並行產生，等待全部完成後才回傳，確保下一張表的外鍵目標已存在。
+     */
+    private void runPhase(ExecutorService executor, GeneratedTable table, long rowCount, ChunkTask task) throws Exception {
+        long chunkSize = props.getChunkSize();
+        long chunks = (rowCount + chunkSize - 1) / chunkSize;
+        AtomicLong done = new AtomicLong();
+        logger.info("產生 {}：{} 筆，{} 個 chunk", table.getTableName(), rowCount, chunks);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (long c = 0; c < chunks; c++) {
+            final long chunk = c;
+            final long fromId = c * chunkSize + 1;
+            final long toId = Math.min(rowCount, (c + 1) * chunkSize);
+            futures.add(executor.submit(() -> {
+                try (ChunkWriter out = openWriter(chunk)) {
+                    task.generate(chunk, fromId, toId, out);
+                    out.finish();
+                }
+                long finished = done.incrementAndGet();
+                if (finished % 50 == 0 || finished == chunks) {
+                    logger.info("{}：已完成 {}/{} 個 chunk", table.getTableName(), finished, chunks);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(); // 任一 chunk 失敗即中止整個產生流程
+        }
+    }
+
+    private ChunkWriter openWriter(long chunk) throws Exception {
+        if (props.getMode() == DataGenProperties.Mode.JDBC) {
+            return new JdbcChunkWriter(dataSource, props.getBatchSize());
+        }
+        return new TsvChunkWriter(Paths.get(props.getOutputDir()), (int) chunk);
+    }
+
+    /**
+     * 依外鍵順序產生 LOAD DATA 腳本，載入期間暫停外鍵與唯一性檢查以加速匯入。
+     */
+    private Path writeLoadScript(Path outputDir) throws Exception {
+        Path script = outputDir.resolve("load.sql");
+        try (BufferedWriter writer = Files.newBufferedWriter(script, StandardCharsets.UTF_8)) {
+            writer.write("SET FOREIGN_KEY_CHECKS = 0;\nSET UNIQUE_CHECKS = 0;\nSET autocommit = 0;\n\n");
+            for (GeneratedTable table : GeneratedTable.values()) {
+                Path tableDir = outputDir.resolve(table.getTableName());
+                if (!Files.isDirectory(tableDir)) {
+                    continue;
+                }
+                List<Path> files;
+                try (var stream = Files.list(tableDir)) {
+                    files = stream.filter(p -> p.toString().endsWith(".tsv")).sorted().toList();
+                }
+                for (Path file : files) {
+                    writer.write("LOAD DATA LOCAL INFILE '" + file.toAbsolutePath().toString().replace("\\", "/") + "'\n"
+                            + "    INTO TABLE `" + table.getTableName() + "` CHARACTER SET utf8mb4\n"
+                            + "    FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n'\n"
+                            + "    (" + String.join(", ", table.getColumns()) + ");\n");
+                }
+                writer.write("COMMIT;\n\n");
+            }
+            writer.write("SET UNIQUE_CHECKS = 1;\nSET FOREIGN_KEY_CHECKS = 1;\n");
+        }
+        return script;
+    }
+}
@@ -0,0 +1,299 @@
+package com.matsuzaka.foodtiger.tool.datagen;
+
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.entity.PaymentMethod;
+import com.matsuzaka.foodtiger.dao.entity.PaymentStatus;
+import com.matsuzaka.foodtiger.dao.entity.Role;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 產生各表資料列的純邏輯，不涉及任何 I/O。
+ *
+ * <p>所有 ID 都由規則推導而非查詢資料庫，因此任意 chunk 可獨立並行產生且彼此一致：
+ * <ul>
+ *     <li>用戶：CUSTOMER 1..C，DELIVER 接續，RESTAURANT_OWNER 接續，最後一位為 ADMIN</li>
+ *     <li>地址：用戶 i 的地址 ID 為 i；餐廳 r 的地址 ID 為 用戶總數 + r</li>
+ *     <li>菜單項目：餐廳 r 的第 j 項 ID 為 (r - 1) * K + j，價格由 ID 雜湊決定</li>
+ *     <li>訂單項目：訂單 o 的第 i 項 ID 為 (o - 1) * 每筆訂單最多項目數 + i；支付 ID 與訂單 ID 相同</li>
+ * </ul>
+ * 每個 chunk 的亂數來源由 (seed, 表, chunk 編號) 決定，與執行緒排程無關，因此同一 seed 產生相同資料。</p>
+ */
+public class DataGenerator {
+
+    // 常見的台北市與新北市行政區 (縣市, 區, 郵遞區號)
+    static final String[][] DISTRICTS = {
+            {"台北市", "中正區", "100"}, {"台北市", "大同區", "103"}, {"台北市", "中山區", "104"},
+            {"台北市", "松山區", "105"}, {"台北市", "大安區", "106"}, {"台北市", "萬華區", "108"},
+            {"台北市", "信義區", "110"}, {"台北市", "士林區", "111"}, {"台北市", "北投區", "112"},
+            {"台北市", "內湖區", "114"}, {"台北市", "南港區", "115"}, {"台北市", "文山區", "116"},
+            {"新北市", "板橋區", "220"}, {"新北市", "三重區", "241"}, {"新北市", "中和區", "235"},
+            {"新北市", "永和區", "234"}, {"新北市", "新莊區", "242"}, {"新北市", "新店區", "231"},
+            {"新北市", "土城區", "236"}, {"新北市", "蘆洲區", "247"}
+    };
+
+    private static final String[] STREETS = {"忠孝東路", "仁愛路", "信義路", "和平東路", "民生東路", "南京東路",
+            "中山北路", "復興南路", "敦化南路", "光復南路", "重慶南路", "羅斯福路", "中正路", "民權路", "文化路"};
+
+    private static final String[] CUISINES = {"台式便當", "牛肉麵", "日式拉麵", "韓式炸雞", "義式披薩", "港式茶餐廳",
+            "泰式料理", "越南河粉", "素食", "早午餐", "手搖飲", "甜點", "火鍋", "壽司", "漢堡"};
+
+    private static final String[] DISHES = {"滷肉飯", "雞腿便當", "排骨飯", "牛肉麵", "餛飩湯", "炒飯", "炒麵", "水餃",
+            "咖哩飯", "拉麵", "炸雞", "披薩", "沙拉", "珍珠奶茶", "蛋糕", "鍋貼", "蔥油餅", "豬排丼", "河粉", "漢堡"};
+
+    private final DataGenProperties props;
+    private final String passwordHash;
+    private final ZipfSampler restaurantPopularity;
+    private final WeightedSampler<OrderStatus> statusSampler;
+    private final WeightedSampler<PaymentMethod> paymentMethodSampler;
+    private final WeightedSampler<Integer> hourSampler;
+    private final LocalDateTime rangeStart;
+    private final LocalDateTime rangeEnd;
+
+    private final long firstDelivererId;
+    private final long firstOwnerId;
+    private final long adminId;
+    private final long totalUsers;
+
+    public DataGenerator(DataGenProperties props, String passwordHash) {
+        this.props = props;
+        this.passwordHash = passwordHash;
+        this.restaurantPopularity = new ZipfSampler(props.getRestaurants(), props.getRestaurantZipfExponent());
+        this.statusSampler = new WeightedSampler<>(props.getStatusWeights());
+        this.paymentMethodSampler = new WeightedSampler<>(props.getPaymentMethodWeights());
+        Map<Integer, Integer> hours = new LinkedHashMap<>();
+        for (int h = 0; h < props.getHourWeights().size(); h++) {
+            hours.put(h, props.getHourWeights().get(h));
+        }
+        this.hourSampler = new WeightedSampler<>(hours);
+        this.rangeEnd = props.getEndDate().atStartOfDay();
+        this.rangeStart = rangeEnd.minusDays(props.getDays());
+
+        this.firstDelivererId = props.getCustomers() + 1L;
+        this.firstOwnerId = firstDelivererId + props.getDeliverers();
+        this.adminId = firstOwnerId + props.getOwners();
+        this.totalUsers = props.totalUsers();
+    }
+
+    /**
+     * 由 (seed, 表, chunk) 推導獨立的亂數來源。
+     */
+    private SplittableRandom randomFor(GeneratedTable table, long chunk) {
+        return new SplittableRandom(mix64(props.getSeed() * 31 + table.ordinal()) ^ mix64(chunk + 1));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private LocalDateTime randomTimeInRange(SplittableRandom random) {
+        return rangeStart.plusDays(random.nextInt(Math.max(props.getDays(), 1)))
+                .plusHours(hourSampler.sample(random))
+                .plusMinutes(random.nextInt(60))
+                .plusSeconds(random.nextInt(60));
+    }
+
+    private String[] districtFor(long key) {
+        return DISTRICTS[(int) Math.floorMod(mix64(props.getSeed() ^ key), (long) DISTRICTS.length)];
+    }
+
+    // ===== 用戶 =====
+
+    public void writeUsers(long chunk, long fromId, long toId, ChunkWriter out) throws Exception {
+        SplittableRandom random = randomFor(GeneratedTable.USER, chunk);
+        for (long id = fromId; id <= toId; id++) {
+            Role role;
+            if (id < firstDelivererId) {
+                role = Role.CUSTOMER;
+            } else if (id < firstOwnerId) {
+                role = Role.DELIVER;
+            } else if (id < adminId) {
+                role = Role.RESTAURANT_OWNER;
+            } else {
+                role = Role.ADMIN;
+            }
+            LocalDateTime createdAt = rangeStart.minusDays(random.nextInt(365)).plusSeconds(random.nextInt(86_400));
+            out.write(GeneratedTable.USER,
+                    id,
+                    String.format("user%08d", id),
+                    passwordHash,
+                    String.format("user%08d@example.com", id),
+                    String.format("09%08d", id),
+                    role.name(),
+                    createdAt,
+                    createdAt);
+        }
+    }
+
+    // ===== 地址 =====
+
+    public void writeAddresses(long chunk, long fromId, long toId, ChunkWriter out) throws Exception {
+        SplittableRandom random = randomFor(GeneratedTable.ADDRESS, chunk);
+        for (long id = fromId; id <= toId; id++) {
+            boolean restaurantAddress = id > totalUsers;
+            String[] district = districtFor(id);
+            String street = STREETS[random.nextInt(STREETS.length)] + (1 + random.nextInt(5)) + "段"
+                    + (1 + random.nextInt(300)) + "號";
+            LocalDateTime createdAt = rangeStart.minusDays(random.nextInt(365));
+            out.write(GeneratedTable.ADDRESS,
+                    id,
+                    restaurantAddress ? null : id,
+                    district[2],
+                    district[0],
+                    district[1],
+                    street,
+                    restaurantAddress ? "餐廳地址" : (random.nextInt(4) == 0 ? (1 + random.nextInt(20)) + "樓" : null),
+                    createdAt,
+                    createdAt);
+        }
+    }
+
+    // ===== 餐廳 =====
+
+    public void writeRestaurants(long chunk, long fromId, long toId, ChunkWriter out) throws Exception {
+        SplittableRandom random = randomFor(GeneratedTable.RESTAURANT, chunk);
+        for (long id = fromId; id <= toId; id++) {
+            String cuisine = CUISINES[(int) (id % CUISINES.length)];
+            long ownerId = firstOwnerId + (id - 1) % props.getOwners();
+            double rating = Math.round((3.0 + random.nextDouble() * 2.0) * 10) / 10.0;
+            LocalDateTime createdAt = rangeStart.minusDays(random.nextInt(365));
+            out.write(GeneratedTable.RESTAURANT,
+                    id,
+                    cuisine + " " + id + "號店",
+                    ownerId,
+                    totalUsers + id,
+                    "主打" + cuisine,
+                    rating,
+                    createdAt,
+                    createdAt);
+        }
+    }
+
+    // ===== 菜單項目 =====
+
+    /**
+     * 菜單項目的價格只由 ID 決定，產生訂單時不需查詢菜單即可得到一致的 price_at_orderr。
+     */
+    int priceOf(long menuItemId) {
+        return 50 + (int) Math.floorMod(mix64(props.getSeed() + menuItemId), 40L) * 10;
+    }
+
+    public void writeMenuItems(long chunk, long fromId, long toId, ChunkWriter out) throws Exception {
+        SplittableRandom random = randomFor(GeneratedTable.MENU_ITEM, chunk);
+        int perRestaurant = props.getMenuItemsPerRestaurant();
+        for (long id = fromId; id <= toId; id++) {
+            long restaurantId = (id - 1) / perRestaurant + 1;
+            String dish = DISHES[(int) Math.floorMod(mix64(id), (long) DISHES.length)];
+            LocalDateTime createdAt = rangeStart.minusDays(random.nextInt(180));
+            out.write(GeneratedTable.MENU_ITEM,
+                    id,
+                    restaurantId,
+                    dish + " #" + ((id - 1) % perRestaurant + 1),
+                    "餐廳 " + restaurantId + " 的" + dish,
+                    priceOf(id),
+                    "https://cdn.example.com/menu/" + id + ".jpg",
+                    random.nextInt(20) != 0, // 約 5% 售完
+                    createdAt,
+                    createdAt);
+        }
+    }
+
+    // ===== 訂單、訂單項目、支付 =====
+
+    /**
+     * 產生一段連續 ID 的訂單，連同其訂單項目與支付記錄寫入同一個 chunk。
+     */
+    public void writeOrders(long chunk, long fromId, long toId, ChunkWriter out) throws Exception {
+        SplittableRandom random = randomFor(GeneratedTable.ORDERR, chunk);
+        int perRestaurant = props.getMenuItemsPerRestaurant();
+        for (long id = fromId; id <= toId; id++) {
+            long userId = 1 + random.nextInt(props.getCustomers());
+            long restaurantId = restaurantPopularity.sample(random);
+            OrderStatus status = statusSampler.sample(random);
+
+            // 進行中的訂單集中在資料時間範圍的最後兩小時，歷史訂單則分佈在整個範圍
+            LocalDateTime orderTime = isActive(status)
+                    ? rangeEnd.minusSeconds(1 + random.nextInt(7_200))
+                    : randomTimeInRange(random);
+
+            Long deliveryPersonId = null;
+            if (status == OrderStatus.運送中 || status == OrderStatus.完成
+                    || (status == OrderStatus.準備中 && random.nextBoolean())) {
+                deliveryPersonId = firstDelivererId + random.nextInt(props.getDeliverers());
+            }
+
+            int itemCount = 1 + random.nextInt(props.getMaxItemsPerOrder());
+            int totalAmount = 0;
+            long firstMenuItem = (restaurantId - 1) * perRestaurant + 1;
+            long[] menuItemIds = new long[itemCount];
+            int[] quantities = new int[itemCount];
+            for (int i = 0; i < itemCount; i++) {
+                menuItemIds[i] = firstMenuItem + random.nextInt(perRestaurant);
+                quantities[i] = 1 + (random.nextInt(10) == 0 ? random.nextInt(3) + 1 : 0);
+                totalAmount += quantities[i] * priceOf(menuItemIds[i]);
+            }
+            int deliveryFee = 20 + random.nextInt(5) * 10;
+
+            LocalDateTime completedTime = status == OrderStatus.完成
+                    ? orderTime.plusMinutes(20 + random.nextInt(50))
+                    : null;
+            Integer rating = null;
+            if (status == OrderStatus.完成 && random.nextDouble() < props.getRatingProbability()) {
+                // 評分偏向 4、5 星
+                int r = random.nextInt(100);
+                rating = r < 45 ? 5 : r < 80 ? 4 : r < 92 ? 3 : r < 97 ? 2 : 1;
+            }
+
+            out.write(GeneratedTable.ORDERR,
+                    id,
+                    userId,
+                    restaurantId,
+                    deliveryPersonId,
+                    userId, // 顧客地址 ID 與用戶 ID 相同
+                    totalAmount,
+                    deliveryFee,
+                    status.name(),
+                    orderTime,
+                    orderTime.plusMinutes(40),
+                    completedTime,
+                    rating);
+
+            for (int i = 0; i < itemCount; i++) {
+                out.write(GeneratedTable.ORDERR_ITEM, (id - 1) * props.getMaxItemsPerOrder() + i + 1,
+                        id, menuItemIds[i], quantities[i], priceOf(menuItemIds[i]));
+            }
+
+            PaymentStatus paymentStatus = paymentStatusFor(status, random);
+            if (paymentStatus != null) {
+                out.write(GeneratedTable.PAYMENT,
+                        id,
+                        id,
+                        totalAmount + deliveryFee,
+                        paymentMethodSampler.sample(random).name(),
+                        "TXN" + id,
+                        paymentStatus.name(),
+                        orderTime.plusSeconds(5 + random.nextInt(120)));
+            }
+        }
+    }
+
+    private static boolean isActive(OrderStatus status) {
+        return status == OrderStatus.處理中 || status == OrderStatus.準備中 || status == OrderStatus.運送中;
+    }
+
+    /**
+     * @return 對應的支付狀態；null 表示此訂單尚無支付記錄
+     */
+    private static PaymentStatus paymentStatusFor(OrderStatus status, SplittableRandom random) {
+        return switch (status) {
+            case 完成, 運送中, 準備中 -> PaymentStatus.付款成功;
+            case 處理中 -> random.nextBoolean() ? PaymentStatus.處理中 : null;
+            case 取消 -> random.nextInt(3) == 0 ? PaymentStatus.付款失敗 : null;
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.matsuzaka.foodtiger.tool.datagen;
+
+import java.util.List;
+
+/**
+ * 產生器會寫入的資料表與欄位順序。
+ * 列舉順序即外鍵相依順序，寫入或載入時必須依此順序進行。
+ */
+public enum GeneratedTable {
+    USER("user", List.of("id", "username", "password", "email", "phone", "role", "created_at", "updated_at")),
+    ADDRESS("address", List.of("id", "user_id", "zip_code", "city", "district", "street", "extra_details", "created_at", "updated_at")),
+    RESTAURANT("restaurant", List.of("id", "name", "owner_id", "address_id", "description", "rating", "created_at", "updated_at")),
+    MENU_ITEM("menu_item", List.of("id", "restaurant_id", "title", "description", "price", "image_url", "available", "created_at", "updated_at")),
+    ORDERR("orderr", List.of("id", "user_id", "restaurant_id", "delivery_person_id", "delivery_address_id", "total_amount",
+            "delivery_fee", "status", "orderr_time", "estimated_delivery_time", "completed_time", "rating")),
+    // orderr_item 與 payment 沒有 AUTO_INCREMENT (正式環境由 SnowflakeIdGenerator 產生)，id 同樣由規則推導
+    ORDERR_ITEM("orderr_item", List.of("id", "orderr_id", "menu_item_id", "quantity", "price_at_orderr")),
+    PAYMENT("payment", List.of("id", "orderr_id", "amount", "payment_method", "transaction_id", "status", "payment_time"));
+
+    private final String tableName;
+    private final List<String> columns;
+
+    GeneratedTable(String tableName, List<String> columns) {
+        this.tableName = tableName;
+        this.columns = columns;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public String insertSql() {
+        String placeholders = String.join(", ", columns.stream().map(c -> "?").toList());
+        return "INSERT INTO `" + tableName + "` (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+    }
+}
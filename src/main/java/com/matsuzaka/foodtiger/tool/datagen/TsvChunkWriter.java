@@ -0,0 +1,91 @@
+package com.matsuzaka.foodtiger.tool.datagen;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 將一個 chunk 輸出為 LOAD DATA 可直接讀取的 TSV 檔，每個表每個 chunk 一個檔案：
+ * {outputDir}/{table}/{table}-{chunk}.tsv。NULL 輸出為 \N，跳脫規則與 MySQL 預設的
+ * FIELDS TERMINATED BY '\t' ESCAPED BY '\\' 一致。
+ */
+public class TsvChunkWriter implements ChunkWriter {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Path outputDir;
+    private final String chunkName;
+    private final Map<GeneratedTable, BufferedWriter> writers = new EnumMap<>(GeneratedTable.class);
+    private final StringBuilder line = new StringBuilder(256);
+
+    public TsvChunkWriter(Path outputDir, int chunkIndex) {
+        this.outputDir = outputDir;
+        this.chunkName = String.format("%06d", chunkIndex);
+    }
+
+    public static Path fileFor(Path outputDir, GeneratedTable table, String chunkName) {
+        return outputDir.resolve(table.getTableName()).resolve(table.getTableName() + "-" + chunkName + ".tsv");
+    }
+
+    @Override
+    public void write(GeneratedTable table, Object... values) throws Exception {
+        BufferedWriter writer = writers.get(table);
+        if (writer == null) {
+            Path file = fileFor(outputDir, table, chunkName);
+            Files.createDirectories(file.getParent());
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            writers.put(table, writer);
+        }
+        line.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            appendValue(values[i]);
+        }
+        line.append('\n');
+        writer.append(line);
+    }
+
+    private void appendValue(Object value) {
+        if (value == null) {
+            line.append("\\N");
+        } else if (value instanceof LocalDateTime time) {
+            line.append(TIMESTAMP_FORMAT.format(time));
+        } else if (value instanceof Boolean bool) {
+            line.append(bool ? '1' : '0');
+        } else if (value instanceof String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '\\' -> line.append("\\\\");
+                    case '\t' -> line.append("\\t");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    default -> line.append(c);
+                }
+            }
+        } else {
+            line.append(value);
+        }
+    }
+
+    @Override
+    public void finish() throws Exception {
+        for (BufferedWriter writer : writers.values()) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (BufferedWriter writer : writers.values()) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.matsuzaka.foodtiger.tool.datagen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 依整數權重抽樣的離散分佈 (例如訂單狀態、付款方式、下單時段)。
+ *
+ * @param <T> 抽樣值的型別
+ */
+public class WeightedSampler<T> {
+
+    private final List<T> values = new ArrayList<>();
+    private final int[] cumulative;
+    private final int total;
+
+    public WeightedSampler(Map<T, Integer> weights) {
+        cumulative = new int[weights.size()];
+        int sum = 0;
+        int i = 0;
+        for (Map.Entry<T, Integer> entry : weights.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() < 0) {
+                throw new IllegalArgumentException("權重不可為負數: " + entry.getKey());
+            }
+            sum += entry.getValue();
+            values.add(entry.getKey());
+            cumulative[i++] = sum;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("權重總和必須大於 0");
+        }
+        total = sum;
+    }
+
+    public T sample(SplittableRandom random) {
+        int r = random.nextInt(total);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) {
+                return values.get(i);
+            }
+        }
+        return values.get(values.size() - 1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.matsuzaka.foodtiger.tool.datagen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf 分佈抽樣器，回傳 1..n 的排名，排名 k 的機率與 1/k^s 成正比。
+ * 預先計算累積分佈 (CDF)，每次抽樣為一次二分搜尋，建立後為唯讀，可跨執行緒共用。
+ */
+public class ZipfSampler {
+
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n 必須大於 0");
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1.0 / Math.pow(k, exponent);
+            cdf[k - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+    }
+
+    /**
+     * 抽出一個排名。
+     *
+     * @param random 呼叫端自己的隨機來源 (決定性由呼叫端的 seed 保證)
+     * @return 1..n 之間的排名
+     */
+    public int sample(SplittableRandom random) {
+        int idx = Arrays.binarySearch(cdf, random.nextDouble());
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        return Math.min(idx, cdf.length - 1) + 1;
+    }
+}
@@ -1,6 +1,14 @@
 CREATE DATABASE IF NOT EXISTS FoodTigerDB;
 USE FoodTigerDB;
 
+DROP TABLE IF EXISTS courier_location_track;
+DROP TABLE IF EXISTS order_event_outbox;
+DROP TABLE IF EXISTS cache_invalidation_log;
+DROP TABLE IF EXISTS payment_archive;
+DROP TABLE IF EXISTS orderr_item_archive;
+DROP TABLE IF EXISTS orderr_archive;
+DROP TABLE IF EXISTS restaurant_sales_hourly;
+DROP TABLE IF EXISTS idempotency_record;
 DROP TABLE IF EXISTS payment;
 DROP TABLE IF EXISTS orderr_item;
 DROP TABLE IF EXISTS orderr;
@@ -34,6 +42,8 @@ CREATE TABLE address (
                            district VARCHAR(50),                  -- 區
                            street VARCHAR(255) NOT NULL,          -- 街道
                            extra_details VARCHAR(50),             -- 額外資訊，如門牌細節
+                           latitude DECIMAL(10, 7),               -- 緯度，未提供時依縣市、行政區推估
+                           longitude DECIMAL(10, 7),              -- 經度
                            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                            updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
                            FOREIGN KEY (user_id) REFERENCES user(id) ON DELETE CASCADE  -- 刪除用戶時連動刪除地址，維持一致性
@@ -49,6 +59,9 @@ CREATE TABLE restaurant (
                              address_id BIGINT NOT NULL,            -- 地址，連結 address
                              description TEXT,
                              rating DECIMAL(3,1) DEFAULT 0,      -- 評分，精確到小數1位
+                             rating_sum BIGINT NOT NULL DEFAULT 0,   -- 評分總和，由 RestaurantRatingAggregator 累加
+                             rating_count INT NOT NULL DEFAULT 0,    -- 評分筆數
+                             rating_flushed_at TIMESTAMP(3) NULL,    -- 最後一次累加評分的時間，重建時用來判斷是否有尚未計入快照的評分
                              created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                              updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
                              FOREIGN KEY (owner_id) REFERENCES user(id) ON DELETE RESTRICT,  -- 限制刪除擁有者，避免餐廳孤立
@@ -70,12 +83,13 @@ CREATE TABLE menu_item (
                             available BOOLEAN DEFAULT TRUE,
                             created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                             updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                            UNIQUE KEY uk_menu_item_restaurant_title (restaurant_id, title),            -- 同一餐廳菜名不重複，批次匯入以此判斷新增或更新
                             FOREIGN KEY (restaurant_id) REFERENCES restaurant(id) ON DELETE CASCADE     -- 刪除餐廳時連動刪除菜單項目，維持一致性
 );
 
 
 CREATE TABLE orderr (
-                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                        id BIGINT PRIMARY KEY,                 -- NodeIdAllocator 指派節點後由 SnowflakeIdGenerator 產生
                         user_id BIGINT NOT NULL,               -- 顧客
                         restaurant_id BIGINT NOT NULL,
                         delivery_person_id BIGINT,             -- 送餐員，可 NULL 直到分配
@@ -96,11 +110,14 @@ CREATE TABLE orderr (
 );
 -- 索引：加速狀態查詢
 CREATE INDEX idx_orderr_status ON orderr(status);
-CREATE INDEX idx_orderr_user_id ON orderr(user_id);
+-- 索引：依角色查詢某狀態的訂單 (顧客、餐廳、外送員)，依下單時間分頁；也涵蓋只依 user_id 的查詢
+CREATE INDEX idx_orderr_user_status_time ON orderr(user_id, status, orderr_time);
+CREATE INDEX idx_orderr_restaurant_status_time ON orderr(restaurant_id, status, orderr_time);
+CREATE INDEX idx_orderr_delivery_status_time ON orderr(delivery_person_id, status, orderr_time);
 
 
 CREATE TABLE orderr_item (
-                             id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                             id BIGINT PRIMARY KEY,                 -- NodeIdAllocator 指派節點後由 SnowflakeIdGenerator 產生
                              orderr_id BIGINT NOT NULL,
                              menu_item_id BIGINT NOT NULL,
                              quantity INT NOT NULL DEFAULT 1,
@@ -111,7 +128,7 @@ CREATE TABLE orderr_item (
 
 
 CREATE TABLE payment (
-                         id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                         id BIGINT PRIMARY KEY,                 -- NodeIdAllocator 指派節點後由 SnowflakeIdGenerator 產生
                          orderr_id BIGINT NOT NULL UNIQUE,       -- 一訂單一支付
                          amount INT NOT NULL,
                          payment_method ENUM('刷卡', '現金', 'App') NOT NULL,
@@ -122,6 +139,150 @@ CREATE TABLE payment (
 );
 
 
+CREATE TABLE idempotency_record (
+                                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                    user_id BIGINT NOT NULL,               -- key 只在同一用戶內有效
+                                    scope VARCHAR(50) NOT NULL,            -- API 名稱，例如 orderrs.create
+                                    idem_key VARCHAR(100) NOT NULL,        -- 客戶端送來的 Idempotency-Key
+                                    request_hash CHAR(64) NOT NULL,        -- 請求內容的 SHA-256，偵測同一 key 被用於不同內容
+                                    status_code INT,                       -- NULL 表示原始請求仍在處理中
+                                    response_body MEDIUMTEXT,              -- 第一次成功回應的 JSON，重送時回放
+                                    location VARCHAR(255),
+                                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                                    expires_at TIMESTAMP NOT NULL,
+                                    lease_expires_at TIMESTAMP(3),         -- 處理中紀錄的租約，執行中的節點定期續約，到期才可被其他節點接手
+                                    UNIQUE KEY uk_idempotency_user_scope_key (user_id, scope, idem_key)
+);
+-- 索引：定期清除過期紀錄
+CREATE INDEX idx_idempotency_expires_at ON idempotency_record(expires_at);
+
+
+CREATE TABLE restaurant_sales_hourly (
+                                         restaurant_id BIGINT NOT NULL,
+                                         bucket_hour DATETIME NOT NULL,             -- 下單時間的整點
+                                         order_count BIGINT NOT NULL DEFAULT 0,
+                                         gross_amount BIGINT NOT NULL DEFAULT 0,    -- 含之後取消的訂單
+                                         delivery_fee_amount BIGINT NOT NULL DEFAULT 0,
+                                         cancelled_count BIGINT NOT NULL DEFAULT 0,
+                                         cancelled_amount BIGINT NOT NULL DEFAULT 0,
+                                         PRIMARY KEY (restaurant_id, bucket_hour),  -- 依餐廳與時間範圍查詢
+                                         FOREIGN KEY (restaurant_id) REFERENCES restaurant(id) ON DELETE CASCADE
+);
+-- 索引：加速回補時依下單時間範圍掃描訂單
+CREATE INDEX idx_orderr_time ON orderr(orderr_time);
+
+
+-- 封存表：完成或取消超過保留天數的訂單由 OrderArchiveServiceImpl 從 orderr、orderr_item、payment 搬移過來
+-- ID 沿用原值 (不自動遞增)，與 orderr 之間沒有外鍵
+CREATE TABLE orderr_archive (
+                                id BIGINT PRIMARY KEY,
+                                user_id BIGINT NOT NULL,
+                                restaurant_id BIGINT NOT NULL,
+                                delivery_person_id BIGINT,
+                                delivery_address_id BIGINT NOT NULL,
+                                total_amount INT NOT NULL,
+                                delivery_fee INT DEFAULT 0,
+                                status ENUM('處理中', '準備中', '運送中', '完成', '取消') NOT NULL,
+                                orderr_time TIMESTAMP NULL,
+                                estimated_delivery_time TIMESTAMP NULL,
+                                completed_time TIMESTAMP NULL,
+                                rating INT,
+                                archived_at TIMESTAMP NOT NULL,
+                                FOREIGN KEY (user_id) REFERENCES user(id),
+                                FOREIGN KEY (restaurant_id) REFERENCES restaurant(id),
+                                FOREIGN KEY (delivery_person_id) REFERENCES user(id),
+                                FOREIGN KEY (delivery_address_id) REFERENCES address(id)
+);
+-- 索引：歷史訂單依用戶、餐廳、外送員查詢，以及依下單時間重建銷售彙總
+CREATE INDEX idx_orderr_archive_user_id ON orderr_archive(user_id);
+CREATE INDEX idx_orderr_archive_restaurant_id ON orderr_archive(restaurant_id);
+CREATE INDEX idx_orderr_archive_delivery_person_id ON orderr_archive(delivery_person_id);
+CREATE INDEX idx_orderr_archive_time ON orderr_archive(orderr_time);
+
+CREATE TABLE orderr_item_archive (
+                                     id BIGINT PRIMARY KEY,
+                                     orderr_id BIGINT NOT NULL,
+                                     menu_item_id BIGINT NOT NULL,
+                                     quantity INT NOT NULL DEFAULT 1,
+                                     price_at_orderr INT NOT NULL,
+                                     FOREIGN KEY (orderr_id) REFERENCES orderr_archive(id) ON DELETE CASCADE,
+                                     FOREIGN KEY (menu_item_id) REFERENCES menu_item(id) ON DELETE RESTRICT  -- 封存後菜單項目仍受保護，歷史訂單不會孤立
+);
+
+CREATE TABLE payment_archive (
+                                 id BIGINT PRIMARY KEY,
+                                 orderr_id BIGINT NOT NULL UNIQUE,
+                                 amount INT NOT NULL,
+                                 payment_method ENUM('刷卡', '現金', 'App') NOT NULL,
+                                 transaction_id VARCHAR(100),
+                                 status ENUM('處理中', '付款成功', '付款失敗'),
+                                 payment_time TIMESTAMP NULL,
+                                 FOREIGN KEY (orderr_id) REFERENCES orderr_archive(id) ON DELETE CASCADE
+);
+-- 索引：封存時依狀態與下單時間挑選訂單
+CREATE INDEX idx_orderr_status_time ON orderr(status, orderr_time);
+
+
+-- 快取失效紀錄：多節點部署時，寫入菜單、餐廳、用戶、地址的交易一併寫入，各節點以 id 為游標輪詢 (CacheInvalidationBus)
+CREATE TABLE cache_invalidation_log (
+                                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                        region VARCHAR(50) NOT NULL,           -- 快取區域，例如 restaurant、menu
+                                        entity_key BIGINT,                     -- 失效的項目 ID，NULL 表示整個區域
+                                        origin_node VARCHAR(100) NOT NULL,     -- 寫入的節點，節點略過自己的紀錄
+                                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+-- 索引：定期刪除過期紀錄
+CREATE INDEX idx_cache_invalidation_created_at ON cache_invalidation_log(created_at);
+
 
+-- 訂單事件 outbox：與訂單狀態變更同一交易寫入，提交後由 OrderEventRelay 分批轉送給程序內的訂閱者
+CREATE TABLE order_event_outbox (
+                                    id BIGINT PRIMARY KEY,                  -- Snowflake ID，分片之間不重複
+                                    event_type VARCHAR(50) NOT NULL,        -- OrderEventType
+                                    order_id BIGINT NOT NULL,
+                                    restaurant_id BIGINT,
+                                    payload TEXT NOT NULL,                  -- JSON
+                                    created_at TIMESTAMP(3) NOT NULL,
+                                    published_at TIMESTAMP(3) NULL,         -- NULL 表示尚未轉送
+                                    attempts INT NOT NULL DEFAULT 0,
+                                    next_attempt_at TIMESTAMP(3) NULL,      -- 轉送失敗後的下次重試時間
+                                    last_error VARCHAR(500),
+                                    dead BOOLEAN NOT NULL DEFAULT FALSE     -- 超過重試次數而放棄的事件
+);
+-- 索引：轉送時依序號挑選尚未轉送的事件，並定期刪除已轉送的舊事件
+CREATE INDEX idx_order_event_outbox_pending ON order_event_outbox(published_at, id);
+
+
+-- 外送員軌跡：GPS 回報先存在記憶體的環狀緩衝區，只有降採樣後的點由 CourierLocationServiceImpl 定期批次寫入
+CREATE TABLE courier_location_track (
+                                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                        courier_id BIGINT NOT NULL,
+                                        latitude DECIMAL(10, 7) NOT NULL,
+                                        longitude DECIMAL(10, 7) NOT NULL,
+                                        recorded_at TIMESTAMP(3) NOT NULL,     -- 裝置定位的時間
+                                        FOREIGN KEY (courier_id) REFERENCES user(id) ON DELETE CASCADE
+);
+-- 索引：依外送員與時間區間查詢軌跡
+CREATE INDEX idx_courier_location_track_courier_time ON courier_location_track(courier_id, recorded_at);
 
 
+-- Snowflake ID 節點租約：未設定 app.id.node-id 時，各節點由 NodeIdAllocator 租用一個節點 ID 並定期續約
+CREATE TABLE id_node_lease (
+                               node_id INT PRIMARY KEY,               -- 0 ~ 1023
+                               owner VARCHAR(100) NOT NULL,           -- 持有租約的節點
+                               expires_at TIMESTAMP(3) NOT NULL       -- 過期後其他節點才可接手
+);
+
+
+-- 訂單分片對照：餐廳 ID 雜湊到 1024 個桶，每個桶分配到一個分片 (只存在分片 0)，由 OrderShardMap 讀取、OrderShardRebalancer 搬移
+CREATE TABLE order_shard_bucket (
+                                    bucket INT PRIMARY KEY,                 -- 0 ~ 1023
+                                    shard INT NOT NULL,                     -- app.order-shards 的分片編號，0 為 spring.datasource
+                                    moving BOOLEAN NOT NULL DEFAULT FALSE,  -- 搬移中，路由到這個桶的寫入會等待
+                                    updated_at TIMESTAMP(3)
+);
+
+-- 訂單分片 fence：每個分片都有，存在一列表示該桶的訂單資料在這個分片。寫入訂單資料的交易以共用鎖讀取，搬移時以排他鎖鎖住
+CREATE TABLE order_shard_fence (
+                                   bucket INT PRIMARY KEY                  -- 0 ~ 1023
+);
@@ -44,29 +44,29 @@ INSERT INTO menu_item (restaurant_id, title, description, price, image_url) VALU
 (4, '瑪格麗特披薩', '經典瑪格麗特披薩', 250, 'https://cdn.example.com/pizza.jpg'),
 (4, '凱薩沙拉', '清爽凱薩沙拉', 120, 'https://cdn.example.com/salad.jpg');
 
--- 插入訂單（6 筆，分配不同顧客、餐廳、送餐員、地址）
-INSERT INTO orderr (user_id, restaurant_id, delivery_person_id, delivery_address_id, total_amount, delivery_fee, status, estimated_delivery_time, rating) VALUES
-(1, 1, 2, 1, 240, 30, '完成', CURRENT_TIMESTAMP, 5),
-(1, 2, 2, 1, 470, 40, '運送中', CURRENT_TIMESTAMP, NULL),
-(1, 3, 2, 1, 570, 35, '完成', CURRENT_TIMESTAMP, 4),
-(1, 4, 2, 1, 400, 30, '完成', CURRENT_TIMESTAMP, 5),
-(3, 1, 2, 3, 180, 30, '完成', CURRENT_TIMESTAMP, 5),
-(5, 2, 2, 5, 350, 40, '運送中', CURRENT_TIMESTAMP, NULL);
+-- 插入訂單（6 筆，分配不同顧客、餐廳、送餐員、地址；訂單、訂單項目、支付的 id 由應用程式產生，範例資料直接指定小的 id，不會與 Snowflake ID 重複）
+INSERT INTO orderr (id, user_id, restaurant_id, delivery_person_id, delivery_address_id, total_amount, delivery_fee, status, estimated_delivery_time, rating) VALUES
+(1, 1, 1, 2, 1, 240, 30, '完成', CURRENT_TIMESTAMP, 5),
+(2, 1, 2, 2, 1, 470, 40, '運送中', CURRENT_TIMESTAMP, NULL),
+(3, 1, 3, 2, 1, 570, 35, '完成', CURRENT_TIMESTAMP, 4),
+(4, 1, 4, 2, 1, 400, 30, '完成', CURRENT_TIMESTAMP, 5),
+(5, 3, 1, 2, 3, 180, 30, '完成', CURRENT_TIMESTAMP, 5),
+(6, 5, 2, 2, 5, 350, 40, '運送中', CURRENT_TIMESTAMP, NULL);
 
 -- 插入訂單項目（每筆訂單 2~3 個）
-INSERT INTO orderr_item (orderr_id, menu_item_id, quantity, price_at_orderr) VALUES
-(1, 1, 1, 80), (1, 2, 1, 100), (1, 3, 1, 60),
-(2, 4, 1, 350), (2, 5, 1, 180), (2, 6, 1, 120),
-(3, 7, 2, 300), (3, 8, 1, 220), (3, 9, 1, 50),
-(4, 10, 1, 280), (4, 11, 1, 250), (4, 12, 1, 120),
-(5, 1, 1, 80), (5, 3, 1, 60),
-(6, 4, 1, 350);
+INSERT INTO orderr_item (id, orderr_id, menu_item_id, quantity, price_at_orderr) VALUES
+(1, 1, 1, 1, 80), (2, 1, 2, 1, 100), (3, 1, 3, 1, 60),
+(4, 2, 4, 1, 350), (5, 2, 5, 1, 180), (6, 2, 6, 1, 120),
+(7, 3, 7, 2, 300), (8, 3, 8, 1, 220), (9, 3, 9, 1, 50),
+(10, 4, 10, 1, 280), (11, 4, 11, 1, 250), (12, 4, 12, 1, 120),
+(13, 5, 1, 1, 80), (14, 5, 3, 1, 60),
+(15, 6, 4, 1, 350);
 
 -- 插入支付（每筆訂單一筆）
-INSERT INTO payment (orderr_id, amount, payment_method, transaction_id, status) VALUES
-(1, 270, '刷卡', 'TXN100001', '付款成功'),
-(2, 630, '現金', 'TXN100002', '付款成功'),
-(3, 870, '刷卡', 'TXN100003', '付款成功'),
-(4, 430, '刷卡', 'TXN100004', '付款成功'),
-(5, 170, '現金', 'TXN100005', '付款成功'),
-(6, 390, '刷卡', 'TXN100006', '付款成功');
+INSERT INTO payment (id, orderr_id, amount, payment_method, transaction_id, status) VALUES
+(1, 1, 270, '刷卡', 'TXN100001', '付款成功'),
+(2, 2, 630, '現金', 'TXN100002', '付款成功'),
+(3, 3, 870, '刷卡', 'TXN100003', '付款成功'),
+(4, 4, 430, '刷卡', 'TXN100004', '付款成功'),
+(5, 5, 170, '現金', 'TXN100005', '付款成功'),
+(6, 6, 390, '刷卡', 'TXN100006', '付款成功');
@@ -0,0 +1,129 @@
+package com.matsuzaka.foodtiger.config.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 以 H2 檔案資料庫 (AUTO_SERVER，可供多個行程同時連線) 模擬多節點共用的資料庫：
+ * 另一個 JVM (CacheInvalidationNodeMain) 寫入失效通知，本 JVM 的 CacheInvalidationBus 輪詢後應在限定時間內清除對應快取。
+ */
+class CacheInvalidationBusTwoJvmTests {
+
+    private static final long MAX_LAG_MS = 2000;
+
+    private String url;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private JdbcCacheInvalidationTransport transport;
+    private CacheInvalidationBus bus;
+    private final Queue<Long> evictedRestaurantIds = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        Path databaseFile = Path.of("target", "cache-invalidation-" + UUID.randomUUID(), "db").toAbsolutePath();
+        url = "jdbc:h2:file:" + databaseFile + ";MODE=MySQL;AUTO_SERVER=TRUE";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE cache_invalidation_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, region VARCHAR(50) NOT NULL, " +
+                "entity_key BIGINT, origin_node VARCHAR(100) NOT NULL, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE restaurant (id BIGINT PRIMARY KEY, name VARCHAR(100))");
+        jdbcTemplate.update("INSERT INTO restaurant (id, name) VALUES (42, '原店名')");
+
+        transport = new JdbcCacheInvalidationTransport();
+        ReflectionTestUtils.setField(transport, "jdbcTemplate", jdbcTemplate);
+        bus = new CacheInvalidationBus();
+        ReflectionTestUtils.setField(bus, "transport", transport);
+        ReflectionTestUtils.setField(bus, "enabled", true);
+        ReflectionTestUtils.setField(bus, "nodeId", "node-a");
+        ReflectionTestUtils.setField(bus, "batchSize", 500);
+        ReflectionTestUtils.setField(bus, "gapTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(bus, "maxLagMs", 5_000L);
+        bus.init();
+        bus.register(CacheInvalidationBus.RESTAURANT, evictedRestaurantIds::add, () -> { });
+        bus.poll(); // 取得起始游標
+    }
+
+    @Test
+    void invalidationWrittenByAnotherJvmIsAppliedWithinBoundedLag() throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process node = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                CacheInvalidationNodeMain.class.getName(), url, "node-b", "42")
+                .inheritIO()
+                .start();
+        assertTrue(node.waitFor(60, TimeUnit.SECONDS), "第二個節點未在時限內結束");
+        assertEquals(0, node.exitValue());
+
+        long committedAt = System.nanoTime();
+        while (!evictedRestaurantIds.contains(42L) && System.nanoTime() - committedAt < TimeUnit.MILLISECONDS.toNanos(MAX_LAG_MS)) {
+            bus.poll();
+            Thread.sleep(50);
+        }
+        assertTrue(evictedRestaurantIds.contains(42L), "未在 " + MAX_LAG_MS + " 毫秒內收到其他節點的失效通知");
+        // 通知與資料異動在同一交易提交，收到通知時已能讀到新資料
+        assertEquals("改名後", jdbcTemplate.queryForObject("SELECT name FROM restaurant WHERE id = 42", String.class));
+        assertFalse(evictedRestaurantIds.contains(43L), "回滾交易中的通知不應送達");
+    }
+
+    @Test
+    void ownInvalidationsAreSkipped() {
+        transport.append(CacheInvalidationBus.RESTAURANT, List.of(7L), "node-a");
+        bus.poll();
+        assertFalse(evictedRestaurantIds.contains(7L));
+    }
+
+    @Test
+    void ownInvalidationsAreAppliedWhenReadingFromReplica() {
+        ReflectionTestUtils.setField(bus, "replicaEnabled", true);
+        ReflectionTestUtils.setField(transport, "transactionManager", new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        transport.append(CacheInvalidationBus.RESTAURANT, List.of(7L), "node-a");
+        bus.poll();
+        // 提交時的本機清除之後可能又從讀庫載入舊資料，讀庫看得到通知時再清除一次
+        assertTrue(evictedRestaurantIds.contains(7L));
+    }
+
+    @Test
+    void lowerSequenceCommittedLaterIsNotMissed() throws Exception {
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slowTransaction = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            transport.append(CacheInvalidationBus.RESTAURANT, List.of(1L), "node-b");
+            appended.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        slowTransaction.start();
+        assertTrue(appended.await(10, TimeUnit.SECONDS));
+
+        // 較大的序號先提交並被讀取，較小的序號此時尚未提交
+        transport.append(CacheInvalidationBus.RESTAURANT, List.of(2L), "node-b");
+        bus.poll();
+        assertTrue(evictedRestaurantIds.contains(2L));
+        assertFalse(evictedRestaurantIds.contains(1L));
+
+        release.countDown();
+        slowTransaction.join(10_000);
+        bus.poll();
+        assertTrue(evictedRestaurantIds.contains(1L), "游標越過的未提交序號在提交後仍應被補讀");
+    }
+}
@@ -0,0 +1,39 @@
+package com.matsuzaka.foodtiger.config.cache;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * CacheInvalidationBusTwoJvmTests 啟動的第二個 JVM：扮演另一個節點，在同一個交易中修改餐廳並寫入失效通知，
+ * 另外寫入一筆隨交易回滾的通知。
+ *
+ * <p>參數：資料庫 URL、節點 ID、餐廳 ID。</p>
+ */
+public class CacheInvalidationNodeMain {
+
+    public static void main(String[] args) {
+        String url = args[0];
+        String nodeId = args[1];
+        long restaurantId = Long.parseLong(args[2]);
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        JdbcCacheInvalidationTransport transport = new JdbcCacheInvalidationTransport();
+        ReflectionTestUtils.setField(transport, "jdbcTemplate", jdbcTemplate);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE restaurant SET name = ? WHERE id = ?", "改名後", restaurantId);
+            transport.append(CacheInvalidationBus.RESTAURANT, List.of(restaurantId), nodeId);
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            transport.append(CacheInvalidationBus.RESTAURANT, List.of(restaurantId + 1), nodeId);
+            status.setRollbackOnly();
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.matsuzaka.foodtiger.config.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 以兩個嵌入式 H2 實例分別扮演主庫與讀庫，各自存放一筆可辨識的標記資料，驗證路由結果。
+ */
+class ReadWriteRoutingDataSourceTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    private static DataSource embedded(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS marker (name VARCHAR(20))");
+        jdbc.update("DELETE FROM marker");
+        jdbc.update("INSERT INTO marker (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        DataSource routing = new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(embedded("primary"), embedded("replica")));
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DataSourceRoutingContext.setForcePrimary(false);
+    }
+
+    private String currentMarker() {
+        return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    @Test
+    void readOnlyTransactionGoesToReplica() {
+        assertEquals("replica", readOnly.execute(status -> currentMarker()));
+    }
+
+    @Test
+    void readWriteTransactionGoesToPrimary() {
+        assertEquals("primary", readWrite.execute(status -> currentMarker()));
+    }
+
+    @Test
+    void nonTransactionalAccessGoesToPrimary() {
+        assertEquals("primary", currentMarker());
+    }
+
+    @Test
+    void forcePrimaryOverridesReadOnly() {
+        String marker = DataSourceRoutingContext.onPrimary(() -> readOnly.execute(status -> currentMarker()));
+        assertEquals("primary", marker);
+        // 離開 onPrimary 後恢復依交易屬性路由
+        assertEquals("replica", readOnly.execute(status -> currentMarker()));
+    }
+}
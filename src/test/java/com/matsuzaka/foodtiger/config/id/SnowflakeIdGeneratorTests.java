@@ -0,0 +1,101 @@
+package com.matsuzaka.foodtiger.config.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 以可控制的時鐘驗證 SnowflakeIdGenerator 的 ID 格式、序號用盡、時鐘倒退與租約期限，另以多執行緒驗證不重複。
+ */
+class SnowflakeIdGeneratorTests {
+
+    private static final long NOW = SnowflakeIdGenerator.EPOCH + 1_000_000;
+
+    @Test
+    void encodesTimestampNodeIdAndSequence() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, Long.MAX_VALUE, 1000, () -> NOW);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertEquals(NOW, SnowflakeIdGenerator.timestampOf(first));
+        assertEquals(5, SnowflakeIdGenerator.nodeIdOf(first));
+        assertEquals(first + 1, second);
+        assertTrue(first > 0);
+    }
+
+    @Test
+    void borrowsNextMillisecondWhenSequenceIsExhaustedOrClockMovesBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, Long.MAX_VALUE, 1000, clock::get);
+
+        long last = 0;
+        for (int i = 0; i < (1 << SnowflakeIdGenerator.SEQUENCE_BITS) + 1; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+        assertEquals(NOW + 1, SnowflakeIdGenerator.timestampOf(last));
+
+        clock.set(NOW - 500); // 時鐘倒退，仍沿用較大的邏輯時間
+        long afterRollback = generator.nextId();
+        assertTrue(afterRollback > last);
+        assertEquals(NOW + 1, SnowflakeIdGenerator.timestampOf(afterRollback));
+    }
+
+    @Test
+    void refusesIdsBeyondLeaseValidity() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2, NOW + 10, 1000, clock::get);
+        generator.nextId();
+
+        clock.set(NOW + 10);
+        assertThrows(IllegalStateException.class, generator::nextId);
+
+        generator.extendValidity(NOW + 60_000);
+        assertEquals(NOW + 10, SnowflakeIdGenerator.timestampOf(generator.nextId()));
+    }
+
+    @Test
+    void concurrentCallersNeverReceiveDuplicates() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, Long.MAX_VALUE, 1000);
+        int threads = 8;
+        int perThread = 200_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                long last = 0;
+                for (int i = 0; i < perThread; i++) {
+                    long id = generator.nextId();
+                    assertTrue(id > last, "同一執行緒取得的 ID 應遞增");
+                    last = id;
+                    ids.add(id);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread, ids.size());
+    }
+}
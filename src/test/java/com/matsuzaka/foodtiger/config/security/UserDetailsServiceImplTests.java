@@ -0,0 +1,106 @@
+package com.matsuzaka.foodtiger.config.security;
+
+import com.matsuzaka.foodtiger.config.datasource.ReadWriteRoutingDataSource;
+import com.matsuzaka.foodtiger.dao.entity.Role;
+import com.matsuzaka.foodtiger.dao.entity.User;
+import com.matsuzaka.foodtiger.dao.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 以兩個嵌入式 H2 實例分別扮演主庫與讀庫，驗證 loadUserByUsername 先查讀庫，
+ * 讀庫尚未同步剛註冊的帳號時改查主庫 (另開交易，不沿用已取得的讀庫連線)。
+ */
+class UserDetailsServiceImplTests {
+
+    private final List<String> lookedUpOn = new ArrayList<>();
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private UserDetailsServiceImpl service;
+
+    private static DataSource embedded(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        new JdbcTemplate(dataSource).execute("CREATE TABLE account (id BIGINT PRIMARY KEY, username VARCHAR(50), password VARCHAR(100), role VARCHAR(20))");
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaryDataSource = embedded("primary");
+        DataSource replicaDataSource = embedded("replica");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        DataSource routing = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(routing);
+
+        // 在目前的交易連線上查詢，並記錄查詢時的路由
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findByUsername")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    lookedUpOn.add(ReadWriteRoutingDataSource.currentRoute().name());
+                    return jdbcTemplate.query("SELECT id, username, password, role FROM account WHERE username = ?", (rs, rowNum) -> {
+                        User user = new User();
+                        user.setId(rs.getLong(1));
+                        user.setUsername(rs.getString(2));
+                        user.setPassword(rs.getString(3));
+                        user.setRole(Role.valueOf(rs.getString(4)));
+                        return user;
+                    }, args[0]).stream().findFirst().orElse(null);
+                });
+
+        service = new UserDetailsServiceImpl();
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", new DataSourceTransactionManager(routing));
+        service.init();
+    }
+
+    private static void insertUser(JdbcTemplate jdbcTemplate, long id, String username) {
+        jdbcTemplate.update("INSERT INTO account (id, username, password, role) VALUES (?, ?, 'secret', 'CUSTOMER')", id, username);
+    }
+
+    @Test
+    void loadsReplicatedUserFromReplicaOnly() {
+        insertUser(primary, 1, "alice");
+        insertUser(replica, 1, "alice");
+
+        UserDetails user = service.loadUserByUsername("alice");
+
+        assertEquals("alice", user.getUsername());
+        assertEquals(List.of("REPLICA"), lookedUpOn);
+    }
+
+    @Test
+    void fallsBackToPrimaryForUserNotYetReplicated() {
+        insertUser(primary, 2, "bob"); // 剛註冊，讀庫尚未同步
+
+        UserDetails user = service.loadUserByUsername("bob");
+
+        assertEquals("bob", user.getUsername());
+        assertEquals(List.of("REPLICA", "PRIMARY"), lookedUpOn);
+    }
+
+    @Test
+    void throwsWhenUserMissingOnBoth() {
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("nobody"));
+        assertEquals(List.of("REPLICA", "PRIMARY"), lookedUpOn);
+    }
+}
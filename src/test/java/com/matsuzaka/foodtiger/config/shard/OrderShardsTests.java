@@ -0,0 +1,319 @@
+package com.matsuzaka.foodtiger.config.shard;
+
+import com.matsuzaka.foodtiger.dto.ShardMoveResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 以三個嵌入式 H2 實例扮演三個訂單分片，驗證分片對照、路由、依訂單 ID 定位、分散查詢與桶搬移 (含搬移期間的寫入)。
+ */
+class OrderShardsTests {
+
+    private static final int SHARDS = 3;
+
+    private List<DataSource> shardDataSources;
+    private OrderShardRoutingDataSource routingDataSource;
+    private OrderShardMap shardMap;
+    private OrderShards orderShards;
+    private OrderShardRebalancer rebalancer;
+    private JdbcTemplate routedJdbc;
+
+    private static DataSource embedded(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP ALL OBJECTS");
+        jdbc.execute("CREATE TABLE marker (name VARCHAR(20))");
+        jdbc.update("INSERT INTO marker (name) VALUES (?)", name);
+        jdbc.execute("CREATE TABLE restaurant (id BIGINT PRIMARY KEY)");
+        jdbc.execute("CREATE TABLE orderr (id BIGINT PRIMARY KEY, restaurant_id BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE orderr_item (id BIGINT PRIMARY KEY, orderr_id BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE payment (id BIGINT PRIMARY KEY, orderr_id BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE orderr_archive (id BIGINT PRIMARY KEY, restaurant_id BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE orderr_item_archive (id BIGINT PRIMARY KEY, orderr_id BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE payment_archive (id BIGINT PRIMARY KEY, orderr_id BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE restaurant_sales_hourly (restaurant_id BIGINT NOT NULL, order_count INT NOT NULL)");
+        jdbc.execute("CREATE TABLE order_shard_bucket (bucket INT PRIMARY KEY, shard INT NOT NULL, "
+                + "moving BOOLEAN NOT NULL DEFAULT FALSE, updated_at TIMESTAMP(3))");
+        jdbc.execute("CREATE TABLE order_shard_fence (bucket INT PRIMARY KEY)");
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        shardDataSources = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shardDataSources.add(embedded("order_shard_" + shard));
+        }
+        routingDataSource = new OrderShardRoutingDataSource(shardDataSources);
+        DataSource routed = new LazyConnectionDataSourceProxy(routingDataSource);
+        routedJdbc = new JdbcTemplate(routed);
+
+        shardMap = newShardMap();
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("orderShardRoutingDataSource", routingDataSource);
+        beanFactory.addBean("orderShardMap", shardMap);
+        orderShards = new OrderShards();
+        ReflectionTestUtils.setField(orderShards, "routingDataSourceProvider", beanFactory.getBeanProvider(OrderShardRoutingDataSource.class));
+        ReflectionTestUtils.setField(orderShards, "shardMapProvider", beanFactory.getBeanProvider(OrderShardMap.class));
+        ReflectionTestUtils.setField(orderShards, "transactionManager", new DataSourceTransactionManager(routed));
+        ReflectionTestUtils.setField(orderShards, "jdbcTemplate", routedJdbc);
+        ReflectionTestUtils.setField(orderShards, "moveWaitMs", 200L);
+        ReflectionTestUtils.setField(orderShards, "locateCacheSize", 1000);
+        orderShards.init();
+
+        rebalancer = new OrderShardRebalancer();
+        ReflectionTestUtils.setField(rebalancer, "shardMap", shardMap);
+        ReflectionTestUtils.setField(rebalancer, "routingDataSource", routingDataSource);
+        ReflectionTestUtils.setField(rebalancer, "refreshMs", 0L);
+        ReflectionTestUtils.setField(rebalancer, "moveBatchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        OrderShardContext.set(null);
+    }
+
+    private OrderShardMap newShardMap() {
+        OrderShardMap map = new OrderShardMap();
+        ReflectionTestUtils.setField(map, "routingDataSource", routingDataSource);
+        ReflectionTestUtils.setField(map, "refreshMs", 60000L);
+        map.init();
+        return map;
+    }
+
+    private JdbcTemplate shardJdbc(int shard) {
+        return new JdbcTemplate(shardDataSources.get(shard));
+    }
+
+    private int count(int shard, String table) {
+        return shardJdbc(shard).queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    // 找一間不在 excludedBucket 桶內的餐廳，讓測試資料分到不同分片
+    private static long restaurantInShard(OrderShardMap map, int shard, int excludedBucket) {
+        for (long restaurantId = 1; ; restaurantId++) {
+            int bucket = OrderShardMap.bucketOf(restaurantId);
+            if (bucket != excludedBucket && map.shardOfBucket(bucket) == shard) {
+                return restaurantId;
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void fenceOnShard(int shard, long restaurantId) {
+        orderShards.inTransaction(shard, false, status -> {
+            orderShards.fence(List.of(restaurantId));
+            return null;
+        });
+    }
+
+    @Test
+    void bucketsAreAssignedRoundRobinOnFirstStart() {
+        assertEquals(OrderShardMap.BUCKETS, count(0, "order_shard_bucket"));
+        assertEquals(OrderShardMap.BUCKETS, count(0, "order_shard_fence") + count(1, "order_shard_fence") + count(2, "order_shard_fence"));
+        for (int bucket = 0; bucket < OrderShardMap.BUCKETS; bucket++) {
+            assertEquals(bucket % SHARDS, shardMap.shardOfBucket(bucket));
+        }
+        // 重新啟動沿用資料表中的分配
+        shardMap.assign(5, 0);
+        assertEquals(0, newShardMap().shardOfBucket(5));
+    }
+
+    @Test
+    void bucketOfIsStableAndSpreadsConsecutiveIds() {
+        assertEquals(OrderShardMap.bucketOf(42), OrderShardMap.bucketOf(42));
+        boolean[] used = new boolean[OrderShardMap.BUCKETS];
+        int distinct = 0;
+        for (long restaurantId = 1; restaurantId <= 100; restaurantId++) {
+            int bucket = OrderShardMap.bucketOf(restaurantId);
+            if (!used[bucket]) {
+                used[bucket] = true;
+                distinct++;
+            }
+        }
+        assertEquals(100, distinct);
+    }
+
+    @Test
+    void routesToShardInContext() {
+        assertEquals("order_shard_0", routedJdbc.queryForObject("SELECT name FROM marker", String.class));
+        List<String> markers = new ArrayList<>();
+        orderShards.forEachShard(shard -> markers.add(routedJdbc.queryForObject("SELECT name FROM marker", String.class)));
+        assertEquals(List.of("order_shard_0", "order_shard_1", "order_shard_2"), markers);
+        assertEquals("order_shard_2", orderShards.inTransaction(2, true,
+                status -> routedJdbc.queryForObject("SELECT name FROM marker", String.class)));
+    }
+
+    @Test
+    void locatesOrdersAcrossShardsIncludingArchive() {
+        long restaurantId = restaurantInShard(shardMap, 2, -1);
+        shardJdbc(2).update("INSERT INTO orderr (id, restaurant_id) VALUES (?, ?)", 1001L, restaurantId);
+        shardJdbc(2).update("INSERT INTO orderr_archive (id, restaurant_id) VALUES (?, ?)", 1002L, restaurantId);
+
+        assertEquals(2, orderShards.shardOfOrder(1001L));
+        assertEquals(2, orderShards.shardOfOrder(1002L));
+        assertEquals(restaurantId, orderShards.restaurantIdOfOrder(1001L));
+        // 找不到的訂單交給分片 0 回報不存在
+        assertEquals(0, orderShards.shardOfOrder(9999L));
+    }
+
+    @Test
+    void scatterPageMergesShardsInOrder() {
+        long id = 1;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            long restaurantId = restaurantInShard(shardMap, shard, -1);
+            for (int i = 0; i < 3; i++) {
+                shardJdbc(shard).update("INSERT INTO orderr (id, restaurant_id) VALUES (?, ?)", id++, restaurantId);
+            }
+        }
+
+        Page<Long> second = orderShards.scatterPage(PageRequest.of(1, 4), Comparator.<Long>reverseOrder(), pageable -> {
+            List<Long> ids = routedJdbc.queryForList("SELECT id FROM orderr ORDER BY id DESC LIMIT ? OFFSET ?",
+                    Long.class, pageable.getPageSize(), pageable.getOffset());
+            Long total = routedJdbc.queryForObject("SELECT COUNT(*) FROM orderr", Long.class);
+            return new PageImpl<>(ids, pageable, total);
+        });
+
+        assertEquals(List.of(5L, 4L, 3L, 2L), second.getContent());
+        assertEquals(9, second.getTotalElements());
+    }
+
+    @Test
+    void moveBucketCopiesRowsToTargetAndDeletesSource() throws Exception {
+        long restaurantId = restaurantInShard(shardMap, 0, -1);
+        int bucket = OrderShardMap.bucketOf(restaurantId);
+        long otherRestaurantId = restaurantInShard(shardMap, 0, bucket);
+        shardJdbc(0).update("INSERT INTO restaurant (id) VALUES (?)", restaurantId);
+        shardJdbc(0).update("INSERT INTO restaurant (id) VALUES (?)", otherRestaurantId);
+        JdbcTemplate source = shardJdbc(0);
+        for (long orderId = 1; orderId <= 3; orderId++) {
+            source.update("INSERT INTO orderr (id, restaurant_id) VALUES (?, ?)", orderId, restaurantId);
+            source.update("INSERT INTO orderr_item (id, orderr_id) VALUES (?, ?)", orderId * 10, orderId);
+            source.update("INSERT INTO payment (id, orderr_id) VALUES (?, ?)", orderId * 100, orderId);
+        }
+        source.update("INSERT INTO orderr_archive (id, restaurant_id) VALUES (?, ?)", 4L, restaurantId);
+        source.update("INSERT INTO orderr_item_archive (id, orderr_id) VALUES (?, ?)", 40L, 4L);
+        source.update("INSERT INTO restaurant_sales_hourly (restaurant_id, order_count) VALUES (?, ?)", restaurantId, 3);
+        source.update("INSERT INTO orderr (id, restaurant_id) VALUES (?, ?)", 5L, otherRestaurantId);
+
+        ShardMoveResult result = rebalancer.moveBucket(bucket, 1);
+
+        assertEquals(0, result.getSourceShard());
+        assertEquals(1, result.getTargetShard());
+        assertEquals(1, result.getRestaurantCount());
+        assertEquals(12, result.getCopiedRows());
+        assertEquals(1, shardMap.shardOfBucket(bucket));
+        assertFalse(shardMap.isMoving(bucket));
+        assertEquals(3, count(1, "orderr"));
+        assertEquals(3, count(1, "orderr_item"));
+        assertEquals(3, count(1, "payment"));
+        assertEquals(1, count(1, "orderr_archive"));
+        assertEquals(1, count(1, "orderr_item_archive"));
+        assertEquals(1, count(1, "restaurant_sales_hourly"));
+        // 來源只剩其他桶的餐廳
+        assertEquals(1, count(0, "orderr"));
+        assertEquals(0, count(0, "orderr_item"));
+        assertEquals(0, count(0, "payment"));
+        assertEquals(0, count(0, "orderr_archive"));
+        assertEquals(0, count(0, "restaurant_sales_hourly"));
+        assertEquals(1, orderShards.shardOfOrder(1L));
+        assertEquals(0, shardJdbc(0).queryForObject("SELECT COUNT(*) FROM order_shard_fence WHERE bucket = ?", Integer.class, bucket));
+        assertEquals(1, shardJdbc(1).queryForObject("SELECT COUNT(*) FROM order_shard_fence WHERE bucket = ?", Integer.class, bucket));
+    }
+
+    @Test
+    void moveWaitsForInFlightWriteAndRejectsLaterWritesToSource() throws Exception {
+        long restaurantId = restaurantInShard(shardMap, 0, -1);
+        int bucket = OrderShardMap.bucketOf(restaurantId);
+        shardJdbc(0).update("INSERT INTO restaurant (id) VALUES (?)", restaurantId);
+        CountDownLatch fenced = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // 路由在標記搬移之前、搬移開始複製時仍未提交的寫入
+            Future<?> writer = executor.submit(() -> orderShards.inTransaction(0, false, status -> {
+                orderShards.fence(List.of(restaurantId));
+                routedJdbc.update("INSERT INTO orderr (id, restaurant_id) VALUES (?, ?)", 1L, restaurantId);
+                fenced.countDown();
+                await(release);
+                routedJdbc.update("INSERT INTO orderr_item (id, orderr_id) VALUES (?, ?)", 10L, 1L);
+                return null;
+            }));
+            await(fenced);
+            Future<ShardMoveResult> move = executor.submit(() -> rebalancer.moveBucket(bucket, 1));
+            Thread.sleep(300);
+            assertFalse(move.isDone());
+
+            release.countDown();
+            writer.get(5, TimeUnit.SECONDS);
+            ShardMoveResult result = move.get(10, TimeUnit.SECONDS);
+
+            assertEquals(2, result.getCopiedRows());
+            assertEquals(1, count(1, "orderr"));
+            assertEquals(1, count(1, "orderr_item"));
+            assertEquals(0, count(0, "orderr"));
+            assertEquals(0, count(0, "orderr_item"));
+            // 依過期的對照路由到來源分片的寫入拿不到 fence，目標分片則可以寫入
+            assertThrows(OrderShardUnavailableException.class, () -> fenceOnShard(0, restaurantId));
+            fenceOnShard(1, restaurantId);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void refusesToRouteWithStaleShardMap() throws Exception {
+        long restaurantId = restaurantInShard(shardMap, 1, -1);
+        ReflectionTestUtils.setField(shardMap, "refreshMs", 1L);
+        shardJdbc(0).execute("DROP TABLE order_shard_bucket"); // 之後的重新讀取都失敗
+        Thread.sleep(5);
+
+        assertThrows(OrderShardUnavailableException.class, () -> orderShards.shardOf(restaurantId));
+    }
+
+    @Test
+    void routingToMovingBucketTimesOut() {
+        long restaurantId = restaurantInShard(shardMap, 1, -1);
+        shardMap.markMoving(OrderShardMap.bucketOf(restaurantId), true);
+
+        assertThrows(OrderShardUnavailableException.class, () -> orderShards.shardOf(restaurantId));
+        // 其他桶不受影響
+        long otherRestaurantId = restaurantInShard(shardMap, 2, OrderShardMap.bucketOf(restaurantId));
+        assertEquals(2, orderShards.shardOf(otherRestaurantId));
+    }
+}
@@ -0,0 +1,152 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import com.matsuzaka.foodtiger.dao.repository.OrderrRepositoryCustom.ClaimCandidate;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 200 位外送員同時認領同一行政區的訂單，比較 SKIP LOCKED 認領 (OrderrRepositoryImpl.findClaimCandidates + lockIfClaimable，
+ * 與 OrderrServiceImpl.claimOnShard 相同的掃描方式) 與原本「讀出最早的訂單再指派」的做法；
+ * 後者多位外送員會讀到同一筆訂單，只有一位能指派成功，其餘衝突後重試，衝突次數以 conflicts 計數器列出。
+ *
+ * <p>每輪開始前把所有訂單恢復為未指派，每位外送員在一輪中認領 CLAIMS_PER_COURIER 筆，量測整輪的耗時。
+ * 在 IDE 直接執行 main，或 mvn test-compile 後以 test classpath 執行此類別；不屬於 mvn test。
+ * H2 的鎖與 MySQL InnoDB 的行為不完全相同，實際數字應以 MySQL 重跑。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = OrderClaimContentionBenchmark.CLAIMS_PER_COURIER)
+@Measurement(iterations = 10, batchSize = OrderClaimContentionBenchmark.CLAIMS_PER_COURIER)
+@Threads(OrderClaimContentionBenchmark.COURIERS)
+@Fork(1)
+public class OrderClaimContentionBenchmark {
+
+    static final int COURIERS = 200;
+    static final int CLAIMS_PER_COURIER = 10;
+    private static final int ORDERS = COURIERS * CLAIMS_PER_COURIER;
+    private static final int CANDIDATE_WINDOW = 20;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private OrderrRepositoryImpl repository;
+    private final AtomicLong nextCourierId = new AtomicLong();
+
+    /**
+     * 每位外送員 (執行緒) 的 ID 與衝突次數。
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Courier {
+        public long conflicts;
+        long id;
+
+        @Setup
+        public void setUp(OrderClaimContentionBenchmark benchmark) {
+            id = benchmark.nextCourierId.incrementAndGet();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        String url = "jdbc:h2:mem:claim-" + UUID.randomUUID() + ";MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE address (id BIGINT PRIMARY KEY, city VARCHAR(50), district VARCHAR(50))");
+        jdbcTemplate.execute("CREATE TABLE restaurant (id BIGINT PRIMARY KEY, address_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE orderr (id BIGINT PRIMARY KEY, restaurant_id BIGINT, delivery_person_id BIGINT, " +
+                "status VARCHAR(10), orderr_time TIMESTAMP)");
+        jdbcTemplate.execute("CREATE INDEX idx_orderr_status_time ON orderr(status, orderr_time)");
+        jdbcTemplate.update("INSERT INTO address (id, city, district) VALUES (1, '台北市', '大安區')");
+        jdbcTemplate.update("INSERT INTO restaurant (id, address_id) VALUES (1, 1), (2, 1)");
+
+        List<Object[]> orders = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.now().minusHours(1);
+        for (long id = 1; id <= ORDERS; id++) {
+            orders.add(new Object[]{id, 1 + id % 2, "準備中", Timestamp.valueOf(base.plusSeconds(id / 3))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orderr (id, restaurant_id, status, orderr_time) VALUES (?, ?, ?, ?)", orders);
+
+        repository = new OrderrRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Setup(Level.Iteration)
+    public void releaseOrders() {
+        jdbcTemplate.update("UPDATE orderr SET delivery_person_id = NULL");
+    }
+
+    @Benchmark
+    public Long skipLocked(Courier courier) {
+        return transactionTemplate.execute(status -> {
+            ClaimCandidate after = null;
+            while (true) {
+                List<ClaimCandidate> candidates = repository.findClaimCandidates("台北市", "大安區", after, CANDIDATE_WINDOW);
+                for (ClaimCandidate candidate : candidates) {
+                    if (repository.lockIfClaimable(candidate.id())) {
+                        jdbcTemplate.update("UPDATE orderr SET delivery_person_id = ? WHERE id = ?", courier.id, candidate.id());
+                        return candidate.id();
+                    }
+                }
+                if (candidates.size() < CANDIDATE_WINDOW) {
+                    return null;
+                }
+                after = candidates.get(candidates.size() - 1);
+            }
+        });
+    }
+
+    // 原本的做法：讀出最早的訂單，再以條件更新指派；被搶先時視為衝突並重試
+    @Benchmark
+    public Long readThenAssign(Courier courier) {
+        while (true) {
+            Long claimed = transactionTemplate.execute(status -> {
+                List<ClaimCandidate> candidates = repository.findClaimCandidates("台北市", "大安區", null, 1);
+                if (candidates.isEmpty()) {
+                    return -1L;
+                }
+                Long orderId = candidates.get(0).id();
+                int updated = jdbcTemplate.update("UPDATE orderr SET delivery_person_id = ? WHERE id = ? AND delivery_person_id IS NULL",
+                        courier.id, orderId);
+                return updated == 1 ? orderId : null;
+            });
+            if (claimed == null) {
+                courier.conflicts++;
+                continue;
+            }
+            return claimed == -1L ? null : claimed;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderClaimContentionBenchmark.class.getSimpleName()).build()).run();
+    }
+}
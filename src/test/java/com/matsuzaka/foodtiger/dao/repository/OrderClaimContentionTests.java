@@ -0,0 +1,126 @@
+package com.matsuzaka.foodtiger.dao.repository;
+
+import com.matsuzaka.foodtiger.dao.repository.OrderrRepositoryCustom.ClaimCandidate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 驗證認領訂單用的 OrderrRepositoryImpl.findClaimCandidates 與 lockIfClaimable：
+ * 候選只含所在行政區、準備中且尚未指派的訂單，依 (orderr_time, id) 分批讀取不會漏掉同一秒的訂單；
+ * 其他交易鎖定中的訂單不等待直接略過，已指派的訂單不可再認領。
+ *
+ * <p>多位外送員同時認領的吞吐量比較見 OrderClaimContentionBenchmark。</p>
+ */
+class OrderClaimContentionTests {
+
+    private static final int ORDERS = 50;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private OrderrRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        String url = "jdbc:h2:mem:claim-" + UUID.randomUUID() + ";MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE address (id BIGINT PRIMARY KEY, city VARCHAR(50), district VARCHAR(50))");
+        jdbcTemplate.execute("CREATE TABLE restaurant (id BIGINT PRIMARY KEY, address_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE orderr (id BIGINT PRIMARY KEY, restaurant_id BIGINT, delivery_person_id BIGINT, " +
+                "status VARCHAR(10), orderr_time TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO address (id, city, district) VALUES (1, '台北市', '大安區'), (2, '台北市', '信義區')");
+        jdbcTemplate.update("INSERT INTO restaurant (id, address_id) VALUES (1, 1), (2, 1), (3, 2)");
+
+        List<Object[]> orders = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.now().minusHours(1);
+        for (long id = 1; id <= ORDERS; id++) {
+            // 同一秒有多筆訂單，驗證依 (orderr_time, id) 分批讀取不會漏掉
+            orders.add(new Object[]{id, 1 + id % 2, "準備中", Timestamp.valueOf(base.plusSeconds(id / 3))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orderr (id, restaurant_id, status, orderr_time) VALUES (?, ?, ?, ?)", orders);
+        // 其他行政區、其他狀態與已指派的訂單不應出現在候選中
+        jdbcTemplate.update("INSERT INTO orderr (id, restaurant_id, delivery_person_id, status, orderr_time) " +
+                        "VALUES (?, 3, NULL, '準備中', ?), (?, 1, NULL, '處理中', ?), (?, 1, 99, '準備中', ?)",
+                ORDERS + 1, Timestamp.valueOf(base), ORDERS + 2, Timestamp.valueOf(base), ORDERS + 3, Timestamp.valueOf(base));
+
+        repository = new OrderrRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    void pagesThroughClaimableOrdersInTimeOrder() {
+        List<Long> ids = new ArrayList<>();
+        ClaimCandidate after = null;
+        while (true) {
+            List<ClaimCandidate> candidates = repository.findClaimCandidates("台北市", "大安區", after, 7);
+            candidates.forEach(candidate -> ids.add(candidate.id()));
+            if (candidates.size() < 7) {
+                break;
+            }
+            after = candidates.get(candidates.size() - 1);
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1; id <= ORDERS; id++) {
+            expected.add(id);
+        }
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    void skipsOrderLockedByAnotherCourierAndRejectsAssignedOrder() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> otherCourier = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            boolean claimable = repository.lockIfClaimable(1L);
+            jdbcTemplate.update("UPDATE orderr SET delivery_person_id = 7 WHERE id = 1");
+            locked.countDown();
+            await(release);
+            return claimable;
+        }));
+        await(locked);
+
+        long begin = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            assertFalse(repository.lockIfClaimable(1L)); // 鎖定中，不等待
+            assertTrue(repository.lockIfClaimable(2L));
+        });
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - begin) < 5, "不應等待其他交易的鎖");
+
+        release.countDown();
+        assertTrue(otherCourier.get(10, TimeUnit.SECONDS));
+        transactionTemplate.executeWithoutResult(status -> {
+            assertFalse(repository.lockIfClaimable(1L)); // 已指派
+            assertFalse(repository.lockIfClaimable((long) ORDERS + 2)); // 處理中
+        });
+        assertEquals(2L, repository.findClaimCandidates("台北市", "大安區", null, 1).get(0).id());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
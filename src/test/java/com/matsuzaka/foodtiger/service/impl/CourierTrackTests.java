@@ -0,0 +1,83 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 驗證 CourierTrack 環狀緩衝區：重送或順序錯亂的點略過、寫滿後覆蓋最舊的點並回報未處理就被覆蓋的點數，
+ * 以及依時間間隔與移動距離降採樣。
+ */
+class CourierTrackTests {
+
+    private static final int LAT_E7 = CourierTrack.toE7(25.045);
+    private static final int LON_E7 = CourierTrack.toE7(121.505);
+    private static final int METERS_100_E7 = 9_000; // 緯度 0.0009 度，約 100 公尺
+
+    private static List<Long> drain(CourierTrack track, long minIntervalMs, long maxIntervalMs, double minDistanceMeters, long[] overwritten) {
+        List<Long> times = new ArrayList<>();
+        overwritten[0] = track.drainDownsampled(minIntervalMs, maxIntervalMs, minDistanceMeters, (time, latE7, lonE7) -> times.add(time));
+        return times;
+    }
+
+    @Test
+    void skipsDuplicateAndOutOfOrderPoints() {
+        CourierTrack track = new CourierTrack(4);
+
+        assertTrue(track.append(10, LAT_E7, LON_E7));
+        assertFalse(track.append(10, LAT_E7 + 1, LON_E7)); // 重送
+        assertFalse(track.append(5, LAT_E7 + 2, LON_E7));  // 較舊的點晚到
+
+        assertEquals(new CourierTrack.Point(10, LAT_E7, LON_E7), track.latest());
+    }
+
+    @Test
+    void overwritesOldestPointsWhenFull() {
+        CourierTrack track = new CourierTrack(4);
+        for (long time = 1; time <= 6; time++) {
+            track.append(time, LAT_E7 + (int) time, LON_E7);
+        }
+        long[] overwritten = new long[1];
+
+        assertEquals(new CourierTrack.Point(6, LAT_E7 + 6, LON_E7), track.latest());
+        assertEquals(List.of(3L, 4L, 5L, 6L), drain(track, 0, 0, 0, overwritten));
+        assertEquals(2, overwritten[0]);
+
+        track.append(7, LAT_E7, LON_E7);
+        track.append(8, LAT_E7, LON_E7);
+        assertEquals(List.of(7L, 8L), drain(track, 0, 0, 0, overwritten));
+        assertEquals(0, overwritten[0]);
+        assertTrue(drain(track, 0, 0, 0, overwritten).isEmpty());
+    }
+
+    @Test
+    void downsamplesByIntervalAndDistance() {
+        CourierTrack track = new CourierTrack(16);
+        track.append(0, LAT_E7, LON_E7);                          // 第一個點一律保留
+        track.append(5_000, LAT_E7 + METERS_100_E7, LON_E7);      // 移動但未滿 min-interval
+        track.append(10_000, LAT_E7 + 2 * METERS_100_E7, LON_E7); // 滿 min-interval 且移動約 200 公尺
+        track.append(20_000, LAT_E7 + 2 * METERS_100_E7, LON_E7); // 沒有移動
+        track.append(40_000, LAT_E7 + 2 * METERS_100_E7, LON_E7);
+        track.append(70_000, LAT_E7 + 2 * METERS_100_E7, LON_E7); // 距上一個保留點滿 max-interval
+        long[] overwritten = new long[1];
+
+        assertEquals(List.of(0L, 10_000L, 70_000L), drain(track, 10_000, 60_000, 50, overwritten));
+        assertEquals(0, overwritten[0]);
+
+        // 下一批從上一個保留點繼續比較
+        track.append(75_000, LAT_E7 + 3 * METERS_100_E7, LON_E7);
+        track.append(80_000, LAT_E7 + 3 * METERS_100_E7, LON_E7);
+        assertEquals(List.of(80_000L), drain(track, 10_000, 60_000, 50, overwritten));
+    }
+
+    @Test
+    void approximatesShortDistances() {
+        double meters = CourierTrack.distanceMeters(LAT_E7, LON_E7, LAT_E7 + 10_000, LON_E7); // 0.001 度
+        assertEquals(111.2, meters, 0.5);
+    }
+}
@@ -0,0 +1,61 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 驗證 CsvReader：引號內的逗號與換行、"" 跳脫、CRLF、空欄位、引號未結束與欄位過長的錯誤，以及記錄的起始行號。
+ */
+class CsvReaderTests {
+
+    @Test
+    void readsQuotedFieldsAndEscapedQuotes() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(
+                "a,\"b,c\",\"說 \"\"好\"\"\",\"兩\n行\"\r\nnext,,\n"), 100);
+
+        assertEquals(List.of("a", "b,c", "說 \"好\"", "兩\n行"), reader.readRecord());
+        assertEquals(1, reader.recordLine());
+        assertNull(reader.recordError());
+
+        assertEquals(List.of("next", "", ""), reader.readRecord());
+        assertEquals(3, reader.recordLine()); // 上一筆的引號內有換行
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void readsLastRecordWithoutTrailingNewline() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("title,price\r\n滷肉飯,80"), 100);
+
+        assertEquals(List.of("title", "price"), reader.readRecord());
+        assertEquals(List.of("滷肉飯", "80"), reader.readRecord());
+        assertEquals(2, reader.recordLine());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void reportsUnterminatedQuote() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("x,\"abc\nmore"), 100);
+
+        assertEquals(List.of("x", "abc\nmore"), reader.readRecord());
+        assertEquals("引號未結束", reader.recordError());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void truncatesOverlongFieldAndResetsErrorForNextRecord() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("abcdef,g\nok,1\n"), 3);
+
+        assertEquals(List.of("abc", "g"), reader.readRecord());
+        assertNotNull(reader.recordError());
+
+        assertEquals(List.of("ok", "1"), reader.readRecord());
+        assertNull(reader.recordError());
+    }
+}
@@ -0,0 +1,132 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 驗證 HashedWheelTimer 在可控制的時鐘下的行為：超過一圈的計時器依剩餘圈數到期、已過期的計時器放在目前的格子立即執行、
+ * 取消 (搬入格子前後、與搬入同時進行) 的計時器不會執行，以及 pending 的計數。
+ */
+class HashedWheelTimerTests {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    private final AtomicLong nanos = new AtomicLong(1_000_000);
+    private final List<String> executed = new ArrayList<>();
+    private final HashedWheelTimer timer = new HashedWheelTimer(TICK_MS, WHEEL_SIZE, Runnable::run, nanos::get);
+
+    private HashedWheelTimer.Timeout schedule(String name, long delayMillis) {
+        return timer.schedule(() -> executed.add(name), delayMillis);
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            timer.advance();
+        }
+    }
+
+    @Test
+    void expiresAfterRemainingRounds() {
+        schedule("近", 3 * TICK_MS);                 // 第 3 格，同一圈
+        schedule("遠", (2 * WHEEL_SIZE + 3) * TICK_MS); // 同一格，再繞兩圈
+
+        advance(4); // tick 0..3
+        assertEquals(List.of("近"), executed);
+        assertEquals(1, timer.pending());
+
+        advance(15); // tick 4..18，經過第 3 格兩次
+        assertEquals(List.of("近"), executed);
+
+        advance(1); // tick 19
+        assertEquals(List.of("近", "遠"), executed);
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    void expiredTimeoutsRunInCurrentBucket() {
+        advance(5); // 指針已到 tick 5，時鐘仍在起點
+
+        schedule("已過期", TICK_MS);                    // 到期 tick 1，早於目前的 tick
+        schedule("立即", 0);
+        schedule("下一圈", (WHEEL_SIZE + 5) * TICK_MS); // 與目前同一格，但要再繞一圈
+
+        advance(1);
+        assertEquals(List.of("已過期", "立即"), executed);
+        assertEquals(1, timer.pending());
+
+        advance(WHEEL_SIZE - 1);
+        assertEquals(2, executed.size());
+        advance(1);
+        assertEquals(List.of("已過期", "立即", "下一圈"), executed);
+    }
+
+    @Test
+    void cancelledTimeoutsNeverRun() {
+        HashedWheelTimer.Timeout beforeTransfer = schedule("搬入前取消", 2 * TICK_MS);
+        HashedWheelTimer.Timeout inBucket = schedule("搬入後取消", 2 * TICK_MS);
+        HashedWheelTimer.Timeout expired = schedule("到期", TICK_MS);
+        assertEquals(3, timer.pending());
+
+        assertTrue(beforeTransfer.cancel());
+        assertFalse(beforeTransfer.cancel()); // 只有第一次取消生效
+        advance(1); // 搬入格子
+        assertEquals(2, timer.pending());
+
+        assertTrue(inBucket.cancel());
+        advance(1); // tick 1
+        assertEquals(List.of("到期"), executed);
+        assertFalse(expired.cancel()); // 已到期
+        assertEquals(0, timer.pending());
+
+        advance(WHEEL_SIZE * 2);
+        assertEquals(List.of("到期"), executed);
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    void cancelRacingWithTransferRunsEachTimeoutAtMostOnce() throws Exception {
+        int threads = 4;
+        int perThread = 2000;
+        Set<Integer> ran = ConcurrentHashMap.newKeySet();
+        Set<Integer> cancelled = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            workers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int id = base + i;
+                    HashedWheelTimer.Timeout timeout = timer.schedule(() -> assertTrue(ran.add(id)), (id % 20) * TICK_MS);
+                    if (id % 2 == 0 && timeout.cancel()) {
+                        cancelled.add(id);
+                    }
+                }
+                done.countDown();
+            }));
+        }
+        while (done.getCount() > 0) {
+            timer.advance(); // 與排程、取消同時搬入與執行
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        advance(WHEEL_SIZE * 4);
+
+        assertEquals(threads * perThread, ran.size() + cancelled.size());
+        ran.forEach(id -> assertFalse(cancelled.contains(id), "已取消的計時器 " + id + " 不應執行"));
+        assertEquals(0, timer.pending());
+    }
+}
@@ -0,0 +1,126 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matsuzaka.foodtiger.dao.repository.MenuItemRepository;
+import com.matsuzaka.foodtiger.dao.repository.RestaurantRepository;
+import com.matsuzaka.foodtiger.dto.MenuImportResult;
+import com.matsuzaka.foodtiger.dto.MenuItemImportRow;
+import com.matsuzaka.foodtiger.service.MenuImportService;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 驗證 MenuImportServiceImpl：NDJSON 逐行解析與驗證錯誤的行號，以及某一批寫入失敗時改為逐列寫入，
+ * 只回報失敗的列、其他列照常寫入。資料庫寫入以記錄呼叫的 MenuItemRepository 取代。
+ */
+class MenuImportServiceImplTests {
+
+    private static final Long RESTAURANT_ID = 1L;
+
+    private final List<List<String>> upsertCalls = new ArrayList<>();
+    private MenuImportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        // 含「壞」這道菜的批次一律寫入失敗 (例如違反資料庫限制)
+        MenuItemRepository menuItemRepository = stub(MenuItemRepository.class, "upsertAll", args -> {
+            @SuppressWarnings("unchecked")
+            List<String> titles = ((List<MenuItemImportRow>) args[1]).stream().map(MenuItemImportRow::getTitle).toList();
+            upsertCalls.add(titles);
+            if (titles.contains("壞")) {
+                throw new DataIntegrityViolationException("Data too long for column 'title'");
+            }
+            return null;
+        });
+        RestaurantRepository restaurantRepository = stub(RestaurantRepository.class, "existsById", args -> true);
+
+        service = new MenuImportServiceImpl();
+        ReflectionTestUtils.setField(service, "menuItemRepository", menuItemRepository);
+        ReflectionTestUtils.setField(service, "restaurantRepository", restaurantRepository);
+        ReflectionTestUtils.setField(service, "menuCatalog", new MenuCatalog() {
+            @Override
+            public void evictAfterCommit(Long menuItemId, Long restaurantId) {
+            }
+        });
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(service, "transactionManager", new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:menu-import-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "")));
+        ReflectionTestUtils.setField(service, "batchSize", 3);
+        ReflectionTestUtils.setField(service, "maxRows", 1000L);
+        ReflectionTestUtils.setField(service, "maxErrors", 10);
+        service.init();
+    }
+
+    private interface Answer {
+        Object answer(Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, String methodName, Answer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals(methodName)) {
+                return answer.answer(args);
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private MenuImportResult importMenu(MenuImportService.Format format, String content) throws Exception {
+        return service.importMenuItems(RESTAURANT_ID, format, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void parsesNdjsonAndReportsInvalidLines() throws Exception {
+        MenuImportResult result = importMenu(MenuImportService.Format.NDJSON, """
+                {"title": " 滷肉飯 ", "price": 80}
+
+                {"title": "雞腿飯", "price":
+                {"title": "排骨飯", "price": -1}
+                {"title": "魯蛋", "price": 15, "available": false}
+                """);
+
+        assertEquals(4, result.getTotalRows()); // 空白行不計
+        assertEquals(2, result.getUpsertedRows());
+        assertEquals(2, result.getFailedRows());
+        assertEquals(List.of(3L, 4L), result.getErrors().stream().map(MenuImportResult.RowError::getLine).toList());
+        assertEquals(List.of(List.of("滷肉飯", "魯蛋")), upsertCalls);
+    }
+
+    @Test
+    void retriesFailedBatchRowByRow() throws Exception {
+        MenuImportResult result = importMenu(MenuImportService.Format.CSV, """
+                title,price
+                滷肉飯,80
+                壞,10
+                "雞腿飯, 大",120
+                排骨飯,110
+                """);
+
+        assertEquals(4, result.getTotalRows());
+        assertEquals(3, result.getUpsertedRows());
+        assertEquals(1, result.getFailedRows());
+        MenuImportResult.RowError error = result.getErrors().get(0);
+        assertEquals(3, error.getLine()); // 含標題列的行號
+        assertTrue(error.getMessage().startsWith("寫入失敗"), error.getMessage());
+        assertEquals(List.of(
+                List.of("滷肉飯", "壞", "雞腿飯, 大"), // 整批失敗
+                List.of("滷肉飯"), List.of("壞"), List.of("雞腿飯, 大"),
+                List.of("排骨飯")), upsertCalls);
+    }
+}
@@ -0,0 +1,130 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.dao.entity.Address;
+import com.matsuzaka.foodtiger.dao.entity.MenuItem;
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.entity.Orderr;
+import com.matsuzaka.foodtiger.dao.entity.Restaurant;
+import com.matsuzaka.foodtiger.dao.entity.Role;
+import com.matsuzaka.foodtiger.dao.entity.User;
+import com.matsuzaka.foodtiger.dao.repository.AddressRepository;
+import com.matsuzaka.foodtiger.dao.repository.MenuItemRepository;
+import com.matsuzaka.foodtiger.dao.repository.RestaurantRepository;
+import com.matsuzaka.foodtiger.dao.repository.UserRepository;
+import com.matsuzaka.foodtiger.dto.OrderItemRequest;
+import com.matsuzaka.foodtiger.dto.OrderRequest;
+import com.matsuzaka.foodtiger.service.OrderrService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 驗證處理中的時限到期時，只有資料庫中仍是處理中的訂單會被自動取消並寫入 SLA_BREACHED 事件；
+ * 已被其他節點接單 (計時器仍是處理中) 的訂單略過。
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:foodtiger-sla;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "app.sla.tick-ms=20"
+})
+@ActiveProfiles("h2")
+class OrderSlaTimerTests {
+
+    @Autowired
+    private OrderSlaTimer orderSlaTimer;
+    @Autowired
+    private OrderrService orderrService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User newUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    private Address newAddress(User user) {
+        Address address = new Address();
+        address.setUser(user);
+        address.setCity("台北市");
+        address.setDistrict("大安區");
+        address.setStreet("復興南路二段200號");
+        return addressRepository.save(address);
+    }
+
+    @Test
+    void autoCancelsOnlyOrdersStillProcessing() throws Exception {
+        User customer = newUser("sla-customer", Role.CUSTOMER);
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("時限餐廳");
+        restaurant.setOwner(newUser("sla-owner", Role.RESTAURANT_OWNER));
+        restaurant.setAddress(newAddress(null));
+        restaurant = restaurantRepository.save(restaurant);
+        MenuItem menuItem = new MenuItem();
+        menuItem.setRestaurant(restaurant);
+        menuItem.setTitle("雞腿飯");
+        menuItem.setPrice(120);
+        menuItem = menuItemRepository.save(menuItem);
+
+        OrderItemRequest item = new OrderItemRequest();
+        item.setMenuItemId(menuItem.getId());
+        item.setQuantity(1);
+        OrderRequest request = new OrderRequest();
+        request.setUserId(customer.getId());
+        request.setRestaurantId(restaurant.getId());
+        request.setDeliveryAddressId(newAddress(customer).getId());
+        request.setItems(List.of(item));
+        Orderr waiting = orderrService.createOrder(request);
+        Orderr accepted = orderrService.createOrder(request);
+
+        // 兩筆都在一小時前下單；其中一筆已被其他節點接單，這個節點的計時器仍是處理中
+        Timestamp anHourAgo = Timestamp.valueOf(LocalDateTime.now().minusHours(1));
+        jdbcTemplate.update("UPDATE orderr SET orderr_time = ? WHERE id IN (?, ?)", anHourAgo, waiting.getId(), accepted.getId());
+        jdbcTemplate.update("UPDATE orderr SET status = ? WHERE id = ?", OrderStatus.準備中.name(), accepted.getId());
+        orderSlaTimer.scheduleAfterCommit(waiting.getId(), OrderStatus.處理中, anHourAgo);
+        orderSlaTimer.scheduleAfterCommit(accepted.getId(), OrderStatus.處理中, anHourAgo);
+
+        @SuppressWarnings("unchecked")
+        Map<Long, ?> scheduled = (Map<Long, ?>) ReflectionTestUtils.getField(orderSlaTimer, "scheduledByOrderId");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ((scheduled.containsKey(waiting.getId()) || scheduled.containsKey(accepted.getId())
+                || !OrderStatus.取消.name().equals(statusOf(waiting))) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(OrderStatus.取消.name(), statusOf(waiting));
+        assertEquals(OrderStatus.準備中.name(), statusOf(accepted));
+        assertEquals(1, breachedEvents(waiting));
+        assertEquals(0, breachedEvents(accepted));
+        assertFalse(scheduled.containsKey(waiting.getId()), "已取消的訂單不應留下計時器");
+    }
+
+    private String statusOf(Orderr orderr) {
+        return jdbcTemplate.queryForObject("SELECT status FROM orderr WHERE id = ?", String.class, orderr.getId());
+    }
+
+    private Integer breachedEvents(Orderr orderr) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_event_outbox WHERE event_type = 'SLA_BREACHED' AND order_id = ?",
+                Integer.class, orderr.getId());
+    }
+}
@@ -0,0 +1,156 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.dao.entity.Address;
+import com.matsuzaka.foodtiger.dao.entity.MenuItem;
+import com.matsuzaka.foodtiger.dao.entity.OrderStatus;
+import com.matsuzaka.foodtiger.dao.entity.Orderr;
+import com.matsuzaka.foodtiger.dao.entity.Restaurant;
+import com.matsuzaka.foodtiger.dao.entity.Role;
+import com.matsuzaka.foodtiger.dao.entity.User;
+import com.matsuzaka.foodtiger.dao.repository.AddressRepository;
+import com.matsuzaka.foodtiger.dao.repository.MenuItemRepository;
+import com.matsuzaka.foodtiger.dao.repository.OrderrRepository;
+import com.matsuzaka.foodtiger.dao.repository.RestaurantRepository;
+import com.matsuzaka.foodtiger.dao.repository.UserRepository;
+import com.matsuzaka.foodtiger.dto.BulkOrderStatusUpdateResult;
+import com.matsuzaka.foodtiger.dto.BulkOrderStatusUpdateResult.Outcome;
+import com.matsuzaka.foodtiger.dto.OrderItemRequest;
+import com.matsuzaka.foodtiger.dto.OrderRequest;
+import com.matsuzaka.foodtiger.service.OrderrService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 驗證 bulkUpdateOrderStatus：每筆訂單依序回傳 UPDATED、NOT_FOUND、UNAUTHORIZED 或 INVALID_TRANSITION，
+ * 只有符合條件的訂單被更新，批次取消的訂單於提交後計入銷售彙總的取消筆數與金額；
+ * 以及批次更新鎖住訂單時不會鎖住所屬餐廳，其他交易仍可寫入 restaurant。
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderrServiceBulkStatusTests {
+
+    private static final long MISSING_ORDER_ID = 1L; // Snowflake ID 不會是 1
+
+    @Autowired
+    private OrderrService orderrService;
+    @Autowired
+    private OrderrRepository orderrRepository;
+    @Autowired
+    private RestaurantSalesRollup restaurantSalesRollup;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User newUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    private Address newAddress(User user) {
+        Address address = new Address();
+        address.setUser(user);
+        address.setCity("台北市");
+        address.setDistrict("大安區");
+        address.setStreet("復興南路二段200號");
+        return addressRepository.save(address);
+    }
+
+    private OrderRequest newOrderRequest(String prefix) {
+        User customer = newUser(prefix + "-customer", Role.CUSTOMER);
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName(prefix + " 餐廳");
+        restaurant.setOwner(newUser(prefix + "-owner", Role.RESTAURANT_OWNER));
+        restaurant.setAddress(newAddress(null));
+        restaurant = restaurantRepository.save(restaurant);
+        MenuItem menuItem = new MenuItem();
+        menuItem.setRestaurant(restaurant);
+        menuItem.setTitle("排骨飯");
+        menuItem.setPrice(110);
+        menuItem = menuItemRepository.save(menuItem);
+
+        OrderItemRequest item = new OrderItemRequest();
+        item.setMenuItemId(menuItem.getId());
+        item.setQuantity(2);
+        OrderRequest request = new OrderRequest();
+        request.setUserId(customer.getId());
+        request.setRestaurantId(restaurant.getId());
+        request.setDeliveryAddressId(newAddress(customer).getId());
+        request.setItems(List.of(item));
+        return request;
+    }
+
+    @Test
+    void reportsOutcomePerOrderAndRecordsBulkCancellation() throws Exception {
+        OrderRequest ownRequest = newOrderRequest("bulk-a");
+        OrderRequest otherRequest = newOrderRequest("bulk-b");
+        Long ownerId = restaurantRepository.findById(ownRequest.getRestaurantId()).orElseThrow().getOwner().getId();
+        Orderr cancellable = orderrService.createOrder(ownRequest);
+        Orderr completed = orderrService.createOrder(ownRequest);
+        Orderr otherRestaurants = orderrService.createOrder(otherRequest);
+        jdbcTemplate.update("UPDATE orderr SET status = ? WHERE id = ?", OrderStatus.完成.name(), completed.getId());
+
+        List<BulkOrderStatusUpdateResult> results = orderrService.bulkUpdateOrderStatus(List.of(
+                        cancellable.getId(), completed.getId(), otherRestaurants.getId(), MISSING_ORDER_ID, cancellable.getId()),
+                OrderStatus.取消, ownerId);
+
+        assertEquals(List.of(cancellable.getId(), completed.getId(), otherRestaurants.getId(), MISSING_ORDER_ID),
+                results.stream().map(BulkOrderStatusUpdateResult::getOrderId).toList()); // 重複的 ID 只處理一次
+        assertEquals(List.of(Outcome.UPDATED, Outcome.INVALID_TRANSITION, Outcome.UNAUTHORIZED, Outcome.NOT_FOUND),
+                results.stream().map(BulkOrderStatusUpdateResult::getOutcome).toList());
+        assertEquals(OrderStatus.處理中, results.get(0).getPreviousStatus());
+        assertEquals(OrderStatus.完成, results.get(1).getPreviousStatus());
+        assertEquals(OrderStatus.取消.name(), statusOf(cancellable));
+        assertEquals(OrderStatus.完成.name(), statusOf(completed));
+        assertEquals(OrderStatus.處理中.name(), statusOf(otherRestaurants));
+
+        restaurantSalesRollup.flush();
+        Map<String, Object> sales = jdbcTemplate.queryForMap("SELECT SUM(order_count) AS order_count, " +
+                "SUM(cancelled_count) AS cancelled_count, SUM(cancelled_amount) AS cancelled_amount " +
+                "FROM restaurant_sales_hourly WHERE restaurant_id = ?", ownRequest.getRestaurantId());
+        assertEquals(2L, ((Number) sales.get("order_count")).longValue());
+        assertEquals(1L, ((Number) sales.get("cancelled_count")).longValue());
+        assertEquals(cancellable.getTotalAmount().longValue(), ((Number) sales.get("cancelled_amount")).longValue());
+    }
+
+    @Test
+    void lockStatusRowsDoesNotLockRestaurant() throws Exception {
+        OrderRequest request = newOrderRequest("bulk-lock");
+        Orderr orderr = orderrService.createOrder(request);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(1, orderrRepository.lockStatusRows(List.of(orderr.getId())).size());
+            // 另一個交易更新同一間餐廳 (如評分累加)，不應等到批次更新的交易結束
+            CompletableFuture<Integer> restaurantWrite = CompletableFuture.supplyAsync(() -> jdbcTemplate.update(
+                    "UPDATE restaurant SET rating_count = rating_count WHERE id = ?", request.getRestaurantId()));
+            assertEquals(1, restaurantWrite.orTimeout(5, TimeUnit.SECONDS).join());
+        });
+    }
+
+    private String statusOf(Orderr orderr) {
+        return jdbcTemplate.queryForObject("SELECT status FROM orderr WHERE id = ?", String.class, orderr.getId());
+    }
+}
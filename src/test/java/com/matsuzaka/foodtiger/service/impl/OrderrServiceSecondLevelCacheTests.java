@@ -0,0 +1,105 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.dao.entity.Address;
+import com.matsuzaka.foodtiger.dao.entity.MenuItem;
+import com.matsuzaka.foodtiger.dao.entity.Restaurant;
+import com.matsuzaka.foodtiger.dao.entity.Role;
+import com.matsuzaka.foodtiger.dao.entity.User;
+import com.matsuzaka.foodtiger.dao.repository.AddressRepository;
+import com.matsuzaka.foodtiger.dao.repository.MenuItemRepository;
+import com.matsuzaka.foodtiger.dao.repository.RestaurantRepository;
+import com.matsuzaka.foodtiger.dao.repository.UserRepository;
+import com.matsuzaka.foodtiger.dto.OrderItemRequest;
+import com.matsuzaka.foodtiger.dto.OrderRequest;
+import com.matsuzaka.foodtiger.service.OrderrService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 驗證同一用戶第二次下單時，User、Restaurant、Address 由二級快取取得，不再查詢資料庫。
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class OrderrServiceSecondLevelCacheTests {
+
+    @Autowired
+    private OrderrService orderrService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private RestaurantRepository restaurantRepository;
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User newUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    private Address newAddress(User user) {
+        Address address = new Address();
+        address.setUser(user);
+        address.setCity("台北市");
+        address.setDistrict("大安區");
+        address.setStreet("復興南路二段200號");
+        return addressRepository.save(address);
+    }
+
+    @Test
+    void secondCreateOrderReadsReferenceEntitiesFromCache() throws Exception {
+        User customer = newUser("l2-customer", Role.CUSTOMER);
+        User owner = newUser("l2-owner", Role.RESTAURANT_OWNER);
+        Address customerAddress = newAddress(customer);
+
+        Restaurant restaurant = new Restaurant();
+        restaurant.setName("快取餐廳");
+        restaurant.setOwner(owner);
+        restaurant.setAddress(newAddress(null));
+        restaurant = restaurantRepository.save(restaurant);
+
+        MenuItem menuItem = new MenuItem();
+        menuItem.setRestaurant(restaurant);
+        menuItem.setTitle("滷肉飯");
+        menuItem.setPrice(80);
+        menuItem = menuItemRepository.save(menuItem);
+
+        OrderItemRequest item = new OrderItemRequest();
+        item.setMenuItemId(menuItem.getId());
+        item.setQuantity(1);
+        OrderRequest request = new OrderRequest();
+        request.setUserId(customer.getId());
+        request.setRestaurantId(restaurant.getId());
+        request.setDeliveryAddressId(customerAddress.getId());
+        request.setItems(List.of(item));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        orderrService.createOrder(request); // 第一次下單，確保快取已填入
+
+        statistics.clear();
+        orderrService.createOrder(request);
+
+        assertEquals(0, statistics.getEntityStatistics(User.class.getName()).getLoadCount(), "User 不應再從資料庫載入");
+        assertEquals(0, statistics.getEntityStatistics(Restaurant.class.getName()).getLoadCount(), "Restaurant 不應再從資料庫載入");
+        assertEquals(0, statistics.getEntityStatistics(Address.class.getName()).getLoadCount(), "Address 不應再從資料庫載入");
+        assertTrue(statistics.getDomainDataRegionStatistics("user").getHitCount() > 0);
+        assertTrue(statistics.getDomainDataRegionStatistics("restaurant").getHitCount() > 0);
+        assertTrue(statistics.getDomainDataRegionStatistics("address").getHitCount() > 0);
+    }
+}
@@ -0,0 +1,117 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import com.matsuzaka.foodtiger.dao.entity.MenuItem;
+import com.matsuzaka.foodtiger.dao.entity.OrderItem;
+import com.matsuzaka.foodtiger.dto.PopularMenuItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 驗證熱門菜單的串流統計：count-min sketch 不會低估、每間餐廳依點購份數排名、快照重啟後還原，
+ * 以及 findPopularMenuItems 把 limit 限制在 1 到 top-k 之間。
+ */
+class PopularMenuItemTrackerTests {
+
+    private static final long RESTAURANT_ID = 1L;
+    private static final int TOP_K = 3;
+
+    @TempDir
+    Path tempDir;
+
+    private PopularMenuItemTracker newTracker() {
+        PopularMenuItemTracker tracker = new PopularMenuItemTracker();
+        ReflectionTestUtils.setField(tracker, "topK", TOP_K);
+        ReflectionTestUtils.setField(tracker, "halfLifeHours", 168d);
+        ReflectionTestUtils.setField(tracker, "sketchDepth", 4);
+        ReflectionTestUtils.setField(tracker, "sketchWidth", 65536);
+        ReflectionTestUtils.setField(tracker, "snapshotFile", tempDir.resolve("popular.snapshot").toString());
+        tracker.init();
+        return tracker;
+    }
+
+    private static OrderItem orderItem(long menuItemId, int quantity) {
+        MenuItem menuItem = new MenuItem();
+        menuItem.setId(menuItemId);
+        OrderItem orderItem = new OrderItem();
+        orderItem.setMenuItem(menuItem);
+        orderItem.setQuantity(quantity);
+        return orderItem;
+    }
+
+    // 每個菜單項目 ID 點購 id 份，ID 越大越熱門
+    private static void recordOrders(PopularMenuItemTracker tracker, int menuItems) {
+        for (long id = 1; id <= menuItems; id++) {
+            tracker.recordAfterCommit(RESTAURANT_ID, List.of(orderItem(id, (int) id)));
+        }
+    }
+
+    private static List<Long> rankedIds(PopularMenuItemTracker tracker) {
+        return tracker.top(RESTAURANT_ID).stream().map(PopularMenuItemTracker.Ranked::menuItemId).toList();
+    }
+
+    @Test
+    void sketchNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(4, 64); // 故意設窄，讓 key 互相碰撞
+        Map<Long, Double> actual = new HashMap<>();
+        for (long key = 0; key < 1000; key++) {
+            double weight = key % 7 + 1;
+            sketch.add(key, weight);
+            actual.merge(key, weight, Double::sum);
+        }
+        actual.forEach((key, weight) -> assertTrue(sketch.estimate(key) >= weight, "key " + key + " 被低估"));
+    }
+
+    @Test
+    void ranksHeavyHittersPerRestaurant() {
+        PopularMenuItemTracker tracker = newTracker();
+        recordOrders(tracker, 10);
+        tracker.recordAfterCommit(2L, List.of(orderItem(100, 50))); // 其他餐廳不影響排名
+
+        List<Long> ranked = rankedIds(tracker);
+        assertEquals(List.of(10L, 9L, 8L), ranked.subList(0, TOP_K));
+        assertTrue(ranked.size() <= TOP_K * 2, "候選數不應超過 top-k 的兩倍");
+        assertEquals(List.of(100L), tracker.top(2L).stream().map(PopularMenuItemTracker.Ranked::menuItemId).toList());
+        assertTrue(tracker.top(3L).isEmpty());
+    }
+
+    @Test
+    void restoresFromSnapshotAfterRestart() {
+        PopularMenuItemTracker tracker = newTracker();
+        recordOrders(tracker, 10);
+        tracker.snapshot();
+
+        assertEquals(rankedIds(tracker), rankedIds(newTracker()));
+    }
+
+    @Test
+    void clampsPopularLimitToTopK() {
+        PopularMenuItemTracker tracker = newTracker();
+        recordOrders(tracker, 10);
+        Map<Long, MenuCatalog.Item> menu = new HashMap<>();
+        for (long id = 1; id <= 10; id++) {
+            menu.put(id, new MenuCatalog.Item(id, RESTAURANT_ID, "品項 " + id, 100, true));
+        }
+        MenuItemServiceImpl service = new MenuItemServiceImpl();
+        ReflectionTestUtils.setField(service, "popularMenuItemTracker", tracker);
+        ReflectionTestUtils.setField(service, "menuCatalog", new MenuCatalog() {
+            @Override
+            public Map<Long, Item> menuOf(Long restaurantId) {
+                return menu;
+            }
+        });
+
+        assertEquals(List.of(10L, 9L), service.findPopularMenuItems(RESTAURANT_ID, 2).stream().map(PopularMenuItem::getMenuItemId).toList());
+        assertEquals(TOP_K, service.findPopularMenuItems(RESTAURANT_ID, 100).size());
+        assertEquals(1, service.findPopularMenuItems(RESTAURANT_ID, 0).size());
+        assertEquals(1, service.findPopularMenuItems(RESTAURANT_ID, -5).size());
+    }
+}
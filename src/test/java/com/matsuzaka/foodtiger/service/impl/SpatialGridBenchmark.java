@@ -0,0 +1,110 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SpatialGrid 最近鄰查詢的延遲，與逐一計算所有外送員距離的線性掃描比較。
+ * 外送員均勻散布在約 40 公里見方的範圍，其中一成忙碌、一成位置過舊。
+ *
+ * <p>在 IDE 直接執行 main，或 mvn test-compile 後以 test classpath 執行此類別；不屬於 mvn test。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialGridBenchmark {
+
+    private static final int LAT_E7 = 250_450_000;
+    private static final int LON_E7 = 1_215_050_000;
+    private static final int SPREAD_E7 = 2_000_000; // ±0.2 度
+    private static final int K = 5;
+    private static final double MAX_DISTANCE_METERS = 10_000;
+    private static final long FRESH_AFTER = 100;
+
+    @Param({"1000", "20000"})
+    private int couriers;
+
+    private SpatialGrid grid;
+    private int[] latitudes;
+    private int[] longitudes;
+    private long[] updatedAt;
+    private int[] queryLatitudes;
+    private int[] queryLongitudes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        grid = new SpatialGrid(0.01);
+        latitudes = new int[couriers];
+        longitudes = new int[couriers];
+        updatedAt = new long[couriers];
+        for (int id = 0; id < couriers; id++) {
+            latitudes[id] = LAT_E7 + random.nextInt(-SPREAD_E7, SPREAD_E7);
+            longitudes[id] = LON_E7 + random.nextInt(-SPREAD_E7, SPREAD_E7);
+            updatedAt[id] = id % 10 == 1 ? 0 : 1000;
+            grid.put(id, latitudes[id], longitudes[id], updatedAt[id]);
+        }
+        queryLatitudes = new int[1024];
+        queryLongitudes = new int[1024];
+        for (int i = 0; i < queryLatitudes.length; i++) {
+            queryLatitudes[i] = LAT_E7 + random.nextInt(-SPREAD_E7, SPREAD_E7);
+            queryLongitudes[i] = LON_E7 + random.nextInt(-SPREAD_E7, SPREAD_E7);
+        }
+    }
+
+    private static boolean available(long id) {
+        return id % 10 != 0;
+    }
+
+    @Benchmark
+    public Object grid() { // SpatialGrid 僅限同套件，JMH 產生的類別在其他套件
+        int i = next++ & (queryLatitudes.length - 1);
+        return grid.nearest(queryLatitudes[i], queryLongitudes[i], K, MAX_DISTANCE_METERS, FRESH_AFTER, SpatialGridBenchmark::available);
+    }
+
+    @Benchmark
+    public double[] linearScan() {
+        int i = next++ & (queryLatitudes.length - 1);
+        double[] best = new double[K];
+        Arrays.fill(best, Double.MAX_VALUE);
+        for (int id = 0; id < couriers; id++) {
+            if (updatedAt[id] < FRESH_AFTER || !available(id)) {
+                continue;
+            }
+            double distance = CourierTrack.distanceMeters(queryLatitudes[i], queryLongitudes[i], latitudes[id], longitudes[id]);
+            if (distance <= MAX_DISTANCE_METERS && distance < best[K - 1]) {
+                int position = K - 1;
+                while (position > 0 && best[position - 1] > distance) {
+                    best[position] = best[position - 1];
+                    position--;
+                }
+                best[position] = distance;
+            }
+        }
+        return best;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SpatialGridBenchmark.class.getSimpleName()).build()).run();
+    }
+}
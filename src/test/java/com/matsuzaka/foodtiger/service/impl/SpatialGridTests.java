@@ -0,0 +1,80 @@
+package com.matsuzaka.foodtiger.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 驗證 SpatialGrid 的最近鄰查詢：距離排序與上限、外圈擴張的停止條件、條件在挑選前套用，以及跨格移動與移除。
+ */
+class SpatialGridTests {
+
+    private static final double CELL_DEGREES = 0.01; // 緯度約 1.1 公里
+    private static final double LAT = 25.045;         // 格子中央
+    private static final double LON = 121.505;
+
+    private final SpatialGrid grid = new SpatialGrid(CELL_DEGREES);
+
+    private void put(long id, double latitude, double longitude, long updatedAt) {
+        grid.put(id, CourierTrack.toE7(latitude), CourierTrack.toE7(longitude), updatedAt);
+    }
+
+    private List<Long> nearestIds(double latitude, double longitude, int k, double maxDistanceMeters) {
+        return grid.nearest(CourierTrack.toE7(latitude), CourierTrack.toE7(longitude), k, maxDistanceMeters, 0, id -> true)
+                .stream().map(SpatialGrid.Neighbor::id).toList();
+    }
+
+    @Test
+    void returnsNearestSortedWithinMaxDistance() {
+        put(3, LAT + 0.02, LON, 1);  // 約 2.2 公里
+        put(1, LAT + 0.001, LON, 1); // 約 110 公尺
+        put(4, LAT + 0.2, LON, 1);   // 約 22 公里，超過上限
+        put(2, LAT + 0.003, LON, 1); // 約 330 公尺
+
+        assertEquals(List.of(1L, 2L, 3L), nearestIds(LAT, LON, 10, 10_000));
+        assertEquals(List.of(1L, 2L), nearestIds(LAT, LON, 2, 10_000));
+    }
+
+    @Test
+    void visitsNextRingWhenItMayHoldCloserNeighbor() {
+        double nearTopOfCell = 25.0499;
+        put(1, 25.0401, LON, 1); // 同一格但約 1.1 公里
+        put(2, 25.0501, LON, 1); // 上方相鄰格，約 20 公尺
+
+        assertEquals(List.of(2L), nearestIds(nearTopOfCell, LON, 1, 10_000));
+    }
+
+    @Test
+    void filteredOrStaleNeighborsDoNotTakeSlots() {
+        for (long id = 1; id <= 5; id++) {
+            put(id, LAT + id * 0.0001, LON, 100); // 附近但位置過舊或忙碌
+        }
+        put(9, LAT + 0.05, LON, 1000); // 約 5.5 公里，需要擴張好幾圈
+
+        List<SpatialGrid.Neighbor> fresh = grid.nearest(CourierTrack.toE7(LAT), CourierTrack.toE7(LON), 1, 10_000, 500, id -> true);
+        List<SpatialGrid.Neighbor> available = grid.nearest(CourierTrack.toE7(LAT), CourierTrack.toE7(LON), 1, 10_000, 0, id -> id == 9);
+
+        assertEquals(List.of(9L), fresh.stream().map(SpatialGrid.Neighbor::id).toList());
+        assertEquals(List.of(9L), available.stream().map(SpatialGrid.Neighbor::id).toList());
+    }
+
+    @Test
+    void movesAcrossCellsAndIgnoresOlderUpdates() {
+        put(1, LAT, LON, 1);
+        put(1, LAT + 0.1, LON, 2); // 移動約 11 公里
+
+        assertTrue(nearestIds(LAT, LON, 1, 1_000).isEmpty());
+        assertEquals(List.of(1L), nearestIds(LAT + 0.1, LON, 1, 1_000));
+
+        put(1, LAT, LON, 1); // 較舊的位置晚到，略過
+        assertTrue(nearestIds(LAT, LON, 1, 1_000).isEmpty());
+        assertEquals(1, grid.size());
+
+        grid.remove(1);
+        assertEquals(0, grid.size());
+        assertTrue(nearestIds(LAT + 0.1, LON, 1, 1_000).isEmpty());
+    }
+}